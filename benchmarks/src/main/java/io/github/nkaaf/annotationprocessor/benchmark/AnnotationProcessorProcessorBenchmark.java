@@ -0,0 +1,136 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.benchmark.RoundTimingProcessor.Phase;
+import org.openjdk.jmh.annotations.*;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Benchmark of {@link io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor} over synthetic
+ * corpora of annotated classes.
+ * </p>
+ *
+ * <p>
+ * Every invocation is one in-process compilation with a clean output directory. Besides the time of the whole
+ * compilation, the time and allocated bytes of the validation rounds and of the last round writing the service file
+ * are reported as secondary results, measured around the processor by a {@link RoundTimingProcessor}. Run with
+ * {@code -prof gc} to get the allocation rate of the whole compilation.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotationProcessorProcessorBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int corpusSize;
+
+    @Param({ "ABSTRACT_PROCESSOR", "PROCESSOR" })
+    public Corpus.Shape shape;
+
+    private Corpus corpus;
+    private File outputDirectory;
+
+    @Setup(Level.Trial)
+    public void generateCorpus() throws IOException {
+        this.corpus = Corpus.generate(this.corpusSize, this.shape);
+        this.outputDirectory = Files.createTempDirectory("annotationprocessor-out").toFile();
+    }
+
+    @Setup(Level.Iteration)
+    public void cleanOutputDirectory() {
+        File[] children = this.outputDirectory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                Corpus.deleteRecursively(child);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() {
+        this.corpus.delete();
+        Corpus.deleteRecursively(this.outputDirectory);
+    }
+
+    @Benchmark
+    public RoundTimingProcessor compile(PhaseCounters counters) throws IOException {
+        RoundTimingProcessor processor = new RoundTimingProcessor();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (!Compilation.compile(this.corpus.getSources(), this.outputDirectory, processor, diagnostics)) {
+            throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        counters.record(processor);
+        return processor;
+    }
+
+    /**
+     * Secondary results with the time and allocated bytes of each {@link Phase}, summed up over an iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PhaseCounters {
+
+        public double validationMs;
+        public double serviceFileMs;
+
+        public long validationBytes;
+        public long serviceFileBytes;
+
+        private static double toMillis(long nanos) {
+            return nanos / 1e6;
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.validationMs = 0;
+            this.serviceFileMs = 0;
+            this.validationBytes = 0;
+            this.serviceFileBytes = 0;
+        }
+
+        void record(RoundTimingProcessor processor) {
+            this.validationMs += toMillis(processor.getNanos(Phase.VALIDATION));
+            this.serviceFileMs += toMillis(processor.getNanos(Phase.SERVICE_FILE));
+            this.validationBytes += processor.getAllocatedBytes(Phase.VALIDATION);
+            this.serviceFileBytes += processor.getAllocatedBytes(Phase.SERVICE_FILE);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.Processor;
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * In-process compilation with the system java compiler, set up like the compilations of the project's tests.
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class Compilation {
+
+    private Compilation() {
+    }
+
+    /**
+     * Run annotation processing over the sources with a single processor. No class files are generated.
+     *
+     * @param sources
+     *            {@link List} of source files
+     * @param outputDirectory
+     *            Directory of the generated resources
+     * @param processor
+     *            {@link Processor} to run
+     * @param diagnosticCollector
+     *            {@link DiagnosticCollector} for the compiler messages
+     *
+     * @return true if the compilation succeeded, false otherwise
+     *
+     * @throws IOException
+     *             if the file manager cannot be closed
+     */
+    public static boolean compile(List<File> sources, File outputDirectory, Processor processor,
+            DiagnosticCollector<JavaFileObject> diagnosticCollector) throws IOException {
+        return compile(sources, outputDirectory, processor, diagnosticCollector, Collections.<String> emptyList());
+    }
+
+    /**
+     * Run annotation processing over the sources with a single processor and additional compiler options. No class
+     * files are generated.
+     *
+     * @param sources
+     *            {@link List} of source files
+     * @param outputDirectory
+     *            Directory of the generated resources
+     * @param processor
+     *            {@link Processor} to run
+     * @param diagnosticCollector
+     *            {@link DiagnosticCollector} for the compiler messages
+     * @param additionalOptions
+     *            Additional compiler options, e.g. processor options
+     *
+     * @return true if the compilation succeeded, false otherwise
+     *
+     * @throws IOException
+     *             if the file manager cannot be closed
+     */
+    public static boolean compile(List<File> sources, File outputDirectory, Processor processor,
+            DiagnosticCollector<JavaFileObject> diagnosticCollector, List<String> additionalOptions)
+            throws IOException {
+        return compile(sources, outputDirectory, processor, diagnosticCollector, additionalOptions, true);
+    }
+
+    /**
+     * Compile the sources with a single processor and additional compiler options. The class files and the generated
+     * sources and resources are written to the output directory.
+     *
+     * @param sources
+     *            {@link List} of source files
+     * @param outputDirectory
+     *            Directory of the class files and the generated sources and resources
+     * @param processor
+     *            {@link Processor} to run
+     * @param diagnosticCollector
+     *            {@link DiagnosticCollector} for the compiler messages
+     * @param additionalOptions
+     *            Additional compiler options, e.g. processor options
+     *
+     * @return true if the compilation succeeded, false otherwise
+     *
+     * @throws IOException
+     *             if the file manager cannot be closed
+     */
+    public static boolean compileClasses(List<File> sources, File outputDirectory, Processor processor,
+            DiagnosticCollector<JavaFileObject> diagnosticCollector, List<String> additionalOptions)
+            throws IOException {
+        return compile(sources, outputDirectory, processor, diagnosticCollector, additionalOptions, false);
+    }
+
+    /**
+     * Run annotation processing over the sources with the processors discovered on a processor path, like a build
+     * tool running javac. The compiler loads the processors with a new class loader. No class files are generated.
+     *
+     * @param sources
+     *            {@link List} of source files
+     * @param outputDirectory
+     *            Directory of the generated resources
+     * @param processorPath
+     *            Directory or jar of the processors and their service file
+     * @param diagnosticCollector
+     *            {@link DiagnosticCollector} for the compiler messages
+     *
+     * @return true if the compilation succeeded, false otherwise
+     *
+     * @throws IOException
+     *             if the file manager cannot be closed
+     */
+    public static boolean compileWithProcessorPath(List<File> sources, File outputDirectory, File processorPath,
+            DiagnosticCollector<JavaFileObject> diagnosticCollector) throws IOException {
+        return compile(sources, outputDirectory, null, diagnosticCollector,
+                Arrays.asList("-processorpath", processorPath.getPath()), true);
+    }
+
+    private static boolean compile(List<File> sources, File outputDirectory, Processor processor,
+            DiagnosticCollector<JavaFileObject> diagnosticCollector, List<String> additionalOptions,
+            boolean processingOnly) throws IOException {
+        List<String> options = new ArrayList<>(Arrays.asList("-d", outputDirectory.getPath(), "-s",
+                outputDirectory.getPath(), "-classpath", System.getProperty("java.class.path")));
+        if (processingOnly) {
+            options.add("-proc:only");
+        }
+        options.addAll(additionalOptions);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sources);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnosticCollector, options, null,
+                units);
+        if (processor != null) {
+            task.setProcessors(Collections.singletonList(processor));
+        }
+        boolean success = task.call();
+        fileManager.close();
+        return success;
+    }
+}
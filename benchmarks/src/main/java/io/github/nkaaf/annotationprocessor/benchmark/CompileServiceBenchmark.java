@@ -0,0 +1,102 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor;
+import io.github.nkaaf.annotationprocessor.testkit.CompileService;
+import io.github.nkaaf.annotationprocessor.testkit.InMemoryCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Benchmark of 1,000 sequential test compilations with the test kit, each compiling one annotated class with
+ * {@link AnnotationProcessorProcessor} like a test of the processor.
+ * </p>
+ *
+ * <p>
+ * A cold {@link CompileService} keeps no idle file managers, so every compilation opens a new standard file manager
+ * and reads the platform classes and the class path again, like the tests did before. A warm service is warmed up
+ * once per trial and reuses its file manager for every compilation. The score is the time of one compilation.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompileServiceBenchmark {
+
+    private static final int COMPILATIONS = 1000;
+
+    @Param({ "false", "true" })
+    public boolean warm;
+
+    private CompileService service;
+    private List<String> options;
+    private List<JavaFileObject> sources;
+
+    @Setup(Level.Trial)
+    public void createService() throws IOException {
+        this.options = Arrays.asList("-classpath", System.getProperty("java.class.path"));
+        this.service = CompileService.create(this.warm ? 1 : 0);
+        if (this.warm) {
+            this.service.warmUp(this.options, 1);
+        }
+        this.sources = new ArrayList<>(COMPILATIONS);
+        for (int i = 0; i < COMPILATIONS; i++) {
+            String className = "TestProcessor" + i;
+            this.sources.add(InMemoryCompiler.source(Corpus.PACKAGE_NAME + "." + className,
+                    Corpus.Shape.ABSTRACT_PROCESSOR.source(className)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeService() throws IOException {
+        this.service.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMPILATIONS)
+    public int compile() throws IOException {
+        for (JavaFileObject source : this.sources) {
+            if (!this.service.newCompiler().withOptions(this.options)
+                    .withProcessorClasses(AnnotationProcessorProcessor.class).compile(source).succeeded()) {
+                throw new IllegalStateException("Compilation of " + source.getName() + " failed");
+            }
+        }
+        return this.service.getCreatedFileManagers();
+    }
+}
@@ -0,0 +1,222 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Synthetic corpus of classes annotated with {@link io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor}.
+ * </p>
+ *
+ * <p>
+ * The sources are written to a temporary directory, which is deleted with {@link #delete()}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class Corpus {
+
+    static final String PACKAGE_NAME = "io.github.nkaaf.annotationprocessor.benchmark.corpus";
+
+    private final File directory;
+    private final List<File> sources;
+
+    private Corpus(File directory, List<File> sources) {
+        this.directory = directory;
+        this.sources = sources;
+    }
+
+    /**
+     * Generate a new corpus.
+     *
+     * @param size
+     *            Number of annotated classes
+     * @param shape
+     *            {@link Shape} of the annotated classes
+     *
+     * @return generated {@link Corpus}
+     *
+     * @throws IOException
+     *             if the sources cannot be written
+     */
+    public static Corpus generate(int size, Shape shape) throws IOException {
+        File directory = Files.createTempDirectory("annotationprocessor-corpus").toFile();
+        File packageDirectory = new File(directory, PACKAGE_NAME.replace('.', File.separatorChar));
+        if (!packageDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + packageDirectory);
+        }
+
+        List<File> sources = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String className = shape.classPrefix + i;
+            File source = new File(packageDirectory, className + ".java");
+            try (OutputStream outputStream = Files.newOutputStream(source.toPath())) {
+                outputStream.write(shape.source(className).getBytes(StandardCharsets.UTF_8));
+            }
+            sources.add(source);
+        }
+        return new Corpus(directory, sources);
+    }
+
+    /**
+     * Get the generated sources.
+     *
+     * @return {@link List} of source files
+     */
+    public List<File> getSources() {
+        return this.sources;
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    public void delete() {
+        deleteRecursively(this.directory);
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            throw new IllegalStateException("Cannot delete " + file);
+        }
+    }
+
+    /**
+     * Shape of the annotated classes of a {@link Corpus}.
+     */
+    public enum Shape {
+        /**
+         * Classes extending {@link javax.annotation.processing.AbstractProcessor}.
+         */
+        ABSTRACT_PROCESSOR("GeneratedAbstractProcessor") {
+            @Override
+            String source(String className) {
+                return "package " + PACKAGE_NAME + ";\n\n"
+                        + "@io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor\n"
+                        + "public class " + className + " extends javax.annotation.processing.AbstractProcessor {\n"
+                        + "    @Override\n"
+                        + "    public boolean process(java.util.Set<? extends javax.lang.model.element.TypeElement> annotations,\n"
+                        + "            javax.annotation.processing.RoundEnvironment roundEnv) {\n"
+                        + "        return false;\n"
+                        + "    }\n"
+                        + "}\n";
+            }
+        },
+
+        /**
+         * Classes extending {@link javax.annotation.processing.AbstractProcessor}, which declare an annotation type
+         * that no source uses. Every instance reads a nested dependency, whose static initializer fills a table with
+         * 10,000 entries, standing in for the libraries a processor loads.
+         */
+        HEAVY_PROCESSOR("GeneratedHeavyProcessor") {
+            @Override
+            String source(String className) {
+                return "package " + PACKAGE_NAME + ";\n\n"
+                        + "@io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor\n"
+                        + "@javax.annotation.processing.SupportedAnnotationTypes(\"" + PACKAGE_NAME + "." + className
+                        + "Annotation\")\n"
+                        + "public class " + className + " extends javax.annotation.processing.AbstractProcessor {\n"
+                        + "    private final int dependencySize = Dependency.TABLE.size();\n\n"
+                        + "    @Override\n"
+                        + "    public boolean process(java.util.Set<? extends javax.lang.model.element.TypeElement> annotations,\n"
+                        + "            javax.annotation.processing.RoundEnvironment roundEnv) {\n"
+                        + "        return false;\n"
+                        + "    }\n\n"
+                        + "    static final class Dependency {\n"
+                        + "        static final java.util.Map<String, Integer> TABLE =\n"
+                        + "                new java.util.HashMap<String, Integer>();\n\n"
+                        + "        static {\n"
+                        + "            for (int i = 0; i < 10000; i++) {\n"
+                        + "                TABLE.put(\"" + className + "\" + i, i);\n"
+                        + "            }\n"
+                        + "        }\n"
+                        + "    }\n"
+                        + "}\n";
+            }
+        },
+
+        /**
+         * Classes implementing {@link javax.annotation.processing.Processor}.
+         */
+        PROCESSOR("GeneratedProcessor") {
+            @Override
+            String source(String className) {
+                return "package " + PACKAGE_NAME + ";\n\n"
+                        + "@io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor\n"
+                        + "public class " + className + " implements javax.annotation.processing.Processor {\n"
+                        + "    @Override\n"
+                        + "    public java.util.Set<String> getSupportedOptions() {\n"
+                        + "        return null;\n"
+                        + "    }\n\n"
+                        + "    @Override\n"
+                        + "    public java.util.Set<String> getSupportedAnnotationTypes() {\n"
+                        + "        return null;\n"
+                        + "    }\n\n"
+                        + "    @Override\n"
+                        + "    public javax.lang.model.SourceVersion getSupportedSourceVersion() {\n"
+                        + "        return null;\n"
+                        + "    }\n\n"
+                        + "    @Override\n"
+                        + "    public void init(javax.annotation.processing.ProcessingEnvironment processingEnv) {\n"
+                        + "    }\n\n"
+                        + "    @Override\n"
+                        + "    public boolean process(java.util.Set<? extends javax.lang.model.element.TypeElement> annotations,\n"
+                        + "            javax.annotation.processing.RoundEnvironment roundEnv) {\n"
+                        + "        return false;\n"
+                        + "    }\n\n"
+                        + "    @Override\n"
+                        + "    public Iterable<? extends javax.annotation.processing.Completion> getCompletions(\n"
+                        + "            javax.lang.model.element.Element element,\n"
+                        + "            javax.lang.model.element.AnnotationMirror annotation,\n"
+                        + "            javax.lang.model.element.ExecutableElement member, String userText) {\n"
+                        + "        return null;\n"
+                        + "    }\n"
+                        + "}\n";
+            }
+        };
+
+        private final String classPrefix;
+
+        Shape(String classPrefix) {
+            this.classPrefix = classPrefix;
+        }
+
+        abstract String source(String className);
+    }
+}
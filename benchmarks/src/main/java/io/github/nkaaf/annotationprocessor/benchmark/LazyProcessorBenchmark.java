@@ -0,0 +1,119 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Benchmark of a compilation with 20 registered processors, none of which supports an annotation of the compiled
+ * source, with and without the lazy processors generated by
+ * {@link io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor}.
+ * </p>
+ *
+ * <p>
+ * The processors are compiled once, with their service file, and every invocation runs javac with them on the
+ * processor path. javac loads the processor path with a new class loader for every compilation and instantiates the
+ * discovered processors until the annotations of the source are claimed. The source carries {@link Deprecated},
+ * which no processor supports, so every processor is instantiated and initialized. Each processor initializes a
+ * dependency with a large table, see {@link Corpus.Shape#HEAVY_PROCESSOR}; a lazy processor never loads it.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyProcessorBenchmark {
+
+    private static final int PROCESSORS = 20;
+    private static final String SERVICE_FILE = "META-INF/services/javax.annotation.processing.Processor";
+    private static final String LAZY_SUFFIX = "_Lazy";
+
+    @Param({ "false", "true" })
+    public boolean lazy;
+
+    private Corpus corpus;
+    private File processorPath;
+    private File sourceDirectory;
+    private List<File> sources;
+
+    @Setup(Level.Trial)
+    public void compileProcessors() throws IOException {
+        this.corpus = Corpus.generate(PROCESSORS, Corpus.Shape.HEAVY_PROCESSOR);
+        this.processorPath = Files.createTempDirectory("annotationprocessor-processorpath").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = this.lazy ? Collections.singletonList("-Aannotationprocessor.lazy=true")
+                : Collections.<String> emptyList();
+        if (!Compilation.compileClasses(this.corpus.getSources(), this.processorPath,
+                new AnnotationProcessorProcessor(), diagnostics, options)) {
+            throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        for (String processor : Files.readAllLines(new File(this.processorPath, SERVICE_FILE).toPath(),
+                StandardCharsets.UTF_8)) {
+            if (processor.endsWith(LAZY_SUFFIX) != this.lazy) {
+                throw new IllegalStateException("Unexpected processor in the service file: " + processor);
+            }
+        }
+
+        this.sourceDirectory = Files.createTempDirectory("annotationprocessor-source").toFile();
+        File source = new File(this.sourceDirectory, "Unprocessed.java");
+        Files.write(source.toPath(), "@Deprecated\npublic class Unprocessed {\n}\n".getBytes(StandardCharsets.UTF_8));
+        this.sources = Collections.singletonList(source);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteProcessors() {
+        this.corpus.delete();
+        Corpus.deleteRecursively(this.processorPath);
+        Corpus.deleteRecursively(this.sourceDirectory);
+    }
+
+    @Benchmark
+    public boolean compile() throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (!Compilation.compileWithProcessorPath(this.sources, this.sourceDirectory, this.processorPath,
+                diagnostics)) {
+            throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,322 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p>
+ * Benchmark of the parallel validation, which was declined for
+ * {@link io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor}.
+ * </p>
+ *
+ * <p>
+ * The model of the compiler can only be used on the compiler thread, so a parallel validation has to snapshot every
+ * annotated class and its supertypes to immutable descriptors first, and can only compare the erased signatures of the
+ * descriptors on other threads. {@link SnapshotValidationProcessor} does exactly this. The secondary result
+ * {@code snapshotMs} is the time of the snapshot on the compiler thread, {@code compareMs} the time of the comparison
+ * on {@code parallelism} threads, including the thread pool of every round. A parallelism of 1 compares on the
+ * compiler thread. The parallel validation can only pay off, if {@code compareMs} is a large part of the
+ * {@code validationMs} of {@link AnnotationProcessorProcessorBenchmark}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelValidationBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int corpusSize;
+
+    @Param({ "1", "2", "4" })
+    public int parallelism;
+
+    private Corpus corpus;
+    private File outputDirectory;
+
+    @Setup(Level.Trial)
+    public void generateCorpus() throws IOException {
+        this.corpus = Corpus.generate(this.corpusSize, Corpus.Shape.PROCESSOR);
+        this.outputDirectory = Files.createTempDirectory("annotationprocessor-out").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() {
+        this.corpus.delete();
+        Corpus.deleteRecursively(this.outputDirectory);
+    }
+
+    @Benchmark
+    public SnapshotValidationProcessor compile(ValidationCounters counters) throws IOException {
+        SnapshotValidationProcessor processor = new SnapshotValidationProcessor(this.parallelism);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (!Compilation.compile(this.corpus.getSources(), this.outputDirectory, processor, diagnostics)) {
+            throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        counters.record(processor);
+        return processor;
+    }
+
+    /**
+     * Secondary results with the time of the snapshot and of the comparison, summed up over an iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class ValidationCounters {
+
+        public double snapshotMs;
+        public double compareMs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.snapshotMs = 0;
+            this.compareMs = 0;
+        }
+
+        void record(SnapshotValidationProcessor processor) {
+            this.snapshotMs += processor.getSnapshotNanos() / 1e6;
+            this.compareMs += processor.getCompareNanos() / 1e6;
+        }
+    }
+
+    /**
+     * <p>
+     * {@link Processor} validating the classes annotated with {@link AnnotationProcessor} like the declined parallel
+     * validation: the classes are snapshotted on the compiler thread and compared against the methods of
+     * {@link Processor} on a thread pool.
+     * </p>
+     *
+     * <p>
+     * A new instance has to be used for every compilation.
+     * </p>
+     */
+    public static final class SnapshotValidationProcessor extends AbstractProcessor {
+
+        private final int parallelism;
+        private final List<String> expectedSignatures = new ArrayList<>();
+        private long snapshotNanos;
+        private long compareNanos;
+        private int missingSignatures;
+
+        SnapshotValidationProcessor(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return Collections.singleton(AnnotationProcessor.class.getName());
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public synchronized void init(ProcessingEnvironment processingEnv) {
+            super.init(processingEnv);
+            TypeElement processorType = processingEnv.getElementUtils().getTypeElement(Processor.class.getName());
+            for (ExecutableElement method : ElementFilter.methodsIn(processorType.getEnclosedElements())) {
+                this.expectedSignatures.add(getErasedSignature(method));
+            }
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (annotations.isEmpty()) {
+                return false;
+            }
+            long start = System.nanoTime();
+            Map<String, Descriptor> descriptors = new HashMap<>();
+            List<String> typeNames = new ArrayList<>();
+            for (TypeElement typeElement : ElementFilter
+                    .typesIn(roundEnv.getElementsAnnotatedWith(annotations.iterator().next()))) {
+                typeNames.add(snapshot(typeElement, descriptors));
+            }
+            this.snapshotNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            this.missingSignatures += compare(typeNames, descriptors);
+            this.compareNanos += System.nanoTime() - start;
+            return false;
+        }
+
+        /**
+         * Get the time of the snapshots on the compiler thread.
+         *
+         * @return time in nanoseconds
+         */
+        public long getSnapshotNanos() {
+            return this.snapshotNanos;
+        }
+
+        /**
+         * Get the time of the comparisons, including the thread pools.
+         *
+         * @return time in nanoseconds
+         */
+        public long getCompareNanos() {
+            return this.compareNanos;
+        }
+
+        /**
+         * Get the number of missing methods of all validated classes, so the comparison cannot be eliminated.
+         *
+         * @return number of missing methods
+         */
+        public int getMissingSignatures() {
+            return this.missingSignatures;
+        }
+
+        private String snapshot(TypeElement typeElement, Map<String, Descriptor> descriptors) {
+            String typeName = typeElement.getQualifiedName().toString();
+            if (descriptors.containsKey(typeName)) {
+                return typeName;
+            }
+            Set<String> implementedSignatures = new HashSet<>();
+            for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+                if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+                    implementedSignatures.add(getErasedSignature(method));
+                }
+            }
+            List<String> supertypes = new ArrayList<>();
+            for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(typeElement.asType())) {
+                if (supertype instanceof DeclaredType) {
+                    supertypes.add(snapshot((TypeElement) ((DeclaredType) supertype).asElement(), descriptors));
+                }
+            }
+            descriptors.put(typeName, new Descriptor(supertypes, implementedSignatures));
+            return typeName;
+        }
+
+        private String getErasedSignature(ExecutableElement method) {
+            StringBuilder signature = new StringBuilder(method.getSimpleName()).append('(');
+            for (VariableElement parameter : method.getParameters()) {
+                signature.append(processingEnv.getTypeUtils().erasure(parameter.asType())).append(',');
+            }
+            return signature.append(')').toString();
+        }
+
+        private int compare(final List<String> typeNames, final Map<String, Descriptor> descriptors) {
+            if (this.parallelism == 1) {
+                return countMissing(typeNames, descriptors);
+            }
+            int chunkSize = (typeNames.size() + this.parallelism - 1) / this.parallelism;
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int from = 0; from < typeNames.size(); from += chunkSize) {
+                final List<String> chunk = typeNames.subList(from, Math.min(from + chunkSize, typeNames.size()));
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return countMissing(chunk, descriptors);
+                    }
+                });
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+            try {
+                int missing = 0;
+                for (Future<Integer> future : executor.invokeAll(tasks)) {
+                    missing += future.get();
+                }
+                return missing;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private int countMissing(List<String> typeNames, Map<String, Descriptor> descriptors) {
+            int missing = 0;
+            for (String typeName : typeNames) {
+                for (String signature : this.expectedSignatures) {
+                    if (!isImplemented(typeName, signature, descriptors)) {
+                        missing++;
+                    }
+                }
+            }
+            return missing;
+        }
+
+        private static boolean isImplemented(String typeName, String signature, Map<String, Descriptor> descriptors) {
+            Descriptor descriptor = descriptors.get(typeName);
+            if (descriptor.implementedSignatures.contains(signature)) {
+                return true;
+            }
+            for (String supertype : descriptor.supertypes) {
+                if (isImplemented(supertype, signature, descriptors)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Immutable snapshot of a type: the names of its direct supertypes and the erased signatures of its implemented
+     * methods.
+     */
+    private static final class Descriptor {
+
+        private final List<String> supertypes;
+        private final Set<String> implementedSignatures;
+
+        Descriptor(List<String> supertypes, Set<String> implementedSignatures) {
+            this.supertypes = supertypes;
+            this.implementedSignatures = implementedSignatures;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import javax.annotation.processing.Processor;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Benchmark of loading processors with the index generated by
+ * {@link io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor} against
+ * {@link ServiceLoader#load(Class, ClassLoader)}.
+ * </p>
+ *
+ * <p>
+ * A corpus of 500 processors is compiled once, together with the service file and the index. With
+ * {@code freshClassLoader} every invocation loads the processors with a new class loader, like a host loading a
+ * processor path for a new compilation. Otherwise the classes are already loaded and only the lookup and the
+ * instantiation are measured. The index is called with a single reflective call, because the benchmark cannot link
+ * against it; a host would call it directly.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessorIndexBenchmark {
+
+    private static final int PROVIDERS = 500;
+    private static final String INDEX_NAME = Corpus.PACKAGE_NAME + ".GeneratedProcessorIndex";
+
+    @Param({ "true", "false" })
+    public boolean freshClassLoader;
+
+    private Corpus corpus;
+    private File outputDirectory;
+    private URLClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void compileCorpus() throws IOException {
+        this.corpus = Corpus.generate(PROVIDERS, Corpus.Shape.ABSTRACT_PROCESSOR);
+        this.outputDirectory = Files.createTempDirectory("annotationprocessor-out").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (!Compilation.compileClasses(this.corpus.getSources(), this.outputDirectory,
+                new AnnotationProcessorProcessor(), diagnostics,
+                Collections.singletonList("-Aannotationprocessor.index=" + INDEX_NAME))) {
+            throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createClassLoader() throws IOException {
+        if (this.classLoader == null || this.freshClassLoader) {
+            closeClassLoader();
+            // The parent only sees the JDK, so the ServiceLoader finds nothing but the corpus
+            this.classLoader = new URLClassLoader(new URL[] { this.outputDirectory.toURI().toURL() },
+                    Processor.class.getClassLoader());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        closeClassLoader();
+        this.corpus.delete();
+        Corpus.deleteRecursively(this.outputDirectory);
+    }
+
+    private void closeClassLoader() throws IOException {
+        if (this.classLoader != null) {
+            this.classLoader.close();
+            this.classLoader = null;
+        }
+    }
+
+    @Benchmark
+    public List<Processor> serviceLoader() {
+        List<Processor> processors = new ArrayList<>(PROVIDERS);
+        for (Processor processor : ServiceLoader.load(Processor.class, this.classLoader)) {
+            processors.add(processor);
+        }
+        return check(processors);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Processor> index() throws ReflectiveOperationException {
+        try {
+            return check((List<Processor>) Class.forName(INDEX_NAME, true, this.classLoader)
+                    .getMethod("newProcessors").invoke(null));
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static List<Processor> check(List<Processor> processors) {
+        if (processors.size() != PROVIDERS) {
+            throw new IllegalStateException("Expected " + PROVIDERS + " processors, but found " + processors.size());
+        }
+        return processors;
+    }
+}
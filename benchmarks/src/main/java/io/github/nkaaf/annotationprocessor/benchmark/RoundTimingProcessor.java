@@ -0,0 +1,152 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+/**
+ * <p>
+ * {@link Processor}, which delegates to a new {@link AnnotationProcessorProcessor} and measures the time spent and the
+ * bytes allocated in its rounds from outside.
+ * </p>
+ *
+ * <p>
+ * The rounds before the last one validate the annotated classes with <code>checkAnnotatedClasses</code>, which calls
+ * <code>checkWholeOverrideMethods</code> for classes implementing {@link Processor}. The last round writes the service
+ * file with <code>writeToServiceFile</code>. The time of every single validation is emitted as JDK Flight Recorder
+ * event on Java 11 and later.
+ * </p>
+ *
+ * <p>
+ * The measurements are summed up over all rounds of a compilation. A new instance has to be used for every
+ * compilation. The allocated bytes are measured with {@link com.sun.management.ThreadMXBean}, so this class only works
+ * on HotSpot based JVMs.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class RoundTimingProcessor implements Processor {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private final Processor delegate = new AnnotationProcessorProcessor();
+    private final long[] nanos = new long[Phase.values().length];
+    private final long[] allocatedBytes = new long[Phase.values().length];
+
+    private static long currentAllocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return this.delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return this.delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return this.delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+        this.delegate.init(processingEnv);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Phase phase = roundEnv.processingOver() ? Phase.SERVICE_FILE : Phase.VALIDATION;
+        long startNanos = System.nanoTime();
+        long startBytes = currentAllocatedBytes();
+        boolean claimed = this.delegate.process(annotations, roundEnv);
+        this.allocatedBytes[phase.ordinal()] += currentAllocatedBytes() - startBytes;
+        this.nanos[phase.ordinal()] += System.nanoTime() - startNanos;
+        return claimed;
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+            ExecutableElement member, String userText) {
+        return this.delegate.getCompletions(element, annotation, member, userText);
+    }
+
+    /**
+     * Get the time spent in a phase.
+     *
+     * @param phase
+     *            {@link Phase}
+     *
+     * @return time in nanoseconds
+     */
+    public long getNanos(Phase phase) {
+        return this.nanos[phase.ordinal()];
+    }
+
+    /**
+     * Get the bytes allocated in a phase.
+     *
+     * @param phase
+     *            {@link Phase}
+     *
+     * @return allocated bytes
+     */
+    public long getAllocatedBytes(Phase phase) {
+        return this.allocatedBytes[phase.ordinal()];
+    }
+
+    /**
+     * Measured phases of {@link AnnotationProcessorProcessor}, one per kind of round.
+     */
+    public enum Phase {
+        /**
+         * Rounds before the last one, which validate the annotated classes.
+         */
+        VALIDATION,
+
+        /**
+         * Last round, which writes the service file.
+         */
+        SERVICE_FILE
+    }
+}
@@ -0,0 +1,284 @@
+package io.github.nkaaf.annotationprocessor.benchmark;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Benchmark of the validation cache, which was declined for
+ * {@link io.github.nkaaf.annotationprocessor.processor.AnnotationProcessorProcessor}.
+ * </p>
+ *
+ * <p>
+ * A cached outcome is found by the fingerprint of a class, so every compilation has to compute the fingerprints of
+ * all annotated classes and their supertypes, even if every outcome is cached. {@link FingerprintProcessor} computes
+ * the fingerprints like the declined cache and looks them up in a cache filled by the first compilation, so the
+ * measured compilations only have hits. The secondary result {@code fingerprintMs} is the time of these lookups. The
+ * cache can only pay off, if {@code fingerprintMs} is clearly below the {@code validationMs} of
+ * {@link AnnotationProcessorProcessorBenchmark}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationCacheBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int corpusSize;
+
+    @Param({ "ABSTRACT_PROCESSOR", "PROCESSOR" })
+    public Corpus.Shape shape;
+
+    private final Map<Long, Integer> cache = new HashMap<>();
+    private Corpus corpus;
+    private File outputDirectory;
+
+    @Setup(Level.Trial)
+    public void generateCorpus() throws IOException {
+        this.corpus = Corpus.generate(this.corpusSize, this.shape);
+        this.outputDirectory = Files.createTempDirectory("annotationprocessor-out").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() {
+        this.corpus.delete();
+        Corpus.deleteRecursively(this.outputDirectory);
+    }
+
+    @Benchmark
+    public FingerprintProcessor compile(CacheCounters counters) throws IOException {
+        FingerprintProcessor processor = new FingerprintProcessor(this.cache);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (!Compilation.compile(this.corpus.getSources(), this.outputDirectory, processor, diagnostics)) {
+            throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        counters.record(processor);
+        return processor;
+    }
+
+    /**
+     * Secondary results with the time of the lookups and the hits and misses, summed up over an iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class CacheCounters {
+
+        public double fingerprintMs;
+        public int hits;
+        public int misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.fingerprintMs = 0;
+            this.hits = 0;
+            this.misses = 0;
+        }
+
+        void record(FingerprintProcessor processor) {
+            this.fingerprintMs += processor.getFingerprintNanos() / 1e6;
+            this.hits += processor.getHits();
+            this.misses += processor.getMisses();
+        }
+    }
+
+    /**
+     * <p>
+     * {@link Processor} looking up the classes annotated with {@link AnnotationProcessor} in a cache by their
+     * fingerprint, like the declined validation cache. The fingerprint is a 64 bit FNV-1a hash of the qualified name
+     * of a class, the erased signatures of its methods named like the methods of {@link Processor} together with
+     * whether they are implementations, and the fingerprints of its direct supertypes. Missing classes are added to
+     * the cache.
+     * </p>
+     *
+     * <p>
+     * A new instance has to be used for every compilation.
+     * </p>
+     */
+    public static final class FingerprintProcessor extends AbstractProcessor {
+
+        private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+        private static final String[] PROCESSOR_METHOD_NAMES = { "getSupportedOptions",
+                "getSupportedAnnotationTypes", "getSupportedSourceVersion", "init", "process", "getCompletions" };
+
+        private final Map<Long, Integer> cache;
+        private final Map<String, Long> fingerprintsByType = new HashMap<>();
+        private long fingerprintNanos;
+        private int hits;
+        private int misses;
+
+        FingerprintProcessor(Map<Long, Integer> cache) {
+            this.cache = cache;
+        }
+
+        private static long hash(long hash, Name name) {
+            // Name#charAt(int) of javac creates the string on every call
+            String chars = name.toString();
+            for (int i = 0; i < chars.length(); i++) {
+                hash = hash(hash, chars.charAt(i));
+            }
+            return hash(hash, ';');
+        }
+
+        private static long hash(long hash, char c) {
+            return (hash ^ c) * FNV_PRIME;
+        }
+
+        private static boolean isProcessorMethodName(ExecutableElement method) {
+            for (String methodName : PROCESSOR_METHOD_NAMES) {
+                if (method.getSimpleName().contentEquals(methodName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return Collections.singleton(AnnotationProcessor.class.getName());
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (annotations.isEmpty()) {
+                return false;
+            }
+            long start = System.nanoTime();
+            for (TypeElement typeElement : ElementFilter
+                    .typesIn(roundEnv.getElementsAnnotatedWith(annotations.iterator().next()))) {
+                long fingerprint = getFingerprint(typeElement);
+                if (this.cache.containsKey(fingerprint)) {
+                    this.hits++;
+                } else {
+                    this.cache.put(fingerprint, 0);
+                    this.misses++;
+                }
+            }
+            this.fingerprintsByType.clear();
+            this.fingerprintNanos += System.nanoTime() - start;
+            return false;
+        }
+
+        /**
+         * Get the time of the fingerprints and lookups.
+         *
+         * @return time in nanoseconds
+         */
+        public long getFingerprintNanos() {
+            return this.fingerprintNanos;
+        }
+
+        /**
+         * Get the number of classes found in the cache.
+         *
+         * @return number of hits
+         */
+        public int getHits() {
+            return this.hits;
+        }
+
+        /**
+         * Get the number of classes added to the cache.
+         *
+         * @return number of misses
+         */
+        public int getMisses() {
+            return this.misses;
+        }
+
+        private long getFingerprint(TypeElement typeElement) {
+            String typeName = typeElement.getQualifiedName().toString();
+            Long memoized = this.fingerprintsByType.get(typeName);
+            if (memoized != null) {
+                return memoized;
+            }
+
+            long hash = hash(FNV_OFFSET_BASIS, typeElement.getQualifiedName());
+            for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+                if (isProcessorMethodName(method)) {
+                    hash = hash(hash, method.getSimpleName());
+                    for (VariableElement parameter : method.getParameters()) {
+                        hash = hash(hash, parameter.asType());
+                    }
+                    hash = hash(hash, method.getReturnType());
+                    hash = hash(hash, method.getModifiers().contains(Modifier.ABSTRACT) ? '-' : '+');
+                }
+            }
+            for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(typeElement.asType())) {
+                if (supertype instanceof DeclaredType) {
+                    long supertypeFingerprint = getFingerprint((TypeElement) ((DeclaredType) supertype).asElement());
+                    for (int i = 0; i < 64; i += 8) {
+                        hash = hash(hash, (char) ((supertypeFingerprint >>> i) & 0xFF));
+                    }
+                }
+            }
+
+            this.fingerprintsByType.put(typeName, hash);
+            return hash;
+        }
+
+        private long hash(long hash, TypeMirror type) {
+            TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+            if (erasure instanceof DeclaredType) {
+                return hash(hash(hash, 'L'), ((TypeElement) ((DeclaredType) erasure).asElement()).getQualifiedName());
+            }
+            if (erasure instanceof ArrayType) {
+                return hash(hash(hash, '['), ((ArrayType) erasure).getComponentType());
+            }
+            return hash(hash, (char) erasure.getKind().ordinal());
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Class file, of which only the names of the class, its supertypes and the declared methods are parsed.
+ * </p>
+ *
+ * <p>
+ * The constant pool is read into an array of offsets, and only the entries referenced by the header and the methods
+ * are decoded. Fields and attributes are skipped, so the parser does not depend on the version of the class file.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+final class ClassFile {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELD_REF = 9;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private final int accessFlags;
+    private final String name;
+    private final String superName;
+    private final List<String> interfaceNames;
+    private final List<Method> methods;
+
+    private ClassFile(int accessFlags, String name, String superName, List<String> interfaceNames,
+            List<Method> methods) {
+        this.accessFlags = accessFlags;
+        this.name = name;
+        this.superName = superName;
+        this.interfaceNames = interfaceNames;
+        this.methods = methods;
+    }
+
+    /**
+     * Parse a class file.
+     *
+     * @param bytes
+     *            Content of the class file
+     *
+     * @return {@link ClassFile}
+     *
+     * @throws IllegalArgumentException
+     *             if the content is not a valid class file
+     */
+    static ClassFile parse(byte[] bytes) {
+        try {
+            return new Parser(bytes).parse();
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file", e);
+        }
+    }
+
+    /**
+     * Get the binary name of the class, e.g. <code>a.B$C</code>.
+     *
+     * @return binary name
+     */
+    String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the binary name of the superclass.
+     *
+     * @return binary name, or null for {@link Object} and module descriptors
+     */
+    String getSuperName() {
+        return this.superName;
+    }
+
+    /**
+     * Get the binary names of the directly implemented interfaces.
+     *
+     * @return {@link List} of the binary names
+     */
+    List<String> getInterfaceNames() {
+        return this.interfaceNames;
+    }
+
+    /**
+     * Check if the class is public. For a nested class, this is the flag of the class file, not of the declaration.
+     *
+     * @return true if the class is public, false otherwise
+     */
+    boolean isPublic() {
+        return (this.accessFlags & ACC_PUBLIC) != 0;
+    }
+
+    /**
+     * Check if the class file declares an interface or an annotation type.
+     *
+     * @return true if it is an interface, false otherwise
+     */
+    boolean isInterface() {
+        return (this.accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * Check if the class is abstract. Interfaces are abstract as well.
+     *
+     * @return true if the class is abstract, false otherwise
+     */
+    boolean isAbstract() {
+        return (this.accessFlags & ACC_ABSTRACT) != 0;
+    }
+
+    /**
+     * Find a declared method.
+     *
+     * @param methodName
+     *            Name of the method, <code>&lt;init&gt;</code> for constructors
+     * @param descriptor
+     *            Descriptor of the method, e.g. <code>()V</code>
+     *
+     * @return {@link Method}, or null if the class does not declare it
+     */
+    Method findMethod(String methodName, String descriptor) {
+        for (Method method : this.methods) {
+            if (method.name.equals(methodName) && method.descriptor.equals(descriptor)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method declared by a class file.
+     */
+    static final class Method {
+
+        private final int accessFlags;
+        private final String name;
+        private final String descriptor;
+
+        private Method(int accessFlags, String name, String descriptor) {
+            this.accessFlags = accessFlags;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        /**
+         * Check if the method is public.
+         *
+         * @return true if the method is public, false otherwise
+         */
+        boolean isPublic() {
+            return (this.accessFlags & ACC_PUBLIC) != 0;
+        }
+
+        /**
+         * Check if the method is an implementation, i.e. neither abstract, nor static, nor private. Default methods of
+         * interfaces and bridge methods are implementations.
+         *
+         * @return true if the method is an implementation, false otherwise
+         */
+        boolean isImplementation() {
+            return (this.accessFlags & (ACC_ABSTRACT | ACC_STATIC | ACC_PRIVATE)) == 0;
+        }
+    }
+
+    /**
+     * Parser of a class file. The offsets of the constant pool entries point behind their tag.
+     */
+    private static final class Parser {
+
+        private final byte[] bytes;
+        private final DataInputStream input;
+        private int[] offsets;
+
+        private Parser(byte[] bytes) {
+            this.bytes = bytes;
+            this.input = new DataInputStream(new ByteArrayInputStream(bytes));
+        }
+
+        private ClassFile parse() throws IOException {
+            if (this.input.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a class file");
+            }
+            this.input.skipBytes(4); // minor and major version
+            readConstantPool();
+
+            int accessFlags = this.input.readUnsignedShort();
+            String name = readClassName(this.input.readUnsignedShort());
+            int superIndex = this.input.readUnsignedShort();
+            String superName = superIndex == 0 ? null : readClassName(superIndex);
+            int interfaceCount = this.input.readUnsignedShort();
+            List<String> interfaceNames = new ArrayList<>(interfaceCount);
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaceNames.add(readClassName(this.input.readUnsignedShort()));
+            }
+
+            skipMembers();
+            int methodCount = this.input.readUnsignedShort();
+            List<Method> methods = new ArrayList<>(methodCount);
+            for (int i = 0; i < methodCount; i++) {
+                int methodAccessFlags = this.input.readUnsignedShort();
+                String methodName = readUtf8(this.input.readUnsignedShort());
+                String descriptor = readUtf8(this.input.readUnsignedShort());
+                methods.add(new Method(methodAccessFlags, methodName, descriptor));
+                skipAttributes();
+            }
+            return new ClassFile(accessFlags, name, superName, Collections.unmodifiableList(interfaceNames),
+                    Collections.unmodifiableList(methods));
+        }
+
+        private void readConstantPool() throws IOException {
+            int count = this.input.readUnsignedShort();
+            this.offsets = new int[count];
+            for (int i = 1; i < count; i++) {
+                int tag = this.input.readUnsignedByte();
+                this.offsets[i] = this.bytes.length - this.input.available();
+                switch (tag) {
+                case CONSTANT_UTF8:
+                    skip(this.input.readUnsignedShort());
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    skip(8);
+                    i++; // Takes two entries
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELD_REF:
+                case CONSTANT_METHOD_REF:
+                case CONSTANT_INTERFACE_METHOD_REF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    skip(4);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    skip(3);
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    skip(2);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at entry " + i);
+                }
+            }
+        }
+
+        private void skipMembers() throws IOException {
+            int count = this.input.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                skip(6); // access flags, name and descriptor
+                skipAttributes();
+            }
+        }
+
+        private void skipAttributes() throws IOException {
+            int count = this.input.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                skip(2); // name
+                skip(this.input.readInt() & 0xFFFFFFFFL);
+            }
+        }
+
+        private void skip(long count) throws IOException {
+            if (count > this.input.available()) {
+                throw new IOException("Unexpected end of class file");
+            }
+            this.input.skipBytes((int) count);
+        }
+
+        private String readClassName(int index) throws IOException {
+            checkTag(index, CONSTANT_CLASS);
+            int offset = this.offsets[index];
+            return readUtf8(((this.bytes[offset] & 0xFF) << 8) | (this.bytes[offset + 1] & 0xFF)).replace('/', '.');
+        }
+
+        private String readUtf8(int index) throws IOException {
+            checkTag(index, CONSTANT_UTF8);
+            int offset = this.offsets[index];
+            int length = ((this.bytes[offset] & 0xFF) << 8) | (this.bytes[offset + 1] & 0xFF);
+            // Modified UTF-8 with its length, as read by DataInputStream#readUTF
+            return new DataInputStream(new ByteArrayInputStream(this.bytes, offset, length + 2)).readUTF();
+        }
+
+        private void checkTag(int index, int tag) {
+            if (index <= 0 || index >= this.offsets.length || this.offsets[index] == 0
+                    || this.bytes[this.offsets[index] - 1] != tag) {
+                throw new IllegalArgumentException("Invalid constant pool index " + index);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * <p>
+ * Entry of a class path, which is either a directory or a jar.
+ * </p>
+ *
+ * <p>
+ * Jars are read with {@link MappedJar}, which maps only their central directory and the entries that are read. Jars
+ * it cannot read, e.g. ZIP64 archives, are read with {@link ZipFile}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+abstract class ClasspathEntry implements Closeable {
+
+    private final File file;
+
+    ClasspathEntry(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open an entry of a class path.
+     *
+     * @param file
+     *            Directory or jar
+     *
+     * @return {@link ClasspathEntry}, or null if the file does not exist
+     *
+     * @throws IOException
+     *             if the jar cannot be read
+     */
+    static ClasspathEntry open(File file) throws IOException {
+        if (file.isDirectory()) {
+            return new Directory(file);
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+        MappedJar jar = MappedJar.open(file);
+        if (jar != null) {
+            return jar;
+        }
+        return new Zip(file);
+    }
+
+    /**
+     * Get the file of this entry.
+     *
+     * @return directory or jar
+     */
+    File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Check if this entry contains a resource.
+     *
+     * @param name
+     *            Name of the resource, separated by <code>/</code>
+     *
+     * @return true, if the resource exists
+     */
+    abstract boolean contains(String name);
+
+    /**
+     * Read a resource of this entry.
+     *
+     * @param name
+     *            Name of the resource, separated by <code>/</code>
+     *
+     * @return content of the resource, or null if it does not exist
+     *
+     * @throws IOException
+     *             if the resource cannot be read
+     */
+    abstract byte[] read(String name) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * Read a stream until its end.
+     *
+     * @param inputStream
+     *            {@link InputStream} to read
+     *
+     * @return content of the stream
+     *
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Directory of a class path.
+     */
+    private static final class Directory extends ClasspathEntry {
+
+        private Directory(File directory) {
+            super(directory);
+        }
+
+        @Override
+        boolean contains(String name) {
+            return new File(getFile(), name).isFile();
+        }
+
+        @Override
+        byte[] read(String name) throws IOException {
+            File resource = new File(getFile(), name);
+            return resource.isFile() ? Files.readAllBytes(resource.toPath()) : null;
+        }
+    }
+
+    /**
+     * Jar of a class path, which is read with {@link ZipFile}.
+     */
+    private static final class Zip extends ClasspathEntry {
+
+        private final ZipFile zipFile;
+
+        private Zip(File file) throws IOException {
+            super(file);
+            this.zipFile = new ZipFile(file);
+        }
+
+        @Override
+        boolean contains(String name) {
+            return this.zipFile.getEntry(name) != null;
+        }
+
+        @Override
+        byte[] read(String name) throws IOException {
+            ZipEntry entry = this.zipFile.getEntry(name);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream inputStream = this.zipFile.getInputStream(entry)) {
+                return readFully(inputStream);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.zipFile.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Annotation processors registered on a class path, created by {@link ProcessorScanner}.
+ * </p>
+ *
+ * <p>
+ * The processors are kept in the order of the class path, which is the order of the implicit discovery of javac. A
+ * processor is a duplicate, if more than one entry of the class path registers it, and it is shadowed, if more than
+ * one entry contains its class. Only the class of the first entry is loaded.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class DiscoveryReport {
+
+    private final Map<String, List<File>> registrations;
+    private final Map<String, List<File>> definitions;
+
+    DiscoveryReport(Map<String, List<File>> registrations, Map<String, List<File>> definitions) {
+        this.registrations = registrations;
+        this.definitions = definitions;
+    }
+
+    /**
+     * Get the binary names of the registered processors.
+     *
+     * @return {@link List} of the processors in the order of the class path
+     */
+    public List<String> getProcessorNames() {
+        return Collections.unmodifiableList(new ArrayList<>(this.registrations.keySet()));
+    }
+
+    /**
+     * Get the entries of the class path registering each processor.
+     *
+     * @return {@link Map} of the processors and the entries registering them, in the order of the class path
+     */
+    public Map<String, List<File>> getRegistrations() {
+        return Collections.unmodifiableMap(this.registrations);
+    }
+
+    /**
+     * Get the processors registered by more than one entry of the class path.
+     *
+     * @return {@link Map} of the processors and the entries registering them
+     */
+    public Map<String, List<File>> getDuplicates() {
+        return filter(this.registrations, 2);
+    }
+
+    /**
+     * Get the processors whose class is contained in more than one entry of the class path. The first entry is the one
+     * the class is loaded from.
+     *
+     * @return {@link Map} of the processors and the entries containing their class
+     */
+    public Map<String, List<File>> getShadowed() {
+        return filter(this.definitions, 2);
+    }
+
+    /**
+     * Get the processors whose class is not contained in any entry of the class path.
+     *
+     * @return {@link List} of the processors
+     */
+    public List<String> getMissing() {
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, List<File>> entry : this.definitions.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                missing.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableList(missing);
+    }
+
+    private static Map<String, List<File>> filter(Map<String, List<File>> entries, int minSize) {
+        Map<String, List<File>> filtered = new LinkedHashMap<>();
+        for (Map.Entry<String, List<File>> entry : entries.entrySet()) {
+            if (entry.getValue().size() >= minSize) {
+                filtered.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(filtered);
+    }
+
+    /**
+     * Get the compiler arguments, which run the same processors as the implicit discovery, so that javac does not
+     * need to search the class path: <code>-processor a,b,c</code>, or <code>-proc:none</code> if no processor is
+     * registered.
+     *
+     * @return {@link List} of the compiler arguments
+     */
+    public List<String> getProcessorArguments() {
+        if (this.registrations.isEmpty()) {
+            return Collections.singletonList("-proc:none");
+        }
+        StringBuilder processors = new StringBuilder();
+        for (String processor : this.registrations.keySet()) {
+            if (processors.length() > 0) {
+                processors.append(',');
+            }
+            processors.append(processor);
+        }
+        return Collections.unmodifiableList(Arrays.asList("-processor", processors.toString()));
+    }
+
+    /**
+     * Format the report for humans.
+     *
+     * @return report with one line per processor and a section each for duplicates, shadowed and missing classes
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append("Processors (").append(this.registrations.size()).append("):\n");
+        for (Map.Entry<String, List<File>> entry : this.registrations.entrySet()) {
+            report.append("  ").append(entry.getKey()).append(" registered by ").append(entry.getValue().get(0))
+                    .append('\n');
+        }
+
+        Map<String, List<File>> duplicates = getDuplicates();
+        report.append("Duplicate registrations (").append(duplicates.size()).append("):\n");
+        for (Map.Entry<String, List<File>> entry : duplicates.entrySet()) {
+            report.append("  ").append(entry.getKey()).append(" registered by ").append(join(entry.getValue()))
+                    .append('\n');
+        }
+
+        Map<String, List<File>> shadowed = getShadowed();
+        report.append("Shadowed classes (").append(shadowed.size()).append("):\n");
+        for (Map.Entry<String, List<File>> entry : shadowed.entrySet()) {
+            List<File> files = entry.getValue();
+            report.append("  ").append(entry.getKey()).append(" loaded from ").append(files.get(0))
+                    .append(", shadowed in ").append(join(files.subList(1, files.size()))).append('\n');
+        }
+
+        List<String> missing = getMissing();
+        report.append("Missing classes (").append(missing.size()).append("):\n");
+        for (String processor : missing) {
+            report.append("  ").append(processor).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static String join(List<File> files) {
+        StringBuilder joined = new StringBuilder();
+        for (File file : files) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(file);
+        }
+        return joined.toString();
+    }
+}
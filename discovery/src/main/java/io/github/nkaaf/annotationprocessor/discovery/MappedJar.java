@@ -0,0 +1,272 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * <p>
+ * Jar, which is read with memory-mapped I/O.
+ * </p>
+ *
+ * <p>
+ * Only the end of the jar is mapped to find the central directory, then the central directory itself. The names of
+ * the entries are not decoded, but indexed by a 32 bit FNV-1a hash of their bytes together with the position of their
+ * header in the central directory. The content of an entry is mapped only if it is read.
+ * </p>
+ *
+ * <p>
+ * ZIP64 archives and central directories larger than 2 GB are not supported. They are read with
+ * {@link java.util.zip.ZipFile} instead.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+final class MappedJar extends ClasspathEntry {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int ZIP64_ENTRIES = 0xFFFF;
+    private static final long ZIP64_SIZE = 0xFFFFFFFFL;
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final FileChannel channel;
+    private final long base;
+    private final ByteBuffer centralDirectory;
+    private final long[] index;
+
+    private MappedJar(File file, FileChannel channel, long base, ByteBuffer centralDirectory, long[] index) {
+        super(file);
+        this.channel = channel;
+        this.base = base;
+        this.centralDirectory = centralDirectory;
+        this.index = index;
+    }
+
+    /**
+     * Open a jar and index its central directory.
+     *
+     * @param file
+     *            Jar
+     *
+     * @return {@link MappedJar}, or null if the jar has no central directory or a format, which is not supported
+     *
+     * @throws IOException
+     *             if the jar cannot be read
+     */
+    static MappedJar open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        MappedJar jar = null;
+        try {
+            jar = open(file, channel);
+            return jar;
+        } finally {
+            if (jar == null) {
+                channel.close();
+            }
+        }
+    }
+
+    private static MappedJar open(File file, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < END_SIZE) {
+            return null;
+        }
+        int tailSize = (int) Math.min(size, END_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, size - tailSize, tailSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE && i + END_SIZE + (tail.getShort(i + 20) & 0xFFFF) <= tailSize) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            return null;
+        }
+
+        int entries = tail.getShort(end + 10) & 0xFFFF;
+        long centralDirectorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long centralDirectoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+        if (entries == ZIP64_ENTRIES || centralDirectorySize == ZIP64_SIZE || centralDirectoryOffset == ZIP64_SIZE
+                || centralDirectorySize > Integer.MAX_VALUE) {
+            return null;
+        }
+        // Data prepended to the jar, e.g. a launcher script, shifts all offsets
+        long base = size - tailSize + end - centralDirectorySize - centralDirectoryOffset;
+        if (base < 0) {
+            return null;
+        }
+
+        ByteBuffer centralDirectory = channel
+                .map(FileChannel.MapMode.READ_ONLY, base + centralDirectoryOffset, centralDirectorySize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long[] index = new long[entries];
+        int position = 0;
+        for (int i = 0; i < entries; i++) {
+            if (position + CENTRAL_HEADER_SIZE > centralDirectorySize
+                    || centralDirectory.getInt(position) != CENTRAL_SIGNATURE) {
+                return null;
+            }
+            int nameLength = centralDirectory.getShort(position + 28) & 0xFFFF;
+            int extraLength = centralDirectory.getShort(position + 30) & 0xFFFF;
+            int commentLength = centralDirectory.getShort(position + 32) & 0xFFFF;
+            int hash = FNV_OFFSET_BASIS;
+            for (int j = 0; j < nameLength; j++) {
+                hash = (hash ^ (centralDirectory.get(position + CENTRAL_HEADER_SIZE + j) & 0xFF)) * FNV_PRIME;
+            }
+            index[i] = (long) hash << 32 | position;
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        Arrays.sort(index);
+        return new MappedJar(file, channel, base, centralDirectory, index);
+    }
+
+    /**
+     * Find the header of an entry in the central directory.
+     *
+     * @param name
+     *            Name of the entry
+     *
+     * @return position of the header, or -1 if the entry does not exist
+     */
+    private int find(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+
+        int i = Arrays.binarySearch(this.index, (long) hash << 32);
+        for (i = i < 0 ? -i - 1 : i; i < this.index.length && (int) (this.index[i] >>> 32) == hash; i++) {
+            int position = (int) this.index[i];
+            if ((this.centralDirectory.getShort(position + 28) & 0xFFFF) != bytes.length) {
+                continue;
+            }
+            int j = 0;
+            while (j < bytes.length && this.centralDirectory.get(position + CENTRAL_HEADER_SIZE + j) == bytes[j]) {
+                j++;
+            }
+            if (j == bytes.length) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    boolean contains(String name) {
+        return find(name) >= 0;
+    }
+
+    @Override
+    byte[] read(String name) throws IOException {
+        int position = find(name);
+        if (position < 0) {
+            return null;
+        }
+        int method = this.centralDirectory.getShort(position + 10) & 0xFFFF;
+        long compressedSize = this.centralDirectory.getInt(position + 20) & 0xFFFFFFFFL;
+        long uncompressedSize = this.centralDirectory.getInt(position + 24) & 0xFFFFFFFFL;
+        long localHeaderOffset = this.base + (this.centralDirectory.getInt(position + 42) & 0xFFFFFFFFL);
+        if (compressedSize >= Integer.MAX_VALUE || uncompressedSize >= Integer.MAX_VALUE) {
+            throw new ZipException(name + " in " + getFile() + " is too large");
+        }
+
+        ByteBuffer localHeader = this.channel
+                .map(FileChannel.MapMode.READ_ONLY, localHeaderOffset, LOCAL_HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        if (localHeader.getInt(0) != LOCAL_SIGNATURE) {
+            throw new ZipException("Invalid local header of " + name + " in " + getFile());
+        }
+        long dataOffset = localHeaderOffset + LOCAL_HEADER_SIZE + (localHeader.getShort(26) & 0xFFFF)
+                + (localHeader.getShort(28) & 0xFFFF);
+        ByteBuffer data = this.channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, compressedSize);
+
+        switch (method) {
+        case STORED:
+            byte[] content = new byte[(int) compressedSize];
+            data.get(content);
+            return content;
+        case DEFLATED:
+            // The inflater needs an additional byte after the compressed data, if it is used without zlib header
+            byte[] compressed = new byte[(int) compressedSize + 1];
+            data.get(compressed, 0, (int) compressedSize);
+            return inflate(name, compressed, (int) uncompressedSize);
+        default:
+            throw new ZipException(name + " in " + getFile() + " has the unsupported compression method " + method);
+        }
+    }
+
+    private byte[] inflate(String name, byte[] compressed, int uncompressedSize) throws ZipException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] content = new byte[uncompressedSize];
+            int length = 0;
+            while (length < uncompressedSize) {
+                int inflated = inflater.inflate(content, length, uncompressedSize - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != uncompressedSize) {
+                throw new ZipException(name + " in " + getFile() + " is truncated");
+            }
+            return content;
+        } catch (DataFormatException e) {
+            throw new ZipException(name + " in " + getFile() + " is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
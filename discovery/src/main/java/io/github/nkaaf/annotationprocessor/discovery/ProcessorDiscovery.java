@@ -0,0 +1,165 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * <p>
+ * Command line interface of {@link ProcessorScanner} and {@link ProcessorVerifier}.
+ * </p>
+ *
+ * <pre>
+ * java -jar annotationprocessor-discovery.jar [--arguments | --verify] [--strict] [--threads &lt;n&gt;] &lt;path&gt;
+ * </pre>
+ *
+ * <p>
+ * Without options, the registered processors, the duplicate registrations, the shadowed and the missing classes of
+ * the path are printed. With <code>--arguments</code>, only the compiler arguments running the same processors are
+ * printed, e.g. <code>-processor a.B,c.D</code>. With <code>--strict</code>, the exit status is 1 if there are
+ * duplicate registrations, shadowed or missing classes. With <code>--verify</code>, the class files of the registered
+ * processors are verified and the errors are printed; the exit status is 1 if a processor is invalid. The exit status
+ * is 2 for invalid arguments and 3 if the path cannot be read.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class ProcessorDiscovery {
+
+    static final int EXIT_SUCCESS = 0;
+    static final int EXIT_STRICT = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_IO = 3;
+
+    private static final String USAGE = "Usage: java -jar annotationprocessor-discovery.jar [--arguments | --verify] "
+            + "[--strict] [--threads <n>] <path>";
+
+    private ProcessorDiscovery() {
+    }
+
+    /**
+     * Run the command line interface.
+     *
+     * @param args
+     *            Arguments
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run the command line interface.
+     *
+     * @param args
+     *            Arguments
+     * @param out
+     *            {@link PrintStream} of the output
+     * @param err
+     *            {@link PrintStream} of the errors
+     *
+     * @return exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        boolean arguments = false;
+        boolean verify = false;
+        boolean strict = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--arguments")) {
+                arguments = true;
+            } else if (args[i].equals("--verify")) {
+                verify = true;
+            } else if (args[i].equals("--strict")) {
+                strict = true;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    err.println("--threads must be a positive number, but is " + args[i]);
+                    return EXIT_USAGE;
+                }
+            } else if (path == null && !args[i].startsWith("--")) {
+                path = args[i];
+            } else {
+                err.println(USAGE);
+                return EXIT_USAGE;
+            }
+        }
+        if (path == null || arguments && verify) {
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        if (verify) {
+            return verify(path, threads, out, err);
+        }
+
+        DiscoveryReport report;
+        try {
+            report = new ProcessorScanner(threads).scan(ProcessorScanner.parseClasspath(path));
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return EXIT_IO;
+        }
+
+        if (arguments) {
+            StringBuilder line = new StringBuilder();
+            for (String argument : report.getProcessorArguments()) {
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(argument);
+            }
+            out.println(line);
+        } else {
+            out.print(report.format());
+        }
+        if (strict && (!report.getDuplicates().isEmpty() || !report.getShadowed().isEmpty()
+                || !report.getMissing().isEmpty())) {
+            return EXIT_STRICT;
+        }
+        return EXIT_SUCCESS;
+    }
+
+    private static int verify(String path, int threads, PrintStream out, PrintStream err) {
+        VerificationReport report;
+        try {
+            report = new ProcessorVerifier(threads).verify(ProcessorScanner.parseClasspath(path));
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return EXIT_IO;
+        }
+
+        out.print(report.format());
+        return report.isValid() ? EXIT_SUCCESS : EXIT_STRICT;
+    }
+}
@@ -0,0 +1,455 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * <p>
+ * Scanner of a class path for the annotation processors registered in
+ * <strong>META-INF/services/javax.annotation.processing.Processor</strong>.
+ * </p>
+ *
+ * <p>
+ * The entries of the class path are scanned in parallel. Of a jar, only the central directory, the service file and
+ * the manifest are read, see {@link MappedJar}. The jars listed in the <code>Class-Path</code> attribute of a manifest
+ * are scanned as well and follow the jar in the order of the class path, like javac does. The scanner uses virtual
+ * threads if they are available (Java 21+), otherwise platform threads.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class ProcessorScanner {
+
+    static final String PROCESSOR_SERVICE_FILE = "META-INF/services/javax.annotation.processing.Processor";
+    private static final String MANIFEST_FILE = "META-INF/MANIFEST.MF";
+    static final String CLASS_FILE_EXTENSION = ".class";
+    private static final String WILDCARD = "*";
+
+    private static final ThreadFactory THREAD_FACTORY = newThreadFactory();
+
+    private final int parallelism;
+
+    /**
+     * Create a new scanner with one thread per available processor.
+     */
+    public ProcessorScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new scanner.
+     *
+     * @param parallelism
+     *            Maximum number of entries of the class path scanned at the same time
+     */
+    public ProcessorScanner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive, but is " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            // Virtual threads are not available before Java 21
+            return Executors.defaultThreadFactory();
+        }
+    }
+
+    /**
+     * Split a class path into its entries. An empty entry is the current directory, and an entry ending with
+     * <code>*</code> is expanded to the jars of the directory, like javac does.
+     *
+     * @param classpath
+     *            Class path, separated by {@link File#pathSeparator}
+     *
+     * @return {@link List} of the entries
+     */
+    public static List<File> parseClasspath(String classpath) {
+        List<File> files = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator, -1)) {
+            if (entry.isEmpty()) {
+                files.add(new File("."));
+            } else if (entry.equals(WILDCARD) || entry.endsWith(File.separator + WILDCARD)) {
+                File directory = new File(entry.substring(0, entry.length() - WILDCARD.length()) + ".");
+                File[] jars = directory.listFiles();
+                if (jars != null) {
+                    Arrays.sort(jars);
+                    for (File jar : jars) {
+                        String name = jar.getName().toLowerCase();
+                        if (jar.isFile() && (name.endsWith(".jar") || name.endsWith(".zip"))) {
+                            files.add(jar);
+                        }
+                    }
+                }
+            } else {
+                files.add(new File(entry));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Scan a class path. Entries that do not exist are ignored.
+     *
+     * @param classpath
+     *            Entries of the class path
+     *
+     * @return {@link DiscoveryReport} of the registered processors
+     *
+     * @throws IOException
+     *             if an entry cannot be read
+     */
+    public DiscoveryReport scan(List<File> classpath) throws IOException {
+        return scan(classpath, new EntriesTask<DiscoveryReport>() {
+            @Override
+            public DiscoveryReport run(ExecutorService executor, List<EntryScan> entries) {
+                return createReport(entries);
+            }
+        });
+    }
+
+    /**
+     * Scan a class path and run a task on the scanned entries, before they are closed.
+     *
+     * @param classpath
+     *            Entries of the class path
+     * @param task
+     *            {@link EntriesTask} to run
+     * @param <T>
+     *            Type of the result of the task
+     *
+     * @return result of the task
+     *
+     * @throws IOException
+     *             if an entry cannot be read, or if the task throws it
+     */
+    <T> T scan(List<File> classpath, EntriesTask<T> task) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, THREAD_FACTORY);
+        Map<File, Future<EntryScan>> scans = new HashMap<>();
+        try {
+            List<File> files = new ArrayList<>();
+            for (File file : classpath) {
+                files.add(normalize(file));
+            }
+            submit(executor, scans, files);
+            List<EntryScan> entries = new ArrayList<>();
+            collect(executor, scans, files, new HashSet<File>(), entries);
+            return task.run(executor, entries);
+        } finally {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    // Wait for the running scans, so that their files can be closed
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close(scans.values());
+        }
+    }
+
+    private static File normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
+
+    private static void submit(ExecutorService executor, Map<File, Future<EntryScan>> scans, List<File> files) {
+        for (final File file : files) {
+            if (!scans.containsKey(file)) {
+                scans.put(file, executor.submit(new Callable<EntryScan>() {
+                    @Override
+                    public EntryScan call() throws IOException {
+                        return scanEntry(file);
+                    }
+                }));
+            }
+        }
+    }
+
+    /**
+     * Collect the scans of the entries in the order of the class path. The entries listed in the manifest of a jar are
+     * submitted as soon as the jar is scanned, and are collected after it.
+     */
+    private static void collect(ExecutorService executor, Map<File, Future<EntryScan>> scans, List<File> files,
+            Set<File> visited, List<EntryScan> entries) throws IOException {
+        for (File file : files) {
+            if (!visited.add(file)) {
+                continue;
+            }
+            EntryScan scan = get(scans.get(file));
+            if (scan == null) {
+                continue;
+            }
+            entries.add(scan);
+            submit(executor, scans, scan.manifestClasspath);
+            collect(executor, scans, scan.manifestClasspath, visited, entries);
+        }
+    }
+
+    /**
+     * Wait for the result of a task submitted to the executor of a scan.
+     *
+     * @param future
+     *            {@link Future} of the task
+     * @param <T>
+     *            Type of the result
+     *
+     * @return result of the task
+     *
+     * @throws IOException
+     *             if the task throws it, or if the thread is interrupted
+     */
+    static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning the class path", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void close(Iterable<Future<EntryScan>> futures) throws IOException {
+        for (Future<EntryScan> future : futures) {
+            EntryScan scan;
+            try {
+                scan = future.isDone() ? future.get() : null;
+            } catch (InterruptedException | ExecutionException e) {
+                continue;
+            }
+            if (scan != null) {
+                scan.entry.close();
+            }
+        }
+    }
+
+    /**
+     * Scan an entry of the class path for its service file and, if it is a jar, for its manifest.
+     *
+     * @param file
+     *            Entry of the class path
+     *
+     * @return {@link EntryScan}, or null if the entry does not exist
+     *
+     * @throws IOException
+     *             if the entry cannot be read
+     */
+    private static EntryScan scanEntry(File file) throws IOException {
+        ClasspathEntry entry;
+        try {
+            entry = ClasspathEntry.open(file);
+        } catch (IOException e) {
+            throw new IOException("Cannot read " + file + ": " + e.getMessage(), e);
+        }
+        if (entry == null) {
+            return null;
+        }
+        try {
+            List<String> processors = parseServiceFile(entry.read(PROCESSOR_SERVICE_FILE));
+            List<File> manifestClasspath = file.isFile() ? parseManifestClasspath(file, entry.read(MANIFEST_FILE))
+                    : new ArrayList<File>();
+            return new EntryScan(entry, processors, manifestClasspath);
+        } catch (IOException e) {
+            entry.close();
+            throw new IOException("Cannot read " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse a service file: one binary name per line, <code>#</code> starts a comment.
+     *
+     * @param content
+     *            Content of the service file, null if there is none
+     *
+     * @return {@link List} of the binary names without duplicates
+     */
+    static List<String> parseServiceFile(byte[] content) {
+        Set<String> names = new LinkedHashSet<>();
+        if (content != null) {
+            for (String line : new String(content, StandardCharsets.UTF_8).split("\r\n|\r|\n")) {
+                int comment = line.indexOf('#');
+                String name = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static List<File> parseManifestClasspath(File jar, byte[] manifest) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (manifest == null) {
+            return files;
+        }
+        String classpath = new Manifest(new ByteArrayInputStream(manifest)).getMainAttributes()
+                .getValue(Attributes.Name.CLASS_PATH);
+        if (classpath == null) {
+            return files;
+        }
+        URI base = jar.getParentFile().toURI();
+        for (String url : classpath.trim().split("\\s+")) {
+            try {
+                URI uri = base.resolve(url);
+                if ("file".equals(uri.getScheme())) {
+                    files.add(normalize(new File(uri)));
+                }
+            } catch (IllegalArgumentException e) {
+                // Invalid entries are ignored by javac as well
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Get the registered processors of the scanned entries.
+     *
+     * @param entries
+     *            Scanned entries in the order of the class path
+     *
+     * @return {@link Map} of the processors and the entries registering them, in the order of the class path
+     */
+    static Map<String, List<File>> getRegistrations(List<EntryScan> entries) {
+        Map<String, List<File>> registrations = new LinkedHashMap<>();
+        for (EntryScan scan : entries) {
+            for (String processor : scan.processors) {
+                List<File> files = registrations.get(processor);
+                if (files == null) {
+                    files = new ArrayList<>();
+                    registrations.put(processor, files);
+                }
+                files.add(scan.entry.getFile());
+            }
+        }
+        return registrations;
+    }
+
+    private static DiscoveryReport createReport(List<EntryScan> entries) {
+        Map<String, List<File>> registrations = getRegistrations(entries);
+
+        Map<String, List<File>> definitions = new LinkedHashMap<>();
+        for (String processor : registrations.keySet()) {
+            String classFile = processor.replace('.', '/') + CLASS_FILE_EXTENSION;
+            List<File> files = new ArrayList<>();
+            for (EntryScan scan : entries) {
+                if (scan.entry.contains(classFile)) {
+                    files.add(scan.entry.getFile());
+                }
+            }
+            definitions.put(processor, files);
+        }
+        return new DiscoveryReport(registrations, definitions);
+    }
+
+    /**
+     * Task run on the scanned entries of a class path.
+     *
+     * @param <T>
+     *            Type of the result
+     */
+    interface EntriesTask<T> {
+
+        /**
+         * Run the task.
+         *
+         * @param executor
+         *            {@link ExecutorService} of the scan, to run subtasks in parallel
+         * @param entries
+         *            Scanned entries in the order of the class path, including the jars of the manifests
+         *
+         * @return result
+         *
+         * @throws IOException
+         *             if an entry cannot be read
+         */
+        T run(ExecutorService executor, List<EntryScan> entries) throws IOException;
+    }
+
+    /**
+     * Result of the scan of an entry of the class path.
+     */
+    static final class EntryScan {
+
+        private final ClasspathEntry entry;
+        private final List<String> processors;
+        private final List<File> manifestClasspath;
+
+        private EntryScan(ClasspathEntry entry, List<String> processors, List<File> manifestClasspath) {
+            this.entry = entry;
+            this.processors = processors;
+            this.manifestClasspath = manifestClasspath;
+        }
+
+        /**
+         * Get the opened entry of the class path.
+         *
+         * @return {@link ClasspathEntry}
+         */
+        ClasspathEntry getEntry() {
+            return this.entry;
+        }
+
+        /**
+         * Get the processors registered by the entry.
+         *
+         * @return {@link List} of the binary names
+         */
+        List<String> getProcessors() {
+            return this.processors;
+        }
+    }
+}
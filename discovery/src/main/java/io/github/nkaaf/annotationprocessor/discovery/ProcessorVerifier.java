@@ -0,0 +1,358 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Verifier of the annotation processors registered on a processor path, which reads their class files instead of
+ * compiling them. It applies the checks of the AnnotationProcessorProcessor to prebuilt jars:
+ * </p>
+ *
+ * <ul>
+ * <li>A processor extends <code>javax.annotation.processing.AbstractProcessor</code> or implements
+ * <code>javax.annotation.processing.Processor</code>.</li>
+ * <li>A subclass of AbstractProcessor implements <code>process</code>, itself or in one of its supertypes.</li>
+ * <li>Any other implementation of Processor implements all of its methods, itself or in one of its supertypes.</li>
+ * </ul>
+ *
+ * <p>
+ * In addition, the class of every registered processor has to exist and the ServiceLoader has to be able to
+ * instantiate it: it is a public, concrete class with a public constructor without parameters.
+ * </p>
+ *
+ * <p>
+ * The path is scanned by {@link ProcessorScanner}, then the processors are verified in parallel on the same
+ * executor. Supertypes are resolved like the class loader of javac does: classes of the JDK first, then the entries of
+ * the path in their order. Every class file is parsed at most once, see {@link ClassFile}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class ProcessorVerifier {
+
+    static final String ABSTRACT_PROCESSOR = "javax.annotation.processing.AbstractProcessor";
+    static final String PROCESSOR = "javax.annotation.processing.Processor";
+
+    private static final String CONSTRUCTOR = "<init>";
+    private static final String NO_ARGUMENTS = "()V";
+
+    private static final String[] PROCESSOR_METHOD_NAMES = { "getSupportedOptions", "getSupportedAnnotationTypes",
+            "getSupportedSourceVersion", "init", "process", "getCompletions" };
+    private static final String[] PROCESSOR_METHOD_DESCRIPTORS = { "()Ljava/util/Set;", "()Ljava/util/Set;",
+            "()Ljavax/lang/model/SourceVersion;", "(Ljavax/annotation/processing/ProcessingEnvironment;)V",
+            "(Ljava/util/Set;Ljavax/annotation/processing/RoundEnvironment;)Z",
+            "(Ljavax/lang/model/element/Element;Ljavax/lang/model/element/AnnotationMirror;"
+                    + "Ljavax/lang/model/element/ExecutableElement;Ljava/lang/String;)Ljava/lang/Iterable;" };
+    private static final String[] PROCESSOR_METHOD_PARAMETERS = { "", "", "",
+            "javax.annotation.processing.ProcessingEnvironment",
+            "java.util.Set<? extends javax.lang.model.element.TypeElement>, "
+                    + "javax.annotation.processing.RoundEnvironment",
+            "javax.lang.model.element.Element, javax.lang.model.element.AnnotationMirror, "
+                    + "javax.lang.model.element.ExecutableElement, java.lang.String" };
+    private static final String[] PROCESSOR_METHOD_RETURN_TYPES = { "java.util.Set<java.lang.String>",
+            "java.util.Set<java.lang.String>", "javax.lang.model.SourceVersion", "void", "boolean",
+            "java.lang.Iterable<? extends javax.annotation.processing.Completion>" };
+    private static final int PROCESSOR_SIGNATURES_MASK = (1 << PROCESSOR_METHOD_NAMES.length) - 1;
+    private static final int PROCESS_SIGNATURE_MASK = 1 << 4;
+
+    private final ProcessorScanner scanner;
+
+    /**
+     * Create a new verifier with one thread per available processor.
+     */
+    public ProcessorVerifier() {
+        this.scanner = new ProcessorScanner();
+    }
+
+    /**
+     * Create a new verifier.
+     *
+     * @param parallelism
+     *            Maximum number of entries of the path scanned and processors verified at the same time
+     */
+    public ProcessorVerifier(int parallelism) {
+        this.scanner = new ProcessorScanner(parallelism);
+    }
+
+    /**
+     * Verify the processors registered on a processor path. Entries that do not exist are ignored.
+     *
+     * @param processorPath
+     *            Entries of the processor path
+     *
+     * @return {@link VerificationReport} of the registered processors
+     *
+     * @throws IOException
+     *             if an entry cannot be read
+     */
+    public VerificationReport verify(List<File> processorPath) throws IOException {
+        return this.scanner.scan(processorPath, new ProcessorScanner.EntriesTask<VerificationReport>() {
+            @Override
+            public VerificationReport run(ExecutorService executor, List<ProcessorScanner.EntryScan> entries)
+                    throws IOException {
+                return verify(executor, entries);
+            }
+        });
+    }
+
+    private static VerificationReport verify(ExecutorService executor, List<ProcessorScanner.EntryScan> entries)
+            throws IOException {
+        final TypeResolver resolver = new TypeResolver(entries);
+        Map<String, List<File>> registrations = ProcessorScanner.getRegistrations(entries);
+        Map<String, Future<List<String>>> verifications = new LinkedHashMap<>();
+        for (final String processor : registrations.keySet()) {
+            verifications.put(processor, executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws IOException {
+                    return resolver.verify(processor);
+                }
+            }));
+        }
+
+        Map<String, List<String>> errors = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<List<String>>> verification : verifications.entrySet()) {
+            errors.put(verification.getKey(), ProcessorScanner.get(verification.getValue()));
+        }
+        return new VerificationReport(registrations, errors);
+    }
+
+    /**
+     * Resolver of the class files of a processor path, which is shared by the verifications running in parallel.
+     */
+    private static final class TypeResolver {
+
+        private static final ClassLoader PLATFORM_CLASS_LOADER = ClassLoader.getSystemClassLoader().getParent();
+
+        private final List<ProcessorScanner.EntryScan> entries;
+        private final ConcurrentMap<String, ClassFile> classFiles = new ConcurrentHashMap<>();
+        private final Set<String> missing = ConcurrentHashMap.newKeySet();
+        private final ConcurrentMap<String, Integer> implementedSignatures = new ConcurrentHashMap<>();
+
+        private TypeResolver(List<ProcessorScanner.EntryScan> entries) {
+            this.entries = entries;
+        }
+
+        /**
+         * Verify a processor.
+         *
+         * @param processor
+         *            Binary name of the processor
+         *
+         * @return {@link List} of the errors, which is empty if the processor is valid
+         *
+         * @throws IOException
+         *             if an entry of the path cannot be read
+         */
+        private List<String> verify(String processor) throws IOException {
+            List<String> errors = new ArrayList<>();
+            try {
+                ClassFile classFile = resolve(processor);
+                if (classFile == null) {
+                    errors.add(processor + " is registered, but its class is missing.");
+                    return errors;
+                }
+                if (!classFile.isPublic() || classFile.isAbstract()) {
+                    errors.add(processor + " is not a public concrete class, so the ServiceLoader cannot "
+                            + "instantiate it.");
+                } else {
+                    ClassFile.Method constructor = classFile.findMethod(CONSTRUCTOR, NO_ARGUMENTS);
+                    if (constructor == null || !constructor.isPublic()) {
+                        errors.add(processor + " has no public constructor without parameters, so the "
+                                + "ServiceLoader cannot instantiate it.");
+                    }
+                }
+
+                int expectedMask;
+                if (isSubclass(processor, classFile, ABSTRACT_PROCESSOR)) {
+                    expectedMask = PROCESS_SIGNATURE_MASK;
+                } else if (isSubtype(processor, classFile, PROCESSOR, new HashSet<String>())) {
+                    expectedMask = PROCESSOR_SIGNATURES_MASK;
+                } else {
+                    errors.add(processor + " is neither extending " + ABSTRACT_PROCESSOR + " nor implementing "
+                            + PROCESSOR + ". Best Practise is to extend " + ABSTRACT_PROCESSOR + ".");
+                    return errors;
+                }
+
+                int missingMask = expectedMask & ~getImplementedSignatures(processor, classFile);
+                for (int i = 0; missingMask != 0; i++, missingMask >>>= 1) {
+                    if ((missingMask & 1) != 0) {
+                        errors.add(processor + " is not overriding " + PROCESSOR + "#" + PROCESSOR_METHOD_NAMES[i]
+                                + "(" + PROCESSOR_METHOD_PARAMETERS[i] + ") (ReturnType "
+                                + PROCESSOR_METHOD_RETURN_TYPES[i] + ").");
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                errors.add(e.getMessage());
+            }
+            return errors;
+        }
+
+        private boolean isSubclass(String processor, ClassFile classFile, String superclass) throws IOException {
+            for (ClassFile current = classFile; current.getSuperName() != null;) {
+                if (current.getSuperName().equals(superclass)) {
+                    return true;
+                }
+                current = resolveSupertype(processor, current.getSuperName());
+            }
+            return false;
+        }
+
+        private boolean isSubtype(String processor, ClassFile classFile, String supertype, Set<String> visited)
+                throws IOException {
+            if (classFile.getName().equals(supertype)) {
+                return true;
+            }
+            if (!visited.add(classFile.getName())) {
+                return false;
+            }
+            for (String name : getSupertypeNames(classFile)) {
+                if (isSubtype(processor, resolveSupertype(processor, name), supertype, visited)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Get the methods of Processor, which are implemented by a type or one of its supertypes. The result is
+         * memoized, so a supertype shared by many processors is only analysed once.
+         *
+         * @param processor
+         *            Binary name of the verified processor
+         * @param classFile
+         *            {@link ClassFile} of the type
+         *
+         * @return Bit mask of the implemented signatures, bit i stands for the i-th signature of
+         *         {@link #PROCESSOR_METHOD_NAMES}
+         */
+        private int getImplementedSignatures(String processor, ClassFile classFile) throws IOException {
+            Integer memoized = this.implementedSignatures.get(classFile.getName());
+            if (memoized != null) {
+                return memoized;
+            }
+
+            int implemented = 0;
+            for (int i = 0; i < PROCESSOR_METHOD_NAMES.length; i++) {
+                ClassFile.Method method = classFile.findMethod(PROCESSOR_METHOD_NAMES[i],
+                        PROCESSOR_METHOD_DESCRIPTORS[i]);
+                if (method != null && method.isImplementation()) {
+                    implemented |= 1 << i;
+                }
+            }
+
+            if (implemented != PROCESSOR_SIGNATURES_MASK) {
+                for (String name : getSupertypeNames(classFile)) {
+                    implemented |= getImplementedSignatures(processor, resolveSupertype(processor, name));
+                }
+            }
+
+            this.implementedSignatures.put(classFile.getName(), implemented);
+            return implemented;
+        }
+
+        private static List<String> getSupertypeNames(ClassFile classFile) {
+            List<String> names = new ArrayList<>(classFile.getInterfaceNames().size() + 1);
+            if (classFile.getSuperName() != null) {
+                names.add(classFile.getSuperName());
+            }
+            names.addAll(classFile.getInterfaceNames());
+            return names;
+        }
+
+        private ClassFile resolveSupertype(String processor, String name) throws IOException {
+            ClassFile classFile = resolve(name);
+            if (classFile == null) {
+                throw new IllegalArgumentException(
+                        processor + " cannot be verified, because its supertype " + name + " is missing.");
+            }
+            return classFile;
+        }
+
+        /**
+         * Resolve a class by its binary name.
+         *
+         * @param name
+         *            Binary name of the class
+         *
+         * @return {@link ClassFile}, or null if neither the JDK nor the path contains the class
+         *
+         * @throws IOException
+         *             if an entry of the path cannot be read
+         * @throws IllegalArgumentException
+         *             if the class file is invalid
+         */
+        private ClassFile resolve(String name) throws IOException {
+            ClassFile classFile = this.classFiles.get(name);
+            if (classFile != null || this.missing.contains(name)) {
+                return classFile;
+            }
+
+            byte[] bytes = read(name.replace('.', '/') + ProcessorScanner.CLASS_FILE_EXTENSION);
+            if (bytes == null) {
+                this.missing.add(name);
+                return null;
+            }
+            try {
+                classFile = ClassFile.parse(bytes);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + " is not a valid class file: " + e.getMessage(), e);
+            }
+            ClassFile previous = this.classFiles.putIfAbsent(name, classFile);
+            return previous != null ? previous : classFile;
+        }
+
+        private byte[] read(String resource) throws IOException {
+            try (InputStream inputStream = PLATFORM_CLASS_LOADER.getResourceAsStream(resource)) {
+                if (inputStream != null) {
+                    return ClasspathEntry.readFully(inputStream);
+                }
+            }
+            for (ProcessorScanner.EntryScan scan : this.entries) {
+                byte[] bytes = scan.getEntry().read(resource);
+                if (bytes != null) {
+                    return bytes;
+                }
+            }
+            return null;
+        }
+    }
+}
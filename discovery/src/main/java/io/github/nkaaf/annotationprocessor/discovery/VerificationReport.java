@@ -0,0 +1,122 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Annotation processors registered on a processor path and the errors found in their class files, created by
+ * {@link ProcessorVerifier}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class VerificationReport {
+
+    private final Map<String, List<File>> registrations;
+    private final Map<String, List<String>> errors;
+
+    VerificationReport(Map<String, List<File>> registrations, Map<String, List<String>> errors) {
+        this.registrations = registrations;
+        this.errors = errors;
+    }
+
+    /**
+     * Get the binary names of the registered processors.
+     *
+     * @return {@link List} of the processors in the order of the path
+     */
+    public List<String> getProcessorNames() {
+        return Collections.unmodifiableList(new ArrayList<>(this.registrations.keySet()));
+    }
+
+    /**
+     * Get the entries of the path registering each processor.
+     *
+     * @return {@link Map} of the processors and the entries registering them, in the order of the path
+     */
+    public Map<String, List<File>> getRegistrations() {
+        return Collections.unmodifiableMap(this.registrations);
+    }
+
+    /**
+     * Get the errors of the invalid processors.
+     *
+     * @return {@link Map} of the invalid processors and their errors, in the order of the path
+     */
+    public Map<String, List<String>> getErrors() {
+        Map<String, List<String>> invalid = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : this.errors.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                invalid.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableMap(invalid);
+    }
+
+    /**
+     * Check if all registered processors are valid.
+     *
+     * @return true if no processor has an error, false otherwise
+     */
+    public boolean isValid() {
+        return getErrors().isEmpty();
+    }
+
+    /**
+     * Format the report for humans.
+     *
+     * @return report with one line per processor and a section for the errors
+     */
+    public String format() {
+        Map<String, List<String>> invalid = getErrors();
+        StringBuilder report = new StringBuilder();
+        report.append("Processors (").append(this.registrations.size()).append("):\n");
+        for (Map.Entry<String, List<File>> entry : this.registrations.entrySet()) {
+            report.append("  ").append(entry.getKey()).append(" registered by ").append(entry.getValue().get(0))
+                    .append(invalid.containsKey(entry.getKey()) ? ": invalid" : ": valid").append('\n');
+        }
+
+        int count = 0;
+        for (List<String> processorErrors : invalid.values()) {
+            count += processorErrors.size();
+        }
+        report.append("Errors (").append(count).append("):\n");
+        for (List<String> processorErrors : invalid.values()) {
+            for (String error : processorErrors) {
+                report.append("  ").append(error).append('\n');
+            }
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,345 @@
+package io.github.nkaaf.annotationprocessor.discovery;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessorScannerTest {
+
+    private static final byte[] CLASS = { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE };
+
+    private static File createTempDirectory() throws IOException {
+        return Files.createTempDirectory("annotationprocessor-discovery").toFile();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        assertTrue(file.delete());
+    }
+
+    private static File createJar(File file, byte[] prefix, int method, Map<String, byte[]> entries)
+            throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(prefix);
+            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setMethod(method);
+                if (method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(entry.getValue());
+                    zipEntry.setSize(entry.getValue().length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                zipOutputStream.putNextEntry(zipEntry);
+                zipOutputStream.write(entry.getValue());
+                zipOutputStream.closeEntry();
+            }
+            zipOutputStream.finish();
+        }
+        return file;
+    }
+
+    private static File createJar(File file, Map<String, byte[]> entries) throws IOException {
+        return createJar(file, new byte[0], ZipEntry.DEFLATED, entries);
+    }
+
+    private static Map<String, byte[]> entries(String... namesAndContents) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            String content = namesAndContents[i + 1];
+            entries.put(namesAndContents[i], content == null ? CLASS : content.getBytes(StandardCharsets.UTF_8));
+        }
+        return entries;
+    }
+
+    private static Map<String, byte[]> compile(File directory, File classpath, String... namesAndSources)
+            throws IOException {
+        File sources = new File(directory, "sources");
+        File classes = new File(directory, "classes");
+        assertTrue(classes.mkdirs());
+        String[] arguments = new String[namesAndSources.length / 2 + 4];
+        arguments[0] = "-d";
+        arguments[1] = classes.getPath();
+        arguments[2] = "-cp";
+        arguments[3] = classpath == null ? "" : classpath.getPath();
+        for (int i = 0; i < namesAndSources.length; i += 2) {
+            File source = new File(sources, namesAndSources[i].replace('.', '/') + ".java");
+            assertTrue(source.getParentFile().isDirectory() || source.getParentFile().mkdirs());
+            Files.write(source.toPath(), namesAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+            arguments[i / 2 + 4] = source.getPath();
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, arguments));
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        addClasses(classes, "", entries);
+        return entries;
+    }
+
+    private static void addClasses(File directory, String prefix, Map<String, byte[]> entries) throws IOException {
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addClasses(file, prefix + file.getName() + "/", entries);
+            } else {
+                entries.put(prefix + file.getName(), Files.readAllBytes(file.toPath()));
+            }
+        }
+    }
+
+    @Test
+    public void scanDuplicatesShadowedAndMissing() throws IOException {
+        File directory = createTempDirectory();
+        File first = createJar(new File(directory, "first.jar"),
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "a.A\n# comment\na.B # comment\n", "a/A.class", null,
+                        "a/B.class", null));
+        File shaded = createJar(new File(directory, "shaded.jar"),
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "a.A\r\na.A\r\n", "a/A.class", null));
+        File classes = new File(directory, "classes");
+        File services = new File(classes, "META-INF/services");
+        assertTrue(services.mkdirs());
+        Files.write(new File(services, "javax.annotation.processing.Processor").toPath(),
+                "c.C$Nested\n".getBytes(StandardCharsets.UTF_8));
+
+        DiscoveryReport report = new ProcessorScanner(2)
+                .scan(Arrays.asList(first, new File(directory, "missing.jar"), shaded, classes));
+
+        assertEquals(Arrays.asList("a.A", "a.B", "c.C$Nested"), report.getProcessorNames());
+        assertEquals(Collections.singletonMap("a.A", Arrays.asList(first, shaded)), report.getDuplicates());
+        assertEquals(Collections.singletonMap("a.A", Arrays.asList(first, shaded)), report.getShadowed());
+        assertEquals(Collections.singletonList("c.C$Nested"), report.getMissing());
+        assertEquals(Arrays.asList("-processor", "a.A,a.B,c.C$Nested"), report.getProcessorArguments());
+
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void scanStoredAndPrefixedJars() throws IOException {
+        File directory = createTempDirectory();
+        File stored = createJar(new File(directory, "stored.jar"), new byte[0], ZipEntry.STORED,
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "a.A\n", "a/A.class", null));
+        byte[] script = "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8);
+        File prefixed = createJar(new File(directory, "prefixed.jar"), script, ZipEntry.DEFLATED,
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "b.B\n", "b/B.class", null));
+
+        DiscoveryReport report = new ProcessorScanner(1).scan(Arrays.asList(stored, prefixed));
+
+        assertEquals(Arrays.asList("a.A", "b.B"), report.getProcessorNames());
+        assertTrue(report.getMissing().isEmpty());
+
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void scanManifestClasspath() throws IOException {
+        File directory = createTempDirectory();
+        File lib = new File(directory, "lib");
+        assertTrue(lib.mkdir());
+        File dependency = createJar(new File(lib, "dependency.jar"),
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "b.B\n", "b/B.class", null));
+        File pathing = createJar(new File(directory, "pathing.jar"),
+                entries("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nClass-Path: lib/dependency.jar\r\n\r\n"));
+        File last = createJar(new File(directory, "last.jar"),
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "c.C\n", "c/C.class", null));
+
+        DiscoveryReport report = new ProcessorScanner().scan(Arrays.asList(pathing, last, dependency));
+
+        // The jars of the manifest follow the jar, and the later duplicate of the class path is ignored
+        assertEquals(Arrays.asList("b.B", "c.C"), report.getProcessorNames());
+        assertTrue(report.getDuplicates().isEmpty());
+
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void scanManyEntries() throws IOException {
+        File directory = createTempDirectory();
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        StringBuilder serviceFile = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            entries.put("p" + (i % 7) + "/C" + i + ".class", CLASS);
+            if (i % 100 == 0) {
+                serviceFile.append("p").append(i % 7).append(".C").append(i).append('\n');
+            }
+        }
+        serviceFile.append("p.Missing\n");
+        entries.put(ProcessorScanner.PROCESSOR_SERVICE_FILE, serviceFile.toString().getBytes(StandardCharsets.UTF_8));
+        File jar = createJar(new File(directory, "large.jar"), entries);
+
+        DiscoveryReport report = new ProcessorScanner().scan(Collections.singletonList(jar));
+
+        assertEquals(51, report.getProcessorNames().size());
+        assertEquals(Collections.singletonList("p.Missing"), report.getMissing());
+
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void runCommandLine() throws IOException {
+        File directory = createTempDirectory();
+        File first = createJar(new File(directory, "first.jar"),
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "a.A\n", "a/A.class", null));
+        File second = createJar(new File(directory, "second.jar"),
+                entries(ProcessorScanner.PROCESSOR_SERVICE_FILE, "a.A\nb.B\n", "b/B.class", null));
+        String path = first + File.pathSeparator + second;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(ProcessorDiscovery.EXIT_SUCCESS, ProcessorDiscovery
+                .run(new String[] { "--arguments", path }, new PrintStream(out, true), new PrintStream(err, true)));
+        assertEquals("-processor a.A,b.B" + System.lineSeparator(), out.toString());
+
+        out.reset();
+        assertEquals(ProcessorDiscovery.EXIT_STRICT, ProcessorDiscovery.run(new String[] { "--strict", path },
+                new PrintStream(out, true), new PrintStream(err, true)));
+        assertTrue(out.toString().contains("Duplicate registrations (1):"));
+
+        out.reset();
+        assertEquals(ProcessorDiscovery.EXIT_SUCCESS,
+                ProcessorDiscovery.run(new String[] { "--arguments", new File(directory, "missing.jar").getPath() },
+                        new PrintStream(out, true), new PrintStream(err, true)));
+        assertEquals("-proc:none" + System.lineSeparator(), out.toString());
+
+        assertEquals(ProcessorDiscovery.EXIT_USAGE, ProcessorDiscovery.run(new String[0], new PrintStream(out, true),
+                new PrintStream(err, true)));
+        assertEquals(0, err.toString().indexOf("Usage:"));
+
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void verifyProcessors() throws IOException {
+        String imports = "import java.util.Set;\n"
+                + "import javax.annotation.processing.*;\n"
+                + "import javax.lang.model.SourceVersion;\n"
+                + "import javax.lang.model.element.*;\n";
+        String process = "public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) "
+                + "{ return false; }\n";
+        File directory = createTempDirectory();
+
+        File libraryDirectory = new File(directory, "library");
+        Map<String, byte[]> library = compile(libraryDirectory, null,
+                "lib.Base", "package lib;\n" + imports + "public abstract class Base extends AbstractProcessor {\n"
+                        + process + "}\n",
+                "lib.Defaults", "package lib;\n" + imports + "public interface Defaults extends Processor {\n"
+                        + "default Set<String> getSupportedOptions() { return null; }\n"
+                        + "default Set<String> getSupportedAnnotationTypes() { return null; }\n"
+                        + "default SourceVersion getSupportedSourceVersion() { return null; }\n"
+                        + "default void init(ProcessingEnvironment processingEnv) {}\n"
+                        + "default " + process
+                        + "default Iterable<? extends Completion> getCompletions(Element element, "
+                        + "AnnotationMirror annotation, ExecutableElement member, String userText) { return null; }\n"
+                        + "}\n");
+        File libraryJar = createJar(new File(directory, "library.jar"), library);
+
+        File libraryClasses = new File(libraryDirectory, "classes");
+        Map<String, byte[]> processors = compile(new File(directory, "processors"), libraryClasses,
+                "p.Valid", "package p;\n" + imports + "public class Valid extends AbstractProcessor {\n" + process
+                        + "}\n",
+                "p.Inherited", "package p;\npublic class Inherited extends lib.Base {}\n",
+                "p.ViaDefaults", "package p;\npublic class ViaDefaults implements lib.Defaults {}\n",
+                "p.Abstract",
+                "package p;\n" + imports + "public abstract class Abstract extends AbstractProcessor {}\n",
+                "p.Partial", "package p;\n" + imports + "public abstract class Partial implements Processor {\n"
+                        + process + "}\n",
+                "p.Hidden", "package p;\n" + imports + "public class Hidden extends AbstractProcessor {\n"
+                        + "private Hidden() {}\n" + process + "}\n",
+                "p.Plain", "package p;\npublic class Plain {}\n");
+        processors.put("p/Invalid.class", CLASS);
+        processors.put(ProcessorScanner.PROCESSOR_SERVICE_FILE, ("p.Valid\np.Inherited\np.ViaDefaults\np.Abstract\n"
+                + "p.Partial\np.Hidden\np.Plain\np.Invalid\np.Missing\n").getBytes(StandardCharsets.UTF_8));
+        File processorJar = createJar(new File(directory, "processors.jar"), processors);
+
+        VerificationReport report = new ProcessorVerifier(2).verify(Arrays.asList(processorJar, libraryJar));
+
+        assertEquals(Arrays.asList("p.Valid", "p.Inherited", "p.ViaDefaults", "p.Abstract", "p.Partial", "p.Hidden",
+                "p.Plain", "p.Invalid", "p.Missing"), report.getProcessorNames());
+        Map<String, List<String>> errors = report.getErrors();
+        assertEquals(Arrays.asList("p.Abstract", "p.Partial", "p.Hidden", "p.Plain", "p.Invalid", "p.Missing"),
+                new ArrayList<>(errors.keySet()));
+        assertEquals(Arrays.asList(
+                "p.Abstract is not a public concrete class, so the ServiceLoader cannot instantiate it.",
+                "p.Abstract is not overriding javax.annotation.processing.Processor#process(java.util.Set<? extends "
+                        + "javax.lang.model.element.TypeElement>, javax.annotation.processing.RoundEnvironment) "
+                        + "(ReturnType boolean)."),
+                errors.get("p.Abstract"));
+        assertEquals(6, errors.get("p.Partial").size());
+        assertEquals("p.Partial is not overriding javax.annotation.processing.Processor#getSupportedOptions() "
+                + "(ReturnType java.util.Set<java.lang.String>).", errors.get("p.Partial").get(1));
+        assertEquals(Collections.singletonList("p.Hidden has no public constructor without parameters, so the "
+                + "ServiceLoader cannot instantiate it."), errors.get("p.Hidden"));
+        assertEquals(Collections.singletonList("p.Plain is neither extending javax.annotation.processing."
+                + "AbstractProcessor nor implementing javax.annotation.processing.Processor. Best Practise is to "
+                + "extend javax.annotation.processing.AbstractProcessor."), errors.get("p.Plain"));
+        assertEquals(0, errors.get("p.Invalid").get(0).indexOf("p.Invalid is not a valid class file"));
+        assertEquals(Collections.singletonList("p.Missing is registered, but its class is missing."),
+                errors.get("p.Missing"));
+
+        // Without the library, the supertypes cannot be resolved
+        report = new ProcessorVerifier(1).verify(Collections.singletonList(processorJar));
+        assertEquals(Collections.singletonList("p.Inherited cannot be verified, because its supertype lib.Base is "
+                + "missing."), report.getErrors().get("p.Inherited"));
+        assertFalse(report.getErrors().containsKey("p.Valid"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(ProcessorDiscovery.EXIT_STRICT,
+                ProcessorDiscovery.run(new String[] { "--verify", processorJar + File.pathSeparator + libraryJar },
+                        new PrintStream(out, true), new PrintStream(err, true)));
+        assertTrue(out.toString().contains("  p.Valid registered by " + processorJar + ": valid\n"));
+        assertTrue(out.toString().contains("Errors (12):\n"));
+
+        deleteRecursively(directory);
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.nkaaf.annotationprocessor.profiler;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * <p>
+ * Java agent, which gives the class-loading report of the profiling processors access to the loaded classes, so that
+ * it can list the processor path entries touched by a processor. The agent does not transform any class, it only
+ * keeps the {@link Instrumentation}.
+ * </p>
+ *
+ * <p>
+ * The jar of the profiler is the agent jar. Start javac with
+ * <code>-J-javaagent:annotationprocessor-profiler.jar</code> or the JVM of the build tool with
+ * <code>-javaagent:annotationprocessor-profiler.jar</code>. The class-loading report of the processor jar looks the
+ * agent up by its name in the system class loader, so the processor jar does not depend on the profiler.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class ClassLoadingAgent {
+
+    private static volatile Instrumentation instrumentation;
+
+    private ClassLoadingAgent() {
+    }
+
+    /**
+     * Called by the JVM, if the agent is started with <code>-javaagent</code>.
+     *
+     * @param arguments
+     *            Arguments of the agent, which are ignored
+     * @param instrumentation
+     *            {@link Instrumentation} of the JVM
+     */
+    public static void premain(String arguments, Instrumentation instrumentation) {
+        ClassLoadingAgent.instrumentation = instrumentation;
+    }
+
+    /**
+     * Called by the JVM, if the agent is attached to a running JVM.
+     *
+     * @param arguments
+     *            Arguments of the agent, which are ignored
+     * @param instrumentation
+     *            {@link Instrumentation} of the JVM
+     */
+    public static void agentmain(String arguments, Instrumentation instrumentation) {
+        ClassLoadingAgent.instrumentation = instrumentation;
+    }
+
+    /**
+     * Get the {@link Instrumentation} of the JVM. It is looked up reflectively by the class-loading report of the
+     * profiling processors.
+     *
+     * @return {@link Instrumentation} or null, if the agent was not started
+     */
+    public static Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+}
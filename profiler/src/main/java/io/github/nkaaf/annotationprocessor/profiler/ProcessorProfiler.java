@@ -0,0 +1,548 @@
+package io.github.nkaaf.annotationprocessor.profiler;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.Processor;
+import javax.tools.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * <p>
+ * Profiling harness for a single annotation processor, e.g. one registered with
+ * <code>@io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor</code>.
+ * </p>
+ *
+ * <p>
+ * A {@link SyntheticCorpus} is generated and compiled in-process with only the profiled processor, first for the
+ * warm-up iterations, then for the measured iterations. Every iteration uses a new instance of the processor and a
+ * new output directory. By default, the compilation runs with <code>-proc:only</code>, so only the processing is
+ * measured, see {@link #compile(boolean)}.
+ * </p>
+ *
+ * <p>
+ * With {@link #profiled(boolean)}, the profiling processor generated for the processor is run instead of it. It is
+ * looked up in <code>META-INF/annotationprocessor/profiling.processors</code> of the class path, which lists the
+ * profiling processors next to their processors as <code>processor=profiling processor</code>.
+ * </p>
+ *
+ * <pre>
+ * java -cp annotationprocessor-profiler.jar:&lt;class path of the processor&gt;
+ *         io.github.nkaaf.annotationprocessor.profiler.ProcessorProfiler --processor &lt;class&gt; [options]
+ * </pre>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class ProcessorProfiler {
+
+    private static final String PROCESSOR_SERVICE_FILE = "META-INF/services/javax.annotation.processing.Processor";
+    private static final String PROFILING_PROCESSORS_FILE = "META-INF/annotationprocessor/profiling.processors";
+    private static final String USAGE = "Usage: ProcessorProfiler --processor <class> [--classes <n>] "
+            + "[--annotations <n>] [--nesting <n>] [--annotation-type <class>]... [--warmup <n>] "
+            + "[--iterations <n>] [--option <key>[=<value>]]... [--compile] [--profiled] [--csv]";
+
+    private final Class<? extends Processor> processorClass;
+    private int classes = 1000;
+    private int annotationsPerClass = 1;
+    private int nesting;
+    private final List<String> annotationTypes = new ArrayList<>();
+    private int warmupIterations = 5;
+    private int iterations = 10;
+    private final List<String> options = new ArrayList<>();
+    private boolean compile;
+    private boolean profiled;
+    private final List<String> notes = new ArrayList<>();
+
+    /**
+     * Create a new profiler.
+     *
+     * @param processorClass
+     *            Class of the processor, which must have a public no-arg constructor
+     */
+    public ProcessorProfiler(Class<? extends Processor> processorClass) {
+        this.processorClass = processorClass;
+    }
+
+    /**
+     * Set the number of top level classes of the corpus (default 1000).
+     *
+     * @param classes
+     *            Number of classes
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler classes(int classes) {
+        this.classes = classes;
+        return this;
+    }
+
+    /**
+     * Set the number of annotations of every class of the corpus, including its nested classes and members (default
+     * 1).
+     *
+     * @param annotationsPerClass
+     *            Number of annotations
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler annotationsPerClass(int annotationsPerClass) {
+        this.annotationsPerClass = annotationsPerClass;
+        return this;
+    }
+
+    /**
+     * Set the depth of the nested classes of every class of the corpus (default 0).
+     *
+     * @param nesting
+     *            Depth of the nested classes
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler nesting(int nesting) {
+        this.nesting = nesting;
+        return this;
+    }
+
+    /**
+     * Add an annotation type of the corpus. Without annotation types, the annotation types supported by the processor
+     * are used, except for wildcards. If the processor supports none, a marker annotation is generated.
+     *
+     * @param annotationType
+     *            Qualified name of the annotation type
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler annotationType(String annotationType) {
+        this.annotationTypes.add(annotationType);
+        return this;
+    }
+
+    /**
+     * Set the number of warm-up iterations (default 5).
+     *
+     * @param warmupIterations
+     *            Number of iterations, which are not measured
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler warmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    /**
+     * Set the number of measured iterations (default 10).
+     *
+     * @param iterations
+     *            Number of measured iterations
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler iterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Add an option of the processor.
+     *
+     * @param option
+     *            Option as <code>key</code> or <code>key=value</code>
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler option(String option) {
+        this.options.add("-A" + option);
+        return this;
+    }
+
+    /**
+     * Set whether class files are generated (default false). Otherwise the compilation runs with
+     * <code>-proc:only</code>.
+     *
+     * @param compile
+     *            true, if the corpus is compiled to class files
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler compile(boolean compile) {
+        this.compile = compile;
+        return this;
+    }
+
+    /**
+     * Set whether the profiling processor of the processor is run instead of it (default false).
+     *
+     * @param profiled
+     *            true, if the profiling processor is run
+     *
+     * @return this profiler
+     */
+    public ProcessorProfiler profiled(boolean profiled) {
+        this.profiled = profiled;
+        return this;
+    }
+
+    /**
+     * Get the notes reported in the last iteration, e.g. the profile of a profiling processor.
+     *
+     * @return {@link List} of the notes
+     */
+    public List<String> getNotes() {
+        return Collections.unmodifiableList(this.notes);
+    }
+
+    /**
+     * Check if the processor is registered in a service file of the class path.
+     *
+     * @return true, if the processor is registered
+     *
+     * @throws IOException
+     *             if a service file cannot be read
+     */
+    public boolean isRegistered() throws IOException {
+        for (String line : readLines(PROCESSOR_SERVICE_FILE)) {
+            if (line.equals(this.processorClass.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the profiling processor of the processor from the profiling processors of the class path.
+     *
+     * @return class of the profiling processor
+     *
+     * @throws IOException
+     *             if a list of profiling processors cannot be read
+     * @throws IllegalArgumentException
+     *             if no profiling processor is listed for the processor or it cannot be loaded
+     */
+    private Class<? extends Processor> getProfilingProcessorClass() throws IOException {
+        String prefix = this.processorClass.getName() + "=";
+        for (String line : readLines(PROFILING_PROCESSORS_FILE)) {
+            if (line.startsWith(prefix)) {
+                try {
+                    return Class.forName(line.substring(prefix.length()), true, this.processorClass.getClassLoader())
+                            .asSubclass(Processor.class);
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IllegalArgumentException("The profiling processor cannot be loaded: " + e.getMessage(),
+                            e);
+                }
+            }
+        }
+        throw new IllegalArgumentException(
+                "No profiling processor of " + this.processorClass.getName() + " is listed in "
+                        + PROFILING_PROCESSORS_FILE + " of the class path");
+    }
+
+    /**
+     * Read the lines of all resources with a name from the class loader of the processor, without comments and
+     * surrounding whitespace.
+     */
+    private List<String> readLines(String name) throws IOException {
+        ClassLoader classLoader = this.processorClass.getClassLoader();
+        Enumeration<URL> resources = classLoader == null ? ClassLoader.getSystemResources(name)
+                : classLoader.getResources(name);
+        List<String> lines = new ArrayList<>();
+        while (resources.hasMoreElements()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(resources.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int comment = line.indexOf('#');
+                    lines.add((comment >= 0 ? line.substring(0, comment) : line).trim());
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Generate the corpus and run the iterations.
+     *
+     * @return {@link ProfileReport} of the measured iterations
+     *
+     * @throws IOException
+     *             if the corpus or the output cannot be written
+     */
+    public ProfileReport run() throws IOException {
+        Class<? extends Processor> processorClass = this.profiled ? getProfilingProcessorClass() : this.processorClass;
+        List<String> annotationTypes = this.annotationTypes.isEmpty()
+                ? getSupportedAnnotationTypes(newProcessor(processorClass))
+                : this.annotationTypes;
+        SyntheticCorpus corpus = SyntheticCorpus.generate(this.classes, annotationTypes, this.annotationsPerClass,
+                this.nesting);
+        String corpusDescription = this.classes + " classes, " + this.annotationsPerClass
+                + " annotations per class, nesting " + this.nesting + ", "
+                + (annotationTypes.isEmpty() ? SyntheticCorpus.MARKER_ANNOTATION : String.join(", ", annotationTypes));
+
+        List<ProfileReport.Iteration> measured = new ArrayList<>(this.iterations);
+        try {
+            for (int i = 0; i < this.warmupIterations + this.iterations; i++) {
+                ProfileReport.Iteration iteration = runIteration(corpus, processorClass);
+                if (i >= this.warmupIterations) {
+                    measured.add(iteration);
+                }
+            }
+        } finally {
+            corpus.delete();
+        }
+        return new ProfileReport(this.processorClass.getName(), corpusDescription, this.warmupIterations, measured);
+    }
+
+    private ProfileReport.Iteration runIteration(SyntheticCorpus corpus, Class<? extends Processor> processorClass)
+            throws IOException {
+        File outputDirectory = Files.createTempDirectory("annotationprocessor-profiler-out").toFile();
+        try {
+            RoundProfilingProcessor processor = new RoundProfilingProcessor(newProcessor(processorClass),
+                    outputDirectory);
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+            List<String> options = new ArrayList<>(Arrays.asList("-d", outputDirectory.getPath(), "-s",
+                    outputDirectory.getPath(), "-classpath", System.getProperty("java.class.path"), "-implicit:none"));
+            if (!this.compile) {
+                options.add("-proc:only");
+            }
+            options.addAll(this.options);
+
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            long startBytes = RoundProfilingProcessor.currentAllocatedBytes();
+            long startNanos = System.nanoTime();
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+                Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(corpus.getSources());
+                JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                        units);
+                task.setProcessors(Collections.singletonList(processor));
+                task.call();
+            }
+            long nanos = System.nanoTime() - startNanos;
+            long allocatedBytes = RoundProfilingProcessor.currentAllocatedBytes() - startBytes;
+
+            int generatedFiles = 0;
+            for (ProfileReport.Measurement round : processor.getRounds()) {
+                generatedFiles += round.getGeneratedFiles();
+            }
+            int errors = 0;
+            this.notes.clear();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                errors += diagnostic.getKind() == Diagnostic.Kind.ERROR ? 1 : 0;
+                if (diagnostic.getKind() == Diagnostic.Kind.NOTE) {
+                    this.notes.add(diagnostic.getMessage(null));
+                }
+            }
+            return new ProfileReport.Iteration(processor.getInit(), processor.getRounds(),
+                    new ProfileReport.Measurement(nanos, allocatedBytes, generatedFiles), errors);
+        } finally {
+            deleteRecursively(outputDirectory);
+        }
+    }
+
+    private static Processor newProcessor(Class<? extends Processor> processorClass) {
+        try {
+            return processorClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(
+                    processorClass.getName() + " cannot be instantiated with a public no-arg constructor", e);
+        }
+    }
+
+    /**
+     * Get the annotation types supported by a processor, which can be used in a corpus: wildcards are left out and a
+     * module prefix is removed.
+     */
+    private static List<String> getSupportedAnnotationTypes(Processor processor) {
+        List<String> annotationTypes = new ArrayList<>();
+        for (String annotationType : processor.getSupportedAnnotationTypes()) {
+            String name = annotationType.substring(annotationType.indexOf('/') + 1);
+            if (!name.equals("*") && !name.endsWith(".*")) {
+                annotationTypes.add(name);
+            }
+        }
+        Collections.sort(annotationTypes);
+        return annotationTypes;
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            throw new IllegalStateException("Cannot delete " + file);
+        }
+    }
+
+    /**
+     * Run the profiler from the command line and print the report.
+     *
+     * @param args
+     *            Arguments, see the class documentation
+     *
+     * @throws IOException
+     *             if the corpus or the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run the profiler from the command line.
+     *
+     * @param args
+     *            Arguments
+     * @param out
+     *            {@link PrintStream} of the report
+     * @param err
+     *            {@link PrintStream} of the errors
+     *
+     * @return exit status, 2 for invalid arguments
+     *
+     * @throws IOException
+     *             if the corpus or the output cannot be written
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+        ProcessorProfiler profiler = null;
+        List<String[]> settings = new ArrayList<>();
+        boolean csv = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--compile") || args[i].equals("--profiled")) {
+                settings.add(new String[] { args[i], null });
+            } else if (args[i].equals("--csv")) {
+                csv = true;
+            } else if (args[i].startsWith("--") && i + 1 < args.length) {
+                settings.add(new String[] { args[i], args[++i] });
+            } else {
+                err.println(USAGE);
+                return 2;
+            }
+        }
+
+        try {
+            for (String[] setting : settings) {
+                if (setting[0].equals("--processor")) {
+                    profiler = new ProcessorProfiler(Class.forName(setting[1]).asSubclass(Processor.class));
+                }
+            }
+            if (profiler == null) {
+                err.println(USAGE);
+                return 2;
+            }
+            for (String[] setting : settings) {
+                profiler.apply(setting[0], setting[1]);
+            }
+        } catch (ClassNotFoundException | ClassCastException e) {
+            err.println("The processor cannot be loaded: " + e.getMessage());
+            return 2;
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        if (!profiler.isRegistered()) {
+            err.println("Warning: " + profiler.processorClass.getName() + " is not registered in "
+                    + PROCESSOR_SERVICE_FILE + " of the class path");
+        }
+        ProfileReport report;
+        try {
+            report = profiler.run();
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        }
+        out.print(csv ? report.formatCsv() : report.format());
+        if (profiler.profiled) {
+            for (String note : profiler.getNotes()) {
+                err.println(note);
+            }
+        }
+        return 0;
+    }
+
+    private void apply(String name, String value) {
+        switch (name) {
+        case "--processor":
+            break;
+        case "--classes":
+            classes(parsePositive(name, value, 1));
+            break;
+        case "--annotations":
+            annotationsPerClass(parsePositive(name, value, 1));
+            break;
+        case "--nesting":
+            nesting(parsePositive(name, value, 0));
+            break;
+        case "--annotation-type":
+            annotationType(value);
+            break;
+        case "--warmup":
+            warmupIterations(parsePositive(name, value, 0));
+            break;
+        case "--iterations":
+            iterations(parsePositive(name, value, 1));
+            break;
+        case "--option":
+            option(value);
+            break;
+        case "--compile":
+            compile(true);
+            break;
+        case "--profiled":
+            profiled(true);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown argument " + name);
+        }
+    }
+
+    private static int parsePositive(String name, String value, int min) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= min) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(name + " must be a number of at least " + min + ", but is " + value);
+    }
+}
@@ -0,0 +1,265 @@
+package io.github.nkaaf.annotationprocessor.profiler;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>
+ * Measurements of the measured iterations of {@link ProcessorProfiler}.
+ * </p>
+ *
+ * <p>
+ * For the initialization of the processor, every round and the whole compilation, the mean and the standard deviation
+ * of the time, the mean of the allocated bytes and the mean of the generated files are reported. A round is aggregated
+ * over the iterations having it.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class ProfileReport {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double BYTES_PER_KILOBYTE = 1024;
+    private static final String ROW_FORMAT = "%-16s %12.3f +/- %9.3f %16.1f %16.1f%n";
+    private static final String HEADER_FORMAT = "%-16s %26s %16s %16s%n";
+
+    private final String processorName;
+    private final String corpusDescription;
+    private final int warmupIterations;
+    private final List<Iteration> iterations;
+
+    ProfileReport(String processorName, String corpusDescription, int warmupIterations, List<Iteration> iterations) {
+        this.processorName = processorName;
+        this.corpusDescription = corpusDescription;
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Get the measured iterations.
+     *
+     * @return {@link List} of {@link Iteration}s
+     */
+    public List<Iteration> getIterations() {
+        return Collections.unmodifiableList(this.iterations);
+    }
+
+    /**
+     * Format the report as table.
+     *
+     * @return report
+     */
+    public String format() {
+        int failed = 0;
+        int rounds = 0;
+        for (Iteration iteration : this.iterations) {
+            failed += iteration.errors > 0 ? 1 : 0;
+            rounds = Math.max(rounds, iteration.rounds.size());
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("Processor:  ").append(this.processorName).append('\n');
+        report.append("Corpus:     ").append(this.corpusDescription).append('\n');
+        report.append("Iterations: ").append(this.warmupIterations).append(" warm-up, ").append(this.iterations.size())
+                .append(" measured, ").append(failed).append(" with errors\n\n");
+        report.append(String.format(Locale.ROOT, HEADER_FORMAT, "Phase", "Time [ms]", "Allocated [KB]",
+                "Generated files"));
+
+        List<Measurement> init = new ArrayList<>();
+        List<Measurement> compilation = new ArrayList<>();
+        for (Iteration iteration : this.iterations) {
+            if (iteration.init != null) {
+                init.add(iteration.init);
+            }
+            compilation.add(iteration.compilation);
+        }
+        appendRow(report, "init", init);
+        for (int round = 0; round < rounds; round++) {
+            List<Measurement> measurements = new ArrayList<>();
+            for (Iteration iteration : this.iterations) {
+                if (round < iteration.rounds.size()) {
+                    measurements.add(iteration.rounds.get(round));
+                }
+            }
+            appendRow(report, "round " + (round + 1), measurements);
+        }
+        appendRow(report, "compilation", compilation);
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String phase, List<Measurement> measurements) {
+        if (measurements.isEmpty()) {
+            return;
+        }
+        double meanNanos = 0;
+        double meanBytes = 0;
+        double meanFiles = 0;
+        for (Measurement measurement : measurements) {
+            meanNanos += measurement.nanos;
+            meanBytes += measurement.allocatedBytes;
+            meanFiles += measurement.generatedFiles;
+        }
+        meanNanos /= measurements.size();
+        meanBytes /= measurements.size();
+        meanFiles /= measurements.size();
+        double variance = 0;
+        for (Measurement measurement : measurements) {
+            variance += (measurement.nanos - meanNanos) * (measurement.nanos - meanNanos);
+        }
+        double deviation = measurements.size() > 1 ? Math.sqrt(variance / (measurements.size() - 1)) : 0;
+
+        report.append(String.format(Locale.ROOT, ROW_FORMAT, phase, meanNanos / NANOS_PER_MILLI,
+                deviation / NANOS_PER_MILLI, meanBytes / BYTES_PER_KILOBYTE, meanFiles));
+    }
+
+    /**
+     * Format the measurements as CSV with the columns
+     * <code>iteration,phase,nanos,allocated_bytes,generated_files</code>, e.g. to compare them between commits.
+     *
+     * @return CSV with a header line
+     */
+    public String formatCsv() {
+        StringBuilder csv = new StringBuilder("iteration,phase,nanos,allocated_bytes,generated_files\n");
+        for (int i = 0; i < this.iterations.size(); i++) {
+            Iteration iteration = this.iterations.get(i);
+            if (iteration.init != null) {
+                appendCsv(csv, i, "init", iteration.init);
+            }
+            for (int round = 0; round < iteration.rounds.size(); round++) {
+                appendCsv(csv, i, "round " + (round + 1), iteration.rounds.get(round));
+            }
+            appendCsv(csv, i, "compilation", iteration.compilation);
+        }
+        return csv.toString();
+    }
+
+    private static void appendCsv(StringBuilder csv, int iteration, String phase, Measurement measurement) {
+        csv.append(iteration).append(',').append(phase).append(',').append(measurement.nanos).append(',')
+                .append(measurement.allocatedBytes).append(',').append(measurement.generatedFiles).append('\n');
+    }
+
+    /**
+     * Measured iteration, i.e. one compilation of the corpus.
+     */
+    public static final class Iteration {
+
+        private final Measurement init;
+        private final List<Measurement> rounds;
+        private final Measurement compilation;
+        private final int errors;
+
+        Iteration(Measurement init, List<Measurement> rounds, Measurement compilation, int errors) {
+            this.init = init;
+            this.rounds = rounds;
+            this.compilation = compilation;
+            this.errors = errors;
+        }
+
+        /**
+         * Get the measurement of the initialization of the processor.
+         *
+         * @return {@link Measurement}, or null if the processor was not initialized
+         */
+        public Measurement getInit() {
+            return this.init;
+        }
+
+        /**
+         * Get the measurements of the rounds.
+         *
+         * @return {@link List} of the {@link Measurement}s of every round, in order
+         */
+        public List<Measurement> getRounds() {
+            return Collections.unmodifiableList(this.rounds);
+        }
+
+        /**
+         * Get the measurement of the whole compilation. Its generated files are the files generated in all rounds.
+         *
+         * @return {@link Measurement}
+         */
+        public Measurement getCompilation() {
+            return this.compilation;
+        }
+
+        /**
+         * Get the number of errors reported by the compiler.
+         *
+         * @return number of errors
+         */
+        public int getErrors() {
+            return this.errors;
+        }
+    }
+
+    /**
+     * Time, allocated bytes and generated files of a phase.
+     */
+    public static final class Measurement {
+
+        private final long nanos;
+        private final long allocatedBytes;
+        private final int generatedFiles;
+
+        Measurement(long nanos, long allocatedBytes, int generatedFiles) {
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.generatedFiles = generatedFiles;
+        }
+
+        /**
+         * Get the time of the phase.
+         *
+         * @return time in nanoseconds
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        /**
+         * Get the bytes allocated by the compiler thread in the phase.
+         *
+         * @return allocated bytes
+         */
+        public long getAllocatedBytes() {
+            return this.allocatedBytes;
+        }
+
+        /**
+         * Get the number of files generated in the phase.
+         *
+         * @return number of generated files
+         */
+        public int getGeneratedFiles() {
+            return this.generatedFiles;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.nkaaf.annotationprocessor.profiler;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * {@link Processor} measuring the rounds of another processor.
+ * </p>
+ *
+ * <p>
+ * The time and the bytes allocated by the compiler thread are measured for {@link #init(ProcessingEnvironment)} and
+ * every call of {@link #process(Set, RoundEnvironment)}. Allocations of other threads started by the processor are
+ * not included. After each round, the files in the output directory are counted outside of the measurement, to get the
+ * number of files generated in the round. The allocated bytes are measured with
+ * {@link com.sun.management.ThreadMXBean}, so this class only works on HotSpot based JVMs.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+final class RoundProfilingProcessor implements Processor {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private final Processor delegate;
+    private final File outputDirectory;
+    private ProfileReport.Measurement init;
+    private final List<ProfileReport.Measurement> rounds = new ArrayList<>();
+    private int files;
+
+    /**
+     * Create a new profiling processor.
+     *
+     * @param delegate
+     *            {@link Processor} to measure
+     * @param outputDirectory
+     *            Directory of all generated files
+     */
+    RoundProfilingProcessor(Processor delegate, File outputDirectory) {
+        this.delegate = delegate;
+        this.outputDirectory = outputDirectory;
+    }
+
+    static long currentAllocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static int countFiles(File directory) {
+        int count = 0;
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                count += child.isDirectory() ? countFiles(child) : 1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return this.delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return this.delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return this.delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+        long startBytes = currentAllocatedBytes();
+        long startNanos = System.nanoTime();
+        this.delegate.init(processingEnv);
+        long nanos = System.nanoTime() - startNanos;
+        this.init = new ProfileReport.Measurement(nanos, currentAllocatedBytes() - startBytes, 0);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        long startBytes = currentAllocatedBytes();
+        long startNanos = System.nanoTime();
+        boolean claimed = this.delegate.process(annotations, roundEnv);
+        long nanos = System.nanoTime() - startNanos;
+        long allocatedBytes = currentAllocatedBytes() - startBytes;
+
+        int files = countFiles(this.outputDirectory);
+        this.rounds.add(new ProfileReport.Measurement(nanos, allocatedBytes, files - this.files));
+        this.files = files;
+        return claimed;
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+            ExecutableElement member, String userText) {
+        return this.delegate.getCompletions(element, annotation, member, userText);
+    }
+
+    /**
+     * Get the measurement of the initialization.
+     *
+     * @return {@link ProfileReport.Measurement}, or null if the processor was not initialized
+     */
+    ProfileReport.Measurement getInit() {
+        return this.init;
+    }
+
+    /**
+     * Get the measurements of the rounds.
+     *
+     * @return {@link List} of the measurements of every round
+     */
+    List<ProfileReport.Measurement> getRounds() {
+        return this.rounds;
+    }
+}
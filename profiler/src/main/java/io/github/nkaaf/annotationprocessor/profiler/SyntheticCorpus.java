@@ -0,0 +1,261 @@
+package io.github.nkaaf.annotationprocessor.profiler;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Synthetic corpus of annotated classes for {@link ProcessorProfiler}.
+ * </p>
+ *
+ * <p>
+ * Every class contains a chain of nested classes as deep as the nesting. The annotations of a class are distributed
+ * over the class and its nested classes in turn. An annotation is placed on the class itself, if it can be applied to
+ * types and the class is not annotated with it yet, otherwise on a new method, field or nested class, whatever it can
+ * be applied to first. The annotation types must not have elements without a default value. If no annotation type is
+ * given, a marker annotation is generated with the corpus.
+ * </p>
+ *
+ * <p>
+ * The sources are written to a temporary directory, which is deleted with {@link #delete()}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class SyntheticCorpus {
+
+    static final String PACKAGE_NAME = "io.github.nkaaf.annotationprocessor.profiler.corpus";
+    static final String MARKER_ANNOTATION = PACKAGE_NAME + ".Marker";
+    private static final String CLASS_PREFIX = "Generated";
+    private static final String INDENT = "    ";
+    private static final Set<ElementType> SUPPORTED_TARGETS = EnumSet.of(ElementType.TYPE, ElementType.METHOD,
+            ElementType.FIELD);
+
+    private final File directory;
+    private final List<File> sources;
+
+    private SyntheticCorpus(File directory, List<File> sources) {
+        this.directory = directory;
+        this.sources = sources;
+    }
+
+    /**
+     * Generate a new corpus.
+     *
+     * @param classes
+     *            Number of top level classes
+     * @param annotationTypes
+     *            Qualified names of the annotation types, which must be loadable. If empty, a marker annotation is
+     *            generated and used.
+     * @param annotationsPerClass
+     *            Number of annotations of every class, including its nested classes and members
+     * @param nesting
+     *            Depth of the nested classes of every class
+     *
+     * @return generated {@link SyntheticCorpus}
+     *
+     * @throws IOException
+     *             if the sources cannot be written
+     * @throws IllegalArgumentException
+     *             if an annotation type cannot be loaded or cannot be generated
+     */
+    public static SyntheticCorpus generate(int classes, List<String> annotationTypes, int annotationsPerClass,
+            int nesting) throws IOException {
+        List<AnnotationType> types = new ArrayList<>();
+        for (String annotationType : annotationTypes) {
+            types.add(AnnotationType.load(annotationType));
+        }
+
+        File directory = Files.createTempDirectory("annotationprocessor-profiler-corpus").toFile();
+        File packageDirectory = new File(directory, PACKAGE_NAME.replace('.', File.separatorChar));
+        if (!packageDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + packageDirectory);
+        }
+
+        List<File> sources = new ArrayList<>(classes + 1);
+        if (types.isEmpty()) {
+            types.add(new AnnotationType(MARKER_ANNOTATION, SUPPORTED_TARGETS));
+            File marker = new File(packageDirectory, "Marker.java");
+            write(marker, "package " + PACKAGE_NAME + ";\n\n"
+                    + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.SOURCE)\n"
+                    + "public @interface Marker {\n}\n");
+            sources.add(marker);
+        }
+        for (int i = 0; i < classes; i++) {
+            File source = new File(packageDirectory, CLASS_PREFIX + i + ".java");
+            write(source, source(CLASS_PREFIX + i, types, annotationsPerClass, nesting));
+            sources.add(source);
+        }
+        return new SyntheticCorpus(directory, sources);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(file.toPath())) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Create the source of a class with its nested classes and annotated members.
+     */
+    static String source(String className, List<AnnotationType> types, int annotationsPerClass, int nesting) {
+        int levels = nesting + 1;
+        List<Set<String>> annotationsOfLevels = new ArrayList<>(levels);
+        List<StringBuilder> membersOfLevels = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            annotationsOfLevels.add(new LinkedHashSet<String>());
+            membersOfLevels.add(new StringBuilder());
+        }
+
+        for (int k = 0; k < annotationsPerClass; k++) {
+            AnnotationType type = types.get(k % types.size());
+            int level = k % levels;
+            String indent = indent(level + 1);
+            StringBuilder members = membersOfLevels.get(level);
+            if (type.targets.contains(ElementType.TYPE) && annotationsOfLevels.get(level).add(type.name)) {
+                continue;
+            }
+            members.append(indent).append('@').append(type.name).append('\n');
+            if (type.targets.contains(ElementType.METHOD)) {
+                members.append(indent).append("public void annotated").append(k).append("() {\n");
+                members.append(indent).append("}\n\n");
+            } else if (type.targets.contains(ElementType.FIELD)) {
+                members.append(indent).append("public int annotated").append(k).append(";\n\n");
+            } else {
+                members.append(indent).append("public static class Annotated").append(k).append(" {\n");
+                members.append(indent).append("}\n\n");
+            }
+        }
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE_NAME).append(";\n\n");
+        for (int level = 0; level < levels; level++) {
+            String indent = indent(level);
+            for (String annotation : annotationsOfLevels.get(level)) {
+                source.append(indent).append('@').append(annotation).append('\n');
+            }
+            source.append(indent)
+                    .append(level == 0 ? "public class " + className : "public static class Nested" + level)
+                    .append(" {\n\n");
+            source.append(membersOfLevels.get(level));
+        }
+        for (int level = levels - 1; level >= 0; level--) {
+            source.append(indent(level)).append("}\n");
+        }
+        return source.toString();
+    }
+
+    private static String indent(int level) {
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < level; i++) {
+            indent.append(INDENT);
+        }
+        return indent.toString();
+    }
+
+    /**
+     * Get the generated sources.
+     *
+     * @return {@link List} of source files
+     */
+    public List<File> getSources() {
+        return this.sources;
+    }
+
+    /**
+     * Delete the generated sources.
+     */
+    public void delete() {
+        ProcessorProfiler.deleteRecursively(this.directory);
+    }
+
+    /**
+     * Annotation type of a corpus with the kinds of elements it is applied to.
+     */
+    static final class AnnotationType {
+
+        private final String name;
+        private final Set<ElementType> targets;
+
+        AnnotationType(String name, Set<ElementType> targets) {
+            this.name = name;
+            this.targets = targets;
+        }
+
+        /**
+         * Load an annotation type and check that it can be generated.
+         *
+         * @param name
+         *            Qualified name of the annotation type
+         *
+         * @return {@link AnnotationType}
+         */
+        static AnnotationType load(String name) {
+            Class<?> type;
+            try {
+                type = Class.forName(name, false, Thread.currentThread().getContextClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Annotation type " + name + " is not on the class path", e);
+            }
+            if (!type.isAnnotation()) {
+                throw new IllegalArgumentException(name + " is not an annotation type");
+            }
+            for (Method element : type.getDeclaredMethods()) {
+                if (element.getDefaultValue() == null) {
+                    throw new IllegalArgumentException("Annotation type " + name + " has the element "
+                            + element.getName() + " without a default value");
+                }
+            }
+
+            Set<ElementType> targets = EnumSet.copyOf(SUPPORTED_TARGETS);
+            Target target = type.asSubclass(Annotation.class).getAnnotation(Target.class);
+            if (target != null) {
+                targets.retainAll(Arrays.asList(target.value()));
+            }
+            if (targets.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Annotation type " + name + " cannot be applied to types, methods or fields");
+            }
+            return new AnnotationType(type.getCanonicalName(), targets);
+        }
+    }
+}
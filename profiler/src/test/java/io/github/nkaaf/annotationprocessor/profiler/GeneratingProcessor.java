@@ -0,0 +1,62 @@
+package io.github.nkaaf.annotationprocessor.profiler;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Processor generating a class for every class annotated with {@link Deprecated}.
+ */
+@SupportedAnnotationTypes("java.lang.Deprecated")
+public class GeneratingProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Deprecated.class)) {
+            if (!(element instanceof TypeElement) || !element.getSimpleName().toString().startsWith("Generated")) {
+                continue;
+            }
+            String name = ((TypeElement) element).getQualifiedName() + "Companion";
+            try (Writer writer = processingEnv.getFiler().createSourceFile(name, element).openWriter()) {
+                writer.write("package " + SyntheticCorpus.PACKAGE_NAME + ";\n\nclass " + element.getSimpleName()
+                        + "Companion {\n}\n");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return false;
+    }
+}
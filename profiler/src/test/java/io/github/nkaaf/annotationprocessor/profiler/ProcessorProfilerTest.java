@@ -0,0 +1,105 @@
+package io.github.nkaaf.annotationprocessor.profiler;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.annotation.ElementType;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessorProfilerTest {
+
+    @Test
+    public void generateNestedSource() {
+        String source = SyntheticCorpus.source("Generated0",
+                Collections.singletonList(new SyntheticCorpus.AnnotationType("a.A", EnumSet.of(ElementType.TYPE))), 3,
+                1);
+
+        assertEquals("package " + SyntheticCorpus.PACKAGE_NAME + ";\n\n"
+                + "@a.A\n"
+                + "public class Generated0 {\n\n"
+                + "    @a.A\n"
+                + "    public static class Annotated2 {\n"
+                + "    }\n\n"
+                + "    @a.A\n"
+                + "    public static class Nested1 {\n\n"
+                + "    }\n"
+                + "}\n", source);
+    }
+
+    @Test
+    public void profileGeneratingProcessor() throws IOException {
+        ProfileReport report = new ProcessorProfiler(GeneratingProcessor.class).classes(20).annotationsPerClass(2)
+                .nesting(1).warmupIterations(1).iterations(2).run();
+
+        assertEquals(2, report.getIterations().size());
+        for (ProfileReport.Iteration iteration : report.getIterations()) {
+            assertEquals(0, iteration.getErrors());
+            assertNotNull(iteration.getInit());
+            // The companions are processed in the second round, the third round is the last one
+            assertEquals(3, iteration.getRounds().size());
+            assertEquals(20, iteration.getRounds().get(0).getGeneratedFiles());
+            assertEquals(0, iteration.getRounds().get(1).getGeneratedFiles());
+            assertEquals(20, iteration.getCompilation().getGeneratedFiles());
+            assertTrue(iteration.getRounds().get(0).getAllocatedBytes() > 0);
+            assertTrue(iteration.getCompilation().getNanos() >= iteration.getRounds().get(0).getNanos());
+        }
+        assertTrue(report.format().contains("round 3"));
+        assertEquals(1 + 2 * 5, report.formatCsv().split("\n").length);
+    }
+
+    @Test
+    public void profileProfilingProcessor() throws IOException {
+        ProcessorProfiler profiler = new ProcessorProfiler(GeneratingProcessor.class).classes(5).warmupIterations(0)
+                .iterations(1).profiled(true);
+        ProfileReport report = profiler.run();
+
+        assertEquals(5, report.getIterations().get(0).getCompilation().getGeneratedFiles());
+        assertEquals(Collections.singletonList("Profile of " + GeneratingProcessor.class.getName()),
+                profiler.getNotes());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProcessorProfiler(GeneratingProcessor_Profiled.class).iterations(1).profiled(true).run());
+    }
+
+    @Test
+    public void runCommandLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertEquals(0, ProcessorProfiler.run(new String[] { "--processor", GeneratingProcessor.class.getName(),
+                "--classes", "5", "--warmup", "0", "--iterations", "1", "--csv" }, new PrintStream(out, true),
+                new PrintStream(err, true)));
+        assertTrue(out.toString().startsWith("iteration,phase,nanos,allocated_bytes,generated_files\n0,init,"));
+        assertTrue(err.toString().contains("is not registered"));
+
+        assertEquals(2, ProcessorProfiler.run(new String[] { "--processor", GeneratingProcessor.class.getName(),
+                "--classes", "none" }, new PrintStream(out, true), new PrintStream(err, true)));
+    }
+}
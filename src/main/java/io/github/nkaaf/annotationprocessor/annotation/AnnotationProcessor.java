@@ -37,6 +37,15 @@ import java.lang.annotation.Target;
  * canonical name of the processor will be added to the service file.
  * </p>
  *
+ * <p>
+ * With {@link #incremental()}, the processor is registered as Gradle incremental annotation processor in
+ * <code>META-INF/gradle/incremental.annotation.processors</code> next to the service file.
+ * </p>
+ *
+ * <p>
+ * With {@link #profile()}, a profiling processor is generated for the processor, which can be run instead of it.
+ * </p>
+ *
  * @author Niklas Kaaf
  * 
  * @version 1.0
@@ -46,4 +55,80 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.CLASS)
 @Target(ElementType.TYPE)
 public @interface AnnotationProcessor {
+
+    /**
+     * Type of the processor for the incremental compilation of Gradle.
+     *
+     * @return {@link Incremental} type of the processor, {@link Incremental#NONE} by default
+     *
+     * @since 1.1
+     */
+    Incremental incremental() default Incremental.NONE;
+
+    /**
+     * <p>
+     * Whether the processor is profiled. A subclass of
+     * {@link io.github.nkaaf.annotationprocessor.util.ProfilingProcessor} is generated next to the processor, e.g.
+     * <code>Outer_Inner_Profiled</code> for the nested processor <code>Outer.Inner</code>. When it is run, it reports
+     * the time and the allocated bytes of the processor, how many annotations it claimed and whether it was presented
+     * an annotation at all, as note at the end of the annotation processing.
+     * </p>
+     *
+     * <p>
+     * The service file keeps the processor, so <code>profile = true</code> alone does not time anything in a normal
+     * build. The profiling processor is listed next to the processor in
+     * <code>META-INF/annotationprocessor/profiling.processors</code> and only runs when it is picked instead of the
+     * processor, e.g. with <code>javac -processor Outer_Inner_Profiled</code> or with
+     * <code>ProcessorProfiler --profiled</code> of the profiler project.
+     * </p>
+     *
+     * <p>
+     * The processor has to be a public class with a public no-arg constructor. This library has to be on the processor
+     * path, when the profiling processor is run.
+     * </p>
+     *
+     * @return true, if the processor is profiled, false by default
+     *
+     * @since 1.1
+     */
+    boolean profile() default false;
+
+    /**
+     * <p>
+     * Types of processors for the incremental compilation of Gradle.
+     * </p>
+     *
+     * @author Niklas Kaaf
+     * 
+     * @version 1.0
+     * 
+     * @see <a href="https://docs.gradle.org/current/userguide/java_plugin.html#sec:incremental_annotation_processing">
+     *      Incremental annotation processing</a>
+     * 
+     * @since 1.1
+     */
+    enum Incremental {
+        /**
+         * The processor is not registered for the incremental compilation.
+         */
+        NONE,
+
+        /**
+         * The processor generates files for a single annotated element.
+         */
+        ISOLATING,
+
+        /**
+         * The processor aggregates several annotated elements into files.
+         */
+        AGGREGATING,
+
+        /**
+         * The processor decides its type at runtime. It has to advertise the option
+         * <code>org.gradle.annotation.processing.isolating</code> or
+         * <code>org.gradle.annotation.processing.aggregating</code> in
+         * {@link javax.annotation.processing.Processor#getSupportedOptions()}.
+         */
+        DYNAMIC
+    }
 }
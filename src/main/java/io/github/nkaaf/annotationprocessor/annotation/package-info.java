@@ -21,7 +21,8 @@
  */
 
 /**
- * Package containing the annotation for easy creation and verification of annotation processors.
+ * Package containing the annotations for easy creation and verification of annotation processors and service
+ * providers.
  *
  * @author Niklas Kaaf
  * 
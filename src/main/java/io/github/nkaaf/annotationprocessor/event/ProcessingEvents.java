@@ -0,0 +1,224 @@
+package io.github.nkaaf.annotationprocessor.event;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * <p>
+ * JDK Flight Recorder events of annotation processing.
+ * </p>
+ *
+ * <p>
+ * Every event is started with one of the <code>begin</code> methods and committed with <code>end</code> of the returned
+ * handle. Its duration is the time between both calls. The events are recorded on Java 11 and later, if the module
+ * <code>jdk.jfr</code> is present and a recording is running, e.g. with <code>-J-XX:StartFlightRecording</code> for
+ * javac. Otherwise a shared handle without an event is returned and nothing is allocated. This implementation is used
+ * before Java 11 and never records.
+ * </p>
+ *
+ * <p>
+ * The events are:
+ * </p>
+ * <ul>
+ * <li><code>io.github.nkaaf.annotationprocessor.Round</code>: a round of a processor, with the number of the round
+ * and of the annotated classes</li>
+ * <li><code>io.github.nkaaf.annotationprocessor.Validation</code>: the validation of a class, with the name of the
+ * class and the outcome</li>
+ * <li><code>io.github.nkaaf.annotationprocessor.FileWrite</code>: the write of a file, e.g. the service file, with
+ * the number of bytes and whether the file was written or skipped, because it is unchanged</li>
+ * </ul>
+ *
+ * <p>
+ * Processors which want to emit the events need this library at runtime, i.e. on the processor path.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+public final class ProcessingEvents {
+
+    private static final Round NO_ROUND = new Round();
+    private static final Validation NO_VALIDATION = new Validation();
+    private static final FileWrite NO_FILE_WRITE = new FileWrite();
+
+    private ProcessingEvents() {
+    }
+
+    /**
+     * Check if the events can be recorded, i.e. if the JDK Flight Recorder is present.
+     *
+     * @return true, if the events can be recorded
+     */
+    public static boolean isAvailable() {
+        return false;
+    }
+
+    /**
+     * Begin the event of a round.
+     *
+     * @param processor
+     *            Name of the processor
+     * @param number
+     *            Number of the round, starting at 1
+     * @param processingOver
+     *            true, if it is the last round
+     *
+     * @return {@link Round} to end the event
+     */
+    public static Round beginRound(String processor, int number, boolean processingOver) {
+        return NO_ROUND;
+    }
+
+    /**
+     * Begin the event of the validation of a class.
+     *
+     * @param processor
+     *            Name of the processor
+     * @param className
+     *            Name of the class, which is only converted to a string if the event is recorded
+     *
+     * @return {@link Validation} to end the event
+     */
+    public static Validation beginValidation(String processor, CharSequence className) {
+        return NO_VALIDATION;
+    }
+
+    /**
+     * Begin the event of a file write.
+     *
+     * @param processor
+     *            Name of the processor
+     * @param file
+     *            Path of the file, relative to its location
+     *
+     * @return {@link FileWrite} to end the event
+     */
+    public static FileWrite beginFileWrite(String processor, String file) {
+        return NO_FILE_WRITE;
+    }
+
+    /**
+     * Handle of the event of a round.
+     *
+     * @author Niklas Kaaf
+     * 
+     * @version 1.0
+     * 
+     * @since 1.1
+     */
+    public static final class Round {
+
+        private Round() {
+        }
+
+        /**
+         * Check if the event is recorded, e.g. to skip collecting its values otherwise.
+         *
+         * @return true, if the event is recorded
+         */
+        public boolean isEnabled() {
+            return false;
+        }
+
+        /**
+         * End and commit the event.
+         *
+         * @param annotatedClasses
+         *            Number of the classes processed in the round
+         */
+        public void end(int annotatedClasses) {
+        }
+    }
+
+    /**
+     * Handle of the event of the validation of a class.
+     *
+     * @author Niklas Kaaf
+     * 
+     * @version 1.0
+     * 
+     * @since 1.1
+     */
+    public static final class Validation {
+
+        private Validation() {
+        }
+
+        /**
+         * Check if the event is recorded, e.g. to skip collecting its values otherwise.
+         *
+         * @return true, if the event is recorded
+         */
+        public boolean isEnabled() {
+            return false;
+        }
+
+        /**
+         * End and commit the event.
+         *
+         * @param valid
+         *            true, if the class is valid
+         * @param outcome
+         *            Short description of the outcome, e.g. the reason why the class is invalid
+         */
+        public void end(boolean valid, String outcome) {
+        }
+    }
+
+    /**
+     * Handle of the event of a file write.
+     *
+     * @author Niklas Kaaf
+     * 
+     * @version 1.0
+     * 
+     * @since 1.1
+     */
+    public static final class FileWrite {
+
+        private FileWrite() {
+        }
+
+        /**
+         * Check if the event is recorded, e.g. to skip collecting its values otherwise.
+         *
+         * @return true, if the event is recorded
+         */
+        public boolean isEnabled() {
+            return false;
+        }
+
+        /**
+         * End and commit the event.
+         *
+         * @param bytes
+         *            Number of bytes written, 0 if the file was skipped
+         * @param written
+         *            true, if the file was written, false if it was skipped
+         */
+        public void end(long bytes, boolean written) {
+        }
+    }
+}
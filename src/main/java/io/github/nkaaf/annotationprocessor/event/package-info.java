@@ -0,0 +1,33 @@
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * Package containing the JDK Flight Recorder events of annotation processing, which are emitted by the processor for
+ * {@link io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor} and can be emitted by other processors.
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+package io.github.nkaaf.annotationprocessor.event;
@@ -23,23 +23,19 @@ package io.github.nkaaf.annotationprocessor.processor;
  */
 
 import io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor;
+import io.github.nkaaf.annotationprocessor.event.ProcessingEvents;
+import io.github.nkaaf.annotationprocessor.util.MethodSignatureIndex;
+import io.github.nkaaf.annotationprocessor.util.ProfilingProcessor;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
-import javax.tools.FileObject;
-import javax.tools.StandardLocation;
-import java.io.Closeable;
-import java.io.File;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.io.*;
+import java.util.*;
 
 /**
  * <p>
@@ -52,6 +48,62 @@ import java.util.Set;
  * created.
  * </p>
  *
+ * <p>
+ * The registered processors are also recorded in a state file next to the service file, together with the source
+ * they are declared in. On every run the state file is merged with the processors of the current compilation, so
+ * that a partial recompilation (e.g. by an IDE) does not drop the processors of unchanged sources. Processors of
+ * deleted sources are pruned.
+ * </p>
+ *
+ * <p>
+ * Processors declaring {@link AnnotationProcessor#incremental()} are also registered in the Gradle metadata file
+ * <code>META-INF/gradle/incremental.annotation.processors</code>. For {@link AnnotationProcessor.Incremental#DYNAMIC}
+ * processors, it is checked that they advertise the Gradle option of their type.
+ * </p>
+ *
+ * <p>
+ * With the option {@value ProcessorOptions#REPORT_OPTION} set to {@value ProcessingReport#FORMAT_JSON}, a report with
+ * the timings, the number of validated and rejected classes and the written bytes is written to
+ * <code>META-INF/annotationprocessor/report.json</code> in the class output at the end of the compilation.
+ * </p>
+ *
+ * <p>
+ * With the option {@value ProcessorOptions#INDEX_OPTION} set to a qualified class name, a class with that name is
+ * generated next to the service file. It instantiates the registered processors with direct constructor calls, so they
+ * can be loaded without {@link java.util.ServiceLoader}.
+ * </p>
+ *
+ * <p>
+ * With the option {@value ProcessorOptions#LINT_OPTION} set to a list of rules, processors are linted for registration
+ * choices which cost compile time or memory, see {@link ProcessorLint}. Each rule reports as warning or as error.
+ * </p>
+ *
+ * <p>
+ * For processors with {@link AnnotationProcessor#profile()}, a profiling processor is generated next to them, see
+ * {@link ProfilingProcessorWriter}. The service file keeps the processors, so that they do not depend on this library
+ * when they run. The profiling processors are listed as <code>processor=profiling processor</code> in
+ * <code>META-INF/annotationprocessor/profiling.processors</code>, which a profiling harness opts into.
+ * </p>
+ *
+ * <p>
+ * With the option {@value ProcessorOptions#CLASS_LOADING_OPTION} set to
+ * {@value ProfilingProcessor#CLASS_LOADING_REPORT}, a profiling processor is generated for every processor.
+ * Compilations running the processors with the same option report the classes loaded and the time spent while each
+ * processor is constructed, initialized and run for its first round, see {@link ProfilingProcessor}.
+ * </p>
+ *
+ * <p>
+ * With the option {@value ProcessorOptions#LAZY_OPTION} set to <code>true</code>, a lazy processor is generated next to
+ * every processor, which is registered in the service file instead of it, see {@link LazyProcessorWriter}. It answers
+ * the compiler from the annotations of the processor and instantiates the processor only in the first round with one of
+ * its annotations. Processors, which cannot be proxied, are registered directly with a note.
+ * </p>
+ *
+ * <p>
+ * On Java 11 and later, the rounds, the validation of every class and the writes of the service file and the other
+ * resources are emitted as JDK Flight Recorder events, see {@link ProcessingEvents}.
+ * </p>
+ *
  * @author Niklas Kaaf
  * 
  * @version 1.0
@@ -61,58 +113,52 @@ import java.util.Set;
  * @since 1.0
  */
 @SupportedAnnotationTypes("io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor")
+@SupportedOptions({ ProcessorOptions.REPORT_OPTION, ProcessorOptions.INDEX_OPTION, ProcessorOptions.LINT_OPTION,
+        ProcessorOptions.LAZY_OPTION, ProcessorOptions.CLASS_LOADING_OPTION })
 public class AnnotationProcessorProcessor extends AbstractProcessor {
 
     private static final String PROCESSOR_SERVICE_FILE = "META-INF" + File.separator + "services" + File.separator
             + Processor.class.getCanonicalName();
-    private static final String CHARSET = "UTF-8";
-    private static final String NEW_LINE = System.getProperty("line.separator");
+    private static final String PROCESSOR_STATE_FILE = "META-INF" + File.separator + "annotationprocessor"
+            + File.separator + "processors.state";
+    private static final String PROFILING_STATE_FILE = "META-INF" + File.separator + "annotationprocessor"
+            + File.separator + "profiling.state";
+    private static final String PROFILING_PROCESSORS_FILE = "META-INF" + File.separator + "annotationprocessor"
+            + File.separator + "profiling.processors";
+    private static final String PROFILING_SEPARATOR = "=";
+    private static final String CATEGORY_SEPARATOR = ",";
+    private static final String[] PROCESSOR_METHOD_NAMES = { "getSupportedOptions", "getSupportedAnnotationTypes",
+            "getSupportedSourceVersion", "init", "process", "getCompletions" };
+    private static final String VALID_OUTCOME = "valid";
+    private static final String MISSING_METHODS_OUTCOME = "missing methods";
+    private static final String INVALID_REGISTRATION_OUTCOME = "invalid registration";
+    private static final String NOT_A_PROCESSOR_OUTCOME = "not a processor";
+
+    static final String GRADLE_INCREMENTAL_FILE = "META-INF" + File.separator + "gradle" + File.separator
+            + "incremental.annotation.processors";
+    static final String GRADLE_OPTION_PREFIX = "org.gradle.annotation.processing.";
+    private static final String GRADLE_ISOLATING_OPTION = GRADLE_OPTION_PREFIX + "isolating";
+    private static final String GRADLE_AGGREGATING_OPTION = GRADLE_OPTION_PREFIX + "aggregating";
 
     boolean generateServiceFile = true;
 
-    private TypeElement annotationProcessorType;
-    private Set<TypeElement> annotatedClasses;
+    private int round;
+    private ProcessorOptions options;
+    private ProcessingReport report;
+    private ProcessorIndexWriter indexWriter;
+    private ProcessorSource processorSource;
+    private ProcessorLint lint;
 
-    /**
-     * Check if method exist.
-     *
-     * @param methods
-     *            {@link List} of methods
-     * @param expectedMethodName
-     *            Name of the expected method
-     * @param expectedParamSize
-     *            Size of parameters
-     * @param expectedParamTypes
-     *            {@link List} of parameter types
-     * @param expectedReturnType
-     *            Type of return value
-     *
-     * @return true if method exist, false otherwise
-     */
-    private static boolean checkIfMethodExists(List<ExecutableElement> methods, String expectedMethodName,
-            int expectedParamSize, List<String> expectedParamTypes, String expectedReturnType) {
-        for (ExecutableElement method : methods) {
-            if (method.getSimpleName().contentEquals(expectedMethodName)) {
-                if (method.getParameters().size() == expectedParamSize) {
-                    List<? extends VariableElement> params = method.getParameters();
-                    boolean matchAllParams = true;
-                    for (int i = 0; i < params.size(); i++) {
-                        if (!matchAllParams) {
-                            break;
-                        }
-                        String paramType = params.get(i).asType().toString();
-                        matchAllParams = paramType.equals(expectedParamTypes.get(i));
-                    }
-                    if (matchAllParams) {
-                        if (method.getReturnType().toString().equals(expectedReturnType)) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
+    private MethodSignatureIndex methodSignatureIndex;
+    private int processSignatureMask;
+    private List<MethodSignatureIndex.Signature> processorSignatures;
+    private int processorSignaturesMask;
+
+    private final Map<String, Integer> implementedSignaturesByType = new HashMap<String, Integer>();
+
+    private final StateFile stateFile = new StateFile(PROCESSOR_STATE_FILE);
+    private final StateFile profilingStateFile = new StateFile(PROFILING_STATE_FILE);
+    private final Map<String, String> processorsByGeneratedProcessor = new HashMap<String, String>();
 
     /**
      * Close {@link Closeable}.
@@ -121,22 +167,37 @@ public class AnnotationProcessorProcessor extends AbstractProcessor {
      *            {@link Closeable}
      */
     public static void close(Closeable c) {
-        if (c == null) {
-            return;
-        }
-        try {
-            c.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        ProcessingUtils.close(c);
     }
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
 
-        this.annotationProcessorType = processingEnv.getElementUtils()
-                .getTypeElement(AnnotationProcessor.class.getCanonicalName());
+        this.methodSignatureIndex = new MethodSignatureIndex(processingEnv);
+        TypeElement processorType = processingEnv.getElementUtils().getTypeElement(Processor.class.getCanonicalName());
+        this.processorSignatures = new ArrayList<MethodSignatureIndex.Signature>(PROCESSOR_METHOD_NAMES.length);
+        for (int i = 0; i < PROCESSOR_METHOD_NAMES.length; i++) {
+            this.processorSignatures
+                    .add(this.methodSignatureIndex.getSignature(processorType, PROCESSOR_METHOD_NAMES[i]));
+            if (PROCESSOR_METHOD_NAMES[i].equals("process")) {
+                this.processSignatureMask = 1 << i;
+            }
+        }
+        this.processorSignaturesMask = (1 << PROCESSOR_METHOD_NAMES.length) - 1;
+
+        this.options = new ProcessorOptions(processingEnv.getOptions(), processingEnv.getMessager());
+        this.report = this.options.getReport();
+        if (this.options.getIndexName() != null) {
+            this.indexWriter = new ProcessorIndexWriter(this.options.getIndexName());
+        }
+        if (this.options.getLintRules() != null) {
+            ProcessorLint processorLint = new ProcessorLint(processingEnv, getProcessorSource(),
+                    this.options.getLintRules());
+            if (processorLint.isEnabled()) {
+                this.lint = processorLint;
+            }
+        }
     }
 
     @Override
@@ -146,28 +207,76 @@ public class AnnotationProcessorProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        long start = System.nanoTime();
+        ProcessingEvents.Round roundEvent = ProcessingEvents.beginRound(getClass().getName(), ++this.round,
+                roundEnv.processingOver());
+        int annotatedClassCount = 0;
         if (!roundEnv.processingOver()) {
-            checkAnnotatedClasses(roundEnv);
+            Set<TypeElement> annotatedClasses = checkAnnotatedClasses(roundEnv);
+            annotatedClassCount = annotatedClasses.size();
+            if (this.generateServiceFile) {
+                writeGeneratedProcessors(annotatedClasses);
+            }
+            if (this.indexWriter != null && this.generateServiceFile && !annotatedClasses.isEmpty()) {
+                writeProcessorIndex(annotatedClasses);
+            }
         } else {
             if (this.generateServiceFile) {
                 writeToServiceFile();
             }
         }
+        if (this.report != null) {
+            this.report.recordRound(System.nanoTime() - start);
+            if (roundEnv.processingOver()) {
+                this.report.write(processingEnv.getFiler());
+            }
+        }
+        roundEvent.end(annotatedClassCount);
         return true;
     }
 
     /**
+     * <p>
      * Check if classes annotated with {@link AnnotationProcessor} are build compliant.
+     * </p>
+     *
+     * <p>
+     * The elements of a round are not kept beyond it, because the compiler may replace them in the next round and
+     * keeping them alive retains its symbol tables. Only the binary names of the processors are kept across rounds.
+     * </p>
      *
      * @param roundEnv
      *            {@link RoundEnvironment}
+     *
+     * @return {@link Set} of the annotated classes of this round
+     */
+    private Set<TypeElement> checkAnnotatedClasses(RoundEnvironment roundEnv) {
+        TypeElement annotationProcessorType = processingEnv.getElementUtils()
+                .getTypeElement(AnnotationProcessor.class.getCanonicalName());
+        Set<TypeElement> annotatedClasses = ElementFilter
+                .typesIn(roundEnv.getElementsAnnotatedWith(annotationProcessorType));
+        this.implementedSignaturesByType.clear();
+        recordSources(roundEnv, annotatedClasses);
+        validateAnnotatedClasses(annotatedClasses);
+        return annotatedClasses;
+    }
+
+    /**
+     * Validate the classes annotated with {@link AnnotationProcessor} one after another. The validation stops at the
+     * first class, which is no processor.
+     *
+     * @param annotatedClasses
+     *            {@link Set} of the annotated classes of this round
      */
-    private void checkAnnotatedClasses(RoundEnvironment roundEnv) {
-        Set<? extends Element> annotatedElements = roundEnv.getElementsAnnotatedWith(this.annotationProcessorType);
-        this.annotatedClasses = ElementFilter.typesIn(annotatedElements);
-        for (TypeElement typeElement : this.annotatedClasses) {
+    private void validateAnnotatedClasses(Set<TypeElement> annotatedClasses) {
+        for (TypeElement typeElement : annotatedClasses) {
+            long start = System.nanoTime();
+            ProcessingEvents.Validation validation = ProcessingEvents.beginValidation(getClass().getName(),
+                    typeElement.getQualifiedName());
             String superName = checkSuperclass(typeElement);
             if (superName == null) {
+                validation.end(false, NOT_A_PROCESSOR_OUTCOME);
+                recordValidation(typeElement, start);
                 return;
             }
             if (superName.equals(AbstractProcessor.class.getSimpleName())) {
@@ -175,9 +284,90 @@ public class AnnotationProcessorProcessor extends AbstractProcessor {
             } else if (superName.equals(Processor.class.getSimpleName())) {
                 checkWholeOverrideMethods(typeElement);
             }
+            // The implemented signatures are memoized by the check
+            int missingMask = getExpectedMask(superName) & ~getImplementedSignatures(typeElement);
+            endValidation(validation, missingMask, checkRegistration(typeElement));
+            recordValidation(typeElement, start);
         }
     }
 
+    /**
+     * Record the validation time of a class in the report, if enabled.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     * @param start
+     *            {@link System#nanoTime()} at the start of the validation
+     */
+    private void recordValidation(TypeElement typeElement, long start) {
+        if (this.report != null) {
+            this.report.recordValidation(typeElement.getQualifiedName().toString(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record the sources compiled in this round and the annotated classes declared in them. Every source of this
+     * compilation gets an entry, even without annotated classes, so that stale entries of the state file are replaced.
+     * The profiled processors are recorded with their profiling processors in a state file of their own.
+     *
+     * @param roundEnv
+     *            {@link RoundEnvironment}
+     * @param annotatedClasses
+     *            {@link Set} of the annotated classes of this round
+     */
+    private void recordSources(RoundEnvironment roundEnv, Set<TypeElement> annotatedClasses) {
+        this.stateFile.addSources(roundEnv);
+        this.profilingStateFile.addSources(roundEnv);
+        for (TypeElement annotatedClass : annotatedClasses) {
+            this.stateFile.addEntry(annotatedClass, getStateEntry(annotatedClass));
+            if (ProfilingProcessorWriter.isProfiled(annotatedClass, this.options.isClassLoadingReport())) {
+                this.profilingStateFile.addEntry(annotatedClass,
+                        processingEnv.getElementUtils().getBinaryName(annotatedClass) + PROFILING_SEPARATOR
+                                + SourceWriter.getGeneratedProcessorName(annotatedClass,
+                                        ProfilingProcessorWriter.SUFFIX));
+            }
+        }
+    }
+
+    /**
+     * Get the entry of a processor in the state file: its binary name, or the one of its lazy processor, followed by
+     * its Gradle incremental type, if declared. Profiled processors are not proxied.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return entry of the processor
+     */
+    private String getStateEntry(TypeElement typeElement) {
+        String entry;
+        if (this.options.isLazy() && LazyProcessorWriter.getObstacle(typeElement) == null
+                && !ProfilingProcessorWriter.isProfiled(typeElement, this.options.isClassLoadingReport())) {
+            entry = SourceWriter.getGeneratedProcessorName(typeElement, LazyProcessorWriter.SUFFIX);
+        } else {
+            entry = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+        }
+        AnnotationProcessor annotationProcessor = typeElement.getAnnotation(AnnotationProcessor.class);
+        if (annotationProcessor != null && annotationProcessor.incremental() != AnnotationProcessor.Incremental.NONE) {
+            entry += CATEGORY_SEPARATOR + annotationProcessor.incremental().name().toLowerCase(Locale.ENGLISH);
+        }
+        return entry;
+    }
+
+    /**
+     * Get the binary name of a processor from its entry in the state file.
+     *
+     * @param entry
+     *            Entry of the processor
+     *
+     * @return binary name of the processor
+     *
+     * @see #getStateEntry(TypeElement)
+     */
+    private static String getProcessorName(String entry) {
+        int separator = entry.indexOf(CATEGORY_SEPARATOR);
+        return separator < 0 ? entry : entry.substring(0, separator);
+    }
+
     /**
      * <p>
      * Check if class extends {@link AbstractProcessor} or implements {@link Processor}.
@@ -200,6 +390,119 @@ public class AnnotationProcessorProcessor extends AbstractProcessor {
      *         </ul>
      */
     private String checkSuperclass(TypeElement typeElement) {
+        String superName = getSuperName(typeElement);
+        if (superName != null) {
+            return superName;
+        }
+
+        disableServiceFile(typeElement);
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                typeElement.getQualifiedName() + " is neither extending " + AbstractProcessor.class.getCanonicalName()
+                        + " nor implementing " + Processor.class.getCanonicalName() + ". Best Practise is to extend "
+                        + AbstractProcessor.class.getCanonicalName() + ".",
+                typeElement);
+        return null;
+    }
+
+    /**
+     * Check the registration of a processor: a {@link AnnotationProcessor.Incremental#DYNAMIC} processor has to
+     * advertise its Gradle option, and the processor is linted with the {@link ProcessorLint}, if enabled. An error
+     * prevents the service file from being created.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if the registration is compliant
+     */
+    private boolean checkRegistration(TypeElement typeElement) {
+        boolean compliant = true;
+        AnnotationProcessor annotationProcessor = typeElement.getAnnotation(AnnotationProcessor.class);
+        if (annotationProcessor != null && annotationProcessor.incremental() == AnnotationProcessor.Incremental.DYNAMIC
+                && !isAdvertisingGradleOption(typeElement)) {
+            compliant = false;
+            disableServiceFile(typeElement);
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, typeElement.getQualifiedName()
+                    + " is a " + AnnotationProcessor.Incremental.DYNAMIC + " incremental processor, but is not "
+                    + "advertising " + GRADLE_ISOLATING_OPTION + " or " + GRADLE_AGGREGATING_OPTION
+                    + " in getSupportedOptions().", typeElement);
+        }
+        if (this.lint != null && this.lint.lint(typeElement)) {
+            compliant = false;
+            disableServiceFile(typeElement);
+        }
+        return compliant;
+    }
+
+    /**
+     * End the event of the validation of a processor with its outcome.
+     *
+     * @param validation
+     *            {@link ProcessingEvents.Validation} of the processor
+     * @param missingMask
+     *            Bit mask of the missing signatures, bit i stands for the i-th signature of
+     *            {@link #PROCESSOR_METHOD_NAMES}
+     * @param registrationCompliant
+     *            true, if the registration of the processor is compliant
+     */
+    private static void endValidation(ProcessingEvents.Validation validation, int missingMask,
+            boolean registrationCompliant) {
+        if (missingMask != 0) {
+            validation.end(false, MISSING_METHODS_OUTCOME);
+        } else if (!registrationCompliant) {
+            validation.end(false, INVALID_REGISTRATION_OUTCOME);
+        } else {
+            validation.end(true, VALID_OUTCOME);
+        }
+    }
+
+    /**
+     * Check if a processor advertises the Gradle option of its incremental type, either with {@link SupportedOptions}
+     * or as string literal in the nearest declaration of <code>getSupportedOptions()</code>.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if the option is advertised or if the source of <code>getSupportedOptions()</code> is not
+     *         available
+     */
+    private boolean isAdvertisingGradleOption(TypeElement typeElement) {
+        List<String> options = getProcessorSource().getStringLiterals(typeElement, "getSupportedOptions", 0);
+        if (options == null) {
+            return true;
+        }
+        options.addAll(ProcessorSource.getAnnotationValues(typeElement, SupportedOptions.class.getName()));
+        for (String option : options) {
+            if (option.equals(GRADLE_ISOLATING_OPTION) || option.equals(GRADLE_AGGREGATING_OPTION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the {@link ProcessorSource}, which is created on first use.
+     *
+     * @return {@link ProcessorSource}
+     */
+    private ProcessorSource getProcessorSource() {
+        if (this.processorSource == null) {
+            this.processorSource = new ProcessorSource(processingEnv);
+        }
+        return this.processorSource;
+    }
+
+    /**
+     * Get the simple name of the processor type a class extends or implements.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     *
+     * @return {@link Class#getSimpleName()} of {@link AbstractProcessor} or {@link Processor}, null if the class is
+     *         neither extending nor implementing them
+     *
+     * @see #checkSuperclass(TypeElement)
+     */
+    private String getSuperName(TypeElement typeElement) {
         TypeMirror abstractProcessor = processingEnv.getElementUtils()
                 .getTypeElement(AbstractProcessor.class.getCanonicalName()).asType();
         boolean isEAbstractProcessor = processingEnv.getTypeUtils().isSubtype(typeElement.asType(), abstractProcessor);
@@ -213,101 +516,138 @@ public class AnnotationProcessorProcessor extends AbstractProcessor {
         if (isIProcessor) {
             return Processor.class.getSimpleName();
         }
-
-        this.generateServiceFile = false;
-        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
-                typeElement.getQualifiedName() + " is neither extending " + AbstractProcessor.class.getCanonicalName()
-                        + " nor implementing " + Processor.class.getCanonicalName() + ". Best Practise is to extend "
-                        + AbstractProcessor.class.getCanonicalName() + ".",
-                typeElement);
         return null;
     }
 
     /**
-     * Check if class overrides the {@link Processor#process(Set, RoundEnvironment)} method. If the method is missing,
-     * the compiler throws an error.
+     * Get the expected signatures of a class.
+     *
+     * @param superName
+     *            {@link Class#getSimpleName()} of {@link AbstractProcessor} or {@link Processor}
+     *
+     * @return Bit mask of the expected signatures, bit i stands for the i-th signature of
+     *         {@link #PROCESSOR_METHOD_NAMES}
+     */
+    private int getExpectedMask(String superName) {
+        return superName.equals(AbstractProcessor.class.getSimpleName()) ? this.processSignatureMask
+                : this.processorSignaturesMask;
+    }
+
+    /**
+     * Check if class overrides the {@link Processor#process(Set, RoundEnvironment)} method, either itself or in one of
+     * its superclasses. If the method is missing, the compiler throws an error.
      *
      * @param typeElement
      *            {@link TypeElement} of the class
      *
-     * @see #createMissingMethodError(TypeElement, String, List, String)
+     * @see #createMissingMethodError(TypeElement, MethodSignatureIndex.Signature)
      */
     private void checkProcessMethod(TypeElement typeElement) {
-        List<ExecutableElement> methods = ElementFilter.methodsIn(typeElement.getEnclosedElements());
-        List<String> expectedParamTypes = new ArrayList<String>(2);
-        expectedParamTypes
-                .add(Set.class.getCanonicalName() + "<? extends " + TypeElement.class.getCanonicalName() + ">");
-        expectedParamTypes.add(RoundEnvironment.class.getCanonicalName());
-        String expectedReturnType = Boolean.TYPE.getCanonicalName();
-        boolean processExists = checkIfMethodExists(methods, "process", 2, expectedParamTypes, expectedReturnType);
-        if (!processExists) {
-            createMissingMethodError(typeElement, "process", expectedParamTypes, expectedReturnType);
-        }
+        checkImplementedSignatures(typeElement, this.processSignatureMask);
     }
 
     /**
-     * Check if class implementing {@link Processor} overrides all methods. If a method is missing, the compiler will
-     * throw an error.
+     * Check if class implementing {@link Processor} overrides all methods, either itself or in one of its supertypes.
+     * If a method is missing, the compiler will throw an error.
      *
      * @param typeElement
      *            {@link TypeElement} of the class
      *
-     * @see #createMissingMethodError(TypeElement, String, List, String)
+     * @see #createMissingMethodError(TypeElement, MethodSignatureIndex.Signature)
      */
     private void checkWholeOverrideMethods(TypeElement typeElement) {
-        List<ExecutableElement> methods = ElementFilter.methodsIn(typeElement.getEnclosedElements());
-        List<String> expectedParamTypes = new ArrayList<String>(4);
-        String expectedMethodName;
-        String expectedReturnValue;
-
-        expectedMethodName = "getSupportedOptions";
-        expectedReturnValue = Set.class.getCanonicalName() + "<" + String.class.getCanonicalName() + ">";
-        boolean overridesSupportedOptions = checkIfMethodExists(methods, expectedMethodName, 0, null,
-                expectedReturnValue);
-        if (!overridesSupportedOptions) {
-            createMissingMethodError(typeElement, expectedMethodName, null, expectedReturnValue);
-        }
+        checkImplementedSignatures(typeElement, this.processorSignaturesMask);
+    }
+
+    /**
+     * Check if class implements the expected methods of {@link Processor}. For every missing method, the compiler
+     * throws an error.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     * @param expectedMask
+     *            Bit mask of the expected signatures, bit i stands for the i-th signature of
+     *            {@link #PROCESSOR_METHOD_NAMES}
+     */
+    private void checkImplementedSignatures(TypeElement typeElement, int expectedMask) {
+        createMissingMethodErrors(typeElement, expectedMask & ~getImplementedSignatures(typeElement));
+    }
 
-        expectedMethodName = "getSupportedAnnotationTypes";
-        expectedReturnValue = Set.class.getCanonicalName() + "<" + String.class.getCanonicalName() + ">";
-        boolean overridesSupportedAnnotationTypes = checkIfMethodExists(methods, expectedMethodName, 0, null,
-                expectedReturnValue);
-        if (!overridesSupportedAnnotationTypes) {
-            createMissingMethodError(typeElement, expectedMethodName, null, expectedReturnValue);
+    /**
+     * Throws a compiler error for every missing method.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     * @param missingMask
+     *            Bit mask of the missing signatures, bit i stands for the i-th signature of
+     *            {@link #PROCESSOR_METHOD_NAMES}
+     */
+    private void createMissingMethodErrors(TypeElement typeElement, int missingMask) {
+        for (int i = 0; missingMask != 0; i++, missingMask >>>= 1) {
+            if ((missingMask & 1) != 0) {
+                createMissingMethodError(typeElement, this.processorSignatures.get(i));
+            }
         }
+    }
 
-        expectedMethodName = "getSupportedSourceVersion";
-        expectedReturnValue = SourceVersion.class.getCanonicalName();
-        boolean overridesSupportedSourceVersion = checkIfMethodExists(methods, expectedMethodName, 0, null,
-                expectedReturnValue);
-        if (!overridesSupportedSourceVersion) {
-            createMissingMethodError(typeElement, expectedMethodName, null, expectedReturnValue);
+    /**
+     * <p>
+     * Get the methods of {@link Processor}, which are implemented by a type or one of its supertypes. Abstract, static
+     * and private methods are no implementations.
+     * </p>
+     *
+     * <p>
+     * The result is memoized for every type during a round, so a supertype shared by many annotated classes is only
+     * analysed once.
+     * </p>
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the type
+     *
+     * @return Bit mask of the implemented signatures, bit i stands for the i-th signature of
+     *         {@link #PROCESSOR_METHOD_NAMES}
+     */
+    private int getImplementedSignatures(TypeElement typeElement) {
+        String typeName = typeElement.getQualifiedName().toString();
+        Integer memoized = this.implementedSignaturesByType.get(typeName);
+        if (memoized != null) {
+            return memoized;
         }
 
-        expectedMethodName = "init";
-        expectedReturnValue = Void.TYPE.getCanonicalName();
-        expectedParamTypes.add((ProcessingEnvironment.class.getCanonicalName()));
-        boolean overridesInit = checkIfMethodExists(methods, expectedMethodName, 1, expectedParamTypes,
-                expectedReturnValue);
-        if (!overridesInit) {
-            createMissingMethodError(typeElement, expectedMethodName, expectedParamTypes, expectedReturnValue);
+        int implemented = 0;
+        MethodSignatureIndex.Methods methods = this.methodSignatureIndex.index(typeElement);
+        for (int i = 0; i < this.processorSignatures.size(); i++) {
+            ExecutableElement method = methods.find(this.processorSignatures.get(i));
+            if (method != null && isImplementation(method)) {
+                implemented |= 1 << i;
+            }
         }
 
-        checkProcessMethod(typeElement);
-
-        expectedMethodName = "getCompletions";
-        expectedReturnValue = Iterable.class.getCanonicalName() + "<? extends " + Completion.class.getCanonicalName()
-                + ">";
-        expectedParamTypes.clear();
-        expectedParamTypes.add(Element.class.getCanonicalName());
-        expectedParamTypes.add(AnnotationMirror.class.getCanonicalName());
-        expectedParamTypes.add(ExecutableElement.class.getCanonicalName());
-        expectedParamTypes.add(String.class.getCanonicalName());
-        boolean overridesGetCompletions = checkIfMethodExists(methods, expectedMethodName, 4, expectedParamTypes,
-                expectedReturnValue);
-        if (!overridesGetCompletions) {
-            createMissingMethodError(typeElement, expectedMethodName, expectedParamTypes, expectedReturnValue);
+        if (implemented != this.processorSignaturesMask) {
+            for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(typeElement.asType())) {
+                if (supertype instanceof DeclaredType) {
+                    implemented |= getImplementedSignatures((TypeElement) ((DeclaredType) supertype).asElement());
+                }
+            }
         }
+
+        this.implementedSignaturesByType.put(typeName, implemented);
+        return implemented;
+    }
+
+    /**
+     * Check if a method is an implementation, i.e. neither abstract, nor static, nor private. Default methods of
+     * interfaces are implementations.
+     *
+     * @param method
+     *            {@link ExecutableElement} of the method
+     *
+     * @return true if the method is an implementation, false otherwise
+     */
+    private static boolean isImplementation(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        return !modifiers.contains(Modifier.ABSTRACT) && !modifiers.contains(Modifier.STATIC)
+                && !modifiers.contains(Modifier.PRIVATE);
     }
 
     /**
@@ -315,56 +655,169 @@ public class AnnotationProcessorProcessor extends AbstractProcessor {
      *
      * @param typeElement
      *            {@link TypeElement} of the class
-     * @param methodName
-     *            Name of the method not overridden
-     * @param paramTypes
-     *            {@link List} with parameter types of the method
-     * @param returnValue
-     *            {@link Class#getCanonicalName()} of the return value
+     * @param signature
+     *            {@link MethodSignatureIndex.Signature} of the method not overridden
      */
-    private void createMissingMethodError(TypeElement typeElement, String methodName, List<String> paramTypes,
-            String returnValue) {
+    private void createMissingMethodError(TypeElement typeElement, MethodSignatureIndex.Signature signature) {
+        disableServiceFile(typeElement);
+        String errorMsg = typeElement.getQualifiedName() + " is not overriding " + Processor.class.getCanonicalName()
+                + "#" + signature + " (ReturnType " + signature.getReturnType() + ").";
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, errorMsg, typeElement);
+    }
+
+    /**
+     * Prevent the service file from being created, because a class is not build compliant.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     */
+    private void disableServiceFile(TypeElement typeElement) {
         this.generateServiceFile = false;
-        StringBuilder errorMsg = new StringBuilder();
-        errorMsg.append(typeElement.getQualifiedName()).append(" is not overriding ")
-                .append(Processor.class.getCanonicalName()).append("#").append(methodName).append("(");
-        if (paramTypes != null) {
-            for (int i = 0; i < paramTypes.size(); i++) {
-                errorMsg.append(paramTypes.get(i));
-                if (i != paramTypes.size() - 1) {
-                    errorMsg.append(", ");
+        if (this.report != null) {
+            this.report.recordRejection(typeElement.getQualifiedName().toString());
+        }
+    }
+
+    /**
+     * Write binary names of classes annotated with {@link AnnotationProcessor} to service file, e.g.
+     * <code>a.Outer$Inner</code> for a nested class, which is the name {@link java.util.ServiceLoader} loads. The
+     * processors of this compilation are merged with the ones of the state file before. The annotated classes of all
+     * rounds are passed as originating elements, so that aggregating incremental builds (e.g. Gradle) can track the
+     * service file. The processors with a Gradle incremental type are written to the Gradle metadata file, which is
+     * also written if it had processors in a previous compilation. The same applies to the profiling processors.
+     */
+    private void writeToServiceFile() {
+        Map<String, Set<String>> previousState = this.stateFile.read(processingEnv.getFiler());
+        Map<String, Set<String>> state = this.stateFile.merge(previousState, processingEnv.getElementUtils());
+        Element[] originatingElements = getOriginatingElements();
+        writeLines(this.stateFile.getPath(), StateFile.toLines(state), originatingElements);
+
+        List<String> processors = new ArrayList<String>();
+        List<String> incrementalProcessors = new ArrayList<String>();
+        for (Set<String> sourceProcessors : state.values()) {
+            for (String entry : sourceProcessors) {
+                processors.add(getProcessorName(entry));
+                if (entry.contains(CATEGORY_SEPARATOR)) {
+                    incrementalProcessors.add(entry);
                 }
             }
         }
-        errorMsg.append(") (ReturnType ").append(returnValue).append(").");
-        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, errorMsg, typeElement);
+        writeLines(PROCESSOR_SERVICE_FILE, processors, originatingElements);
+        if (!incrementalProcessors.isEmpty() || hasIncrementalProcessors(previousState)) {
+            writeLines(GRADLE_INCREMENTAL_FILE, incrementalProcessors, originatingElements);
+        }
+
+        Map<String, Set<String>> previousProfilingState = this.profilingStateFile.read(processingEnv.getFiler());
+        Map<String, Set<String>> profilingState = this.profilingStateFile.merge(previousProfilingState,
+                processingEnv.getElementUtils());
+        if (!profilingState.isEmpty() || !previousProfilingState.isEmpty()) {
+            writeLines(this.profilingStateFile.getPath(), StateFile.toLines(profilingState), originatingElements);
+            List<String> profilingProcessors = new ArrayList<String>();
+            for (Set<String> sourceProcessors : profilingState.values()) {
+                profilingProcessors.addAll(sourceProcessors);
+            }
+            writeLines(PROFILING_PROCESSORS_FILE, profilingProcessors, originatingElements);
+        }
+    }
+
+    /**
+     * Check if a state has processors with a Gradle incremental type.
+     *
+     * @param state
+     *            {@link Map} of sources and their processors
+     *
+     * @return true, if at least one processor has a Gradle incremental type
+     */
+    private static boolean hasIncrementalProcessors(Map<String, Set<String>> state) {
+        for (Set<String> sourceProcessors : state.values()) {
+            for (String entry : sourceProcessors) {
+                if (entry.contains(CATEGORY_SEPARATOR)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
-     * Write canonical names of classes annotated with {@link AnnotationProcessor} to service file.
+     * Generate the profiling processors and, if enabled, the lazy processors of the annotated classes. Processors with
+     * {@link AnnotationProcessor#profile()} are profiled instead of proxied. Only the lazy processors replace the
+     * processors in the service file and in the processor index.
+     *
+     * @param annotatedClasses
+     *            {@link Set} of the annotated classes of this round
+     *
+     * @see ProfilingProcessorWriter
+     * @see LazyProcessorWriter
      */
-    private void writeToServiceFile() {
-        OutputStream outputStream;
-        try {
-            FileObject newServiceFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
-                    PROCESSOR_SERVICE_FILE);
-            outputStream = newServiceFile.openOutputStream();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private void writeGeneratedProcessors(Set<TypeElement> annotatedClasses) {
+        for (TypeElement annotatedClass : annotatedClasses) {
+            if (ProfilingProcessorWriter.write(processingEnv, annotatedClass, this.options.isClassLoadingReport(),
+                    this.report) != null || !this.options.isLazy()) {
+                continue;
+            }
+            String generatedProcessor = LazyProcessorWriter.write(processingEnv, annotatedClass, this.report);
+            if (generatedProcessor != null) {
+                this.processorsByGeneratedProcessor.put(generatedProcessor,
+                        processingEnv.getElementUtils().getBinaryName(annotatedClass).toString());
+            }
         }
+    }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        for (TypeElement annotatedClass : this.annotatedClasses) {
-            stringBuilder.append(annotatedClass.getQualifiedName());
-            stringBuilder.append(NEW_LINE);
+    /**
+     * Generate the processor index for the processors of the state file merged with this compilation.
+     *
+     * @param annotatedClasses
+     *            {@link Set} of the annotated classes of this round
+     *
+     * @see ProcessorIndexWriter
+     */
+    private void writeProcessorIndex(Set<TypeElement> annotatedClasses) {
+        Set<String> processors = new LinkedHashSet<String>();
+        Map<String, Set<String>> state = this.stateFile.merge(this.stateFile.read(processingEnv.getFiler()),
+                processingEnv.getElementUtils());
+        for (Set<String> sourceProcessors : state.values()) {
+            for (String entry : sourceProcessors) {
+                processors.add(getProcessorName(entry));
+            }
         }
+        this.indexWriter.write(processingEnv, annotatedClasses, processors, this.processorsByGeneratedProcessor,
+                this.report);
+    }
 
-        try {
-            outputStream.write(stringBuilder.toString().getBytes(Charset.forName(CHARSET)));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            close(outputStream);
+    /**
+     * Get the processors of all rounds of this compilation as originating elements. They are resolved again by their
+     * binary names, because the elements of the rounds they were found in are not kept.
+     *
+     * @return originating elements
+     */
+    private Element[] getOriginatingElements() {
+        List<Element> originatingElements = new ArrayList<Element>();
+        for (Set<String> sourceProcessors : this.stateFile.getEntries().values()) {
+            for (String entry : sourceProcessors) {
+                TypeElement typeElement = ProcessingUtils.getTypeElement(processingEnv.getElementUtils(),
+                        getProcessorName(entry));
+                if (typeElement != null) {
+                    originatingElements.add(typeElement);
+                }
+            }
         }
+        return originatingElements.toArray(new Element[0]);
+    }
+
+    /**
+     * Write lines to a resource of the class output with {@link LineResourceWriter}. A resource, which already has the
+     * same content, is not written and not recorded in the report.
+     *
+     * @param file
+     *            Path of the resource, relative to the class output
+     * @param lines
+     *            Lines of the resource
+     * @param originatingElements
+     *            originating elements of the resource
+     */
+    private void writeLines(String file, Collection<String> lines, Element[] originatingElements) {
+        LineResourceWriter.write(processingEnv.getFiler(), file, lines, originatingElements, getClass().getName(),
+                this.report);
     }
 }
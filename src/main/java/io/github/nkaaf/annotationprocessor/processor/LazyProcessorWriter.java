@@ -0,0 +1,247 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.*;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Generator of the source of a lazy processor, written by {@link AnnotationProcessorProcessor} with the option
+ * {@value ProcessorOptions#LAZY_OPTION}.
+ * </p>
+ *
+ * <p>
+ * The generated class is a top level class next to the processor, which extends
+ * {@link javax.annotation.processing.AbstractProcessor}. The supported annotation types, options and source version of
+ * the processor are copied as annotations, so that the compiler can ask for them without loading the processor. The
+ * processor is instantiated with a direct constructor call and initialized in the first round with one of its
+ * annotations, so that a processor without annotations in a compilation never loads its dependencies. The generated
+ * source is compatible with Java 6.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class LazyProcessorWriter {
+
+    /**
+     * Suffix of the simple name of a lazy processor.
+     */
+    static final String SUFFIX = "_Lazy";
+
+    private static final String PROCESSOR = "javax.annotation.processing.Processor";
+    private static final String[] ANSWERED_METHOD_NAMES = { "getSupportedOptions", "getSupportedAnnotationTypes",
+            "getSupportedSourceVersion" };
+
+    private LazyProcessorWriter() {
+    }
+
+    /**
+     * Get the reason why no lazy processor can be generated for a processor. A lazy processor needs a public class
+     * with a public no-arg constructor, which declares its supported annotation types without the wildcard
+     * <code>*</code> and extends {@link AbstractProcessor} without overriding the methods answered from the
+     * annotations.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return reason or null, if a lazy processor can be generated
+     */
+    static String getObstacle(TypeElement typeElement) {
+        if (!ProcessingUtils.isInstantiable(typeElement)) {
+            return "is not a public class with a public no-arg constructor";
+        }
+        String[] annotationTypes = ProcessingUtils.getSupportedAnnotationTypes(typeElement);
+        if (annotationTypes == null) {
+            return "does not declare its annotation types with @" + SupportedAnnotationTypes.class.getSimpleName();
+        }
+        if (Arrays.asList(annotationTypes).contains("*")) {
+            return "supports all annotation types";
+        }
+
+        String abstractProcessorName = AbstractProcessor.class.getCanonicalName();
+        TypeElement type = typeElement;
+        while (!type.getQualifiedName().contentEquals(abstractProcessorName)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getParameters().isEmpty()
+                        && Arrays.asList(ANSWERED_METHOD_NAMES).contains(method.getSimpleName().toString())) {
+                    return "overrides " + method.getSimpleName() + "()";
+                }
+            }
+            TypeMirror superclass = type.getSuperclass();
+            if (!(superclass instanceof DeclaredType)) {
+                return "does not extend " + abstractProcessorName;
+            }
+            type = (TypeElement) ((DeclaredType) superclass).asElement();
+        }
+        return null;
+    }
+
+    /**
+     * Generate the lazy processor of a processor. A processor which cannot be proxied is registered directly with a
+     * note.
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment}
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     * @param report
+     *            {@link ProcessingReport} or null, if the report is disabled
+     *
+     * @return qualified name of the lazy processor, null if none is generated
+     *
+     * @see #getObstacle(TypeElement)
+     */
+    static String write(ProcessingEnvironment processingEnv, TypeElement typeElement, ProcessingReport report) {
+        String obstacle = getObstacle(typeElement);
+        if (obstacle != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, typeElement.getQualifiedName() + " "
+                    + obstacle + ". It is registered without lazy processor.", typeElement);
+            return null;
+        }
+
+        String lazyProcessorName = SourceWriter.getGeneratedProcessorName(typeElement, SUFFIX);
+        SupportedOptions supportedOptions = typeElement.getAnnotation(SupportedOptions.class);
+        SupportedSourceVersion supportedSourceVersion = typeElement.getAnnotation(SupportedSourceVersion.class);
+        SourceWriter.write(processingEnv.getFiler(), report, lazyProcessorName,
+                toSource(lazyProcessorName, typeElement.getQualifiedName().toString(),
+                        ProcessingUtils.getSupportedAnnotationTypes(typeElement),
+                        supportedOptions == null ? null : supportedOptions.value(),
+                        supportedSourceVersion == null ? null : supportedSourceVersion.value().name()),
+                typeElement);
+        return lazyProcessorName;
+    }
+
+    /**
+     * Create the source of a lazy processor.
+     *
+     * @param qualifiedName
+     *            Qualified name of the generated class
+     * @param processorName
+     *            Canonical name of the processor
+     * @param annotationTypes
+     *            Supported annotation types of the processor
+     * @param options
+     *            Supported options of the processor, null if they are not declared with
+     *            {@link javax.annotation.processing.SupportedOptions}
+     * @param sourceVersion
+     *            Name of the supported {@link javax.lang.model.SourceVersion} of the processor, null if it is not
+     *            declared with {@link javax.annotation.processing.SupportedSourceVersion}
+     *
+     * @return source of the generated class
+     */
+    static String toSource(String qualifiedName, String processorName, String[] annotationTypes, String[] options,
+            String sourceVersion) {
+        int lastDot = qualifiedName.lastIndexOf('.');
+        String simpleName = qualifiedName.substring(lastDot + 1);
+
+        StringBuilder source = new StringBuilder();
+        if (lastDot > 0) {
+            source.append("package ").append(qualifiedName.substring(0, lastDot)).append(";\n\n");
+        }
+        source.append("/**\n");
+        source.append(" * Lazy processor of ").append(processorName).append(", generated by\n");
+        source.append(" * ").append(AnnotationProcessorProcessor.class.getCanonicalName()).append(".\n");
+        source.append(" */\n");
+        appendArrayAnnotation(source, "javax.annotation.processing.SupportedAnnotationTypes", annotationTypes);
+        if (options != null) {
+            appendArrayAnnotation(source, "javax.annotation.processing.SupportedOptions", options);
+        }
+        if (sourceVersion != null) {
+            source.append("@javax.annotation.processing.SupportedSourceVersion(javax.lang.model.SourceVersion.")
+                    .append(sourceVersion).append(")\n");
+        }
+        source.append("public final class ").append(simpleName)
+                .append(" extends javax.annotation.processing.AbstractProcessor {\n\n");
+        SourceWriter.indent(source, 1).append("private ").append(PROCESSOR).append(" processor;\n\n");
+
+        SourceWriter.appendLine(source, 1, "@Override");
+        SourceWriter.indent(source, 1).append("public boolean process(java.util.Set<? extends ")
+                .append("javax.lang.model.element.TypeElement> annotations,\n");
+        SourceWriter.indent(source, 3).append("javax.annotation.processing.RoundEnvironment roundEnv) {\n");
+        SourceWriter.appendLine(source, 2, "if (this.processor == null) {");
+        SourceWriter.appendLine(source, 3, "if (annotations.isEmpty()) {");
+        SourceWriter.appendLine(source, 4, "return false;");
+        SourceWriter.appendLine(source, 3, "}");
+        SourceWriter.appendLine(source, 3, "this.processor = newProcessor();");
+        SourceWriter.appendLine(source, 2, "}");
+        SourceWriter.appendLine(source, 2, "return this.processor.process(annotations, roundEnv);");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "@Override");
+        SourceWriter.indent(source, 1).append("public Iterable<? extends javax.annotation.processing.Completion> ")
+                .append("getCompletions(\n");
+        SourceWriter.indent(source, 3).append("javax.lang.model.element.Element element, ")
+                .append("javax.lang.model.element.AnnotationMirror annotation,\n");
+        SourceWriter.indent(source, 3)
+                .append("javax.lang.model.element.ExecutableElement member, String userText) {\n");
+        SourceWriter.appendLine(source, 2, "if (this.processor == null) {");
+        SourceWriter.appendLine(source, 3, "if (!isInitialized()) {");
+        SourceWriter.indent(source, 4).append("return super.getCompletions(element, annotation, member, userText);\n");
+        SourceWriter.appendLine(source, 3, "}");
+        SourceWriter.appendLine(source, 3, "this.processor = newProcessor();");
+        SourceWriter.appendLine(source, 2, "}");
+        SourceWriter.indent(source, 2)
+                .append("return this.processor.getCompletions(element, annotation, member, userText);\n");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.indent(source, 1).append("private ").append(PROCESSOR).append(" newProcessor() {\n");
+        SourceWriter.indent(source, 2).append(PROCESSOR).append(" processor = new ").append(processorName)
+                .append("();\n");
+        SourceWriter.appendLine(source, 2, "processor.init(this.processingEnv);");
+        SourceWriter.appendLine(source, 2, "return processor;");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Append an annotation with an array of strings as value.
+     *
+     * @param source
+     *            {@link StringBuilder} of the source
+     * @param annotationName
+     *            Canonical name of the annotation
+     * @param values
+     *            Values of the annotation
+     */
+    private static void appendArrayAnnotation(StringBuilder source, String annotationName, String[] values) {
+        source.append('@').append(annotationName).append("({");
+        for (String value : values) {
+            source.append(' ').append(SourceWriter.quote(value)).append(',');
+        }
+        source.append(" })\n");
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.event.ProcessingEvents;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * <p>
+ * Writer of line based resources of the class output, like service files and state files.
+ * </p>
+ *
+ * <p>
+ * The lines are sorted, deduplicated and terminated by {@code '\n'}, so the content does not depend on the order in
+ * which classes are processed or on the platform. It is streamed to the resource. A resource, which already has the
+ * same content, is not written again, so its timestamp does not change and build tools do not see a changed output.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class LineResourceWriter {
+
+    /**
+     * Return value of {@link #write(Filer, String, Collection, Element[])} if the resource was not written, because it
+     * already has the same content.
+     */
+    static final int UNCHANGED = -1;
+
+    private static final String CHARSET = "UTF-8";
+    private static final char LINE_TERMINATOR = '\n';
+
+    private LineResourceWriter() {
+    }
+
+    /**
+     * Write lines to a resource of the class output, unless it already has the same content.
+     *
+     * @param filer
+     *            {@link Filer} of the processing environment
+     * @param file
+     *            Path of the resource, relative to the class output
+     * @param lines
+     *            Lines of the resource, in any order and possibly with duplicates
+     * @param originatingElements
+     *            originating elements of the resource
+     *
+     * @return Number of bytes written, or {@link #UNCHANGED} if the resource was not written
+     *
+     * @throws IOException
+     *             if the resource could not be written
+     */
+    static int write(Filer filer, String file, Collection<String> lines, Element[] originatingElements)
+            throws IOException {
+        SortedSet<String> sortedLines = new TreeSet<String>(lines);
+        if (hasContent(filer, file, sortedLines)) {
+            return UNCHANGED;
+        }
+
+        FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", file, originatingElements);
+        CountingOutputStream outputStream = new CountingOutputStream(resource.openOutputStream());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, Charset.forName(CHARSET)));
+        try {
+            for (String line : sortedLines) {
+                writer.write(line);
+                writer.write(LINE_TERMINATOR);
+            }
+        } finally {
+            ProcessingUtils.close(writer);
+        }
+        return outputStream.count;
+    }
+
+    /**
+     * Write lines to a resource of the class output, unless it already has the same content. The write is emitted as
+     * {@link ProcessingEvents.FileWrite} event and a written resource is recorded in the report, if enabled.
+     *
+     * @param filer
+     *            {@link Filer} of the processing environment
+     * @param file
+     *            Path of the resource, relative to the class output
+     * @param lines
+     *            Lines of the resource, in any order and possibly with duplicates
+     * @param originatingElements
+     *            originating elements of the resource
+     * @param processor
+     *            Class name of the writing processor
+     * @param report
+     *            {@link ProcessingReport} or null, if the report is disabled
+     */
+    static void write(Filer filer, String file, Collection<String> lines, Element[] originatingElements,
+            String processor, ProcessingReport report) {
+        ProcessingEvents.FileWrite fileWrite = ProcessingEvents.beginFileWrite(processor, file);
+        int bytes;
+        try {
+            bytes = write(filer, file, lines, originatingElements);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        boolean written = bytes != UNCHANGED;
+        fileWrite.end(written ? bytes : 0, written);
+        if (report != null && written) {
+            report.recordFile(file, bytes);
+        }
+    }
+
+    /**
+     * Check if a resource of the class output exists and has exactly the given lines. The resource is compared while
+     * it is read, so a difference stops reading.
+     *
+     * @param filer
+     *            {@link Filer} of the processing environment
+     * @param file
+     *            Path of the resource, relative to the class output
+     * @param lines
+     *            Sorted lines of the resource
+     *
+     * @return true, if the resource has exactly the given lines, false if not or if it does not exist
+     */
+    private static boolean hasContent(Filer filer, String file, SortedSet<String> lines) {
+        Reader reader = null;
+        try {
+            FileObject resource = filer.getResource(StandardLocation.CLASS_OUTPUT, "", file);
+            reader = new BufferedReader(new InputStreamReader(resource.openInputStream(), Charset.forName(CHARSET)));
+            for (String line : lines) {
+                for (int i = 0; i < line.length(); i++) {
+                    if (reader.read() != line.charAt(i)) {
+                        return false;
+                    }
+                }
+                if (reader.read() != LINE_TERMINATOR) {
+                    return false;
+                }
+            }
+            return reader.read() == -1;
+        } catch (IOException e) {
+            // The resource does not exist yet
+            return false;
+        } finally {
+            ProcessingUtils.close(reader);
+        }
+    }
+
+    /**
+     * {@link OutputStream}, which counts the bytes written to it.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private int count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
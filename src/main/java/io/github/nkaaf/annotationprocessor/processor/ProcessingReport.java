@@ -0,0 +1,220 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.Filer;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Machine-readable report of a compilation, written by {@link AnnotationProcessorProcessor} if the option
+ * {@value ProcessorOptions#REPORT_OPTION} is set to {@value #FORMAT_JSON}.
+ * </p>
+ *
+ * <p>
+ * It contains the wall time of every round, the validation time of every annotated class, the number of validated
+ * and rejected classes, the bytes written and, if the service file was not generated, the class that prevented it.
+ * All times are in nanoseconds.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProcessingReport {
+
+    static final String FORMAT_JSON = "json";
+
+    private static final String REPORT_FILE = "META-INF" + File.separator + "annotationprocessor" + File.separator
+            + "report.json";
+    private static final String CHARSET = "UTF-8";
+
+    private final List<Long> roundNanos = new ArrayList<Long>();
+    private final Map<String, Long> validationNanosByClass = new LinkedHashMap<String, Long>();
+    private final Map<String, Boolean> rejectedByClass = new LinkedHashMap<String, Boolean>();
+    private final Map<String, Integer> bytesByFile = new LinkedHashMap<String, Integer>();
+    private String serviceFileDisabledBy;
+
+    /**
+     * Record the wall time of a round.
+     *
+     * @param nanos
+     *            Wall time of the round
+     */
+    void recordRound(long nanos) {
+        this.roundNanos.add(nanos);
+    }
+
+    /**
+     * Record the validation of an annotated class. A class validated again in a later round replaces the previous
+     * record.
+     *
+     * @param className
+     *            Qualified name of the class
+     * @param nanos
+     *            Time of the validation
+     */
+    void recordValidation(String className, long nanos) {
+        this.validationNanosByClass.put(className, nanos);
+        if (!this.rejectedByClass.containsKey(className)) {
+            this.rejectedByClass.put(className, Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Record the rejection of an annotated class. The first rejected class is the one that disabled the service file.
+     *
+     * @param className
+     *            Qualified name of the class
+     */
+    void recordRejection(String className) {
+        this.rejectedByClass.put(className, Boolean.TRUE);
+        if (this.serviceFileDisabledBy == null) {
+            this.serviceFileDisabledBy = className;
+        }
+    }
+
+    /**
+     * Record a written file.
+     *
+     * @param file
+     *            Path of the file, relative to the class output
+     * @param bytes
+     *            Number of bytes written
+     */
+    void recordFile(String file, int bytes) {
+        this.bytesByFile.put(file, bytes);
+    }
+
+    /**
+     * Create the JSON representation of this report.
+     *
+     * @return report as JSON
+     */
+    String toJson() {
+        long bytesWritten = 0;
+        for (Integer bytes : this.bytesByFile.values()) {
+            bytesWritten += bytes;
+        }
+        int rejected = 0;
+        for (Boolean isRejected : this.rejectedByClass.values()) {
+            if (isRejected) {
+                rejected++;
+            }
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"generateServiceFile\": ").append(this.serviceFileDisabledBy == null).append(",\n");
+        json.append("  \"serviceFileDisabledBy\": ").append(quote(this.serviceFileDisabledBy)).append(",\n");
+        json.append("  \"classesValidated\": ").append(this.rejectedByClass.size()).append(",\n");
+        json.append("  \"classesRejected\": ").append(rejected).append(",\n");
+        json.append("  \"bytesWritten\": ").append(bytesWritten).append(",\n");
+
+        json.append("  \"rounds\": [");
+        for (int i = 0; i < this.roundNanos.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    { \"round\": ").append(i + 1).append(", \"wallTimeNanos\": ")
+                    .append(this.roundNanos.get(i)).append(" }");
+        }
+        json.append(this.roundNanos.isEmpty() ? "],\n" : "\n  ],\n");
+
+        json.append("  \"classes\": [");
+        boolean first = true;
+        for (Map.Entry<String, Boolean> entry : this.rejectedByClass.entrySet()) {
+            Long nanos = this.validationNanosByClass.get(entry.getKey());
+            json.append(first ? "\n" : ",\n");
+            json.append("    { \"name\": ").append(quote(entry.getKey())).append(", \"validationTimeNanos\": ")
+                    .append(nanos == null ? 0 : nanos).append(", \"rejected\": ").append(entry.getValue())
+                    .append(" }");
+            first = false;
+        }
+        json.append(first ? "],\n" : "\n  ],\n");
+
+        json.append("  \"files\": [");
+        first = true;
+        for (Map.Entry<String, Integer> entry : this.bytesByFile.entrySet()) {
+            json.append(first ? "\n" : ",\n");
+            json.append("    { \"path\": ").append(quote(entry.getKey())).append(", \"bytes\": ")
+                    .append(entry.getValue()).append(" }");
+            first = false;
+        }
+        json.append(first ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    /**
+     * Write this report to <code>META-INF/annotationprocessor/report.json</code> in the class output.
+     *
+     * @param filer
+     *            {@link Filer} of the processing environment
+     */
+    void write(Filer filer) {
+        OutputStream outputStream = null;
+        try {
+            outputStream = filer.createResource(StandardLocation.CLASS_OUTPUT, "", REPORT_FILE).openOutputStream();
+            outputStream.write(toJson().getBytes(Charset.forName(CHARSET)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            ProcessingUtils.close(outputStream);
+        }
+    }
+
+    /**
+     * Quote a string as JSON string.
+     *
+     * @param value
+     *            String to quote, may be null
+     *
+     * @return quoted string, or null as JSON literal
+     */
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.*;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * <p>
+ * Helpers shared by {@link AnnotationProcessorProcessor}, {@link ServiceProcessor} and their collaborators.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProcessingUtils {
+
+    private ProcessingUtils() {
+    }
+
+    /**
+     * Close {@link Closeable}.
+     *
+     * @param c
+     *            {@link Closeable}, may be null
+     */
+    static void close(Closeable c) {
+        if (c == null) {
+            return;
+        }
+        try {
+            c.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get a class by its binary name, e.g. <code>a.Outer$Inner</code>. The name is first resolved as canonical name
+     * with <code>$</code> replaced by <code>.</code>, which is checked against the binary name of the found class,
+     * because a class name itself may contain <code>$</code>.
+     *
+     * @param elements
+     *            {@link Elements}
+     * @param binaryName
+     *            Binary name of the class
+     *
+     * @return {@link TypeElement} of the class, or null if it does not exist
+     */
+    static TypeElement getTypeElement(Elements elements, String binaryName) {
+        TypeElement typeElement = elements.getTypeElement(binaryName.replace('$', '.'));
+        if (typeElement != null && elements.getBinaryName(typeElement).contentEquals(binaryName)) {
+            return typeElement;
+        }
+        return elements.getTypeElement(binaryName);
+    }
+
+    /**
+     * Get the name of the source a class is declared in. This is the qualified name of its top level class.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     *
+     * @return qualified name of the top level class
+     */
+    static String getSourceName(TypeElement typeElement) {
+        Element element = typeElement;
+        while (element.getEnclosingElement() != null
+                && element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return ((TypeElement) element).getQualifiedName().toString();
+    }
+
+    /**
+     * Check if a class can be instantiated by a class of another package, i.e. it is a public, non-abstract top level
+     * or static nested class with a public no-arg constructor.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     *
+     * @return true if the class can be instantiated, false otherwise
+     */
+    static boolean isInstantiable(TypeElement typeElement) {
+        if (typeElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        Element element = typeElement;
+        while (element.getKind() != ElementKind.PACKAGE) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || (element.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                    && !modifiers.contains(Modifier.STATIC))) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the annotation types of a processor declared with {@link SupportedAnnotationTypes}.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return supported annotation types or null, if they are not declared
+     */
+    static String[] getSupportedAnnotationTypes(TypeElement typeElement) {
+        SupportedAnnotationTypes supportedAnnotationTypes = typeElement.getAnnotation(SupportedAnnotationTypes.class);
+        return supportedAnnotationTypes == null ? null : supportedAnnotationTypes.value();
+    }
+}
@@ -0,0 +1,260 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import java.util.*;
+
+/**
+ * <p>
+ * Generator of the source of a processor index, written by {@link AnnotationProcessorProcessor} if the option
+ * {@value ProcessorOptions#INDEX_OPTION} is set.
+ * </p>
+ *
+ * <p>
+ * The generated class lists every registered processor with its supported annotation types and instantiates the
+ * processors with direct constructor calls. Hosts of annotation processors can load them without scanning the class
+ * path for service files and without reflection. The generated source is compatible with Java 6.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProcessorIndexWriter {
+
+    private final String qualifiedName;
+    private final List<String> processorNames = new ArrayList<String>();
+    private final List<String> canonicalNames = new ArrayList<String>();
+    private final List<String[]> supportedAnnotationTypes = new ArrayList<String[]>();
+    private boolean generated;
+
+    /**
+     * Create a new writer.
+     *
+     * @param qualifiedName
+     *            Qualified name of the generated class
+     */
+    ProcessorIndexWriter(String qualifiedName) {
+        this.qualifiedName = qualifiedName;
+    }
+
+    /**
+     * <p>
+     * Generate the processor index for the same processors as the service file. Processors which cannot be
+     * instantiated from the index, because they are not a public class with a public no-arg constructor, are left out
+     * with a warning. They are still registered in the service file.
+     * </p>
+     *
+     * <p>
+     * The index is generated in the first round with annotated classes, because a source generated in the last round
+     * is not processed anymore and javac warns about it. Annotated classes of later rounds, i.e. generated by other
+     * processors, are left out with a warning.
+     * </p>
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment}
+     * @param annotatedClasses
+     *            {@link Set} of the annotated classes of this round
+     * @param processors
+     *            Binary names of the processors of the service file
+     * @param processorsByGeneratedProcessor
+     *            Binary names of the processors by the names of the lazy processors generated for them
+     * @param report
+     *            {@link ProcessingReport} or null, if the report is disabled
+     */
+    void write(ProcessingEnvironment processingEnv, Set<TypeElement> annotatedClasses, Collection<String> processors,
+            Map<String, String> processorsByGeneratedProcessor, ProcessingReport report) {
+        if (this.generated) {
+            for (TypeElement annotatedClass : annotatedClasses) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, annotatedClass.getQualifiedName()
+                        + " is generated after " + this.qualifiedName + ". It is not added to the index.",
+                        annotatedClass);
+            }
+            return;
+        }
+        this.generated = true;
+
+        Elements elements = processingEnv.getElementUtils();
+        for (String processor : processors) {
+            TypeElement typeElement = ProcessingUtils.getTypeElement(elements, processor);
+            String wrappedProcessor = processorsByGeneratedProcessor.get(processor);
+            if (typeElement == null && wrappedProcessor != null) {
+                // The processor is generated in this round, it supports the types of the processor it wraps
+                TypeElement wrappedElement = ProcessingUtils.getTypeElement(elements, wrappedProcessor);
+                addProcessor(processor, processor, ProcessingUtils.getSupportedAnnotationTypes(wrappedElement));
+                continue;
+            }
+            if (typeElement == null) {
+                continue;
+            }
+            if (!ProcessingUtils.isInstantiable(typeElement)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, processor + " is not a public "
+                        + "class with a public no-arg constructor. It is not added to " + this.qualifiedName + ".",
+                        typeElement);
+                continue;
+            }
+            addProcessor(processor, typeElement.getQualifiedName().toString(),
+                    ProcessingUtils.getSupportedAnnotationTypes(typeElement));
+        }
+
+        SourceWriter.write(processingEnv.getFiler(), report, this.qualifiedName, toSource(),
+                annotatedClasses.toArray(new Element[0]));
+    }
+
+    /**
+     * Add a processor to the index.
+     *
+     * @param processorName
+     *            Binary name of the processor, as registered in the service file
+     * @param canonicalName
+     *            Canonical name of the processor, used in the constructor call
+     * @param annotationTypes
+     *            Supported annotation types of the processor, null if they are not declared with
+     *            {@link javax.annotation.processing.SupportedAnnotationTypes}
+     */
+    void addProcessor(String processorName, String canonicalName, String[] annotationTypes) {
+        this.processorNames.add(processorName);
+        this.canonicalNames.add(canonicalName);
+        this.supportedAnnotationTypes.add(annotationTypes == null ? null : annotationTypes.clone());
+    }
+
+    /**
+     * Create the source of the index.
+     *
+     * @return source of the generated class
+     */
+    String toSource() {
+        int lastDot = this.qualifiedName.lastIndexOf('.');
+        String simpleName = this.qualifiedName.substring(lastDot + 1);
+
+        StringBuilder source = new StringBuilder();
+        if (lastDot > 0) {
+            source.append("package ").append(this.qualifiedName.substring(0, lastDot)).append(";\n\n");
+        }
+        source.append("/**\n");
+        source.append(" * Index of the annotation processors of this module, generated by\n");
+        source.append(" * ").append(AnnotationProcessorProcessor.class.getCanonicalName()).append(".\n");
+        source.append(" */\n");
+        source.append("public final class ").append(simpleName).append(" {\n\n");
+
+        SourceWriter.indent(source, 1).append("private static final String[] PROCESSOR_NAMES = {");
+        for (String processorName : this.processorNames) {
+            SourceWriter.indent(source.append('\n'), 3).append(SourceWriter.quote(processorName)).append(',');
+        }
+        source.append(" };\n\n");
+
+        SourceWriter.indent(source, 1).append("private static final String[][] SUPPORTED_ANNOTATION_TYPES = {");
+        for (String[] annotationTypes : this.supportedAnnotationTypes) {
+            SourceWriter.indent(source.append('\n'), 3);
+            if (annotationTypes == null) {
+                source.append("null,");
+                continue;
+            }
+            source.append("{");
+            for (String annotationType : annotationTypes) {
+                source.append(' ').append(SourceWriter.quote(annotationType)).append(',');
+            }
+            source.append(" },");
+        }
+        source.append(" };\n\n");
+
+        SourceWriter.indent(source, 1).append("private ").append(simpleName).append("() {\n");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @return number of processors");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1, "public static int size() {");
+        SourceWriter.appendLine(source, 2, "return PROCESSOR_NAMES.length;");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @param index index of the processor");
+        SourceWriter.appendLine(source, 1, " * @return binary name of the processor");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1, "public static String getProcessorName(int index) {");
+        SourceWriter.appendLine(source, 2, "return PROCESSOR_NAMES[index];");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @param index index of the processor");
+        SourceWriter.appendLine(source, 1,
+                " * @return supported annotation types of the processor, null if they are not declared");
+        SourceWriter.appendLine(source, 1, " *         with javax.annotation.processing.SupportedAnnotationTypes");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1,
+                "public static java.util.Set<String> getSupportedAnnotationTypes(int index) {");
+        SourceWriter.appendLine(source, 2, "String[] annotationTypes = SUPPORTED_ANNOTATION_TYPES[index];");
+        SourceWriter.appendLine(source, 2, "if (annotationTypes == null) {");
+        SourceWriter.appendLine(source, 3, "return null;");
+        SourceWriter.appendLine(source, 2, "}");
+        SourceWriter.appendLine(source, 2, "return java.util.Collections.unmodifiableSet(");
+        SourceWriter.appendLine(source, 4,
+                "new java.util.LinkedHashSet<String>(java.util.Arrays.asList(annotationTypes)));");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @param index index of the processor");
+        SourceWriter.appendLine(source, 1, " * @return new instance of the processor");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1,
+                "public static javax.annotation.processing.Processor newProcessor(int index) {");
+        SourceWriter.appendLine(source, 2, "switch (index) {");
+        for (int i = 0; i < this.processorNames.size(); i++) {
+            SourceWriter.appendLine(source, 2, "case " + i + ":");
+            SourceWriter.appendLine(source, 3, "return new " + this.canonicalNames.get(i) + "();");
+        }
+        SourceWriter.appendLine(source, 2, "default:");
+        SourceWriter.appendLine(source, 3,
+                "throw new IndexOutOfBoundsException(\"Index: \" + index + \", Size: \" + size());");
+        SourceWriter.appendLine(source, 2, "}");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @return new instances of all processors");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1,
+                "public static java.util.List<javax.annotation.processing.Processor> newProcessors() {");
+        SourceWriter.appendLine(source, 2, "java.util.List<javax.annotation.processing.Processor> processors =");
+        SourceWriter.appendLine(source, 4, "new java.util.ArrayList<javax.annotation.processing.Processor>(size());");
+        SourceWriter.appendLine(source, 2, "for (int i = 0; i < size(); i++) {");
+        SourceWriter.appendLine(source, 3, "processors.add(newProcessor(i));");
+        SourceWriter.appendLine(source, 2, "}");
+        SourceWriter.appendLine(source, 2, "return processors;");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append("}\n");
+        return source.toString();
+    }
+}
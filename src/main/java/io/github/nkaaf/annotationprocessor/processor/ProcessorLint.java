@@ -0,0 +1,558 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.util.TreeScanner;
+import io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.Reference;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * <p>
+ * Lint of {@link AnnotationProcessorProcessor} for registration choices of processors, which cost compile time or
+ * memory.
+ * </p>
+ *
+ * <p>
+ * The rules are enabled with the option {@value #LINT_OPTION}, a comma separated list of rules, each optionally
+ * followed by <code>=warning</code> (default) or <code>=error</code>. The rule <code>all</code> enables every rule.
+ * The rules are:
+ * </p>
+ * <ul>
+ * <li><code>wildcard</code>: the processor supports <code>"*"</code> or a package wildcard with less than
+ * {@value #MIN_PACKAGE_WILDCARD_NAMES} names, e.g. <code>"com.example.*"</code>, either with
+ * {@link SupportedAnnotationTypes} or returned from <code>getSupportedAnnotationTypes()</code>. Such a processor is
+ * called in every round for (almost) every root element.</li>
+ * <li><code>unclaimed</code>: every <code>return</code> of <code>process</code> returns <code>false</code>, so the
+ * annotations of the processor are never claimed. Processors supporting <code>"*"</code> must not claim, they are
+ * left out.</li>
+ * <li><code>incremental</code>: the processor neither declares {@link AnnotationProcessor#incremental()}, nor is
+ * listed in {@value #GRADLE_INCREMENTAL_FILE} of the class output, nor declares a Gradle incremental option with
+ * {@link SupportedOptions}, so Gradle recompiles all sources whenever one of them changes.</li>
+ * <li><code>isolating</code>: an isolating processor calls a {@link javax.annotation.processing.Filer} method, which
+ * creates a file, with none, several or an array of originating elements. Gradle needs exactly one to track the
+ * file, otherwise it recompiles all sources or keeps stale files. The calls in all methods of the processor are
+ * reported at the call site.</li>
+ * <li><code>retention</code>: a field of the processor or of one of its superclasses holds elements, type mirrors,
+ * annotation mirrors or annotation values of <code>javax.lang.model</code>, or arrays, collections, maps or other
+ * generic types of them, e.g. <code>Set&lt;TypeElement&gt;</code>. They stay reachable across rounds and keep large
+ * parts of the symbol table of the compiler from being collected. {@link Reference}s of them are left out. The
+ * processor should store qualified names or other stable keys instead and look the elements up again in each round.
+ * The fields are reported at their declaration. Only the declared types of the fields are checked, not the fields of
+ * the classes they hold, so a helper object keeping elements or type mirrors is not reported.</li>
+ * </ul>
+ *
+ * <p>
+ * The method bodies are inspected with {@link ProcessorSource}. With another compiler than javac only the annotations
+ * are inspected.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProcessorLint {
+
+    private static final String LINT_OPTION = ProcessorOptions.LINT_OPTION;
+    private static final String ALL_RULES = "all";
+    private static final String LEVEL_SEPARATOR = "=";
+    private static final String LEVEL_WARNING = "warning";
+    private static final String LEVEL_ERROR = "error";
+    private static final String ANY_TYPE = "*";
+    private static final String PACKAGE_WILDCARD = ".*";
+    private static final int MIN_PACKAGE_WILDCARD_NAMES = 3;
+    private static final String GRADLE_INCREMENTAL_FILE = AnnotationProcessorProcessor.GRADLE_INCREMENTAL_FILE;
+    private static final String GRADLE_OPTION_PREFIX = AnnotationProcessorProcessor.GRADLE_OPTION_PREFIX;
+    private static final String GRADLE_ISOLATING = "isolating";
+    private static final String CHARSET = "UTF-8";
+    private static final Class<?>[] MODEL_TYPES = { Element.class, TypeMirror.class, AnnotationMirror.class,
+            AnnotationValue.class };
+
+    /**
+     * Rules of the lint.
+     */
+    enum Rule {
+        WILDCARD, UNCLAIMED, INCREMENTAL, ISOLATING, RETENTION;
+
+        /**
+         * Get the name of the rule in the option {@value #LINT_OPTION}.
+         *
+         * @return name of the rule
+         */
+        String getOptionName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private final ProcessingEnvironment processingEnv;
+    private final Map<Rule, Diagnostic.Kind> levels;
+    private final ProcessorSource processorSource;
+    private Map<String, String> gradleIncrementalProcessors;
+
+    /**
+     * Create a lint with the rules of an option value.
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment} of the processor
+     * @param processorSource
+     *            {@link ProcessorSource} of the processors
+     * @param lintOption
+     *            Value of the option {@value #LINT_OPTION}
+     */
+    ProcessorLint(ProcessingEnvironment processingEnv, ProcessorSource processorSource, String lintOption) {
+        this.processingEnv = processingEnv;
+        this.levels = new EnumMap<Rule, Diagnostic.Kind>(Rule.class);
+        for (String entry : lintOption.split(",")) {
+            parseRule(entry.trim());
+        }
+        this.processorSource = processorSource;
+    }
+
+    /**
+     * Parse an entry of the option {@value #LINT_OPTION}.
+     *
+     * @param entry
+     *            Rule, optionally followed by its level
+     */
+    private void parseRule(String entry) {
+        if (entry.length() == 0) {
+            return;
+        }
+        String name = entry;
+        Diagnostic.Kind level = Diagnostic.Kind.WARNING;
+        int separator = entry.indexOf(LEVEL_SEPARATOR);
+        if (separator >= 0) {
+            name = entry.substring(0, separator).trim();
+            String levelName = entry.substring(separator + 1).trim();
+            if (levelName.equals(LEVEL_ERROR)) {
+                level = Diagnostic.Kind.ERROR;
+            } else if (!levelName.equals(LEVEL_WARNING)) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "The level of " + name + " in "
+                        + LINT_OPTION + " must be " + LEVEL_WARNING + " or " + LEVEL_ERROR + ", but is " + levelName
+                        + ". It is reported as " + LEVEL_WARNING + ".");
+            }
+        }
+        boolean known = false;
+        for (Rule rule : Rule.values()) {
+            if (name.equals(ALL_RULES) || name.equals(rule.getOptionName())) {
+                this.levels.put(rule, level);
+                known = true;
+            }
+        }
+        if (!known) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    LINT_OPTION + " contains the unknown rule " + name + ". It is ignored.");
+        }
+    }
+
+    /**
+     * Check if any rule is enabled.
+     *
+     * @return true, if at least one rule is enabled
+     */
+    boolean isEnabled() {
+        return !this.levels.isEmpty();
+    }
+
+    /**
+     * Lint a processor with the enabled rules.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if a rule with the level <code>error</code> reported the processor
+     */
+    boolean lint(TypeElement typeElement) {
+        boolean error = false;
+        boolean supportsAnyType = false;
+        if (this.levels.containsKey(Rule.WILDCARD) || this.levels.containsKey(Rule.UNCLAIMED)) {
+            for (String supportedType : getSupportedAnnotationTypes(typeElement)) {
+                String type = supportedType.substring(supportedType.indexOf('/') + 1);
+                if (type.equals(ANY_TYPE)) {
+                    supportsAnyType = true;
+                    error |= report(Rule.WILDCARD, typeElement, typeElement.getQualifiedName()
+                            + " supports all annotation types (\"" + supportedType
+                            + "\"), so it is called in every round for every root element.");
+                } else if (type.endsWith(PACKAGE_WILDCARD) && type.split("\\.").length <= MIN_PACKAGE_WILDCARD_NAMES) {
+                    error |= report(Rule.WILDCARD, typeElement, typeElement.getQualifiedName()
+                            + " supports all annotation types of an overly broad package wildcard (\"" + supportedType
+                            + "\"), so it is called in every round with such an annotation.");
+                }
+            }
+        }
+        if (!supportsAnyType && this.levels.containsKey(Rule.UNCLAIMED) && isNeverClaiming(typeElement)) {
+            error |= report(Rule.UNCLAIMED, typeElement, typeElement.getQualifiedName()
+                    + " never claims its annotations, process always returns false, so they are passed on to the "
+                    + "following processors.");
+        }
+        if (this.levels.containsKey(Rule.INCREMENTAL) && !isIncremental(typeElement)) {
+            error |= report(Rule.INCREMENTAL, typeElement, typeElement.getQualifiedName()
+                    + " is not an incremental processor, neither listed in " + GRADLE_INCREMENTAL_FILE
+                    + " nor declaring an option " + GRADLE_OPTION_PREFIX
+                    + "*, so Gradle recompiles all sources whenever one of them changes.");
+        }
+        if (this.levels.containsKey(Rule.ISOLATING) && isIsolating(typeElement)) {
+            error |= lintFilerCalls(typeElement);
+        }
+        if (this.levels.containsKey(Rule.RETENTION)) {
+            error |= lintFields(typeElement);
+        }
+        return error;
+    }
+
+    /**
+     * Report every field of a processor and of its superclasses outside of the JDK, which retains elements or types of
+     * the compiler across rounds.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if a field was reported as error
+     */
+    private boolean lintFields(TypeElement typeElement) {
+        // The model types are looked up for every processor, so the lint does not retain them itself
+        Types types = this.processingEnv.getTypeUtils();
+        List<TypeMirror> modelTypes = new ArrayList<TypeMirror>(MODEL_TYPES.length);
+        for (Class<?> modelType : MODEL_TYPES) {
+            modelTypes.add(types.erasure(
+                    this.processingEnv.getElementUtils().getTypeElement(modelType.getCanonicalName()).asType()));
+        }
+        TypeMirror referenceType = types.erasure(
+                this.processingEnv.getElementUtils().getTypeElement(Reference.class.getCanonicalName()).asType());
+
+        boolean error = false;
+        TypeElement type = typeElement;
+        while (type != null && !isPlatformType(type)) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                if (retainsModel(field.asType(), modelTypes, referenceType)) {
+                    error |= report(Rule.RETENTION, field, typeElement.getQualifiedName() + " keeps "
+                            + field.asType() + " in the field " + type.getSimpleName() + "." + field.getSimpleName()
+                            + ", which retains elements of the compiler across rounds and keeps large parts of its "
+                            + "symbol table from being collected. Store qualified names or other stable keys instead "
+                            + "and look the elements up again in each round.");
+                }
+            }
+            TypeMirror superclass = type.getSuperclass();
+            type = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement()
+                    : null;
+        }
+        return error;
+    }
+
+    /**
+     * Check if a type is a type of the JDK, whose fields are not linted.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the type
+     *
+     * @return true, if the type is in a <code>java</code> or <code>javax</code> package
+     */
+    private static boolean isPlatformType(TypeElement typeElement) {
+        String name = typeElement.getQualifiedName().toString();
+        return name.startsWith("java.") || name.startsWith("javax.");
+    }
+
+    /**
+     * Check if a type retains elements or types of the compiler: it is a model type, an array of them or a generic
+     * type with a type argument retaining them. Type variables are not resolved.
+     *
+     * @param type
+     *            {@link TypeMirror} of the field
+     * @param modelTypes
+     *            Erased model types
+     * @param referenceType
+     *            Erased type of {@link Reference}
+     *
+     * @return true, if the type retains elements or types of the compiler
+     */
+    private boolean retainsModel(TypeMirror type, List<TypeMirror> modelTypes, TypeMirror referenceType) {
+        switch (type.getKind()) {
+        case ARRAY:
+            return retainsModel(((ArrayType) type).getComponentType(), modelTypes, referenceType);
+        case WILDCARD:
+            TypeMirror bound = ((WildcardType) type).getExtendsBound();
+            return bound != null && retainsModel(bound, modelTypes, referenceType);
+        case DECLARED:
+            Types types = this.processingEnv.getTypeUtils();
+            TypeMirror erasure = types.erasure(type);
+            for (TypeMirror modelType : modelTypes) {
+                if (types.isAssignable(erasure, modelType)) {
+                    return true;
+                }
+            }
+            if (types.isAssignable(erasure, referenceType)) {
+                return false;
+            }
+            for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+                if (retainsModel(typeArgument, modelTypes, referenceType)) {
+                    return true;
+                }
+            }
+            return false;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Report every call of an isolating processor, which creates a file without exactly one originating element.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the isolating processor
+     *
+     * @return true, if a call was reported as error
+     */
+    private boolean lintFilerCalls(TypeElement typeElement) {
+        List<ProcessorSource.FilerCall> calls = this.processorSource.getFilerCalls(typeElement);
+        if (calls == null) {
+            return false;
+        }
+        Diagnostic.Kind level = this.levels.get(Rule.ISOLATING);
+        boolean reported = false;
+        for (ProcessorSource.FilerCall call : calls) {
+            if (call.getOriginatingElements() == 1) {
+                continue;
+            }
+            String passed = call.getOriginatingElements() == ProcessorSource.UNKNOWN_ORIGINATING_ELEMENTS
+                    ? "an array of originating elements"
+                    : call.getOriginatingElements() + " originating elements";
+            this.processorSource.printMessage(level, typeElement.getQualifiedName() + " is an isolating processor, "
+                    + "but calls " + call.getMethodName() + " with " + passed + " instead of exactly one, so Gradle "
+                    + "recompiles all sources or keeps stale files. " + getSuffix(Rule.ISOLATING), call);
+            reported = true;
+        }
+        return reported && level == Diagnostic.Kind.ERROR;
+    }
+
+    /**
+     * Report a finding of a rule with its level.
+     *
+     * @param rule
+     *            {@link Rule} of the finding
+     * @param element
+     *            {@link Element} of the finding, the processor or one of its members
+     * @param message
+     *            Message of the finding
+     *
+     * @return true, if the finding was reported as error
+     */
+    private boolean report(Rule rule, Element element, String message) {
+        Diagnostic.Kind level = this.levels.get(rule);
+        if (level == null) {
+            return false;
+        }
+        this.processingEnv.getMessager().printMessage(level, message + " " + getSuffix(rule), element);
+        return level == Diagnostic.Kind.ERROR;
+    }
+
+    /**
+     * Get the suffix of the messages of a rule, which names the rule.
+     *
+     * @param rule
+     *            {@link Rule}
+     *
+     * @return suffix of the messages
+     */
+    private static String getSuffix(Rule rule) {
+        return "[" + LINT_OPTION + ":" + rule.getOptionName() + "]";
+    }
+
+    /**
+     * Get the supported annotation types of a processor, declared with {@link SupportedAnnotationTypes} on the class
+     * itself or as string literals in the nearest declaration of <code>getSupportedAnnotationTypes()</code>.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return supported annotation types
+     */
+    private List<String> getSupportedAnnotationTypes(TypeElement typeElement) {
+        List<String> supportedTypes = ProcessorSource.getAnnotationValues(typeElement,
+                SupportedAnnotationTypes.class.getName());
+        List<String> literals = this.processorSource.getStringLiterals(typeElement, "getSupportedAnnotationTypes", 0);
+        if (literals != null) {
+            supportedTypes.addAll(literals);
+        }
+        return supportedTypes;
+    }
+
+    /**
+     * Check if every <code>return</code> of the nearest declaration of <code>process</code> returns the literal
+     * <code>false</code>.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if the processor never claims its annotations, false if it may or if the source of the method is
+     *         not available
+     */
+    private boolean isNeverClaiming(TypeElement typeElement) {
+        ExecutableElement process = ProcessorSource.getMethod(typeElement, "process", 2);
+        MethodTree method = process == null ? null : this.processorSource.getMethodTree(process);
+        if (method == null) {
+            return false;
+        }
+        final boolean[] returns = new boolean[2];
+        method.getBody().accept(new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitReturn(ReturnTree returnTree, Void p) {
+                boolean isFalse = returnTree.getExpression() instanceof LiteralTree
+                        && Boolean.FALSE.equals(((LiteralTree) returnTree.getExpression()).getValue());
+                returns[isFalse ? 0 : 1] = true;
+                return null;
+            }
+
+            @Override
+            public Void visitClass(ClassTree classTree, Void p) {
+                return null;
+            }
+        }, null);
+        return returns[0] && !returns[1];
+    }
+
+    /**
+     * Check if a processor is registered as Gradle incremental processor, either with
+     * {@link AnnotationProcessor#incremental()}, in the {@value #GRADLE_INCREMENTAL_FILE} of the class output or with a
+     * Gradle option in {@link SupportedOptions}.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if the processor is incremental
+     */
+    private boolean isIncremental(TypeElement typeElement) {
+        AnnotationProcessor annotationProcessor = typeElement.getAnnotation(AnnotationProcessor.class);
+        if (annotationProcessor != null && annotationProcessor.incremental() != AnnotationProcessor.Incremental.NONE) {
+            return true;
+        }
+        for (String option : ProcessorSource.getAnnotationValues(typeElement, SupportedOptions.class.getName())) {
+            if (option.startsWith(GRADLE_OPTION_PREFIX)) {
+                return true;
+            }
+        }
+        return getGradleIncrementalCategory(typeElement) != null;
+    }
+
+    /**
+     * Check if a processor is an isolating Gradle incremental processor, either with
+     * {@link AnnotationProcessor#incremental()}, in the {@value #GRADLE_INCREMENTAL_FILE} of the class output or, for
+     * a {@link AnnotationProcessor.Incremental#DYNAMIC} processor, by advertising only the isolating option.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if the processor is isolating
+     */
+    private boolean isIsolating(TypeElement typeElement) {
+        AnnotationProcessor annotationProcessor = typeElement.getAnnotation(AnnotationProcessor.class);
+        AnnotationProcessor.Incremental incremental = annotationProcessor == null ? AnnotationProcessor.Incremental.NONE
+                : annotationProcessor.incremental();
+        if (incremental == AnnotationProcessor.Incremental.ISOLATING) {
+            return true;
+        }
+        if (incremental == AnnotationProcessor.Incremental.DYNAMIC) {
+            List<String> options = this.processorSource.getStringLiterals(typeElement, "getSupportedOptions", 0);
+            if (options == null) {
+                return false;
+            }
+            options.addAll(ProcessorSource.getAnnotationValues(typeElement, SupportedOptions.class.getName()));
+            return options.contains(GRADLE_OPTION_PREFIX + GRADLE_ISOLATING)
+                    && !options.contains(GRADLE_OPTION_PREFIX + "aggregating");
+        }
+        return GRADLE_ISOLATING.equals(getGradleIncrementalCategory(typeElement));
+    }
+
+    /**
+     * Get the category of a processor in the {@value #GRADLE_INCREMENTAL_FILE} of the class output.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return category of the processor, null if it is not listed
+     */
+    private String getGradleIncrementalCategory(TypeElement typeElement) {
+        if (this.gradleIncrementalProcessors == null) {
+            this.gradleIncrementalProcessors = readGradleIncrementalFile();
+        }
+        return this.gradleIncrementalProcessors
+                .get(this.processingEnv.getElementUtils().getBinaryName(typeElement).toString());
+    }
+
+    /**
+     * Read the processors of the {@value #GRADLE_INCREMENTAL_FILE} of the class output.
+     *
+     * @return categories of the processors by their binary names
+     */
+    private Map<String, String> readGradleIncrementalFile() {
+        Map<String, String> processors = new HashMap<String, String>();
+        BufferedReader reader = null;
+        try {
+            FileObject file = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    GRADLE_INCREMENTAL_FILE);
+            reader = new BufferedReader(new InputStreamReader(file.openInputStream(), Charset.forName(CHARSET)));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(',');
+                if (separator > 0) {
+                    processors.put(line.substring(0, separator).trim(),
+                            line.substring(separator + 1).trim().toLowerCase(Locale.ENGLISH));
+                }
+            }
+        } catch (IOException e) {
+            // There is no Gradle registration
+        } finally {
+            ProcessingUtils.close(reader);
+        }
+        return processors;
+    }
+}
@@ -0,0 +1,164 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.util.ProfilingProcessor;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.SourceVersion;
+import javax.tools.Diagnostic;
+import java.util.Map;
+
+/**
+ * <p>
+ * Options of {@link AnnotationProcessorProcessor}, parsed once in its initialization. An option with an invalid value
+ * is reported as warning and ignored.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProcessorOptions {
+
+    /**
+     * Format of the report, see {@link ProcessingReport}.
+     */
+    static final String REPORT_OPTION = "annotationprocessor.report";
+
+    /**
+     * Qualified class name of the processor index, see {@link ProcessorIndexWriter}.
+     */
+    static final String INDEX_OPTION = "annotationprocessor.index";
+
+    /**
+     * Rules of the lint, see {@link ProcessorLint}.
+     */
+    static final String LINT_OPTION = "annotationprocessor.lint";
+
+    /**
+     * Generation of lazy processors, see {@link LazyProcessorWriter}.
+     */
+    static final String LAZY_OPTION = "annotationprocessor.lazy";
+
+    /**
+     * Class-loading report of all processors, see {@link ProfilingProcessorWriter}.
+     */
+    static final String CLASS_LOADING_OPTION = ProfilingProcessor.CLASS_LOADING_OPTION;
+
+    private final ProcessingReport report;
+    private final String indexName;
+    private final String lintRules;
+    private final boolean lazy;
+    private final boolean classLoadingReport;
+
+    /**
+     * Parse the options.
+     *
+     * @param options
+     *            Options of the processing environment
+     * @param messager
+     *            {@link Messager} for the warnings about invalid values
+     */
+    ProcessorOptions(Map<String, String> options, Messager messager) {
+        String reportOption = options.get(REPORT_OPTION);
+        ProcessingReport processingReport = null;
+        if (reportOption != null) {
+            if (reportOption.trim().equals(ProcessingReport.FORMAT_JSON)) {
+                processingReport = new ProcessingReport();
+            } else {
+                messager.printMessage(Diagnostic.Kind.WARNING, REPORT_OPTION + " must be "
+                        + ProcessingReport.FORMAT_JSON + ", but is " + reportOption + ". No report is written.");
+            }
+        }
+        this.report = processingReport;
+
+        String indexOption = options.get(INDEX_OPTION);
+        String index = null;
+        if (indexOption != null) {
+            if (SourceVersion.isName(indexOption.trim())) {
+                index = indexOption.trim();
+            } else {
+                messager.printMessage(Diagnostic.Kind.WARNING, INDEX_OPTION + " must be a qualified class name, "
+                        + "but is " + indexOption + ". No processor index is generated.");
+            }
+        }
+        this.indexName = index;
+
+        this.lintRules = options.get(LINT_OPTION);
+
+        String lazyOption = options.get(LAZY_OPTION);
+        this.lazy = lazyOption != null && lazyOption.trim().equals("true");
+
+        String classLoadingOption = options.get(CLASS_LOADING_OPTION);
+        boolean classLoading = false;
+        if (classLoadingOption != null) {
+            if (classLoadingOption.trim().equals(ProfilingProcessor.CLASS_LOADING_REPORT)) {
+                classLoading = true;
+            } else {
+                messager.printMessage(Diagnostic.Kind.WARNING, CLASS_LOADING_OPTION + " must be "
+                        + ProfilingProcessor.CLASS_LOADING_REPORT + ", but is " + classLoadingOption
+                        + ". Only processors declaring profile are profiled.");
+            }
+        }
+        this.classLoadingReport = classLoading;
+    }
+
+    /**
+     * @return report of this compilation, null if {@value #REPORT_OPTION} is not set to
+     *         {@value ProcessingReport#FORMAT_JSON}
+     */
+    ProcessingReport getReport() {
+        return this.report;
+    }
+
+    /**
+     * @return qualified name of the processor index, null if no index is generated
+     */
+    String getIndexName() {
+        return this.indexName;
+    }
+
+    /**
+     * @return value of {@value #LINT_OPTION}, null if it is not set
+     */
+    String getLintRules() {
+        return this.lintRules;
+    }
+
+    /**
+     * @return true, if lazy processors are generated
+     */
+    boolean isLazy() {
+        return this.lazy;
+    }
+
+    /**
+     * @return true, if a profiling processor is generated for every processor
+     */
+    boolean isClassLoadingReport() {
+        return this.classLoadingReport;
+    }
+}
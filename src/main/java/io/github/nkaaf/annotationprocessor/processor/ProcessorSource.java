@@ -0,0 +1,357 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import com.sun.source.tree.*;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Access to the declarations of a processor: the values of its annotations and, with the {@link Trees} API of javac,
+ * the bodies of its methods.
+ * </p>
+ *
+ * <p>
+ * The method bodies are only available for classes compiled from source by javac. With another compiler, or for
+ * classes of the class path, only the annotations are available.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProcessorSource {
+
+    /**
+     * Number of originating elements of a {@link FilerCall}, which passes them as array.
+     */
+    static final int UNKNOWN_ORIGINATING_ELEMENTS = -1;
+
+    private static final List<String> FILER_METHOD_NAMES = Arrays.asList("createSourceFile", "createClassFile",
+            "createResource");
+
+    private final Trees trees;
+
+    /**
+     * Create the access for a processing environment.
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment} of the processor
+     */
+    ProcessorSource(ProcessingEnvironment processingEnv) {
+        this.trees = getTrees(processingEnv);
+    }
+
+    /**
+     * Get the {@link Trees} of javac.
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment} of the processor
+     *
+     * @return {@link Trees} or null, if the compiler is not javac
+     */
+    private static Trees getTrees(ProcessingEnvironment processingEnv) {
+        try {
+            return Trees.instance(processingEnv);
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the string values of the annotation <code>value</code> of a class.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     * @param annotationName
+     *            Canonical name of the annotation
+     *
+     * @return string values, empty if the class is not annotated
+     */
+    static List<String> getAnnotationValues(TypeElement typeElement, String annotationName) {
+        List<String> values = new ArrayList<String>();
+        for (AnnotationMirror annotation : typeElement.getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(annotationName)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+                    .getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) {
+                    continue;
+                }
+                Object value = entry.getValue().getValue();
+                if (value instanceof List<?>) {
+                    for (Object element : (List<?>) value) {
+                        values.add(String.valueOf(((AnnotationValue) element).getValue()));
+                    }
+                } else {
+                    values.add(String.valueOf(value));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get the string literals of the nearest declaration of a method in a class or its superclasses, below
+     * {@link AbstractProcessor}. Literals of nested classes are left out.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     * @param name
+     *            Name of the method
+     * @param parameters
+     *            Number of parameters of the method
+     *
+     * @return string literals of the method, empty if it is not declared, null if its source is not available
+     */
+    List<String> getStringLiterals(TypeElement typeElement, String name, int parameters) {
+        ExecutableElement method = getMethod(typeElement, name, parameters);
+        if (method == null) {
+            return new ArrayList<String>();
+        }
+        MethodTree methodTree = getMethodTree(method);
+        if (methodTree == null) {
+            return null;
+        }
+        final List<String> literals = new ArrayList<String>();
+        methodTree.getBody().accept(new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitLiteral(LiteralTree literal, Void p) {
+                if (literal.getValue() instanceof String) {
+                    literals.add((String) literal.getValue());
+                }
+                return null;
+            }
+
+            @Override
+            public Void visitClass(ClassTree classTree, Void p) {
+                return null;
+            }
+        }, null);
+        return literals;
+    }
+
+    /**
+     * Get the nearest declaration of a method with a body in a class or its superclasses, below
+     * {@link AbstractProcessor}.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     * @param name
+     *            Name of the method
+     * @param parameters
+     *            Number of parameters of the method
+     *
+     * @return {@link ExecutableElement} of the method, null if it is not declared
+     */
+    static ExecutableElement getMethod(TypeElement typeElement, String name, int parameters) {
+        for (TypeElement type = typeElement; isBelowAbstractProcessor(type); type = getSuperclass(type)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                        && !method.getModifiers().contains(Modifier.ABSTRACT)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBelowAbstractProcessor(TypeElement type) {
+        return type != null && !type.getQualifiedName().contentEquals(AbstractProcessor.class.getName());
+    }
+
+    private static TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+    }
+
+    /**
+     * Get the tree of a method.
+     *
+     * @param method
+     *            {@link ExecutableElement} of the method
+     *
+     * @return {@link MethodTree} of the method with a body, null if its source is not available or the compiler is
+     *         not javac
+     */
+    MethodTree getMethodTree(ExecutableElement method) {
+        if (this.trees == null) {
+            return null;
+        }
+        MethodTree methodTree = this.trees.getTree(method);
+        return methodTree == null || methodTree.getBody() == null ? null : methodTree;
+    }
+
+    /**
+     * Get the calls of {@link Filer#createSourceFile(CharSequence, Element...)},
+     * {@link Filer#createClassFile(CharSequence, Element...)} and
+     * {@link Filer#createResource(javax.tools.JavaFileManager.Location, CharSequence, CharSequence, Element...)} in
+     * the methods of a class and its superclasses, below {@link AbstractProcessor}. Methods without available source
+     * are left out.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     *
+     * @return {@link FilerCall}s in the order of the source, null if the compiler is not javac
+     */
+    List<FilerCall> getFilerCalls(TypeElement typeElement) {
+        if (this.trees == null) {
+            return null;
+        }
+        final List<FilerCall> calls = new ArrayList<FilerCall>();
+        TreePathScanner<Void, Void> scanner = new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree invocation, Void p) {
+                Element method = ProcessorSource.this.trees.getElement(getCurrentPath());
+                if (method instanceof ExecutableElement && isFilerMethod((ExecutableElement) method)) {
+                    calls.add(new FilerCall(method.getSimpleName().toString(),
+                            countOriginatingElements((ExecutableElement) method, invocation, getCurrentPath()),
+                            invocation, getCurrentPath().getCompilationUnit()));
+                }
+                return super.visitMethodInvocation(invocation, p);
+            }
+        };
+        for (TypeElement type = typeElement; isBelowAbstractProcessor(type); type = getSuperclass(type)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                TreePath path = this.trees.getPath(method);
+                if (path != null) {
+                    scanner.scan(path, null);
+                }
+            }
+        }
+        return calls;
+    }
+
+    private static boolean isFilerMethod(ExecutableElement method) {
+        return FILER_METHOD_NAMES.contains(method.getSimpleName().toString())
+                && ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals(Filer.class.getName());
+    }
+
+    /**
+     * Count the originating elements of a call of a {@link Filer} method. They are the variable arguments of the
+     * method.
+     *
+     * @param method
+     *            {@link ExecutableElement} of the {@link Filer} method
+     * @param invocation
+     *            {@link MethodInvocationTree} of the call
+     * @param path
+     *            {@link TreePath} of the call
+     *
+     * @return Number of originating elements, {@link #UNKNOWN_ORIGINATING_ELEMENTS} if they are passed as array
+     */
+    private int countOriginatingElements(ExecutableElement method, MethodInvocationTree invocation, TreePath path) {
+        int fixedParameters = method.getParameters().size() - 1;
+        List<? extends ExpressionTree> arguments = invocation.getArguments();
+        if (arguments.size() == fixedParameters + 1) {
+            TypeMirror lastArgument = this.trees.getTypeMirror(new TreePath(path, arguments.get(fixedParameters)));
+            if (lastArgument != null && lastArgument.getKind() == TypeKind.ARRAY) {
+                return UNKNOWN_ORIGINATING_ELEMENTS;
+            }
+        }
+        return arguments.size() - fixedParameters;
+    }
+
+    /**
+     * Print a message at a {@link FilerCall}.
+     *
+     * @param kind
+     *            {@link Diagnostic.Kind} of the message
+     * @param message
+     *            Message
+     * @param call
+     *            {@link FilerCall} to print the message at
+     */
+    void printMessage(Diagnostic.Kind kind, String message, FilerCall call) {
+        this.trees.printMessage(kind, message, call.getTree(), call.getCompilationUnit());
+    }
+
+    /**
+     * Call of a {@link Filer} method, which creates a file, in the source of a processor.
+     */
+    static final class FilerCall {
+
+        private final String methodName;
+        private final int originatingElements;
+        private final Tree tree;
+        private final CompilationUnitTree compilationUnit;
+
+        /**
+         * Create a new call.
+         *
+         * @param methodName
+         *            Name of the {@link Filer} method
+         * @param originatingElements
+         *            Number of originating elements, {@link #UNKNOWN_ORIGINATING_ELEMENTS} if they are passed as array
+         * @param tree
+         *            {@link Tree} of the call
+         * @param compilationUnit
+         *            {@link CompilationUnitTree} of the call
+         */
+        FilerCall(String methodName, int originatingElements, Tree tree, CompilationUnitTree compilationUnit) {
+            this.methodName = methodName;
+            this.originatingElements = originatingElements;
+            this.tree = tree;
+            this.compilationUnit = compilationUnit;
+        }
+
+        String getMethodName() {
+            return this.methodName;
+        }
+
+        int getOriginatingElements() {
+            return this.originatingElements;
+        }
+
+        Tree getTree() {
+            return this.tree;
+        }
+
+        CompilationUnitTree getCompilationUnit() {
+            return this.compilationUnit;
+        }
+    }
+}
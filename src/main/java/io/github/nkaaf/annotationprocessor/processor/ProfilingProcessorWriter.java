@@ -0,0 +1,176 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor;
+import io.github.nkaaf.annotationprocessor.util.ProfilingProcessor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+/**
+ * <p>
+ * Generator of the source of a profiling processor, written by {@link AnnotationProcessorProcessor} for processors
+ * with {@link io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor#profile()}.
+ * </p>
+ *
+ * <p>
+ * The generated class is a top level class next to the processor, which extends {@link ProfilingProcessor} and
+ * instantiates the processor with a direct constructor call, after beginning its construction, so that the class
+ * loading of the construction is measured. The supported annotation types of the processor are
+ * copied, so that the compiler presents the same annotations to it. The generated source is compatible with Java 6.
+ * </p>
+ *
+ * <p>
+ * The profiling processor is not registered in the service file, because it needs this library on the processor path.
+ * It is listed next to the processor in <code>META-INF/annotationprocessor/profiling.processors</code>, which a
+ * profiling harness opts into, e.g. <code>ProcessorProfiler --profiled</code> of the profiler project, or which is
+ * passed to javac with <code>-processor</code>.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProfilingProcessorWriter {
+
+    /**
+     * Suffix of the simple name of a profiling processor.
+     */
+    static final String SUFFIX = "_Profiled";
+
+    private ProfilingProcessorWriter() {
+    }
+
+    /**
+     * Check if a profiling processor is generated for a processor, i.e. it declares
+     * {@link AnnotationProcessor#profile()} or the class-loading report is enabled, and it can be instantiated by the
+     * profiling processor.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     * @param classLoadingReport
+     *            true, if the class-loading report is enabled
+     *
+     * @return true, if the processor is profiled
+     */
+    static boolean isProfiled(TypeElement typeElement, boolean classLoadingReport) {
+        return (declaresProfile(typeElement) || classLoadingReport) && ProcessingUtils.isInstantiable(typeElement);
+    }
+
+    /**
+     * Check if a processor declares {@link AnnotationProcessor#profile()}.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     *
+     * @return true, if the processor declares to be profiled
+     */
+    private static boolean declaresProfile(TypeElement typeElement) {
+        AnnotationProcessor annotationProcessor = typeElement.getAnnotation(AnnotationProcessor.class);
+        return annotationProcessor != null && annotationProcessor.profile();
+    }
+
+    /**
+     * Generate the profiling processor of a processor with {@link AnnotationProcessor#profile()}, or of any processor,
+     * if the class-loading report is enabled. A processor, which cannot be instantiated by a profiling processor,
+     * because it is not a public class with a public no-arg constructor, gets no profiling processor and a warning,
+     * or a note, if it does not declare {@link AnnotationProcessor#profile()}.
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment}
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     * @param classLoadingReport
+     *            true, if the class-loading report is enabled
+     * @param report
+     *            {@link ProcessingReport} or null, if the report is disabled
+     *
+     * @return qualified name of the profiling processor, null if none is generated
+     */
+    static String write(ProcessingEnvironment processingEnv, TypeElement typeElement, boolean classLoadingReport,
+            ProcessingReport report) {
+        boolean profile = declaresProfile(typeElement);
+        if (!profile && !classLoadingReport) {
+            return null;
+        }
+        if (!ProcessingUtils.isInstantiable(typeElement)) {
+            processingEnv.getMessager().printMessage(profile ? Diagnostic.Kind.WARNING : Diagnostic.Kind.NOTE,
+                    typeElement.getQualifiedName() + " is not a public class with a public no-arg constructor. "
+                            + "It is registered without profiling.", typeElement);
+            return null;
+        }
+
+        String profilingProcessorName = SourceWriter.getGeneratedProcessorName(typeElement, SUFFIX);
+        SourceWriter.write(processingEnv.getFiler(), report, profilingProcessorName,
+                toSource(profilingProcessorName, typeElement.getQualifiedName().toString(),
+                        ProcessingUtils.getSupportedAnnotationTypes(typeElement)),
+                typeElement);
+        return profilingProcessorName;
+    }
+
+    /**
+     * Create the source of a profiling processor.
+     *
+     * @param qualifiedName
+     *            Qualified name of the generated class
+     * @param processorName
+     *            Canonical name of the profiled processor
+     * @param annotationTypes
+     *            Supported annotation types of the processor, null if they are not declared with
+     *            {@link javax.annotation.processing.SupportedAnnotationTypes}
+     *
+     * @return source of the generated class
+     */
+    static String toSource(String qualifiedName, String processorName, String[] annotationTypes) {
+        int lastDot = qualifiedName.lastIndexOf('.');
+        String simpleName = qualifiedName.substring(lastDot + 1);
+
+        StringBuilder source = new StringBuilder();
+        if (lastDot > 0) {
+            source.append("package ").append(qualifiedName.substring(0, lastDot)).append(";\n\n");
+        }
+        source.append("/**\n");
+        source.append(" * Profiling processor of ").append(processorName).append(", generated by\n");
+        source.append(" * ").append(AnnotationProcessorProcessor.class.getCanonicalName()).append(".\n");
+        source.append(" */\n");
+        if (annotationTypes != null) {
+            source.append("@javax.annotation.processing.SupportedAnnotationTypes({");
+            for (String annotationType : annotationTypes) {
+                source.append(' ').append(SourceWriter.quote(annotationType)).append(',');
+            }
+            source.append(" })\n");
+        }
+        source.append("public final class ").append(simpleName).append(" extends ")
+                .append(ProfilingProcessor.class.getCanonicalName()).append(" {\n\n");
+        SourceWriter.indent(source, 1).append("public ").append(simpleName).append("() {\n");
+        SourceWriter.indent(source, 2).append("super(").append(ProfilingProcessor.class.getCanonicalName())
+                .append(".beginConstruction(), new ").append(processorName).append("());\n");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append("}\n");
+        return source.toString();
+    }
+}
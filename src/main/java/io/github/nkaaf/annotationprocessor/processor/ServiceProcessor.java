@@ -0,0 +1,364 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.annotation.Service;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.*;
+import java.util.*;
+
+/**
+ * <p>
+ * Processor for {@link Service}.
+ * </p>
+ *
+ * <p>
+ * This processor checks if your service providers can be loaded by {@link java.util.ServiceLoader}. If all providers
+ * are set up correctly, their binary names will be added to one service file per service.
+ * </p>
+ *
+ * <p>
+ * Like the processors of {@link AnnotationProcessorProcessor}, the providers are recorded in a state file together
+ * with the source they are declared in, so that a partial recompilation does not drop the providers of unchanged
+ * sources.
+ * </p>
+ *
+ * <p>
+ * With the option {@value #REGISTRY_OPTION} set to a qualified class name, a registry with that name is generated. It
+ * instantiates the providers of a service with direct constructor calls, so applications can enumerate them without
+ * scanning the class path.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+@SupportedAnnotationTypes("io.github.nkaaf.annotationprocessor.annotation.Service")
+@SupportedOptions(ServiceProcessor.REGISTRY_OPTION)
+public class ServiceProcessor extends AbstractProcessor {
+
+    private static final String SERVICES_DIRECTORY = "META-INF" + File.separator + "services" + File.separator;
+    private static final String SERVICE_STATE_FILE = "META-INF" + File.separator + "annotationprocessor"
+            + File.separator + "services.state";
+    private static final String STATE_SEPARATOR = "=";
+
+    static final String REGISTRY_OPTION = "annotationprocessor.service.registry";
+
+    private boolean generateServiceFiles = true;
+
+    private String registryName;
+    private boolean registryGenerated;
+
+    /**
+     * State file of the providers. An entry is the binary name of a service and of a provider, separated by
+     * {@link #STATE_SEPARATOR}.
+     */
+    private final StateFile stateFile = new StateFile(SERVICE_STATE_FILE);
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        String registryOption = processingEnv.getOptions().get(REGISTRY_OPTION);
+        if (registryOption != null) {
+            if (SourceVersion.isName(registryOption.trim())) {
+                this.registryName = registryOption.trim();
+            } else {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, REGISTRY_OPTION + " must be a "
+                        + "qualified class name, but is " + registryOption + ". No service registry is generated.");
+            }
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!roundEnv.processingOver()) {
+            List<TypeElement> roundProviders = checkProviders(roundEnv);
+            if (this.registryName != null && this.generateServiceFiles && !roundProviders.isEmpty()) {
+                writeRegistry(roundProviders);
+            }
+        } else {
+            if (this.generateServiceFiles) {
+                writeServiceFiles();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if classes annotated with {@link Service} can be loaded as providers of their services and record them.
+     *
+     * @param roundEnv
+     *            {@link RoundEnvironment}
+     *
+     * @return {@link List} of the annotated classes of this round
+     */
+    private List<TypeElement> checkProviders(RoundEnvironment roundEnv) {
+        this.stateFile.addSources(roundEnv);
+
+        TypeElement serviceType = processingEnv.getElementUtils().getTypeElement(Service.class.getCanonicalName());
+        List<TypeElement> roundProviders = new ArrayList<TypeElement>(
+                ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(serviceType)));
+        for (TypeElement provider : roundProviders) {
+            String providerName = getBinaryName(provider);
+            if (!ProcessingUtils.isInstantiable(provider)) {
+                createError(provider, providerName + " cannot be loaded by " + ServiceLoader.class.getCanonicalName()
+                        + ", because it is not a public class with a public no-arg constructor.");
+                continue;
+            }
+
+            List<TypeMirror> services = getServices(provider);
+            if (services.isEmpty()) {
+                createError(provider, providerName + " does not declare a service.");
+                continue;
+            }
+            for (TypeMirror service : services) {
+                if (!(service instanceof DeclaredType)) {
+                    createError(provider, service + " cannot be a service.");
+                    continue;
+                }
+                if (!processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(provider.asType()),
+                        processingEnv.getTypeUtils().erasure(service))) {
+                    createError(provider, providerName + " is not assignable to service " + service + ".");
+                    continue;
+                }
+                String serviceName = getBinaryName((TypeElement) ((DeclaredType) service).asElement());
+                this.stateFile.addEntry(provider, serviceName + STATE_SEPARATOR + providerName);
+            }
+        }
+        return roundProviders;
+    }
+
+    /**
+     * Get the services declared by {@link Service#value()}. The classes are read from the annotation mirror, because
+     * they are not loadable while compiling.
+     *
+     * @param provider
+     *            {@link TypeElement} of the annotated class
+     *
+     * @return {@link List} of the services
+     */
+    private List<TypeMirror> getServices(TypeElement provider) {
+        List<TypeMirror> services = new ArrayList<TypeMirror>();
+        for (AnnotationMirror annotation : provider.getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(Service.class.getCanonicalName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+                    .getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) {
+                    continue;
+                }
+                Object value = entry.getValue().getValue();
+                if (value instanceof List) {
+                    for (Object element : (List<?>) value) {
+                        Object service = ((AnnotationValue) element).getValue();
+                        if (service instanceof TypeMirror) {
+                            services.add((TypeMirror) service);
+                        }
+                    }
+                } else if (value instanceof TypeMirror) {
+                    services.add((TypeMirror) value);
+                }
+            }
+        }
+        return services;
+    }
+
+    /**
+     * Get the binary name of a class, which is used by {@link ServiceLoader}, e.g. <code>a.Outer$Inner</code>.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     *
+     * @return binary name of the class
+     */
+    private String getBinaryName(TypeElement typeElement) {
+        return processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+    }
+
+    /**
+     * Throws a compiler error and prevents service files from being created.
+     *
+     * @param provider
+     *            {@link TypeElement} of the annotated class
+     * @param message
+     *            Error message
+     */
+    private void createError(TypeElement provider, String message) {
+        this.generateServiceFiles = false;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, provider);
+    }
+
+    /**
+     * Write the binary names of the providers to the service file of each service. The providers of this compilation
+     * are merged with the ones of the state file before. Services which had providers in a previous compilation, but
+     * have none anymore, get an empty service file. The providers of all rounds are resolved again by their binary
+     * names as originating elements, because the elements of a round are not kept.
+     */
+    private void writeServiceFiles() {
+        Map<String, Set<String>> previousState = this.stateFile.read(processingEnv.getFiler());
+        Map<String, Set<String>> state = this.stateFile.merge(previousState, processingEnv.getElementUtils());
+        List<Element> providers = new ArrayList<Element>();
+        for (Set<String> providerNames : getProvidersByService(this.stateFile.getEntries()).values()) {
+            for (String providerName : providerNames) {
+                TypeElement provider = getTypeElement(providerName);
+                if (provider != null && !providers.contains(provider)) {
+                    providers.add(provider);
+                }
+            }
+        }
+        Element[] originatingElements = providers.toArray(new Element[0]);
+        write(this.stateFile.getPath(), StateFile.toLines(state), originatingElements);
+
+        Map<String, Set<String>> providersByService = new LinkedHashMap<String, Set<String>>();
+        for (String service : getProvidersByService(previousState).keySet()) {
+            providersByService.put(service, new LinkedHashSet<String>());
+        }
+        for (Map.Entry<String, Set<String>> entry : getProvidersByService(state).entrySet()) {
+            providersByService.put(entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<String, Set<String>> entry : providersByService.entrySet()) {
+            write(SERVICES_DIRECTORY + entry.getKey(), entry.getValue(), originatingElements);
+        }
+    }
+
+    /**
+     * Group the entries of a state by service.
+     *
+     * @param state
+     *            {@link Map} of sources and their entries
+     *
+     * @return {@link Map} of the binary names of the services and of their providers
+     */
+    private static Map<String, Set<String>> getProvidersByService(Map<String, Set<String>> state) {
+        Map<String, Set<String>> providersByService = new LinkedHashMap<String, Set<String>>();
+        for (Set<String> entries : state.values()) {
+            for (String entry : entries) {
+                int separator = entry.indexOf(STATE_SEPARATOR);
+                if (separator <= 0 || separator == entry.length() - 1) {
+                    continue;
+                }
+                String service = entry.substring(0, separator);
+                Set<String> serviceProviders = providersByService.get(service);
+                if (serviceProviders == null) {
+                    serviceProviders = new LinkedHashSet<String>();
+                    providersByService.put(service, serviceProviders);
+                }
+                serviceProviders.add(entry.substring(separator + 1));
+            }
+        }
+        return providersByService;
+    }
+
+    /**
+     * <p>
+     * Generate the service registry for the same providers as the service files.
+     * </p>
+     *
+     * <p>
+     * Like the processor index of {@link AnnotationProcessorProcessor}, the registry is generated in the first round
+     * with annotated classes. Annotated classes of later rounds are left out with a warning.
+     * </p>
+     *
+     * @param roundProviders
+     *            {@link List} of the annotated classes of this round
+     *
+     * @see ServiceRegistryWriter
+     */
+    private void writeRegistry(List<TypeElement> roundProviders) {
+        if (this.registryGenerated) {
+            for (TypeElement provider : roundProviders) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, provider.getQualifiedName()
+                        + " is generated after " + this.registryName + ". It is not added to the registry.", provider);
+            }
+            return;
+        }
+        this.registryGenerated = true;
+
+        ServiceRegistryWriter registryWriter = new ServiceRegistryWriter(this.registryName);
+        for (Map.Entry<String, Set<String>> entry : getProvidersByService(this.stateFile.merge(
+                this.stateFile.read(processingEnv.getFiler()), processingEnv.getElementUtils())).entrySet()) {
+            TypeElement service = getTypeElement(entry.getKey());
+            if (service == null) {
+                continue;
+            }
+            for (String providerName : entry.getValue()) {
+                TypeElement provider = getTypeElement(providerName);
+                if (provider != null) {
+                    registryWriter.addProvider(service.getQualifiedName().toString(), entry.getKey(),
+                            provider.getQualifiedName().toString(), providerName);
+                }
+            }
+        }
+
+        SourceWriter.write(processingEnv.getFiler(), null, this.registryName, registryWriter.toSource(),
+                roundProviders.toArray(new Element[0]));
+    }
+
+    /**
+     * Get a class by its binary name.
+     *
+     * @param binaryName
+     *            Binary name of the class
+     *
+     * @return {@link TypeElement} of the class, null if it cannot be found
+     */
+    private TypeElement getTypeElement(String binaryName) {
+        return ProcessingUtils.getTypeElement(processingEnv.getElementUtils(), binaryName);
+    }
+
+    /**
+     * Write lines to a resource of the class output with {@link LineResourceWriter}.
+     *
+     * @param file
+     *            Path of the resource, relative to the class output
+     * @param lines
+     *            Lines of the resource
+     * @param originatingElements
+     *            originating elements of the resource
+     */
+    private void write(String file, Collection<String> lines, Element[] originatingElements) {
+        try {
+            LineResourceWriter.write(processingEnv.getFiler(), file, lines, originatingElements);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Generator of the source of a service registry, written by {@link ServiceProcessor} if the option
+ * {@value ServiceProcessor#REGISTRY_OPTION} is set.
+ * </p>
+ *
+ * <p>
+ * The generated class lists the providers of every service and instantiates them with direct constructor calls.
+ * Applications can enumerate the providers at startup without scanning the class path for service files and without
+ * reflection. The generated source is compatible with Java 6.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ServiceRegistryWriter {
+
+    private final String qualifiedName;
+
+    private final Map<String, String> serviceBinaryNames = new LinkedHashMap<String, String>();
+
+    /**
+     * Providers by the canonical name of their service. A provider is a pair of its canonical and binary name.
+     */
+    private final Map<String, List<String[]>> providersByService = new LinkedHashMap<String, List<String[]>>();
+
+    /**
+     * Create a new writer.
+     *
+     * @param qualifiedName
+     *            Qualified name of the generated class
+     */
+    ServiceRegistryWriter(String qualifiedName) {
+        this.qualifiedName = qualifiedName;
+    }
+
+    /**
+     * Add a provider of a service to the registry.
+     *
+     * @param serviceName
+     *            Canonical name of the service
+     * @param serviceBinaryName
+     *            Binary name of the service
+     * @param providerName
+     *            Canonical name of the provider
+     * @param providerBinaryName
+     *            Binary name of the provider
+     */
+    void addProvider(String serviceName, String serviceBinaryName, String providerName, String providerBinaryName) {
+        List<String[]> providers = this.providersByService.get(serviceName);
+        if (providers == null) {
+            providers = new ArrayList<String[]>();
+            this.serviceBinaryNames.put(serviceName, serviceBinaryName);
+            this.providersByService.put(serviceName, providers);
+        }
+        providers.add(new String[] { providerName, providerBinaryName });
+    }
+
+    /**
+     * Create the source of the registry.
+     *
+     * @return source of the generated class
+     */
+    String toSource() {
+        int lastDot = this.qualifiedName.lastIndexOf('.');
+        String simpleName = this.qualifiedName.substring(lastDot + 1);
+
+        StringBuilder source = new StringBuilder();
+        if (lastDot > 0) {
+            source.append("package ").append(this.qualifiedName.substring(0, lastDot)).append(";\n\n");
+        }
+        source.append("/**\n");
+        source.append(" * Registry of the service providers of this module, generated by\n");
+        source.append(" * ").append(ServiceProcessor.class.getCanonicalName()).append(".\n");
+        source.append(" */\n");
+        source.append("public final class ").append(simpleName).append(" {\n\n");
+
+        SourceWriter.indent(source, 1).append("private ").append(simpleName).append("() {\n");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @return binary names of the services with providers");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1, "public static java.util.List<String> getServiceNames() {");
+        SourceWriter.indent(source, 2).append("return java.util.Arrays.asList(new String[] {");
+        for (String serviceBinaryName : this.serviceBinaryNames.values()) {
+            source.append(' ').append(SourceWriter.quote(serviceBinaryName)).append(',');
+        }
+        source.append(" });\n");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @param service service");
+        SourceWriter.appendLine(source, 1,
+                " * @return binary names of the providers of the service, in the order of its");
+        SourceWriter.appendLine(source, 1, " *         service file");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1, "public static java.util.List<String> getProviderNames(Class<?> service) {");
+        for (Map.Entry<String, List<String[]>> entry : this.providersByService.entrySet()) {
+            SourceWriter.appendLine(source, 2, "if (service == " + entry.getKey() + ".class) {");
+            SourceWriter.indent(source, 3).append("return java.util.Arrays.asList(new String[] {");
+            for (String[] provider : entry.getValue()) {
+                source.append(' ').append(SourceWriter.quote(provider[1])).append(',');
+            }
+            source.append(" });\n");
+            SourceWriter.appendLine(source, 2, "}");
+        }
+        SourceWriter.appendLine(source, 2, "return java.util.Collections.emptyList();");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append('\n');
+
+        SourceWriter.appendLine(source, 1, "/**");
+        SourceWriter.appendLine(source, 1, " * @param <S> type of the service");
+        SourceWriter.appendLine(source, 1, " * @param service service");
+        SourceWriter.appendLine(source, 1,
+                " * @return new instances of the providers of the service, in the order of its");
+        SourceWriter.appendLine(source, 1, " *         service file");
+        SourceWriter.appendLine(source, 1, " */");
+        SourceWriter.appendLine(source, 1, "public static <S> java.util.List<S> newProviders(Class<S> service) {");
+        SourceWriter.appendLine(source, 2, "java.util.List<S> providers = new java.util.ArrayList<S>();");
+        for (Map.Entry<String, List<String[]>> entry : this.providersByService.entrySet()) {
+            SourceWriter.appendLine(source, 2, "if (service == " + entry.getKey() + ".class) {");
+            for (String[] provider : entry.getValue()) {
+                SourceWriter.appendLine(source, 3, "providers.add(service.cast(new " + provider[0] + "()));");
+            }
+            SourceWriter.appendLine(source, 2, "}");
+        }
+        SourceWriter.appendLine(source, 2, "return providers;");
+        SourceWriter.appendLine(source, 1, "}");
+        source.append("}\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * <p>
+ * Helpers of the generators of Java sources, like {@link ProcessorIndexWriter} and {@link LazyProcessorWriter}.
+ * </p>
+ *
+ * <p>
+ * The generated sources are indented with four spaces per level and quote strings as Java string literals.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class SourceWriter {
+
+    private static final String INDENT = "    ";
+    private static final String CHARSET = "UTF-8";
+
+    private SourceWriter() {
+    }
+
+    /**
+     * Append the indentation of a level.
+     *
+     * @param source
+     *            {@link StringBuilder} of the source
+     * @param depth
+     *            Level of the indentation
+     *
+     * @return the source
+     */
+    static StringBuilder indent(StringBuilder source, int depth) {
+        for (int i = 0; i < depth; i++) {
+            source.append(INDENT);
+        }
+        return source;
+    }
+
+    /**
+     * Append an indented line.
+     *
+     * @param source
+     *            {@link StringBuilder} of the source
+     * @param depth
+     *            Level of the indentation
+     * @param line
+     *            Line without line break
+     */
+    static void appendLine(StringBuilder source, int depth, String line) {
+        indent(source, depth).append(line).append('\n');
+    }
+
+    /**
+     * Quote a string as Java string literal.
+     *
+     * @param value
+     *            String to quote
+     *
+     * @return quoted string
+     */
+    static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * Get the qualified name of a processor generated for a processor. It is a top level class in the package of the
+     * processor, named after the simple names of the processor and its enclosing classes and a suffix, e.g.
+     * <code>a.Outer_Inner_Profiled</code> for <code>a.Outer.Inner</code>.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the processor
+     * @param suffix
+     *            Suffix of the simple name, e.g. {@value ProfilingProcessorWriter#SUFFIX}
+     *
+     * @return qualified name of the generated processor, which is also its binary name
+     */
+    static String getGeneratedProcessorName(TypeElement typeElement, String suffix) {
+        StringBuilder name = new StringBuilder(typeElement.getSimpleName()).append(suffix);
+        Element element = typeElement.getEnclosingElement();
+        while (element.getKind() != ElementKind.PACKAGE) {
+            name.insert(0, element.getSimpleName() + "_");
+            element = element.getEnclosingElement();
+        }
+        PackageElement packageElement = (PackageElement) element;
+        if (!packageElement.isUnnamed()) {
+            name.insert(0, packageElement.getQualifiedName() + ".");
+        }
+        return name.toString();
+    }
+
+    /**
+     * Write a generated source and record it in the report, if enabled.
+     *
+     * @param filer
+     *            {@link Filer} of the processing environment
+     * @param report
+     *            {@link ProcessingReport} or null, if the report is disabled
+     * @param qualifiedName
+     *            Qualified name of the generated class
+     * @param source
+     *            Source of the generated class
+     * @param originatingElements
+     *            originating elements of the source
+     */
+    static void write(Filer filer, ProcessingReport report, String qualifiedName, String source,
+            Element... originatingElements) {
+        byte[] bytes = source.getBytes(Charset.forName(CHARSET));
+        OutputStream outputStream = null;
+        try {
+            outputStream = filer.createSourceFile(qualifiedName, originatingElements).openOutputStream();
+            outputStream.write(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            ProcessingUtils.close(outputStream);
+        }
+        if (report != null) {
+            report.recordFile(qualifiedName.replace('.', '/') + ".java", bytes.length);
+        }
+    }
+}
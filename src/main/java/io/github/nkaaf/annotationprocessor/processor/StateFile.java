@@ -0,0 +1,203 @@
+package io.github.nkaaf.annotationprocessor.processor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * <p>
+ * State file of a processor, which maps the sources of previous compilations to the entries declared in them, e.g. the
+ * processors for {@link AnnotationProcessorProcessor} and the services and providers for {@link ServiceProcessor}.
+ * </p>
+ *
+ * <p>
+ * The entries of this compilation are recorded by source. Every source of this compilation gets an entry, even without
+ * entries, so that stale entries of the state file are replaced when the state is merged.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class StateFile {
+
+    private static final String SEPARATOR = "=";
+    private static final String CHARSET = "UTF-8";
+
+    private final String path;
+
+    private final Map<String, Set<String>> entriesBySource = new LinkedHashMap<String, Set<String>>();
+
+    /**
+     * Create a new state file.
+     *
+     * @param path
+     *            Path of the state file, relative to the class output
+     */
+    StateFile(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return path of the state file, relative to the class output
+     */
+    String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Record the sources compiled in a round.
+     *
+     * @param roundEnv
+     *            {@link RoundEnvironment}
+     */
+    void addSources(RoundEnvironment roundEnv) {
+        for (TypeElement rootElement : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            String source = ProcessingUtils.getSourceName(rootElement);
+            if (!this.entriesBySource.containsKey(source)) {
+                this.entriesBySource.put(source, new LinkedHashSet<String>());
+            }
+        }
+    }
+
+    /**
+     * Record an entry of the source a class is declared in.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     * @param entry
+     *            Entry, which must not contain line breaks
+     */
+    void addEntry(TypeElement typeElement, String entry) {
+        String source = ProcessingUtils.getSourceName(typeElement);
+        Set<String> entries = this.entriesBySource.get(source);
+        if (entries == null) {
+            entries = new LinkedHashSet<String>();
+            this.entriesBySource.put(source, entries);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * @return unmodifiable {@link Map} of the sources of this compilation and their entries
+     */
+    Map<String, Set<String>> getEntries() {
+        return Collections.unmodifiableMap(this.entriesBySource);
+    }
+
+    /**
+     * Read the state file of a previous compilation. Each line maps a source to an entry declared in it.
+     *
+     * @param filer
+     *            {@link Filer}
+     *
+     * @return {@link Map} of sources and their entries, empty if there is no state file
+     */
+    Map<String, Set<String>> read(Filer filer) {
+        Map<String, Set<String>> state = new LinkedHashMap<String, Set<String>>();
+        BufferedReader reader = null;
+        try {
+            FileObject stateFile = filer.getResource(StandardLocation.CLASS_OUTPUT, "", this.path);
+            reader = new BufferedReader(new InputStreamReader(stateFile.openInputStream(), Charset.forName(CHARSET)));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(SEPARATOR);
+                if (separator <= 0 || separator == line.length() - 1) {
+                    continue;
+                }
+                String source = line.substring(0, separator);
+                Set<String> entries = state.get(source);
+                if (entries == null) {
+                    entries = new LinkedHashSet<String>();
+                    state.put(source, entries);
+                }
+                entries.add(line.substring(separator + 1));
+            }
+        } catch (IOException e) {
+            // There is no state file of a previous compilation
+            return new LinkedHashMap<String, Set<String>>();
+        } finally {
+            ProcessingUtils.close(reader);
+        }
+        return state;
+    }
+
+    /**
+     * Merge the state of a previous compilation with the sources of this compilation. Entries of sources compiled in
+     * this compilation are replaced, entries of sources that do not exist anymore are pruned.
+     *
+     * @param previousState
+     *            {@link Map} of sources and their entries of a previous compilation
+     * @param elements
+     *            {@link Elements}
+     *
+     * @return merged {@link Map} of sources and their entries
+     */
+    Map<String, Set<String>> merge(Map<String, Set<String>> previousState, Elements elements) {
+        Map<String, Set<String>> state = new LinkedHashMap<String, Set<String>>();
+        for (Map.Entry<String, Set<String>> entry : previousState.entrySet()) {
+            String source = entry.getKey();
+            if (this.entriesBySource.containsKey(source) || elements.getTypeElement(source) == null) {
+                continue;
+            }
+            state.put(source, entry.getValue());
+        }
+        for (Map.Entry<String, Set<String>> entry : this.entriesBySource.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                state.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Create the lines of the state file.
+     *
+     * @param state
+     *            {@link Map} of sources and their entries
+     *
+     * @return {@link List} of the lines
+     */
+    static List<String> toLines(Map<String, Set<String>> state) {
+        List<String> lines = new ArrayList<String>();
+        for (Map.Entry<String, Set<String>> entry : state.entrySet()) {
+            for (String sourceEntry : entry.getValue()) {
+                lines.add(entry.getKey() + SEPARATOR + sourceEntry);
+            }
+        }
+        return lines;
+    }
+}
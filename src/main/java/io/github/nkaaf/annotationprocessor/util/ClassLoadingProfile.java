@@ -0,0 +1,257 @@
+package io.github.nkaaf.annotationprocessor.util;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+/**
+ * <p>
+ * Class loading of a processor while it is constructed, initialized and run for its first round: the classes loaded by
+ * the JVM and the time spent in each phase. The loaded classes are counted with the
+ * {@link java.lang.management.ClassLoadingMXBean}, so they include the classes loaded by the compiler on behalf of the
+ * processor.
+ * </p>
+ *
+ * <p>
+ * If the class-loading agent of the profiler project was started, the code sources of the loaded classes are
+ * collected before and after every phase, so that the processor path entries first touched in a phase are attributed
+ * to the processor. At the end, the entries of the processor path no class was loaded from are listed once per class
+ * loader, because they can be removed, shaded out or trimmed.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ClassLoadingProfile {
+
+    static final int CONSTRUCTION = 0;
+    static final int INIT = 1;
+    static final int FIRST_ROUND = 2;
+
+    private static final String[] PHASE_NAMES = { "construction", "init", "first round" };
+    private static final double NANOS_PER_MILLI = 1000000.0;
+    private static final String AGENT_CLASS = "io.github.nkaaf.annotationprocessor.profiler.ClassLoadingAgent";
+    private static final Instrumentation INSTRUMENTATION = findInstrumentation();
+    private static final Map<ClassLoader, Boolean> REPORTED_CLASS_LOADERS = Collections
+            .synchronizedMap(new WeakHashMap<ClassLoader, Boolean>());
+
+    private final long[] loadedClasses = { -1, -1, -1 };
+    private final long[] nanos = { -1, -1, -1 };
+    private final Set<String> touchedLocations = new TreeSet<String>();
+
+    /**
+     * Start of a measured phase.
+     */
+    static final class Start {
+
+        private final long loadedClasses;
+        private final long nanos;
+        private final Set<String> locations;
+
+        private Start(long loadedClasses, long nanos, Set<String> locations) {
+            this.loadedClasses = loadedClasses;
+            this.nanos = nanos;
+            this.locations = locations;
+        }
+    }
+
+    /**
+     * Find the {@link Instrumentation} of the class-loading agent of the profiler project. The agent is looked up by
+     * its name in the system class loader, so that this library does not depend on the profiler.
+     *
+     * @return {@link Instrumentation} or null, if the agent was not started
+     */
+    private static Instrumentation findInstrumentation() {
+        try {
+            Class<?> agentClass = Class.forName(AGENT_CLASS, true, ClassLoader.getSystemClassLoader());
+            return (Instrumentation) agentClass.getMethod("getInstrumentation").invoke(null);
+        } catch (ClassNotFoundException e) {
+            // The agent is not on the class path of the JVM
+        } catch (NoSuchMethodException e) {
+            // Another version of the agent
+        } catch (IllegalAccessException e) {
+            // Another version of the agent
+        } catch (InvocationTargetException e) {
+            // Another version of the agent
+        } catch (ClassCastException e) {
+            // Another version of the agent
+        } catch (LinkageError e) {
+            // The instrumentation API is not present
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of classes loaded by the JVM since it was started.
+     *
+     * @return number of loaded classes or -1, if they cannot be counted
+     */
+    private static long getTotalLoadedClassCount() {
+        try {
+            return ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+        } catch (LinkageError e) {
+            // The management API is not present
+            return -1;
+        }
+    }
+
+    /**
+     * Get the locations of the code sources of the loaded classes, which are not loaded by the bootstrap class loader.
+     *
+     * @return {@link Set} of the locations or null, if the agent was not started
+     */
+    private static Set<String> getTouchedLocations() {
+        if (INSTRUMENTATION == null) {
+            return null;
+        }
+        Set<String> locations = new HashSet<String>();
+        for (Class<?> loadedClass : INSTRUMENTATION.getAllLoadedClasses()) {
+            if (loadedClass.getClassLoader() == null) {
+                continue;
+            }
+            ProtectionDomain protectionDomain = loadedClass.getProtectionDomain();
+            CodeSource codeSource = protectionDomain == null ? null : protectionDomain.getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                locations.add(codeSource.getLocation().toString());
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Start a phase.
+     *
+     * @return {@link Start} of the phase
+     */
+    static Start begin() {
+        Set<String> locations = getTouchedLocations();
+        return new Start(getTotalLoadedClassCount(), System.nanoTime(), locations);
+    }
+
+    /**
+     * End a phase.
+     *
+     * @param phase
+     *            Phase, e.g. {@link #INIT}
+     * @param start
+     *            {@link Start} of the phase
+     */
+    void end(int phase, Start start) {
+        long end = System.nanoTime();
+        long loadedClassCount = getTotalLoadedClassCount();
+        this.nanos[phase] = end - start.nanos;
+        if (loadedClassCount >= 0 && start.loadedClasses >= 0) {
+            this.loadedClasses[phase] = loadedClassCount - start.loadedClasses;
+        }
+        Set<String> locations = getTouchedLocations();
+        if (locations != null && start.locations != null) {
+            locations.removeAll(start.locations);
+            this.touchedLocations.addAll(locations);
+        }
+    }
+
+    /**
+     * Create the report of a processor.
+     *
+     * @param processorName
+     *            Name of the processor
+     * @param processorClassLoader
+     *            {@link ClassLoader} of the processor
+     *
+     * @return report
+     */
+    String toReport(String processorName, ClassLoader processorClassLoader) {
+        StringBuilder report = new StringBuilder("Class loading of ").append(processorName).append(':');
+        for (int phase = CONSTRUCTION; phase <= FIRST_ROUND; phase++) {
+            report.append(phase == CONSTRUCTION ? " " : ", ").append(PHASE_NAMES[phase]);
+            if (this.nanos[phase] < 0) {
+                report.append(" not measured");
+                continue;
+            }
+            if (this.loadedClasses[phase] >= 0) {
+                report.append(' ').append(this.loadedClasses[phase])
+                        .append(this.loadedClasses[phase] == 1 ? " class" : " classes");
+            }
+            report.append(String.format(Locale.ENGLISH, " in %.2f ms", this.nanos[phase] / NANOS_PER_MILLI));
+        }
+        report.append('.');
+
+        if (INSTRUMENTATION == null) {
+            report.append(" Start javac with -J-javaagent:<path of the annotationprocessor-profiler jar> to list the "
+                    + "touched processor path entries.");
+            return report.toString();
+        }
+        report.append(" First touched: ").append(this.touchedLocations.isEmpty() ? "none" : join(this.touchedLocations))
+                .append('.');
+        if (processorClassLoader instanceof URLClassLoader && REPORTED_CLASS_LOADERS.put(processorClassLoader,
+                Boolean.TRUE) == null) {
+            Set<String> locations = getTouchedLocations();
+            List<String> untouched = new ArrayList<String>();
+            for (URL url : ((URLClassLoader) processorClassLoader).getURLs()) {
+                if (!locations.contains(url.toString())) {
+                    untouched.add(url.toString());
+                }
+            }
+            report.append(" Processor path entries no class was loaded from: ")
+                    .append(untouched.isEmpty() ? "none" : join(untouched)).append('.');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Join values with commas.
+     *
+     * @param values
+     *            Values to join
+     *
+     * @return joined values
+     */
+    private static String join(Iterable<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,333 @@
+package io.github.nkaaf.annotationprocessor.util;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+/**
+ * <p>
+ * Index for matching methods of classes against expected method signatures.
+ * </p>
+ *
+ * <p>
+ * The expected signatures are resolved once from the methods declaring them, e.g. the methods of
+ * {@link javax.annotation.processing.Processor}. A {@link Signature} only keeps the names of its types, not the
+ * {@link TypeMirror}s, so that a processor can keep it across rounds without keeping the symbol table of the compiler
+ * reachable. The methods of a class are bucketed by name in a single pass with
+ * {@link #index(TypeElement)}, so that each lookup only compares the parameter and return types of methods with the
+ * same name and number of parameters. Types are compared by their erasure: primitive types by their kind, arrays by
+ * their component types and classes by their qualified names. Comparing a class converts its qualified name to a
+ * string once, and the expected name of an array element type is a substring without the <code>[]</code> suffixes.
+ * The names are compared instead of the types, also because javac 8 and earlier create a new symbol table for every
+ * round, so the types of a signature resolved in an earlier round would not be the same anymore.
+ * </p>
+ *
+ * <p>
+ * An instance belongs to one {@link ProcessingEnvironment} and should be created in
+ * {@link javax.annotation.processing.Processor#init(ProcessingEnvironment)}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+public final class MethodSignatureIndex {
+
+    private final Types types;
+
+    /**
+     * Create a new index.
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment} of the processor
+     */
+    public MethodSignatureIndex(ProcessingEnvironment processingEnv) {
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    /**
+     * Resolve the signature of a method declared in a type.
+     *
+     * @param declaringType
+     *            {@link TypeElement} declaring the method, e.g. {@link javax.annotation.processing.Processor}
+     * @param methodName
+     *            Name of the method
+     *
+     * @return {@link Signature} of the first method with this name
+     *
+     * @throws IllegalArgumentException
+     *             if the type does not declare a method with this name
+     */
+    public Signature getSignature(TypeElement declaringType, String methodName) {
+        for (ExecutableElement method : ElementFilter.methodsIn(declaringType.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(methodName)) {
+                return createSignature(method);
+            }
+        }
+        throw new IllegalArgumentException(
+                declaringType.getQualifiedName() + " does not declare a method named " + methodName);
+    }
+
+    /**
+     * Resolve the signature of a method.
+     *
+     * @param method
+     *            {@link ExecutableElement} of the method
+     *
+     * @return {@link Signature} of the method
+     */
+    public Signature createSignature(ExecutableElement method) {
+        List<? extends VariableElement> parameters = method.getParameters();
+        List<String> parameterTypes = new ArrayList<String>(parameters.size());
+        String[] erasedParameterTypes = new String[parameters.size()];
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror parameterType = parameters.get(i).asType();
+            parameterTypes.add(parameterType.toString());
+            erasedParameterTypes[i] = getErasedName(parameterType);
+        }
+        return new Signature(method.getSimpleName().toString(), Collections.unmodifiableList(parameterTypes),
+                erasedParameterTypes, method.getReturnType().toString(), getErasedName(method.getReturnType()));
+    }
+
+    /**
+     * Get the name of the erasure of a type: the qualified name of a class, the keyword of a primitive type or
+     * <code>void</code>, followed by <code>[]</code> for every dimension of an array.
+     *
+     * @param type
+     *            Type
+     *
+     * @return name of the erasure
+     */
+    private String getErasedName(TypeMirror type) {
+        TypeMirror erasure = this.types.erasure(type);
+        switch (erasure.getKind()) {
+        case ARRAY:
+            return getErasedName(((ArrayType) erasure).getComponentType()) + "[]";
+        case DECLARED:
+            return ((TypeElement) this.types.asElement(erasure)).getQualifiedName().toString();
+        default:
+            return erasure.getKind().name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * Index the methods declared in a class by their name.
+     *
+     * @param typeElement
+     *            {@link TypeElement} of the class
+     *
+     * @return {@link Methods} of the class
+     */
+    public Methods index(TypeElement typeElement) {
+        return index(typeElement.getEnclosedElements());
+    }
+
+    /**
+     * Index methods by their name. Elements that are not methods are ignored.
+     *
+     * @param elements
+     *            Elements containing the methods
+     *
+     * @return {@link Methods} of the elements
+     */
+    public Methods index(Iterable<? extends Element> elements) {
+        Map<String, List<ExecutableElement>> methodsByName = new HashMap<String, List<ExecutableElement>>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements)) {
+            String name = method.getSimpleName().toString();
+            List<ExecutableElement> methods = methodsByName.get(name);
+            if (methods == null) {
+                methods = new ArrayList<ExecutableElement>(1);
+                methodsByName.put(name, methods);
+            }
+            methods.add(method);
+        }
+        return new Methods(methodsByName);
+    }
+
+    /**
+     * Check if the erasure of a type has a name.
+     *
+     * @param type
+     *            Actual type
+     * @param expectedErasure
+     *            Name of the erasure of the expected type, see {@link #getErasedName(TypeMirror)}
+     * @param length
+     *            Length of the name, which is shortened by the dimensions of an array
+     *
+     * @return true if the erasure has the name, false otherwise
+     */
+    private boolean isSameErasure(TypeMirror type, String expectedErasure, int length) {
+        TypeMirror erasure = this.types.erasure(type);
+        TypeKind kind = erasure.getKind();
+        if (kind == TypeKind.ARRAY) {
+            return length > 2 && expectedErasure.startsWith("[]", length - 2)
+                    && isSameErasure(((ArrayType) erasure).getComponentType(), expectedErasure, length - 2);
+        }
+        if (kind == TypeKind.DECLARED) {
+            // javac converts a name to a string for every call of length() or charAt(int), contentEquals(...) only once
+            return ((TypeElement) this.types.asElement(erasure)).getQualifiedName()
+                    .contentEquals(expectedErasure.substring(0, length));
+        }
+        return (kind.isPrimitive() || kind == TypeKind.VOID) && kind.name().length() == length
+                && expectedErasure.regionMatches(true, 0, kind.name(), 0, length);
+    }
+
+    /**
+     * Signature of a method. Two methods match if they have the same name and the erasures of their parameter and
+     * return types are the same.
+     */
+    public static final class Signature {
+
+        private final String name;
+        private final List<String> parameterTypes;
+        private final String[] erasedParameterTypes;
+        private final String returnType;
+        private final String erasedReturnType;
+
+        private Signature(String name, List<String> parameterTypes, String[] erasedParameterTypes, String returnType,
+                String erasedReturnType) {
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+            this.erasedParameterTypes = erasedParameterTypes;
+            this.returnType = returnType;
+            this.erasedReturnType = erasedReturnType;
+        }
+
+        /**
+         * Get the name of the method.
+         *
+         * @return name of the method
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Get the declared parameter types of the method, e.g. <code>java.util.Set&lt;? extends
+         * javax.lang.model.element.TypeElement&gt;</code>.
+         *
+         * @return unmodifiable {@link List} of the parameter types
+         */
+        public List<String> getParameterTypes() {
+            return this.parameterTypes;
+        }
+
+        /**
+         * Get the declared return type of the method.
+         *
+         * @return return type
+         */
+        public String getReturnType() {
+            return this.returnType;
+        }
+
+        /**
+         * Get the signature as it is declared, e.g. {@code init(javax.annotation.processing.ProcessingEnvironment)}.
+         *
+         * @return name and parameter types of the method
+         */
+        @Override
+        public String toString() {
+            StringBuilder stringBuilder = new StringBuilder(this.name).append("(");
+            for (int i = 0; i < this.parameterTypes.size(); i++) {
+                if (i != 0) {
+                    stringBuilder.append(", ");
+                }
+                stringBuilder.append(this.parameterTypes.get(i));
+            }
+            return stringBuilder.append(")").toString();
+        }
+    }
+
+    /**
+     * Methods of a class, bucketed by their name.
+     */
+    public final class Methods {
+
+        private final Map<String, List<ExecutableElement>> methodsByName;
+
+        private Methods(Map<String, List<ExecutableElement>> methodsByName) {
+            this.methodsByName = methodsByName;
+        }
+
+        /**
+         * Find the method matching a signature.
+         *
+         * @param signature
+         *            Expected {@link Signature}
+         *
+         * @return matching {@link ExecutableElement}, null if no method matches
+         */
+        public ExecutableElement find(Signature signature) {
+            List<ExecutableElement> candidates = this.methodsByName.get(signature.name);
+            if (candidates == null) {
+                return null;
+            }
+            for (ExecutableElement candidate : candidates) {
+                if (matches(candidate, signature)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Check if a method matches a signature.
+         *
+         * @param signature
+         *            Expected {@link Signature}
+         *
+         * @return true if a method matches, false otherwise
+         */
+        public boolean contains(Signature signature) {
+            return find(signature) != null;
+        }
+
+        private boolean matches(ExecutableElement method, Signature signature) {
+            List<? extends VariableElement> parameters = method.getParameters();
+            if (parameters.size() != signature.erasedParameterTypes.length) {
+                return false;
+            }
+            for (int i = 0; i < parameters.size(); i++) {
+                String erasedParameterType = signature.erasedParameterTypes[i];
+                if (!isSameErasure(parameters.get(i).asType(), erasedParameterType, erasedParameterType.length())) {
+                    return false;
+                }
+            }
+            return isSameErasure(method.getReturnType(), signature.erasedReturnType,
+                    signature.erasedReturnType.length());
+        }
+    }
+}
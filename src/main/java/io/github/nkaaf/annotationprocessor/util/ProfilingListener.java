@@ -0,0 +1,76 @@
+package io.github.nkaaf.annotationprocessor.util;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+/**
+ * Listener of javac, which reports the profile of a {@link ProfilingProcessor} after the annotation processing, even if
+ * the processor was not called in the last round.
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+final class ProfilingListener implements TaskListener {
+
+    private final ProfilingProcessor processor;
+
+    private ProfilingListener(ProfilingProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Register a listener for a processor, if the compiler is javac. A {@link LinkageError} is thrown, if the compiler
+     * tree API is not present.
+     *
+     * @param processingEnv
+     *            {@link ProcessingEnvironment} of the processor
+     * @param processor
+     *            {@link ProfilingProcessor} to report
+     */
+    static void register(ProcessingEnvironment processingEnv, ProfilingProcessor processor) {
+        try {
+            JavacTask.instance(processingEnv).addTaskListener(new ProfilingListener(processor));
+        } catch (IllegalArgumentException e) {
+            // The compiler is not javac, the profile is reported in the last round
+        }
+    }
+
+    @Override
+    public void started(TaskEvent event) {
+    }
+
+    @Override
+    public void finished(TaskEvent event) {
+        if (event.getKind() == TaskEvent.Kind.ANNOTATION_PROCESSING) {
+            this.processor.report();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package io.github.nkaaf.annotationprocessor.util;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.event.ProcessingEvents;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <p>
+ * Processor, which delegates to another processor and profiles it.
+ * </p>
+ *
+ * <p>
+ * It measures the time of {@link Processor#init(ProcessingEnvironment)} and of every round of
+ * {@link Processor#process(Set, RoundEnvironment)}, the bytes allocated by them on the compiler thread and how many of
+ * the annotations presented to the processor it claimed. At the end of the annotation processing, the profile is
+ * reported as note. A processor, which was never presented an annotation, is reported as removable from the processor
+ * path, unless it supports <code>"*"</code>.
+ * </p>
+ *
+ * <p>
+ * javac does not call a processor in the last round, if it was never presented an annotation before. The profile of
+ * such a processor is reported by a {@link com.sun.source.util.TaskListener} after the annotation processing, if the
+ * compiler is javac. Otherwise, it is only reported in the last round.
+ * </p>
+ *
+ * <p>
+ * The processor for {@link io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor} generates a subclass
+ * of this class for every processor with
+ * {@link io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor#profile()}. The service file keeps the
+ * processor, the subclass is listed next to it in <code>META-INF/annotationprocessor/profiling.processors</code> and
+ * only runs when it is picked instead of the processor, e.g. with <code>javac -processor</code>. The allocated bytes
+ * are only measured on JVMs supporting <code>com.sun.management.ThreadMXBean</code>.
+ * </p>
+ *
+ * <p>
+ * With the option {@value #CLASS_LOADING_OPTION} set to {@value #CLASS_LOADING_REPORT}, the classes loaded and the
+ * time spent while the processor is constructed, initialized and run for its first round are reported as another
+ * note. If javac runs with the class-loading agent of the profiler project, the report also lists the processor path
+ * entries touched by the processor and the ones no class was loaded from, see {@link ClassLoadingProfile}.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ * 
+ * @version 1.0
+ * 
+ * @since 1.1
+ */
+public abstract class ProfilingProcessor implements Processor {
+
+    /**
+     * Option enabling the class-loading report.
+     */
+    public static final String CLASS_LOADING_OPTION = "annotationprocessor.classloading";
+
+    /**
+     * Value of {@link #CLASS_LOADING_OPTION} enabling the class-loading report.
+     */
+    public static final String CLASS_LOADING_REPORT = "report";
+
+    private static final String ALL_ANNOTATION_TYPES = "*";
+    private static final double NANOS_PER_MILLI = 1000000.0;
+    private static final long BYTES_PER_KILOBYTE = 1024;
+    private static final Method THREAD_ALLOCATED_BYTES = getThreadAllocatedBytesMethod();
+
+    private final Processor processor;
+    private final String processorName;
+    private final ClassLoadingProfile classLoadingProfile = new ClassLoadingProfile();
+    private Messager messager;
+    private boolean classLoadingReport;
+
+    private long initNanos;
+    private long initAllocatedBytes;
+    private int rounds;
+    private long processNanos;
+    private long processAllocatedBytes;
+    private int presentedAnnotations;
+    private int claimedAnnotations;
+    private boolean reported;
+
+    /**
+     * Create a new profiling processor.
+     *
+     * @param processor
+     *            {@link Processor} to profile
+     */
+    protected ProfilingProcessor(Processor processor) {
+        this.processor = processor;
+        this.processorName = processor.getClass().getName();
+    }
+
+    /**
+     * Create a new profiling processor, which also measures the class loading of the construction of the processor.
+     *
+     * @param construction
+     *            {@link Construction} started before the processor was constructed
+     * @param processor
+     *            {@link Processor} to profile
+     *
+     * @see #beginConstruction()
+     */
+    protected ProfilingProcessor(Construction construction, Processor processor) {
+        this(processor);
+        this.classLoadingProfile.end(ClassLoadingProfile.CONSTRUCTION, construction.start);
+    }
+
+    /**
+     * Begin the construction of a processor. It is called in the argument list of the constructor, before the
+     * processor is constructed: <code>super(beginConstruction(), new Processor())</code>.
+     *
+     * @return {@link Construction}
+     */
+    protected static Construction beginConstruction() {
+        return new Construction(ClassLoadingProfile.begin());
+    }
+
+    /**
+     * Construction of a processor, begun with {@link #beginConstruction()}.
+     */
+    protected static final class Construction {
+
+        private final ClassLoadingProfile.Start start;
+
+        private Construction(ClassLoadingProfile.Start start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     * Get the method of <code>com.sun.management.ThreadMXBean</code> returning the bytes allocated by a thread. It is
+     * looked up reflectively, because the interface is not part of the Java SE API.
+     *
+     * @return {@link Method} or null, if the JVM does not support it
+     */
+    private static Method getThreadAllocatedBytesMethod() {
+        try {
+            Class<?> threadMXBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (threadMXBeanClass.isInstance(ManagementFactory.getThreadMXBean())) {
+                return threadMXBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (ClassNotFoundException e) {
+            // Not a HotSpot based JVM
+        } catch (NoSuchMethodException e) {
+            // Older than Java 6 update 25
+        } catch (LinkageError e) {
+            // The management API is not present
+        }
+        return null;
+    }
+
+    /**
+     * Get the bytes allocated by the current thread.
+     *
+     * @return allocated bytes or -1, if they cannot be measured
+     */
+    private static long getAllocatedBytes() {
+        if (THREAD_ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return (Long) THREAD_ALLOCATED_BYTES.invoke(ManagementFactory.getThreadMXBean(),
+                    Thread.currentThread().getId());
+        } catch (IllegalAccessException e) {
+            return -1;
+        } catch (InvocationTargetException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> supportedOptions = new HashSet<String>(this.processor.getSupportedOptions());
+        supportedOptions.add(CLASS_LOADING_OPTION);
+        return supportedOptions;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return this.processor.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return this.processor.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+        this.messager = processingEnv.getMessager();
+        String classLoadingOption = processingEnv.getOptions().get(CLASS_LOADING_OPTION);
+        this.classLoadingReport = classLoadingOption != null && classLoadingOption.trim().equals(CLASS_LOADING_REPORT);
+        ClassLoadingProfile.Start classLoadingStart = ClassLoadingProfile.begin();
+        long allocatedBytes = getAllocatedBytes();
+        long start = System.nanoTime();
+        this.processor.init(processingEnv);
+        this.initNanos = System.nanoTime() - start;
+        this.initAllocatedBytes = getAllocatedBytes() - allocatedBytes;
+        this.classLoadingProfile.end(ClassLoadingProfile.INIT, classLoadingStart);
+        try {
+            ProfilingListener.register(processingEnv, this);
+        } catch (LinkageError e) {
+            // The compiler tree API is not present, the profile is reported in the last round
+        }
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        this.rounds++;
+        ProcessingEvents.Round roundEvent = ProcessingEvents.beginRound(this.processorName, this.rounds,
+                roundEnv.processingOver());
+        ClassLoadingProfile.Start classLoadingStart = this.rounds == 1 ? ClassLoadingProfile.begin() : null;
+        long allocatedBytes = getAllocatedBytes();
+        long start = System.nanoTime();
+        boolean claimed = this.processor.process(annotations, roundEnv);
+        this.processNanos += System.nanoTime() - start;
+        this.processAllocatedBytes += getAllocatedBytes() - allocatedBytes;
+        if (classLoadingStart != null) {
+            this.classLoadingProfile.end(ClassLoadingProfile.FIRST_ROUND, classLoadingStart);
+        }
+        roundEvent.end(annotations.size());
+
+        this.presentedAnnotations += annotations.size();
+        if (claimed) {
+            this.claimedAnnotations += annotations.size();
+        }
+        if (roundEnv.processingOver()) {
+            report();
+        }
+        return claimed;
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+            ExecutableElement member, String userText) {
+        return this.processor.getCompletions(element, annotation, member, userText);
+    }
+
+    /**
+     * Report the profile of the processor as note, once.
+     */
+    void report() {
+        if (this.reported) {
+            return;
+        }
+        this.reported = true;
+
+        StringBuilder profile = new StringBuilder("Profile of ").append(this.processorName).append(": init ")
+                .append(formatMillis(this.initNanos)).append(formatKilobytes(this.initAllocatedBytes));
+        if (this.presentedAnnotations == 0 && !this.processor.getSupportedAnnotationTypes()
+                .contains(ALL_ANNOTATION_TYPES)) {
+            profile.append(". No annotation was presented to it, it can be removed from the processor path.");
+        } else {
+            profile.append(", ").append(this.rounds).append(this.rounds == 1 ? " round " : " rounds ")
+                    .append(formatMillis(this.processNanos)).append(formatKilobytes(this.processAllocatedBytes))
+                    .append(", claimed ").append(this.claimedAnnotations).append(" of ")
+                    .append(this.presentedAnnotations).append(" presented annotations.");
+        }
+        this.messager.printMessage(Diagnostic.Kind.NOTE, profile);
+        if (this.classLoadingReport) {
+            this.messager.printMessage(Diagnostic.Kind.NOTE, this.classLoadingProfile.toReport(this.processorName,
+                    this.processor.getClass().getClassLoader()));
+        }
+    }
+
+    /**
+     * Format nanoseconds as milliseconds.
+     *
+     * @param nanos
+     *            Nanoseconds
+     *
+     * @return formatted milliseconds
+     */
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.2f ms", nanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Format allocated bytes as kilobytes in parentheses.
+     *
+     * @param bytes
+     *            Allocated bytes
+     *
+     * @return formatted kilobytes or an empty string, if the bytes cannot be measured
+     */
+    private static String formatKilobytes(long bytes) {
+        if (THREAD_ALLOCATED_BYTES == null || bytes < 0) {
+            return "";
+        }
+        return " (" + bytes / BYTES_PER_KILOBYTE + " KB allocated)";
+    }
+}
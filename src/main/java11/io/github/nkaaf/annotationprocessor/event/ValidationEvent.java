@@ -0,0 +1,54 @@
+package io.github.nkaaf.annotationprocessor.event;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder event of the validation of a class by an annotation processor.
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+@Name("io.github.nkaaf.annotationprocessor.Validation")
+@Label("Annotation Processing Validation")
+@Description("Validation of a class by an annotation processor")
+@Category({ "Java Application", "Annotation Processing" })
+@StackTrace(false)
+final class ValidationEvent extends Event {
+
+    @Label("Processor")
+    String processor;
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Valid")
+    boolean valid;
+
+    @Label("Outcome")
+    String outcome;
+}
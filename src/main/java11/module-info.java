@@ -0,0 +1,34 @@
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+module io.github.nkaaf.annotationprocessor {
+    requires static transitive java.compiler;
+    requires static jdk.compiler;
+    requires static java.management;
+    requires static java.instrument;
+    requires static jdk.jfr;
+    requires java.base;
+
+    exports io.github.nkaaf.annotationprocessor.annotation;
+    exports io.github.nkaaf.annotationprocessor.event;
+    exports io.github.nkaaf.annotationprocessor.util;
+}
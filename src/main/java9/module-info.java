@@ -22,7 +22,12 @@
 
 module io.github.nkaaf.annotationprocessor {
     requires static transitive java.compiler;
+    requires static jdk.compiler;
+    requires static java.management;
+    requires static java.instrument;
     requires java.base;
 
     exports io.github.nkaaf.annotationprocessor.annotation;
+    exports io.github.nkaaf.annotationprocessor.event;
+    exports io.github.nkaaf.annotationprocessor.util;
 }
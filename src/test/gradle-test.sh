@@ -0,0 +1,199 @@
+#!/usr/bin/env bash
+
+###
+# #%L
+# AnnotationProcessor
+# %%
+# Copyright (C) 2021 Niklas Kaaf
+# %%
+# This program is free software: you can redistribute it and/or modify
+# it under the terms of the GNU Lesser General Public License as
+# published by the Free Software Foundation, either version 2.1 of the
+# License, or (at your option) any later version.
+#
+# This program is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of
+# MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+# GNU General Lesser Public License for more details.
+#
+# You should have received a copy of the GNU General Lesser Public
+# License along with this program.  If not, see
+# <http://www.gnu.org/licenses/lgpl-2.1.html>.
+# #L%
+###
+
+_test_dir=$(dirname "${BASH_SOURCE[0]}")
+
+_pwd=$PWD
+if [ "$_test_dir" == "." ]; then
+  _test_dir=$_pwd
+else
+  _test_dir=$(
+    cd "$_test_dir"
+    pwd
+  )
+fi
+
+. "$_test_dir/utils.sh"
+
+_usage="Usage: ./$(basename "$0") [OPTIONS]
+Gradle Incremental Build Test for AnnotationProcessor-Project
+Builds every project of examples/gradle with the current version of this project, changes one source file and checks
+that Gradle recompiles only this file, while the service file still lists every processor.
+[OPTIONS]:
+
+  -h, --help, -?                display this help text
+  -d, --debug, -X               showing debug messages during tests
+  -n, --no-install              use the installed version of this project instead of installing it with Maven
+  -r, --repository <directory>  local Maven repository, which is used instead of ~/.m2/repository
+"
+
+DEBUG=false
+INSTALL=true
+REPOSITORY=
+
+while :; do
+  case $1 in
+    -h | --help | -\?)
+      echo "$_usage"
+      exit
+      ;;
+    -d | --debug | -X)
+      __echo yellow "Debug mode is active"
+      DEBUG=true
+      ;;
+    -n | --no-install)
+      INSTALL=false
+      ;;
+    -r | --repository)
+      if [ -z "$2" ]; then
+        __echo yellow "Missing directory of option: $1"
+        echo "$_usage"
+        exit
+      fi
+      REPOSITORY=$2
+      shift
+      ;;
+    -?*)
+      __echo yellow "Invalid option: $1"
+      echo "$_usage"
+      exit
+      ;;
+    *)
+      if [ "$1" != "" ]; then
+        __echo yellow "WARNING: Not parsing $1"
+      fi
+      break
+      ;;
+  esac
+  shift
+done
+
+_project_dir="$(dirname "$(dirname "$_test_dir")")"
+_target_dir="$_project_dir/target"
+_out_dir="$_target_dir/testing/gradle"
+_repository_option=
+if [ -n "$REPOSITORY" ]; then
+  _repository_option="-Dmaven.repo.local=$REPOSITORY"
+fi
+
+__debug "$DEBUG" "Check if required commands are available..."
+for _command in gradle mvn; do
+  if ! command -v $_command >/dev/null; then
+    __echo red "You can't use this script without $_command installed!"
+    exit 1
+  fi
+done
+__debug "$DEBUG" "All required commands are installed"
+
+_version=$(sed -n "s/^    <version>\(.*\)<\/version>$/\1/p" "$_project_dir/pom.xml" | head -n 1)
+
+if [ "$INSTALL" == true ]; then
+  __debug "$DEBUG" "Installing version $_version..."
+  if ! (cd "$_project_dir" && mvn -B -q install -DskipTests $_repository_option); then
+    __echo red "Version $_version cannot be installed"
+    exit 1
+  fi
+  __debug "$DEBUG" "Version $_version installed"
+fi
+
+# Gradle writes the class files of a compilation anew, so an unchanged modification time means not recompiled
+_modification_times() {
+  find "$1/build/classes/java/main" -name "*.class" -exec stat -c "%n %y" {} + | sort
+}
+
+_test() {
+  if [ "$#" -ne 1 ]; then
+    __echo yellow "DEV NOTE: incorrect usage!"
+    return 1
+  fi
+
+  local example
+  local example_dir
+  local changed_file
+  local changed_class
+  local service_file
+  local build_log
+  local before
+  local after
+  local recompiled
+
+  example=$1
+  example_dir="$_out_dir/$example"
+  service_file="$example_dir/build/classes/java/main/META-INF/services/javax.annotation.processing.Processor"
+  build_log="$_out_dir/$example.log"
+
+  rm -rf "$example_dir"
+  cp -r "$_project_dir/examples/gradle/$example" "$example_dir"
+  rm -rf "$example_dir/.gradle" "$example_dir/build"
+  sed -i "s/io.github.nkaaf:annotationprocessor:[^']*/io.github.nkaaf:annotationprocessor:$_version/" \
+    "$example_dir/build.gradle"
+
+  __debug "$DEBUG" "Full build of $example..."
+  if ! gradle --offline -q -p "$example_dir" $_repository_option compileJava >"$build_log" 2>&1; then
+    __echo red "Gradle $example Test failed: full build failed, see $build_log"
+    return 0
+  fi
+
+  changed_file=$(find "$example_dir/src/main/java" -name "ExampleProcessorImplementsProcessor.java")
+  changed_class=$(basename "$changed_file" .java)
+  before=$(_modification_times "$example_dir")
+
+  # The timestamps of the file system may be too coarse to tell the builds apart
+  sleep 1
+  echo "// Changed by $(basename "$0")" >>"$changed_file"
+
+  __debug "$DEBUG" "Incremental build of $example..."
+  if ! gradle --offline --info -p "$example_dir" $_repository_option compileJava >"$build_log" 2>&1; then
+    __echo red "Gradle $example Test failed: incremental build failed, see $build_log"
+    return 0
+  fi
+  after=$(_modification_times "$example_dir")
+
+  if grep -q "Full recompilation is required" "$build_log"; then
+    __echo red "Gradle $example Test failed: $(grep "Full recompilation is required" "$build_log")"
+    return 0
+  fi
+
+  # Gradle recompiles module-info.java together with every change of a module
+  recompiled=$(comm -13 <(echo "$before") <(echo "$after") | cut -d " " -f 1 | xargs -r -n 1 basename |
+    grep -v "^module-info.class$")
+  if [ "$recompiled" != "$changed_class.class" ]; then
+    recompiled=$(echo "$recompiled" | tr "\n" " ")
+    __echo red "Gradle $example Test failed: recompiled ${recompiled}instead of $changed_class.class"
+    return 0
+  fi
+
+  if [ "$(grep -c "ExampleProcessor" "$service_file")" != 2 ]; then
+    __echo red "Gradle $example Test failed: service file lists $(tr "\n" " " <"$service_file")"
+    return 0
+  fi
+
+  __echo green "Gradle $example Test successful"
+  return 0
+}
+
+mkdir -p "$_out_dir"
+for _example in "$_project_dir"/examples/gradle/*/; do
+  _test "$(basename "$_example")"
+done
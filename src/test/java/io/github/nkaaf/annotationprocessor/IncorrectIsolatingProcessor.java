@@ -0,0 +1,56 @@
+package io.github.nkaaf.annotationprocessor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.annotation.AnnotationProcessor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.util.Set;
+
+@AnnotationProcessor(incremental = AnnotationProcessor.Incremental.ISOLATING)
+public class IncorrectIsolatingProcessor extends AbstractProcessor {
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        try {
+            for (Element element : roundEnv.getRootElements()) {
+                processingEnv.getFiler().createSourceFile(element.getSimpleName() + "Generated", element);
+                processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", "generated.txt");
+            }
+            writeIndex(roundEnv);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return true;
+    }
+
+    private void writeIndex(RoundEnvironment roundEnv) throws IOException {
+        processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", "index.txt",
+                roundEnv.getRootElements().toArray(new Element[0]));
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.nkaaf.annotationprocessor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.processor.ServiceProcessor;
+import io.github.nkaaf.annotationprocessor.testkit.Compilation;
+import io.github.nkaaf.annotationprocessor.testkit.InMemoryCompiler;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static io.github.nkaaf.annotationprocessor.testkit.CompilationAssert.assertThat;
+
+public class ServiceProcessorTest {
+
+    private static final String _src_dir = System.getProperty("src.dir");
+    private static final String _classes_dir = System.getProperty("out.dir");
+
+    private static final String COMPILER_PROCESSOR_ERROR_CODE = "compiler.err.proc.messager";
+
+    private static final String PACKAGE_NAME = "io.github.nkaaf.annotationprocessor.";
+    private static final String PACKAGE_PATH = PACKAGE_NAME.replace('.', '/');
+
+    private static final String CODEC = "Codec";
+    private static final String CORRECT_CODEC = "CorrectCodec";
+    private static final String INCORRECT_CODEC = "IncorrectCodec";
+
+    private static final String SERVICE_REGISTRY = "GeneratedServiceRegistry";
+
+    private static File getJavaFile(String file) {
+        return new File(_src_dir + "/test/java/" + PACKAGE_PATH + file + ".java");
+    }
+
+    private static String getCanonicalName(String file) {
+        return PACKAGE_NAME + file;
+    }
+
+    private static InMemoryCompiler createCompiler(String... additionalOptions) {
+        return InMemoryCompiler.javac()
+                .withOptions("-processor", ServiceProcessor.class.getCanonicalName(), "-classpath", _classes_dir)
+                .withOptions(additionalOptions);
+    }
+
+    @Test
+    public void compileCorrectProvider() throws IOException {
+        Compilation compilation = createCompiler().compile(getJavaFile(CODEC), getJavaFile(CORRECT_CODEC));
+
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(getCanonicalName(CODEC), getCanonicalName(CORRECT_CODEC))
+                .generatedClassFile(getCanonicalName(CODEC)).and().generatedClassFile(getCanonicalName(CORRECT_CODEC));
+    }
+
+    @Test
+    public void compileIncorrectProvider() throws IOException {
+        Compilation compilation = createCompiler().compile(getJavaFile(CODEC), getJavaFile(INCORRECT_CODEC));
+
+        assertThat(compilation).failed().hasNoServiceFile(getCanonicalName(CODEC)).hadDiagnosticCount(1)
+                .diagnostic(0).isError().isInSource(PACKAGE_PATH + INCORRECT_CODEC + ".java")
+                .hasCode(COMPILER_PROCESSOR_ERROR_CODE).hasMessage(getCanonicalName(INCORRECT_CODEC)
+                        + " is not assignable to service " + getCanonicalName(CODEC) + ".");
+    }
+
+    @Test
+    public void compileWithServiceRegistry() throws IOException {
+        Compilation compilation = createCompiler(
+                "-Aannotationprocessor.service.registry=" + getCanonicalName(SERVICE_REGISTRY))
+                        .compile(getJavaFile(CODEC), getJavaFile(CORRECT_CODEC));
+
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(getCanonicalName(CODEC), getCanonicalName(CORRECT_CODEC))
+                .generatedClassFile(getCanonicalName(SERVICE_REGISTRY)).and()
+                .generatedSourceFile(getCanonicalName(SERVICE_REGISTRY))
+                .contains("if (service == " + getCanonicalName(CODEC) + ".class) {")
+                .contains("providers.add(service.cast(new " + getCanonicalName(CORRECT_CODEC) + "()));");
+    }
+}
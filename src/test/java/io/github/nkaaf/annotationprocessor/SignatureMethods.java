@@ -0,0 +1,63 @@
+package io.github.nkaaf.annotationprocessor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public abstract class SignatureMethods<S extends Set<String>> {
+
+    public abstract void overloaded(int value);
+
+    public abstract void overloaded(String value);
+
+    public abstract void overloaded(int[] values);
+
+    public abstract void overloaded(String[][] values);
+
+    public abstract <T extends CharSequence> T generic(List<? extends T> values, Map<String, T> valuesByName);
+
+    public abstract Set<String> bounded(S values);
+
+    public abstract String returning(String value);
+
+    public interface Expected {
+
+        void overloaded(String value);
+
+        void overloaded(int[] values);
+
+        void overloaded(String[][] values);
+
+        void overloaded(long value);
+
+        void overloaded(Object[][] values);
+
+        CharSequence generic(List<?> values, Map<?, ?> valuesByName);
+
+        Set<?> bounded(Set<Integer> values);
+
+        Object returning(String value);
+    }
+}
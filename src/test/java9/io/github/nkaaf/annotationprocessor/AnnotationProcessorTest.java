@@ -22,14 +22,28 @@ package io.github.nkaaf.annotationprocessor;
  * #L%
  */
 
+import io.github.nkaaf.annotationprocessor.testkit.Compilation;
+import io.github.nkaaf.annotationprocessor.testkit.InMemoryCompiler;
 import org.junit.jupiter.api.Test;
 
-import javax.annotation.processing.Processor;
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
 import javax.tools.*;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.*;
 
+import static io.github.nkaaf.annotationprocessor.testkit.CompilationAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class AnnotationProcessorTest {
@@ -47,43 +61,84 @@ public class AnnotationProcessorTest {
     private static final String INCORRECT_PROCESSOR = "IncorrectProcessor";
     private static final String CORRECT_PROCESSOR = "CorrectProcessor";
     private static final String CORRECT_ABSTRACT_PROCESSOR = "CorrectAbstractProcessor";
-
-    private static final String PROCESSOR_SERVICE_FILE = _classes_dir + "/META-INF/services/" + Processor.class.getCanonicalName();
-
+    private static final String BASE_PROCESSOR = "BaseProcessor";
+    private static final String CORRECT_INHERITING_PROCESSOR = "CorrectInheritingProcessor";
+    private static final String INCORRECT_INHERITING_PROCESSOR = "IncorrectInheritingProcessor";
+    private static final String NO_PROCESSOR = "NoProcessor";
+
+    private static final String PROCESSOR_INDEX = "GeneratedProcessorIndex";
+    private static final String WILDCARD_PROCESSOR = "WildcardProcessor";
+    private static final String RETAINING_PROCESSOR = "RetainingProcessor";
+    private static final String ISOLATING_PROCESSOR = "IsolatingProcessor";
+    private static final String CORRECT_DYNAMIC_PROCESSOR = "CorrectDynamicProcessor";
+    private static final String INCORRECT_DYNAMIC_PROCESSOR = "IncorrectDynamicProcessor";
+    private static final String INCORRECT_ISOLATING_PROCESSOR = "IncorrectIsolatingProcessor";
+    private static final String OUTER_PROCESSOR = "OuterProcessor";
+    private static final String INNER_PROCESSOR = "OuterProcessor$InnerProcessor";
+    private static final String PROFILED_PROCESSOR = "ProfiledProcessor";
+    private static final String PROFILING_PROCESSOR = "ProfiledProcessor_Profiled";
+    private static final String LAZY_PROCESSOR = "LazyProcessor";
+    private static final String LAZY_PROXY_PROCESSOR = "LazyProcessor_Lazy";
+    private static final String LAZY_PROFILING_PROCESSOR = "LazyProcessor_Profiled";
+    private static final String CODEC = "Codec";
+
+    private static final String PROCESSOR_SERVICE_FILE = "META-INF/services/" + Processor.class.getCanonicalName();
+    private static final String GRADLE_INCREMENTAL_FILE = "META-INF/gradle/incremental.annotation.processors";
+    private static final String PROCESSOR_REPORT_FILE = "META-INF/annotationprocessor/report.json";
+    private static final String PROFILING_PROCESSORS_FILE = "META-INF/annotationprocessor/profiling.processors";
+
+    // The output is held in memory, the main classes are read from the output directory
     private static final List<String> OPTIONS = Arrays.asList(
-            "-d", _classes_dir,
             "-processor", PACKAGE_NAME + "processor.AnnotationProcessorProcessor",
             "-classpath", _classes_dir,
-            "-s", _classes_dir,
             "--module-path", _module_path
     );
 
     private static final List<String> MODULES = Arrays.asList(_module_path.split(":"));
 
-    private static String getJavaFile(String file) {
-        return _src_dir + "/test/java/" + PACKAGE_PATH + file + ".java";
+    private static File getJavaFile(String file) {
+        return new File(_src_dir + "/test/java/" + PACKAGE_PATH + file + ".java");
     }
 
-    private static String getClassFile(String file) {
-        return _classes_dir + "/" + PACKAGE_PATH + file + ".class";
+    private static String getJavaFileName(String file) {
+        return PACKAGE_PATH + file + ".java";
     }
 
     private static String getCanonicalName(String file) {
         return PACKAGE_NAME + file;
     }
 
-    private static boolean compile(List<String> sources, DiagnosticCollector<JavaFileObject> diagnosticCollector) throws IOException {
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
-        Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromStrings(sources);
+    private static InMemoryCompiler createCompiler(String... additionalOptions) {
+        return InMemoryCompiler.javac().withOptions(OPTIONS).withOptions(additionalOptions).withModules(MODULES);
+    }
 
-        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnosticCollector, OPTIONS, null, units);
-        task.addModules(MODULES);
+    /**
+     * Create an instance of the processor. It is loaded from the output directory, because its package is not
+     * exported by the module.
+     */
+    private static Processor newAnnotationProcessorProcessor() throws IOException {
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { new File(_classes_dir).toURI().toURL() });
+        try {
+            return (Processor) classLoader.loadClass(PACKAGE_NAME + "processor.AnnotationProcessorProcessor").getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        boolean success = task.call();
+    private static int countNotes(Compilation compilation, String message) {
+        int notes = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : compilation.getDiagnostics(Diagnostic.Kind.NOTE)) {
+            if (diagnostic.getMessage(null).equals(message)) {
+                notes++;
+            }
+        }
+        return notes;
+    }
 
-        fileManager.close();
-        return success;
+    private static void assertIncorrectProcessor(Compilation compilation, String processor, ErrorMessage errorMessage) {
+        assertThat(compilation).failed().hasNoServiceFile(Processor.class).hadDiagnosticCount(1).diagnostic(0).isError()
+                .isInSource(getJavaFileName(processor)).hasCode(COMPILER_PROCESSOR_ERROR_CODE)
+                .hasMessage(getErrorMessage(getCanonicalName(processor), errorMessage));
     }
 
     private static String getErrorMessage(String classname, ErrorMessage errorMessage) {
@@ -112,63 +167,29 @@ public class AnnotationProcessorTest {
 
     @Test
     public void compileIncorrectAbstractProcessor() throws IOException {
-            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-            List<String> sources = Collections.singletonList(getJavaFile(INCORRECT_ABSTRACT_PROCESSOR));
-
-            assertFalse(compile(sources, diagnostics));
-            File processorServiceFile = new File(PROCESSOR_SERVICE_FILE);
-            assertFalse(processorServiceFile.exists());
-
-            assertEquals(1, diagnostics.getDiagnostics().size());
-            Diagnostic<?> diagnostic = diagnostics.getDiagnostics().get(0);
-            assertEquals(Diagnostic.Kind.ERROR, diagnostic.getKind());
-            assertTrue(diagnostic.getSource().toString().contains(INCORRECT_ABSTRACT_PROCESSOR));
-            assertEquals(COMPILER_PROCESSOR_ERROR_CODE, diagnostic.getCode());
-            assertEquals(getErrorMessage(getCanonicalName(INCORRECT_ABSTRACT_PROCESSOR), ErrorMessage.PROCESS), diagnostic.getMessage(null));
+        assertIncorrectProcessor(createCompiler().compile(getJavaFile(INCORRECT_ABSTRACT_PROCESSOR)),
+                INCORRECT_ABSTRACT_PROCESSOR, ErrorMessage.PROCESS);
     }
 
     @Test
     public void compileCorrectAbstractProcessor() throws IOException {
-            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-            List<String> sources = Collections.singletonList(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
-
-            assertTrue(compile(sources, diagnostics));
-
-            assertEquals(0, diagnostics.getDiagnostics().size());
-
-            File correctFile = new File(getClassFile(CORRECT_ABSTRACT_PROCESSOR));
-            assertTrue(correctFile.exists());
-
-            File processorServiceFile = new File(PROCESSOR_SERVICE_FILE);
-            assertTrue(processorServiceFile.exists());
+        Compilation compilation = createCompiler().compile(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
 
-            Scanner scanner = new Scanner(processorServiceFile);
-            assertTrue(scanner.hasNextLine());
-            assertEquals(getCanonicalName(CORRECT_ABSTRACT_PROCESSOR), scanner.nextLine());
-            assertFalse(scanner.hasNextLine());
-
-            assertTrue(correctFile.delete());
-            assertTrue(processorServiceFile.delete());
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_ABSTRACT_PROCESSOR))
+                .generatedClassFile(getCanonicalName(CORRECT_ABSTRACT_PROCESSOR));
     }
 
     @Test
     public void compileIncorrectProcessor() throws IOException {
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        List<String> sources = Collections.singletonList(getJavaFile(INCORRECT_PROCESSOR));
-
-        assertFalse(compile(sources, diagnostics));
-        File processorServiceFile = new File(PROCESSOR_SERVICE_FILE);
-        assertFalse(processorServiceFile.exists());
+        Compilation compilation = createCompiler().compile(getJavaFile(INCORRECT_PROCESSOR));
 
-        assertEquals(6, diagnostics.getDiagnostics().size());
+        assertThat(compilation).failed().hasNoServiceFile(Processor.class).hadDiagnosticCount(6);
 
         Set<String> errorMessages = new HashSet<>(6);
-        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
-            assertTrue(diagnostic.getSource().toString().contains(INCORRECT_PROCESSOR));
-            assertEquals(Diagnostic.Kind.ERROR, diagnostic.getKind());
-            assertEquals(COMPILER_PROCESSOR_ERROR_CODE, diagnostic.getCode());
-
-            errorMessages.add(diagnostic.getMessage(null));
+        for (int i = 0; i < 6; i++) {
+            assertThat(compilation).diagnostic(i).isError().isInSource(getJavaFileName(INCORRECT_PROCESSOR)).hasCode(COMPILER_PROCESSOR_ERROR_CODE);
+            errorMessages.add(compilation.getDiagnostics().get(i).getMessage(null));
         }
 
         for (ErrorMessage errorMessage : ErrorMessage.values()) {
@@ -180,58 +201,515 @@ public class AnnotationProcessorTest {
 
     @Test
     public void compileCorrectProcessor() throws IOException {
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        List<String> sources = Collections.singletonList(getJavaFile(CORRECT_PROCESSOR));
+        Compilation compilation = createCompiler().compile(getJavaFile(CORRECT_PROCESSOR));
 
-        assertTrue(compile(sources, diagnostics));
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_PROCESSOR))
+                .generatedClassFile(getCanonicalName(CORRECT_PROCESSOR));
+    }
 
-        assertEquals(0, diagnostics.getDiagnostics().size());
+    @Test
+    public void compileCorrectFilesAndCheckServiceFile() throws IOException {
+        Compilation compilation = createCompiler().compile(getJavaFile(CORRECT_PROCESSOR),
+                getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_ABSTRACT_PROCESSOR),
+                        getCanonicalName(CORRECT_PROCESSOR))
+                .generatedClassFile(getCanonicalName(CORRECT_PROCESSOR)).and()
+                .generatedClassFile(getCanonicalName(CORRECT_ABSTRACT_PROCESSOR));
+    }
 
-        File correctFile = new File(getClassFile(CORRECT_PROCESSOR));
-        assertTrue(correctFile.exists());
+    @Test
+    public void compileCorrectFilesSeparatelyAndCheckServiceFile() throws IOException {
+        InMemoryCompiler compiler = createCompiler();
+
+        assertThat(compiler.compile(getJavaFile(CORRECT_PROCESSOR))).succeeded().hadNoDiagnostics();
+        Compilation compilation = compiler.compile(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_ABSTRACT_PROCESSOR),
+                        getCanonicalName(CORRECT_PROCESSOR))
+                .generatedClassFile(getCanonicalName(CORRECT_ABSTRACT_PROCESSOR)).and()
+                .hasFile(StandardLocation.CLASS_OUTPUT, PACKAGE_PATH + CORRECT_PROCESSOR + ".class");
+
+        // A deleted processor is removed from the service file
+        assertTrue(compiler.removeClass(getCanonicalName(CORRECT_PROCESSOR)));
+        compilation = compiler.compile(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+        assertThat(compilation).succeeded().hadNoDiagnostics().hasServiceEntries(Processor.class,
+                getCanonicalName(CORRECT_ABSTRACT_PROCESSOR));
+    }
 
-        File processorServiceFile = new File(PROCESSOR_SERVICE_FILE);
-        assertTrue(processorServiceFile.exists());
+    @Test
+    public void compileCorrectInheritingProcessor() throws IOException {
+        Compilation compilation = createCompiler().compile(getJavaFile(CORRECT_INHERITING_PROCESSOR),
+                getJavaFile(BASE_PROCESSOR));
+
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_INHERITING_PROCESSOR))
+                .generatedClassFile(getCanonicalName(CORRECT_INHERITING_PROCESSOR)).and()
+                .generatedClassFile(getCanonicalName(BASE_PROCESSOR));
+    }
 
-        Scanner scanner = new Scanner(processorServiceFile);
-        assertTrue(scanner.hasNextLine());
-        assertEquals(getCanonicalName(CORRECT_PROCESSOR), scanner.nextLine());
-        assertFalse(scanner.hasNextLine());
+    @Test
+    public void compileIncorrectInheritingProcessor() throws IOException {
+        assertIncorrectProcessor(
+                createCompiler().compile(getJavaFile(INCORRECT_INHERITING_PROCESSOR), getJavaFile(BASE_PROCESSOR)),
+                INCORRECT_INHERITING_PROCESSOR, ErrorMessage.PROCESS);
+    }
 
-        assertTrue(correctFile.delete());
-        assertTrue(processorServiceFile.delete());
+    @Test
+    public void compileWithReport() throws IOException {
+        Compilation compilation = createCompiler("-Aannotationprocessor.report=json").compile(
+                getJavaFile(CORRECT_INHERITING_PROCESSOR), getJavaFile(BASE_PROCESSOR),
+                getJavaFile(INCORRECT_INHERITING_PROCESSOR));
+
+        assertThat(compilation).failed().hadDiagnosticCount(1)
+                .generatedFile(StandardLocation.CLASS_OUTPUT, PROCESSOR_REPORT_FILE)
+                .contains("\"generateServiceFile\": false")
+                .contains("\"serviceFileDisabledBy\": \"" + getCanonicalName(INCORRECT_INHERITING_PROCESSOR) + "\"")
+                .contains("\"classesValidated\": 2").contains("\"classesRejected\": 1").contains("\"wallTimeNanos\"");
     }
 
     @Test
-    public void compileCorrectFilesAndCheckServiceFile() throws IOException {
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        List<String> sources = Arrays.asList(getJavaFile(CORRECT_PROCESSOR), getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+    public void compileNoProcessorWithReport() throws IOException {
+        Compilation compilation = createCompiler("-Aannotationprocessor.report=json")
+                .compile(getJavaFile(NO_PROCESSOR));
+
+        assertThat(compilation).failed().hadDiagnosticCount(1)
+                .generatedFile(StandardLocation.CLASS_OUTPUT, PROCESSOR_REPORT_FILE)
+                .contains("\"serviceFileDisabledBy\": \"" + getCanonicalName(NO_PROCESSOR) + "\"")
+                .contains("\"classesValidated\": 1").contains("\"classesRejected\": 1");
+    }
+
+    @Test
+    public void compileWithProcessorIndex() throws IOException {
+        Compilation compilation = createCompiler("-Aannotationprocessor.index=" + getCanonicalName(PROCESSOR_INDEX))
+                .compile(getJavaFile(CORRECT_PROCESSOR));
+
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_PROCESSOR))
+                .generatedClassFile(getCanonicalName(CORRECT_PROCESSOR)).and()
+                .generatedClassFile(getCanonicalName(PROCESSOR_INDEX)).and()
+                .generatedSourceFile(getCanonicalName(PROCESSOR_INDEX))
+                .contains("return new " + getCanonicalName(CORRECT_PROCESSOR) + "();");
+    }
+
+    @Test
+    public void compileServiceFileSortedAndUnchanged() throws IOException {
+        InMemoryCompiler compiler = createCompiler();
+        String expected = getCanonicalName(CORRECT_ABSTRACT_PROCESSOR) + "\n" + getCanonicalName(CORRECT_PROCESSOR)
+                + "\n";
+
+        Compilation compilation = compiler.compile(getJavaFile(CORRECT_PROCESSOR),
+                getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .generatedFile(StandardLocation.CLASS_OUTPUT, PROCESSOR_SERVICE_FILE).hasContent(expected);
+
+        // An unchanged service file is not written again
+        compilation = compiler.compile(getJavaFile(CORRECT_PROCESSOR), getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .didNotGenerate(StandardLocation.CLASS_OUTPUT, PROCESSOR_SERVICE_FILE)
+                .hasFile(StandardLocation.CLASS_OUTPUT, PROCESSOR_SERVICE_FILE).hasContent(expected);
+    }
+
+    @Test
+    public void compileWithLintWarnings() throws IOException {
+        Compilation compilation = createCompiler("-Aannotationprocessor.lint=all")
+                .compile(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+
+        assertThat(compilation).succeeded().hadDiagnosticCount(2).diagnostic(0).isWarning()
+                .hasMessageEndingWith("[annotationprocessor.lint:unclaimed]").and().diagnostic(1).isWarning()
+                .hasMessageEndingWith("[annotationprocessor.lint:incremental]").and()
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_ABSTRACT_PROCESSOR))
+                .generatedClassFile(getCanonicalName(CORRECT_ABSTRACT_PROCESSOR));
+    }
+
+    @Test
+    public void compileWithLintError() throws IOException {
+        Compilation compilation = createCompiler("-Aannotationprocessor.lint=wildcard=error,unclaimed")
+                .compile(getJavaFile(WILDCARD_PROCESSOR));
+
+        // A processor supporting "*" must not claim, so it is not reported as unclaimed
+        assertThat(compilation).failed().hasNoServiceFile(Processor.class).hadDiagnosticCount(1).diagnostic(0)
+                .isError().isInSource(getJavaFileName(WILDCARD_PROCESSOR))
+                .hasMessageEndingWith("[annotationprocessor.lint:wildcard]");
+    }
+
+    @Test
+    public void compileIncrementalProcessors() throws IOException {
+        Compilation compilation = createCompiler().compile(getJavaFile(ISOLATING_PROCESSOR),
+                getJavaFile(CORRECT_DYNAMIC_PROCESSOR));
+
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .generatedFile(StandardLocation.CLASS_OUTPUT, PROCESSOR_SERVICE_FILE)
+                .hasContent(getCanonicalName(CORRECT_DYNAMIC_PROCESSOR) + "\n" + getCanonicalName(ISOLATING_PROCESSOR)
+                        + "\n")
+                .and().generatedFile(StandardLocation.CLASS_OUTPUT, GRADLE_INCREMENTAL_FILE)
+                .hasContent(getCanonicalName(CORRECT_DYNAMIC_PROCESSOR) + ",dynamic\n"
+                        + getCanonicalName(ISOLATING_PROCESSOR) + ",isolating\n");
+    }
+
+    @Test
+    public void compileIncorrectDynamicProcessor() throws IOException {
+        Compilation compilation = createCompiler().compile(getJavaFile(INCORRECT_DYNAMIC_PROCESSOR));
+
+        assertThat(compilation).failed().hasNoServiceFile(Processor.class)
+                .hasNoFile(StandardLocation.CLASS_OUTPUT, GRADLE_INCREMENTAL_FILE).hadDiagnosticCount(1)
+                .diagnostic(0).isError().isInSource(getJavaFileName(INCORRECT_DYNAMIC_PROCESSOR))
+                .hasMessage(getCanonicalName(INCORRECT_DYNAMIC_PROCESSOR)
+                        + " is a DYNAMIC incremental processor, but is not "
+                        + "advertising org.gradle.annotation.processing.isolating or "
+                        + "org.gradle.annotation.processing.aggregating in getSupportedOptions().");
+    }
+
+    @Test
+    public void compileWithIsolatingLint() throws IOException {
+        Compilation compilation = createCompiler("-Aannotationprocessor.lint=isolating=error")
+                .compile(getJavaFile(ISOLATING_PROCESSOR), getJavaFile(INCORRECT_ISOLATING_PROCESSOR));
+
+        // Reported at the calls without exactly one originating element
+        assertThat(compilation).failed().hasNoServiceFile(Processor.class).hadDiagnosticCount(2).diagnostic(0)
+                .isError().isInSource(getJavaFileName(INCORRECT_ISOLATING_PROCESSOR)).isOnLine(43)
+                .hasMessageContaining("createResource with 0 originating elements").and().diagnostic(1).isError()
+                .isOnLine(53).hasMessageContaining("createResource with an array of originating elements");
+    }
 
-        assertTrue(compile(sources, diagnostics));
+    @Test
+    public void compileWithRetentionLint() throws IOException {
+        Compilation compilation = createCompiler("-Aannotationprocessor.lint=retention=error")
+                .compile(getJavaFile(RETAINING_PROCESSOR));
+
+        // Reported at the fields retaining model types, but not at names, references and utilities
+        assertThat(compilation).failed().hasNoServiceFile(Processor.class).hadDiagnosticCount(3).diagnostic(0)
+                .isError().isInSource(getJavaFileName(RETAINING_PROCESSOR)).isOnLine(42)
+                .hasMessageEndingWith("[annotationprocessor.lint:retention]").and().diagnostic(1).isError()
+                .isOnLine(44)
+                .hasMessageContaining(getCanonicalName(RETAINING_PROCESSOR) + " keeps java.util.Set<javax.lang.model."
+                        + "element.TypeElement> in the field RetainingProcessor.annotatedClasses")
+                .hasMessageContaining("Store qualified names or other stable keys instead").and().diagnostic(2)
+                .isError().isOnLine(45);
+    }
 
-        File correctFile1 = new File(getClassFile(CORRECT_PROCESSOR));
-        assertTrue(correctFile1.exists());
-        File correctFile2 = new File(getClassFile(CORRECT_ABSTRACT_PROCESSOR));
-        assertTrue(correctFile2.exists());
+    @Test
+    public void compileProfiledProcessor() throws IOException {
+        InMemoryCompiler workspace = InMemoryCompiler.javac().withModules(MODULES);
+        Compilation compilation = workspace.withOptions(OPTIONS).compile(getJavaFile(PROFILED_PROCESSOR));
+
+        // The service file keeps the processor, the profiling processor is listed next to it
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(PROFILED_PROCESSOR))
+                .generatedFile(StandardLocation.CLASS_OUTPUT, PROFILING_PROCESSORS_FILE)
+                .hasContent(getCanonicalName(PROFILED_PROCESSOR) + "=" + getCanonicalName(PROFILING_PROCESSOR) + "\n")
+                .and().generatedSourceFile(getCanonicalName(PROFILING_PROCESSOR)).and()
+                .generatedClassFile(getCanonicalName(PROFILING_PROCESSOR));
+
+        // The profiling processor is never presented @Deprecated, so javac does not call it in the last round
+        compilation = workspace.withOptions("-classpath", _classes_dir, "--module-path", _module_path, "-proc:only", "-processor",
+                getCanonicalName(PROFILING_PROCESSOR)).compile(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+        assertThat(compilation).succeeded().hadDiagnosticCount(1).diagnostic(0).isNote()
+                .hasMessageStartingWith("Profile of " + getCanonicalName(PROFILED_PROCESSOR) + ": init ")
+                .hasMessageEndingWith("No annotation was presented to it, it can be removed from the processor path.");
+    }
 
-        assertEquals(0, diagnostics.getDiagnostics().size());
+    @Test
+    public void compileWithClassLoadingReport() throws IOException {
+        InMemoryCompiler workspace = InMemoryCompiler.javac().withModules(MODULES);
+        Compilation compilation = workspace.withOptions(OPTIONS)
+                .withOptions("-Aannotationprocessor.classloading=report").compile(getJavaFile(LAZY_PROCESSOR));
+
+        // Every processor is profiled, not only the ones declaring profile
+        assertThat(compilation).succeeded().hadNoDiagnostics()
+                .hasServiceEntries(Processor.class, getCanonicalName(LAZY_PROCESSOR))
+                .generatedFile(StandardLocation.CLASS_OUTPUT, PROFILING_PROCESSORS_FILE)
+                .hasContent(getCanonicalName(LAZY_PROCESSOR) + "=" + getCanonicalName(LAZY_PROFILING_PROCESSOR) + "\n")
+                .and().generatedClassFile(getCanonicalName(LAZY_PROFILING_PROCESSOR));
+
+        // Without the agent, the touched processor path entries are not listed. LazyProcessor declares no source
+        // version, so javac warns twice after its init note.
+        compilation = workspace.withOptions("-classpath", _classes_dir, "--module-path", _module_path,
+                "-proc:only", "-processor", getCanonicalName(LAZY_PROFILING_PROCESSOR),
+                "-Aannotationprocessor.classloading=report").compile(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+        assertThat(compilation).succeeded().hadNoteCount(3).diagnostic(0).hasMessage("LazyProcessor initialized")
+                .and().diagnostic(3).hasMessageStartingWith("Profile of " + getCanonicalName(LAZY_PROCESSOR))
+                .and().diagnostic(4).isNote()
+                .hasMessageStartingWith("Class loading of " + getCanonicalName(LAZY_PROCESSOR) + ": construction ")
+                .hasMessageContaining(" classes in ").hasMessageContaining(", init ")
+                .hasMessageContaining(", first round ").hasMessageEndingWith("to list the touched processor path entries.");
+    }
 
-        File processorServiceFile = new File(PROCESSOR_SERVICE_FILE);
-        assertTrue(processorServiceFile.exists());
+    @Test
+    public void compileLazyProcessors() throws IOException {
+        InMemoryCompiler workspace = InMemoryCompiler.javac().withModules(MODULES);
+        Compilation compilation = workspace.withOptions(OPTIONS).withOptions("-Aannotationprocessor.lazy=true")
+                .compile(getJavaFile(LAZY_PROCESSOR), getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+
+        assertThat(compilation).succeeded().hadDiagnosticCount(1).diagnostic(0).isNote()
+                .hasMessage(getCanonicalName(CORRECT_ABSTRACT_PROCESSOR) + " does not declare its annotation types "
+                        + "with @SupportedAnnotationTypes. It is registered without lazy processor.")
+                .and().hasServiceEntries(Processor.class, getCanonicalName(CORRECT_ABSTRACT_PROCESSOR),
+                        getCanonicalName(LAZY_PROXY_PROCESSOR))
+                .generatedSourceFile(getCanonicalName(LAZY_PROXY_PROCESSOR)).and()
+                .generatedClassFile(getCanonicalName(LAZY_PROXY_PROCESSOR));
+
+        // Without @AnnotationProcessor in the sources, the lazy processor never instantiates the processor
+        InMemoryCompiler compiler = workspace.withOptions("-classpath", _classes_dir, "--module-path", _module_path, "-proc:only", "-processor",
+                getCanonicalName(LAZY_PROXY_PROCESSOR), "-Alazy.processor");
+        compilation = compiler.compile(getJavaFile(CODEC));
+        assertThat(compilation).succeeded();
+        assertEquals(0, countNotes(compilation, "LazyProcessor initialized"));
+
+        compilation = compiler.compile(getJavaFile(CORRECT_ABSTRACT_PROCESSOR));
+        assertThat(compilation).succeeded();
+        assertEquals(1, countNotes(compilation, "LazyProcessor initialized"));
+        for (Diagnostic<? extends JavaFileObject> each : compilation.getDiagnostics()) {
+            // The supported option is answered by the lazy processor
+            assertFalse(each.getMessage(null).contains("lazy.processor"), each.getMessage(null));
+        }
+    }
 
-        Scanner scanner = new Scanner(processorServiceFile);
-        assertTrue(scanner.hasNextLine());
-        assertEquals(getCanonicalName(CORRECT_PROCESSOR), scanner.nextLine());
-        assertTrue(scanner.hasNextLine());
-        assertEquals(getCanonicalName(CORRECT_ABSTRACT_PROCESSOR), scanner.nextLine());
-        assertFalse(scanner.hasNextLine());
+    @Test
+    public void compileWithoutRetainingElements() throws IOException {
+        RetentionCheckingProcessor processor = new RetentionCheckingProcessor(newAnnotationProcessorProcessor());
+        // The processor index is generated in the first round, so that there is a second round with new elements
+        Compilation compilation = createCompiler("-Aannotationprocessor.index=" + getCanonicalName(PROCESSOR_INDEX))
+                .withProcessors(processor).compile(getJavaFile(CORRECT_PROCESSOR), getJavaFile(OUTER_PROCESSOR));
+
+        assertThat(compilation).succeeded().hadNoDiagnostics();
+        assertEquals(3, processor.rounds);
+        assertNull(processor.retainedElement, "Element retained after round: " + processor.retainedElement);
+        assertThat(compilation)
+                .hasServiceEntries(Processor.class, getCanonicalName(CORRECT_PROCESSOR),
+                        getCanonicalName(INNER_PROCESSOR))
+                .generatedSourceFile(getCanonicalName(PROCESSOR_INDEX)).contains(getCanonicalName(INNER_PROCESSOR))
+                .contains("return new " + getCanonicalName(INNER_PROCESSOR).replace('$', '.') + "();");
+    }
 
-        assertTrue(correctFile1.delete());
-        assertTrue(correctFile2.delete());
-        assertTrue(processorServiceFile.delete());
+    @Test
+    public void compileServiceFileWithOriginatingElements() throws IOException {
+        OriginatingElementsRecordingProcessor processor = new OriginatingElementsRecordingProcessor(
+                newAnnotationProcessorProcessor());
+        Compilation compilation = createCompiler().withProcessors(processor)
+                .compile(getJavaFile(CORRECT_PROCESSOR), getJavaFile(OUTER_PROCESSOR));
+
+        // Gradle tracks an aggregating output by its originating elements, which are the processors of all rounds
+        assertThat(compilation).succeeded().hadNoDiagnostics();
+        assertEquals(
+                Arrays.asList(getCanonicalName(CORRECT_PROCESSOR), getCanonicalName(INNER_PROCESSOR).replace('$', '.')),
+                processor.originatingElementsByResource.get(PROCESSOR_SERVICE_FILE));
+    }
+
+    /**
+     * Processor, which delegates to another processor and searches the fields of the delegate for elements after each
+     * round. Fields are followed into classes of this project, arrays, collections and maps.
+     */
+    private static class RetentionCheckingProcessor implements Processor {
+
+        private final Processor delegate;
+        private int rounds;
+        private String retainedElement;
+
+        RetentionCheckingProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return this.delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return this.delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return this.delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            this.delegate.init(processingEnv);
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            boolean claimed = this.delegate.process(annotations, roundEnv);
+            this.rounds++;
+            if (this.retainedElement == null) {
+                this.retainedElement = findElement(this.delegate);
+            }
+            return claimed;
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+            return this.delegate.getCompletions(element, annotation, member, userText);
+        }
+
+        private static String findElement(Object root) {
+            Map<Object, String> paths = new IdentityHashMap<>();
+            Deque<Object> queue = new ArrayDeque<>();
+            paths.put(root, root.getClass().getSimpleName());
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                Object object = queue.removeFirst();
+                String path = paths.get(object);
+                if (object instanceof Element) {
+                    return path + " = " + object;
+                }
+                List<Object> children = new ArrayList<>();
+                List<String> names = new ArrayList<>();
+                if (object instanceof Object[]) {
+                    children.addAll(Arrays.asList((Object[]) object));
+                } else if (object instanceof Collection) {
+                    children.addAll((Collection<?>) object);
+                } else if (object instanceof Map) {
+                    children.addAll(((Map<?, ?>) object).keySet());
+                    children.addAll(((Map<?, ?>) object).values());
+                } else if (object.getClass().getName().startsWith(PACKAGE_NAME)) {
+                    for (Class<?> c = object.getClass(); c.getName().startsWith(PACKAGE_NAME); c = c.getSuperclass()) {
+                        for (Field field : c.getDeclaredFields()) {
+                            if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                                continue;
+                            }
+                            field.setAccessible(true);
+                            try {
+                                children.add(field.get(object));
+                            } catch (IllegalAccessException e) {
+                                throw new IllegalStateException(e);
+                            }
+                            names.add(field.getName());
+                        }
+                    }
+                }
+                for (int i = 0; i < children.size(); i++) {
+                    Object child = children.get(i);
+                    if (child != null && !paths.containsKey(child)) {
+                        paths.put(child, path + (i < names.size() ? "." + names.get(i) : "[]"));
+                        queue.add(child);
+                    }
+                }
+            }
+            return null;
+        }
     }
 
     private enum ErrorMessage {
         SUPPORTED_OPTIONS, SUPPORTED_ANNOTATION_TYPES, SUPPORTED_SOURCE_VERSION, INIT, PROCESS, GET_COMPLETIONS
     }
+
+    /**
+     * Processor, which delegates to another processor and records the originating elements of the resources it
+     * creates with the {@link Filer}.
+     */
+    private static class OriginatingElementsRecordingProcessor implements Processor {
+
+        private final Processor delegate;
+        private final Map<String, List<String>> originatingElementsByResource = new HashMap<String, List<String>>();
+
+        OriginatingElementsRecordingProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return this.delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return this.delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return this.delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(final ProcessingEnvironment processingEnv) {
+            final Filer filer = new Filer() {
+
+                @Override
+                public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements)
+                        throws IOException {
+                    return processingEnv.getFiler().createSourceFile(name, originatingElements);
+                }
+
+                @Override
+                public JavaFileObject createClassFile(CharSequence name, Element... originatingElements)
+                        throws IOException {
+                    return processingEnv.getFiler().createClassFile(name, originatingElements);
+                }
+
+                @Override
+                public FileObject createResource(JavaFileManager.Location location, CharSequence moduleAndPkg,
+                        CharSequence relativeName, Element... originatingElements) throws IOException {
+                    List<String> names = new ArrayList<String>();
+                    for (Element originatingElement : originatingElements) {
+                        names.add(((TypeElement) originatingElement).getQualifiedName().toString());
+                    }
+                    Collections.sort(names);
+                    originatingElementsByResource.put(relativeName.toString().replace(File.separatorChar, '/'), names);
+                    return processingEnv.getFiler().createResource(location, moduleAndPkg, relativeName,
+                            originatingElements);
+                }
+
+                @Override
+                public FileObject getResource(JavaFileManager.Location location, CharSequence moduleAndPkg,
+                        CharSequence relativeName) throws IOException {
+                    return processingEnv.getFiler().getResource(location, moduleAndPkg, relativeName);
+                }
+            };
+            this.delegate.init(new ProcessingEnvironment() {
+
+                @Override
+                public Map<String, String> getOptions() {
+                    return processingEnv.getOptions();
+                }
+
+                @Override
+                public Messager getMessager() {
+                    return processingEnv.getMessager();
+                }
+
+                @Override
+                public Filer getFiler() {
+                    return filer;
+                }
+
+                @Override
+                public Elements getElementUtils() {
+                    return processingEnv.getElementUtils();
+                }
+
+                @Override
+                public Types getTypeUtils() {
+                    return processingEnv.getTypeUtils();
+                }
+
+                @Override
+                public SourceVersion getSourceVersion() {
+                    return processingEnv.getSourceVersion();
+                }
+
+                @Override
+                public Locale getLocale() {
+                    return processingEnv.getLocale();
+                }
+            });
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            return this.delegate.process(annotations, roundEnv);
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                ExecutableElement member, String userText) {
+            return this.delegate.getCompletions(element, annotation, member, userText);
+        }
+    }
 }
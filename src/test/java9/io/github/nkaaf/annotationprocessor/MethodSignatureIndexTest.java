@@ -0,0 +1,134 @@
+package io.github.nkaaf.annotationprocessor;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import io.github.nkaaf.annotationprocessor.testkit.Compilation;
+import io.github.nkaaf.annotationprocessor.testkit.InMemoryCompiler;
+import io.github.nkaaf.annotationprocessor.util.MethodSignatureIndex;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static io.github.nkaaf.annotationprocessor.testkit.CompilationAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MethodSignatureIndexTest {
+
+    private static final String _src_dir = System.getProperty("src.dir");
+
+    private static final String PACKAGE_NAME = "io.github.nkaaf.annotationprocessor.";
+    private static final String PACKAGE_PATH = PACKAGE_NAME.replace('.', '/');
+
+    private static final String SIGNATURE_METHODS = "SignatureMethods";
+
+    // Methods of SignatureMethods matching the methods of SignatureMethods.Expected in declaration order
+    private static final List<String> MATCHES = Arrays.asList("overloaded(java.lang.String)", "overloaded(int[])",
+            "overloaded(java.lang.String[][])", null, null,
+            "<T>generic(java.util.List<? extends T>,java.util.Map<java.lang.String,T>)", "bounded(S)", null);
+
+    private static Compilation compile(SignatureProcessor processor) throws IOException {
+        return InMemoryCompiler.javac().withOptions("-proc:only").withProcessors(processor)
+                .compile(new File(_src_dir + "/test/java/" + PACKAGE_PATH + SIGNATURE_METHODS + ".java"));
+    }
+
+    @Test
+    public void findOverloadsGenericsAndArrays() throws IOException {
+        SignatureProcessor processor = new SignatureProcessor(null);
+
+        assertThat(compile(processor)).succeeded().hadNoDiagnostics();
+        assertEquals(MATCHES, processor.matches);
+    }
+
+    @Test
+    public void findSignaturesOfAnotherCompilation() throws IOException {
+        // javac 8 and earlier create a new symbol table for every round, so signatures resolved in the first round do
+        // not share the types of the later rounds. Two compilations do not share them either.
+        SignatureProcessor previous = new SignatureProcessor(null);
+        assertThat(compile(previous)).succeeded().hadNoDiagnostics();
+        SignatureProcessor processor = new SignatureProcessor(previous.signatures);
+
+        assertThat(compile(processor)).succeeded().hadNoDiagnostics();
+        assertEquals(MATCHES, processor.matches);
+    }
+
+    /**
+     * Processor, which resolves the signatures of the methods of SignatureMethods.Expected and looks them up in the
+     * methods of SignatureMethods in the first round.
+     */
+    @SupportedAnnotationTypes("*")
+    private static class SignatureProcessor extends AbstractProcessor {
+
+        private final List<MethodSignatureIndex.Signature> previousSignatures;
+        private final List<MethodSignatureIndex.Signature> signatures = new ArrayList<MethodSignatureIndex.Signature>();
+        private final List<String> matches = new ArrayList<String>();
+
+        /**
+         * @param previousSignatures
+         *            Signatures to look up instead of the ones resolved by this processor, null to look up the latter
+         */
+        SignatureProcessor(List<MethodSignatureIndex.Signature> previousSignatures) {
+            this.previousSignatures = previousSignatures;
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (roundEnv.processingOver() || !this.signatures.isEmpty()) {
+                return false;
+            }
+            Elements elements = processingEnv.getElementUtils();
+            MethodSignatureIndex index = new MethodSignatureIndex(processingEnv);
+            TypeElement expected = elements.getTypeElement(PACKAGE_NAME + SIGNATURE_METHODS + ".Expected");
+            for (ExecutableElement method : ElementFilter.methodsIn(expected.getEnclosedElements())) {
+                this.signatures.add(index.createSignature(method));
+            }
+
+            TypeElement typeElement = elements.getTypeElement(PACKAGE_NAME + SIGNATURE_METHODS);
+            MethodSignatureIndex.Methods methods = index.index(typeElement);
+            for (MethodSignatureIndex.Signature signature : this.previousSignatures == null ? this.signatures
+                    : this.previousSignatures) {
+                ExecutableElement method = methods.find(signature);
+                this.matches.add(method == null ? null : method.toString());
+                assertEquals(method != null, methods.contains(signature));
+            }
+            return false;
+        }
+    }
+}
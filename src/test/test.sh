@@ -161,11 +161,28 @@ __debug "$DEBUG" "All libraries are (now) imported"
 
 _compiler_options="-classpath $_junit_jar -encoding UTF-8 -proc:none"
 
-_annotation_processor_file="$_sources_dir/main/java/$_package_name_dir/annotation/AnnotationProcessor.java"
-_annotation_processor_test_file_6="$_test_dir/java/$_package_name_dir/AnnotationProcessorTest.java"
-_annotation_processor_test_file_9="$_test_dir/java9/$_package_name_dir/AnnotationProcessorTest.java"
+_annotation_processor_file="$_sources_dir/main/java/$_package_name_dir/annotation/AnnotationProcessor.java $_sources_dir/main/java/$_package_name_dir/annotation/Service.java"
+_annotation_processor_test_file_6="$_test_dir/java/$_package_name_dir/AnnotationProcessorTest.java $_test_dir/java/$_package_name_dir/ServiceProcessorTest.java $_test_dir/java/$_package_name_dir/MethodSignatureIndexTest.java"
+_annotation_processor_test_file_9="$_test_dir/java9/$_package_name_dir/AnnotationProcessorTest.java $_test_dir/java9/$_package_name_dir/ServiceProcessorTest.java $_test_dir/java9/$_package_name_dir/MethodSignatureIndexTest.java"
+_testkit_files="$_project_dir/testkit/src/main/java/$_package_name_dir/testkit/*.java"
 _annotation_processor_processor_file_6="$_sources_dir/main/java/$_package_name_dir/processor/AnnotationProcessorProcessor.java"
 _annotation_processor_processor_file_9="$_sources_dir/main/java9/$_package_name_dir/processor/AnnotationProcessorProcessor.java"
+_annotation_processor_processor_support_files="$_sources_dir/main/java/$_package_name_dir/processor/ProcessingReport.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ProcessorIndexWriter.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ServiceProcessor.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ServiceRegistryWriter.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/LineResourceWriter.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ProcessorLint.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ProcessorSource.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ProfilingProcessorWriter.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/SourceWriter.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/StateFile.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ProcessingUtils.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/ProcessorOptions.java"
+_annotation_processor_processor_support_files+=" $_sources_dir/main/java/$_package_name_dir/processor/LazyProcessorWriter.java"
+_annotation_processor_util_files="$_sources_dir/main/java/$_package_name_dir/util/*.java"
+_annotation_processor_event_files_6="$_sources_dir/main/java/$_package_name_dir/event/ProcessingEvents.java"
+_annotation_processor_event_files_11="$_sources_dir/main/java11/$_package_name_dir/event/*.java"
 
 _test() {
   if [ "$#" -ne 1 ]; then
@@ -180,21 +197,36 @@ _test() {
   local module_options
   local main_dir
   local classpath_with_test
+  local tools_classpath
+  local module_info_file
+  local event_files
 
   java_version=$1
   compile_modules=false
   module_options=
+  tools_classpath=
+  module_info_file="$_sources_dir/main/java9/module-info.java"
+  event_files=$_annotation_processor_event_files_6
 
   rm -rf "${_out_dir:?}/"*
 
   case $java_version in
     "6" | "7" | "8")
       java_options="-source 1.$java_version -target 1.$java_version"
+      # The lint of the processor uses the compiler tree API, which is not part of the class library before Java 9
+      tools_classpath=":$JAVA_HOME/lib/tools.jar"
       ;;
-    "9" | "10" | "11" | "12" | "13" | "14" | "15" | "16")
+    "9" | "10")
       java_options="--release $java_version"
       compile_modules=true
       ;;
+    "11" | "12" | "13" | "14" | "15" | "16")
+      java_options="--release $java_version"
+      compile_modules=true
+      # The events of the JDK Flight Recorder are available since Java 11
+      module_info_file="$_sources_dir/main/java11/module-info.java"
+      event_files=$_annotation_processor_event_files_11
+      ;;
     *)
       __echo yellow "DEV NOTE: incorrect Java Version $java_version!"
       return 1
@@ -204,7 +236,7 @@ _test() {
   if [ "$compile_modules" == true ]; then
     module_path="$_junit_api_jar:$_junit_platform_jar:$_apiguardian_jar:$_opentest_jar"
 
-    if ! eval "javac -d $_out_dir/main $_compiler_options $java_options $_sources_dir/main/java9/module-info.java $_annotation_processor_file $_annotation_processor_processor_file_9"; then
+    if ! eval "javac -d $_out_dir/main $_compiler_options $java_options $module_info_file $_annotation_processor_file $_annotation_processor_processor_file_9 $_annotation_processor_processor_support_files $_annotation_processor_util_files $event_files"; then
       __echo red "Java $java_version Test failed"
       return 0
     fi
@@ -218,7 +250,7 @@ _test() {
 
     module_path="$module_path:$_out_dir/test"
 
-    if ! eval "javac -d $_out_dir/test $_compiler_options $java_options --module-path $module_path $_annotation_processor_test_file_9"; then
+    if ! eval "javac -d $_out_dir/test $_compiler_options $java_options --module-path $module_path $_annotation_processor_test_file_9 $_testkit_files"; then
       __echo red "Java $java_version Test failed"
       return 0
     fi
@@ -227,7 +259,7 @@ _test() {
     classpath_with_test="$_out_dir/test"
     main_dir="$_out_dir/main"
   else
-    if ! eval "javac -d $_out_dir $_compiler_options $java_options $_annotation_processor_file $_annotation_processor_processor_file_6 $_annotation_processor_test_file_6"; then
+    if ! eval "javac -d $_out_dir $_compiler_options -classpath $_junit_jar$tools_classpath $java_options $_annotation_processor_file $_annotation_processor_processor_file_6 $_annotation_processor_processor_support_files $_annotation_processor_util_files $event_files $_annotation_processor_test_file_6 $_testkit_files"; then
       __echo red "Java $java_version Test failed"
       return 0
     fi
@@ -236,7 +268,7 @@ _test() {
     main_dir=$_out_dir
   fi
 
-  if eval "java $module_options -Dsrc.dir=$_sources_dir -Dout.dir=$main_dir -jar $_junit_jar --classpath $classpath_with_test --scan-classpath --disable-banner --details=none"; then
+  if eval "java $module_options -Dsrc.dir=$_sources_dir -Dout.dir=$main_dir -jar $_junit_jar --classpath $classpath_with_test$tools_classpath --scan-classpath --config junit.jupiter.execution.parallel.enabled=true --config junit.jupiter.execution.parallel.mode.default=concurrent --disable-banner --details=none"; then
     __echo green "Java $java_version Test successful"
   else
     __echo red "Java $java_version Test failed"
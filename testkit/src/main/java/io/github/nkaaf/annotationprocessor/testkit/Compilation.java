@@ -0,0 +1,213 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Result of a compilation of an {@link InMemoryCompiler}: success, diagnostics and the files in memory after the
+ * compilation.
+ * </p>
+ *
+ * <p>
+ * The files are snapshots. A later compilation with the same files does not change the files of this result.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class Compilation {
+
+    private static final String SERVICES = "META-INF/services/";
+
+    private final boolean success;
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+    private final Map<String, InMemoryFileObject> generatedFiles;
+    private final Map<String, InMemoryFileObject> files;
+
+    Compilation(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics,
+            List<InMemoryFileObject> generatedFiles, List<InMemoryFileObject> files) {
+        this.success = success;
+        this.diagnostics = Collections
+                .unmodifiableList(new ArrayList<Diagnostic<? extends JavaFileObject>>(diagnostics));
+        this.generatedFiles = toMap(generatedFiles);
+        this.files = toMap(files);
+    }
+
+    private static Map<String, InMemoryFileObject> toMap(List<InMemoryFileObject> files) {
+        Map<String, InMemoryFileObject> map = new LinkedHashMap<String, InMemoryFileObject>();
+        for (InMemoryFileObject file : files) {
+            map.put(InMemoryFileManager.getKey(file.getLocation(), file.getRelativeName()), file);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Whether the compilation succeeded, i.e. no error was reported.
+     *
+     * @return true, if the compilation succeeded
+     */
+    public boolean succeeded() {
+        return this.success;
+    }
+
+    /**
+     * Get all diagnostics in the order they were reported.
+     *
+     * @return {@link List} of {@link Diagnostic}
+     */
+    public List<Diagnostic<? extends JavaFileObject>> getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    /**
+     * Get the diagnostics of a kind in the order they were reported.
+     *
+     * @param kind
+     *            {@link Diagnostic.Kind}
+     *
+     * @return {@link List} of {@link Diagnostic}
+     */
+    public List<Diagnostic<? extends JavaFileObject>> getDiagnostics(Diagnostic.Kind kind) {
+        List<Diagnostic<? extends JavaFileObject>> result = new ArrayList<Diagnostic<? extends JavaFileObject>>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : this.diagnostics) {
+            if (diagnostic.getKind() == kind) {
+                result.add(diagnostic);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the files written by this compilation, i.e. class files, generated sources and resources. A file written
+     * several times is listed once with its last content.
+     *
+     * @return {@link List} of {@link InMemoryFileObject}
+     */
+    public List<InMemoryFileObject> getGeneratedFiles() {
+        return new ArrayList<InMemoryFileObject>(this.generatedFiles.values());
+    }
+
+    /**
+     * Get a file written by this compilation.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return {@link InMemoryFileObject} or null, if this compilation did not write the file
+     */
+    public InMemoryFileObject getGeneratedFile(JavaFileManager.Location location, String relativeName) {
+        return this.generatedFiles.get(InMemoryFileManager.getKey(location, relativeName));
+    }
+
+    /**
+     * Get a file in memory after this compilation, also if it was written by an earlier compilation.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return {@link InMemoryFileObject} or null, if it does not exist
+     */
+    public InMemoryFileObject getFile(JavaFileManager.Location location, String relativeName) {
+        return this.files.get(InMemoryFileManager.getKey(location, relativeName));
+    }
+
+    /**
+     * Get the entries of a service file in {@link StandardLocation#CLASS_OUTPUT} after this compilation. Comments and
+     * blank lines are skipped.
+     *
+     * @param service
+     *            Service interface
+     *
+     * @return {@link List} of the binary names of the service providers, empty if there is no service file
+     */
+    public List<String> getServiceEntries(Class<?> service) {
+        return getServiceEntries(service.getName());
+    }
+
+    /**
+     * Get the entries of a service file in {@link StandardLocation#CLASS_OUTPUT} after this compilation. Comments and
+     * blank lines are skipped.
+     *
+     * @param service
+     *            Binary name of the service interface
+     *
+     * @return {@link List} of the binary names of the service providers, empty if there is no service file
+     */
+    public List<String> getServiceEntries(String service) {
+        InMemoryFileObject file = getFile(StandardLocation.CLASS_OUTPUT, SERVICES + service);
+        List<String> entries = new ArrayList<String>();
+        if (file == null) {
+            return entries;
+        }
+        String content;
+        try {
+            content = file.getContentAsString();
+        } catch (FileNotFoundException e) {
+            return entries;
+        }
+        for (String line : content.split("\r?\n|\r")) {
+            int comment = line.indexOf('#');
+            String entry = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(this.success ? "Compilation succeeded" : "Compilation failed");
+        if (this.diagnostics.isEmpty()) {
+            return builder.append(" without diagnostics").toString();
+        }
+        builder.append(" with diagnostics:");
+        for (Diagnostic<? extends JavaFileObject> diagnostic : this.diagnostics) {
+            builder.append(System.lineSeparator()).append("  ").append(diagnostic.getKind()).append(": ");
+            if (diagnostic.getSource() != null) {
+                builder.append(diagnostic.getSource().getName()).append(':').append(diagnostic.getLineNumber())
+                        .append(": ");
+            }
+            builder.append(diagnostic.getMessage(null));
+        }
+        return builder.toString();
+    }
+}
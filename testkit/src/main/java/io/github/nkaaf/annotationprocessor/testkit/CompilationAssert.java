@@ -0,0 +1,353 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Fluent assertions on a {@link Compilation}. A failed assertion throws an {@link AssertionError}, which contains the
+ * diagnostics of the compilation, so it is reported by every test framework:
+ * </p>
+ *
+ * <pre>
+ * CompilationAssert.assertThat(compilation).succeeded().hadNoteCount(1).diagnostic(0).isNote()
+ *         .hasMessageContaining("processed");
+ * </pre>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class CompilationAssert {
+
+    private final Compilation compilation;
+
+    private CompilationAssert(Compilation compilation) {
+        this.compilation = compilation;
+    }
+
+    /**
+     * Start assertions on a compilation.
+     *
+     * @param compilation
+     *            {@link Compilation}
+     *
+     * @return {@link CompilationAssert}
+     */
+    public static CompilationAssert assertThat(Compilation compilation) {
+        if (compilation == null) {
+            throw new AssertionError("Expected a compilation, but was null");
+        }
+        return new CompilationAssert(compilation);
+    }
+
+    AssertionError fail(String message) {
+        return new AssertionError(message + System.lineSeparator() + this.compilation);
+    }
+
+    /**
+     * Assert, that the compilation succeeded.
+     *
+     * @return this
+     */
+    public CompilationAssert succeeded() {
+        if (!this.compilation.succeeded()) {
+            throw fail("Expected the compilation to succeed");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the compilation failed.
+     *
+     * @return this
+     */
+    public CompilationAssert failed() {
+        if (this.compilation.succeeded()) {
+            throw fail("Expected the compilation to fail");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the compilation reported no diagnostic.
+     *
+     * @return this
+     */
+    public CompilationAssert hadNoDiagnostics() {
+        return hadDiagnosticCount(0);
+    }
+
+    /**
+     * Assert the number of all diagnostics.
+     *
+     * @param count
+     *            Expected number
+     *
+     * @return this
+     */
+    public CompilationAssert hadDiagnosticCount(int count) {
+        return hadCount("diagnostics", this.compilation.getDiagnostics(), count);
+    }
+
+    /**
+     * Assert the number of errors.
+     *
+     * @param count
+     *            Expected number
+     *
+     * @return this
+     */
+    public CompilationAssert hadErrorCount(int count) {
+        return hadCount("errors", this.compilation.getDiagnostics(Diagnostic.Kind.ERROR), count);
+    }
+
+    /**
+     * Assert the number of warnings, including mandatory warnings.
+     *
+     * @param count
+     *            Expected number
+     *
+     * @return this
+     */
+    public CompilationAssert hadWarningCount(int count) {
+        List<Diagnostic<? extends JavaFileObject>> warnings = this.compilation.getDiagnostics(Diagnostic.Kind.WARNING);
+        warnings.addAll(this.compilation.getDiagnostics(Diagnostic.Kind.MANDATORY_WARNING));
+        return hadCount("warnings", warnings, count);
+    }
+
+    /**
+     * Assert the number of notes.
+     *
+     * @param count
+     *            Expected number
+     *
+     * @return this
+     */
+    public CompilationAssert hadNoteCount(int count) {
+        return hadCount("notes", this.compilation.getDiagnostics(Diagnostic.Kind.NOTE), count);
+    }
+
+    private CompilationAssert hadCount(String name, List<?> diagnostics, int count) {
+        if (diagnostics.size() != count) {
+            throw fail("Expected " + count + " " + name + ", but was " + diagnostics.size());
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that a diagnostic of a kind contains a text.
+     *
+     * @param kind
+     *            {@link Diagnostic.Kind}
+     * @param text
+     *            Expected part of the message
+     *
+     * @return this
+     */
+    public CompilationAssert hadDiagnosticContaining(Diagnostic.Kind kind, String text) {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : this.compilation.getDiagnostics(kind)) {
+            if (diagnostic.getMessage(null).contains(text)) {
+                return this;
+            }
+        }
+        throw fail("Expected a diagnostic of kind " + kind + " containing \"" + text + "\"");
+    }
+
+    /**
+     * Start assertions on a diagnostic.
+     *
+     * @param index
+     *            Index of the diagnostic in the order they were reported
+     *
+     * @return {@link DiagnosticAssert}
+     */
+    public DiagnosticAssert diagnostic(int index) {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = this.compilation.getDiagnostics();
+        if (index < 0 || index >= diagnostics.size()) {
+            throw fail("Expected a diagnostic at index " + index + ", but there are " + diagnostics.size());
+        }
+        return new DiagnosticAssert(this, diagnostics.get(index));
+    }
+
+    /**
+     * Assert the entries of a service file in {@link StandardLocation#CLASS_OUTPUT}, in this order.
+     *
+     * @param service
+     *            Service interface
+     * @param providers
+     *            Expected binary names of the service providers
+     *
+     * @return this
+     */
+    public CompilationAssert hasServiceEntries(Class<?> service, String... providers) {
+        return hasServiceEntries(service.getName(), providers);
+    }
+
+    /**
+     * Assert the entries of a service file in {@link StandardLocation#CLASS_OUTPUT}, in this order.
+     *
+     * @param service
+     *            Binary name of the service interface, e.g. of a service compiled in the test
+     * @param providers
+     *            Expected binary names of the service providers
+     *
+     * @return this
+     */
+    public CompilationAssert hasServiceEntries(String service, String... providers) {
+        List<String> entries = this.compilation.getServiceEntries(service);
+        if (!entries.equals(Arrays.asList(providers))) {
+            throw fail("Expected service entries " + Arrays.asList(providers) + " of " + service + ", but was "
+                    + entries);
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that there is no service file of a service in {@link StandardLocation#CLASS_OUTPUT}.
+     *
+     * @param service
+     *            Service interface
+     *
+     * @return this
+     */
+    public CompilationAssert hasNoServiceFile(Class<?> service) {
+        return hasNoServiceFile(service.getName());
+    }
+
+    /**
+     * Assert, that there is no service file of a service in {@link StandardLocation#CLASS_OUTPUT}.
+     *
+     * @param service
+     *            Binary name of the service interface
+     *
+     * @return this
+     */
+    public CompilationAssert hasNoServiceFile(String service) {
+        return hasNoFile(StandardLocation.CLASS_OUTPUT, "META-INF/services/" + service);
+    }
+
+    /**
+     * Assert, that a file exists after the compilation, also if it was written by an earlier compilation.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return {@link FileAssert}
+     */
+    public FileAssert hasFile(JavaFileManager.Location location, String relativeName) {
+        InMemoryFileObject file = this.compilation.getFile(location, relativeName);
+        if (file == null) {
+            throw fail("Expected the file " + location.getName() + "/" + relativeName + " to exist");
+        }
+        return new FileAssert(this, file);
+    }
+
+    /**
+     * Assert, that a file does not exist after the compilation.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return this
+     */
+    public CompilationAssert hasNoFile(JavaFileManager.Location location, String relativeName) {
+        if (this.compilation.getFile(location, relativeName) != null) {
+            throw fail("Expected the file " + location.getName() + "/" + relativeName + " not to exist");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the compilation wrote a file.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return {@link FileAssert}
+     */
+    public FileAssert generatedFile(JavaFileManager.Location location, String relativeName) {
+        InMemoryFileObject file = this.compilation.getGeneratedFile(location, relativeName);
+        if (file == null) {
+            throw fail("Expected the file " + location.getName() + "/" + relativeName + " to be generated");
+        }
+        return new FileAssert(this, file);
+    }
+
+    /**
+     * Assert, that the compilation generated a source file in {@link StandardLocation#SOURCE_OUTPUT}.
+     *
+     * @param qualifiedName
+     *            Qualified name of the top level class of the source
+     *
+     * @return {@link FileAssert}
+     */
+    public FileAssert generatedSourceFile(String qualifiedName) {
+        return generatedFile(StandardLocation.SOURCE_OUTPUT,
+                qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+    }
+
+    /**
+     * Assert, that the compilation wrote a class file in {@link StandardLocation#CLASS_OUTPUT}.
+     *
+     * @param binaryName
+     *            Binary name of the class, e.g. <code>a.Outer$Inner</code>
+     *
+     * @return {@link FileAssert}
+     */
+    public FileAssert generatedClassFile(String binaryName) {
+        return generatedFile(StandardLocation.CLASS_OUTPUT,
+                binaryName.replace('.', '/') + JavaFileObject.Kind.CLASS.extension);
+    }
+
+    /**
+     * Assert, that the compilation did not write a file. The file may still exist from an earlier compilation.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return this
+     */
+    public CompilationAssert didNotGenerate(JavaFileManager.Location location, String relativeName) {
+        if (this.compilation.getGeneratedFile(location, relativeName) != null) {
+            throw fail("Expected the file " + location.getName() + "/" + relativeName + " not to be generated");
+        }
+        return this;
+    }
+}
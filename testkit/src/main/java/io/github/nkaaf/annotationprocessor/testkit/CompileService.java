@@ -0,0 +1,267 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Service running the compilations of {@link InMemoryCompiler} instances. It keeps a pool of warm standard file
+ * managers, which have already opened the platform classes and the class path and cache the listings of the platform
+ * classes, and reuses them for later compilations with the same options in the same JVM. Opening and listing the
+ * platform classes is an expensive part of a small compilation, so thousands of test compilations become faster.
+ * </p>
+ *
+ * <p>
+ * The state of the processors is not shared between compilations. Every compilation gets a new javac task and its
+ * own {@link InMemoryFileManager}, the processors discovered on the processor path are loaded by a new class loader
+ * and {@link InMemoryCompiler#withProcessorClasses(Class[])} creates new processor instances. A file manager is only
+ * used by one compilation at a time and is flushed, before it is returned to the pool.
+ * </p>
+ *
+ * <pre>
+ * CompileService service = CompileService.create(4).warmUp(options, 4);
+ * InMemoryCompiler compiler = service.newCompiler().withOptions(options);
+ * </pre>
+ *
+ * <p>
+ * The file managers are keyed by the options, which are handled by them, e.g. the class path. The content of a class
+ * path must therefore not be changed during a test run.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class CompileService implements Closeable {
+
+    private static final JavaFileObject WARM_UP_SOURCE = InMemoryCompiler.source("WarmUp",
+            "class WarmUp implements Runnable {\n    public void run() {\n        System.out.println(\"\" + this);\n"
+                    + "    }\n}\n");
+
+    private static volatile CompileService shared;
+
+    private final JavaCompiler compiler;
+    private final int maxIdleFileManagers;
+    private final ConcurrentMap<List<String>, Queue<PlatformCachingFileManager>> idleFileManagers =
+            new ConcurrentHashMap<List<String>, Queue<PlatformCachingFileManager>>();
+    private final AtomicInteger createdFileManagers = new AtomicInteger();
+    private volatile boolean closed;
+
+    private CompileService(JavaCompiler compiler, int maxIdleFileManagers) {
+        this.compiler = compiler;
+        this.maxIdleFileManagers = maxIdleFileManagers;
+    }
+
+    /**
+     * Create a service with the system java compiler.
+     *
+     * @param maxIdleFileManagers
+     *            Maximum number of idle file managers kept per options, usually the number of parallel compilations.
+     *            With 0, every compilation opens and closes its own file manager.
+     *
+     * @return {@link CompileService}
+     *
+     * @throws IllegalArgumentException
+     *             if the maximum number is negative
+     * @throws IllegalStateException
+     *             if the runtime has no java compiler
+     */
+    public static CompileService create(int maxIdleFileManagers) {
+        if (maxIdleFileManagers < 0) {
+            throw new IllegalArgumentException("Negative maximum number of idle file managers: " + maxIdleFileManagers);
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system java compiler, run with a JDK");
+        }
+        return new CompileService(compiler, maxIdleFileManagers);
+    }
+
+    /**
+     * Get the service used by {@link InMemoryCompiler#javac()}. It keeps one idle file manager per options and
+     * available processor and is never closed.
+     *
+     * @return shared {@link CompileService}
+     *
+     * @throws IllegalStateException
+     *             if the runtime has no java compiler
+     */
+    public static CompileService getShared() {
+        CompileService service = shared;
+        if (service == null) {
+            synchronized (CompileService.class) {
+                service = shared;
+                if (service == null) {
+                    service = create(Runtime.getRuntime().availableProcessors());
+                    shared = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Create a compiler with no files, which compiles with this service.
+     *
+     * @return {@link InMemoryCompiler}
+     */
+    public InMemoryCompiler newCompiler() {
+        return new InMemoryCompiler(this);
+    }
+
+    /**
+     * Warm up file managers for options by compiling a small class with each of them. Afterwards, the platform
+     * classes are opened and the compiler classes are loaded and compiled by the JIT.
+     *
+     * @param options
+     *            Options of the later compilations, e.g. <code>-classpath</code>
+     * @param count
+     *            Number of file managers, at most the maximum number of idle file managers is kept
+     *
+     * @return this {@link CompileService}
+     *
+     * @throws IOException
+     *             if a file manager cannot be flushed or closed
+     * @throws IllegalStateException
+     *             if the small class cannot be compiled with the options
+     */
+    public CompileService warmUp(List<String> options, int count) throws IOException {
+        List<String> warmUpOptions = new ArrayList<String>(options);
+        warmUpOptions.add("-proc:none");
+        List<PlatformCachingFileManager> fileManagers = new ArrayList<PlatformCachingFileManager>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                PlatformCachingFileManager fileManager = acquire(options);
+                fileManagers.add(fileManager);
+                InMemoryFileManager inMemoryFileManager = new InMemoryFileManager(fileManager,
+                        new ConcurrentHashMap<String, InMemoryFileObject>());
+                if (!this.compiler.getTask(null, inMemoryFileManager, null, warmUpOptions, null,
+                        Collections.singletonList(WARM_UP_SOURCE)).call()) {
+                    throw new IllegalStateException("Cannot compile the warm-up class with options " + options);
+                }
+            }
+        } finally {
+            for (PlatformCachingFileManager fileManager : fileManagers) {
+                release(options, fileManager);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of file managers created by this service, e.g. to check the reuse in a benchmark.
+     *
+     * @return number of created file managers
+     */
+    public int getCreatedFileManagers() {
+        return this.createdFileManagers.get();
+    }
+
+    /**
+     * Close all idle file managers. File managers, which are used by running compilations, are closed, when they are
+     * released. Later compilations open and close their own file manager.
+     *
+     * @throws IOException
+     *             if a file manager cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        IOException exception = null;
+        for (Queue<PlatformCachingFileManager> queue : this.idleFileManagers.values()) {
+            PlatformCachingFileManager fileManager;
+            while ((fileManager = queue.poll()) != null) {
+                try {
+                    fileManager.close();
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    JavaCompiler getCompiler() {
+        return this.compiler;
+    }
+
+    /**
+     * Take an idle file manager for the options out of the pool or open a new one. Only the calling compilation uses
+     * it until it is released.
+     */
+    PlatformCachingFileManager acquire(List<String> options) {
+        PlatformCachingFileManager fileManager = getIdleFileManagers(options).poll();
+        if (fileManager == null) {
+            this.createdFileManagers.incrementAndGet();
+            fileManager = new PlatformCachingFileManager(this.compiler.getStandardFileManager(null, null, null));
+        }
+        return fileManager;
+    }
+
+    /**
+     * Flush a file manager and return it to the pool, or close it if the pool is full or the service is closed.
+     */
+    void release(List<String> options, PlatformCachingFileManager fileManager) throws IOException {
+        Queue<PlatformCachingFileManager> queue = getIdleFileManagers(options);
+        boolean keep = false;
+        try {
+            fileManager.flush();
+            keep = !this.closed && queue.size() < this.maxIdleFileManagers;
+        } finally {
+            if (keep) {
+                queue.add(fileManager);
+            } else {
+                fileManager.close();
+            }
+        }
+    }
+
+    private Queue<PlatformCachingFileManager> getIdleFileManagers(List<String> options) {
+        Queue<PlatformCachingFileManager> queue = this.idleFileManagers.get(options);
+        if (queue == null) {
+            Queue<PlatformCachingFileManager> newQueue = new ConcurrentLinkedQueue<PlatformCachingFileManager>();
+            queue = this.idleFileManagers.putIfAbsent(new ArrayList<String>(options), newQueue);
+            if (queue == null) {
+                queue = newQueue;
+            }
+        }
+        return queue;
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Fluent assertions on a {@link Diagnostic} of a {@link Compilation}, created with
+ * {@link CompilationAssert#diagnostic(int)}.
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class DiagnosticAssert {
+
+    private final CompilationAssert compilationAssert;
+    private final Diagnostic<? extends JavaFileObject> diagnostic;
+
+    DiagnosticAssert(CompilationAssert compilationAssert, Diagnostic<? extends JavaFileObject> diagnostic) {
+        this.compilationAssert = compilationAssert;
+        this.diagnostic = diagnostic;
+    }
+
+    private String getMessage() {
+        return this.diagnostic.getMessage(null);
+    }
+
+    private AssertionError fail(String message) {
+        return this.compilationAssert.fail(message + " in " + this.diagnostic.getKind() + ": " + getMessage());
+    }
+
+    /**
+     * Assert the kind of the diagnostic.
+     *
+     * @param kind
+     *            Expected {@link Diagnostic.Kind}
+     *
+     * @return this
+     */
+    public DiagnosticAssert isOfKind(Diagnostic.Kind kind) {
+        if (this.diagnostic.getKind() != kind) {
+            throw fail("Expected kind " + kind);
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the diagnostic is an error.
+     *
+     * @return this
+     */
+    public DiagnosticAssert isError() {
+        return isOfKind(Diagnostic.Kind.ERROR);
+    }
+
+    /**
+     * Assert, that the diagnostic is a warning.
+     *
+     * @return this
+     */
+    public DiagnosticAssert isWarning() {
+        return isOfKind(Diagnostic.Kind.WARNING);
+    }
+
+    /**
+     * Assert, that the diagnostic is a note.
+     *
+     * @return this
+     */
+    public DiagnosticAssert isNote() {
+        return isOfKind(Diagnostic.Kind.NOTE);
+    }
+
+    /**
+     * Assert the message of the diagnostic.
+     *
+     * @param message
+     *            Expected message
+     *
+     * @return this
+     */
+    public DiagnosticAssert hasMessage(String message) {
+        if (!getMessage().equals(message)) {
+            throw fail("Expected message \"" + message + "\"");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the message of the diagnostic contains a text.
+     *
+     * @param text
+     *            Expected part of the message
+     *
+     * @return this
+     */
+    public DiagnosticAssert hasMessageContaining(String text) {
+        if (!getMessage().contains(text)) {
+            throw fail("Expected message containing \"" + text + "\"");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the message of the diagnostic starts with a text.
+     *
+     * @param prefix
+     *            Expected start of the message
+     *
+     * @return this
+     */
+    public DiagnosticAssert hasMessageStartingWith(String prefix) {
+        if (!getMessage().startsWith(prefix)) {
+            throw fail("Expected message starting with \"" + prefix + "\"");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the message of the diagnostic ends with a text.
+     *
+     * @param suffix
+     *            Expected end of the message
+     *
+     * @return this
+     */
+    public DiagnosticAssert hasMessageEndingWith(String suffix) {
+        if (!getMessage().endsWith(suffix)) {
+            throw fail("Expected message ending with \"" + suffix + "\"");
+        }
+        return this;
+    }
+
+    /**
+     * Assert the code of the diagnostic.
+     *
+     * @param code
+     *            Expected code, e.g. <code>compiler.err.proc.messager</code>
+     *
+     * @return this
+     */
+    public DiagnosticAssert hasCode(String code) {
+        if (!code.equals(this.diagnostic.getCode())) {
+            throw fail("Expected code " + code + ", but was " + this.diagnostic.getCode());
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the diagnostic is reported in a source.
+     *
+     * @param fileName
+     *            Expected end of the name of the source, e.g. <code>a/Fixture.java</code>
+     *
+     * @return this
+     */
+    public DiagnosticAssert isInSource(String fileName) {
+        JavaFileObject source = this.diagnostic.getSource();
+        if (source == null || !source.toUri().getPath().endsWith(fileName)) {
+            throw fail("Expected source " + fileName);
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the diagnostic is reported on a line.
+     *
+     * @param lineNumber
+     *            Expected line number, starting with 1
+     *
+     * @return this
+     */
+    public DiagnosticAssert isOnLine(long lineNumber) {
+        if (this.diagnostic.getLineNumber() != lineNumber) {
+            throw fail("Expected line " + lineNumber + ", but was " + this.diagnostic.getLineNumber());
+        }
+        return this;
+    }
+
+    /**
+     * Return to the assertions on the compilation.
+     *
+     * @return {@link CompilationAssert}
+     */
+    public CompilationAssert and() {
+        return this.compilationAssert;
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.FileNotFoundException;
+
+/**
+ * Fluent assertions on a file of a {@link Compilation}, created e.g. with
+ * {@link CompilationAssert#generatedFile(javax.tools.JavaFileManager.Location, String)}.
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class FileAssert {
+
+    private final CompilationAssert compilationAssert;
+    private final InMemoryFileObject file;
+
+    FileAssert(CompilationAssert compilationAssert, InMemoryFileObject file) {
+        this.compilationAssert = compilationAssert;
+        this.file = file;
+    }
+
+    private String getContent() {
+        try {
+            return this.file.getContentAsString();
+        } catch (FileNotFoundException e) {
+            throw this.compilationAssert.fail("Expected the file " + this.file + " to have content");
+        }
+    }
+
+    private AssertionError fail(String message) {
+        return this.compilationAssert.fail(message + " in " + this.file + ":" + System.lineSeparator() + getContent());
+    }
+
+    /**
+     * Assert the content of the file.
+     *
+     * @param content
+     *            Expected content, decoded with UTF-8
+     *
+     * @return this
+     */
+    public FileAssert hasContent(String content) {
+        if (!getContent().equals(content)) {
+            throw fail("Expected content \"" + content + "\"");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the file contains a text.
+     *
+     * @param text
+     *            Expected part of the content, decoded with UTF-8
+     *
+     * @return this
+     */
+    public FileAssert contains(String text) {
+        if (!getContent().contains(text)) {
+            throw fail("Expected content containing \"" + text + "\"");
+        }
+        return this;
+    }
+
+    /**
+     * Assert, that the file does not contain a text.
+     *
+     * @param text
+     *            Unexpected part of the content, decoded with UTF-8
+     *
+     * @return this
+     */
+    public FileAssert doesNotContain(String text) {
+        if (getContent().contains(text)) {
+            throw fail("Expected content not containing \"" + text + "\"");
+        }
+        return this;
+    }
+
+    /**
+     * Return to the assertions on the compilation.
+     *
+     * @return {@link CompilationAssert}
+     */
+    public CompilationAssert and() {
+        return this.compilationAssert;
+    }
+}
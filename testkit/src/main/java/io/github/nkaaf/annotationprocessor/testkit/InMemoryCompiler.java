@@ -0,0 +1,373 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.annotation.processing.Processor;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Compiler running the system java compiler in-process with an {@link InMemoryFileManager}. The sources are read into
+ * memory, the class files, the generated sources and the resources are held in memory. Nothing is written to disk, so
+ * tests with their own compiler can run in parallel.
+ * </p>
+ *
+ * <p>
+ * An instance is immutable. The methods <code>with...</code> return a new compiler, which shares the in-memory files
+ * with this one, so that a later compilation sees the classes and resources of an earlier one:
+ * </p>
+ *
+ * <pre>
+ * InMemoryCompiler compiler = InMemoryCompiler.javac().withOptions("-classpath", classPath);
+ * Compilation compilation = compiler.withProcessors(new MyProcessor()).compile(new File("src/test/java/Fixture.java"));
+ * CompilationAssert.assertThat(compilation).succeeded().hasServiceEntries(Processor.class, "a.FixtureProcessor");
+ * </pre>
+ *
+ * <p>
+ * The options must not contain <code>-d</code> or <code>-s</code>, the output locations are held in memory. A
+ * {@link Processor} instance can only be used for one compilation, because a processor is only initialized once.
+ * Processors set with {@link #withProcessorClasses(Class[])} are instantiated for every compilation.
+ * </p>
+ *
+ * <p>
+ * The compilations run with a {@link CompileService}, which reuses the standard file managers reading the platform
+ * classes and the class path for later compilations with the same options. A class path must therefore not be
+ * changed during a test run.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class InMemoryCompiler {
+
+    private final CompileService service;
+    private final ConcurrentMap<String, InMemoryFileObject> files;
+    private final List<String> options;
+    private final List<Processor> processors;
+    private final List<Class<? extends Processor>> processorClasses;
+    private final List<String> modules;
+
+    InMemoryCompiler(CompileService service) {
+        this(service, new ConcurrentHashMap<String, InMemoryFileObject>(), Collections.<String> emptyList(),
+                Collections.<Processor> emptyList(), Collections.<Class<? extends Processor>> emptyList(),
+                Collections.<String> emptyList());
+    }
+
+    private InMemoryCompiler(CompileService service, ConcurrentMap<String, InMemoryFileObject> files,
+            List<String> options, List<Processor> processors, List<Class<? extends Processor>> processorClasses,
+            List<String> modules) {
+        this.service = service;
+        this.files = files;
+        this.options = options;
+        this.processors = processors;
+        this.processorClasses = processorClasses;
+        this.modules = modules;
+    }
+
+    /**
+     * Create a compiler with the system java compiler and no files, which compiles with the shared
+     * {@link CompileService}.
+     *
+     * @return {@link InMemoryCompiler}
+     *
+     * @throws IllegalStateException
+     *             if the runtime has no java compiler
+     */
+    public static InMemoryCompiler javac() {
+        return CompileService.getShared().newCompiler();
+    }
+
+    /**
+     * Create an in-memory source.
+     *
+     * @param qualifiedName
+     *            Qualified name of the top level class of the source
+     * @param code
+     *            Code of the source
+     *
+     * @return {@link JavaFileObject} of the source
+     */
+    public static JavaFileObject source(String qualifiedName, String code) {
+        return new InMemoryFileObject(null, StandardLocation.SOURCE_PATH,
+                qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension,
+                code.getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+    }
+
+    /**
+     * Read a source file into memory. The source keeps the uri of the file, so diagnostics name the file.
+     *
+     * @param file
+     *            Source file
+     *
+     * @return {@link JavaFileObject} of the source
+     *
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static JavaFileObject source(File file) throws IOException {
+        return new InMemoryFileObject(null, StandardLocation.SOURCE_PATH, file.getName(),
+                Files.readAllBytes(file.toPath()), file.lastModified(), file.getAbsoluteFile().toURI());
+    }
+
+    /**
+     * Create a compiler with additional options.
+     *
+     * @param additionalOptions
+     *            Options added to the options of this compiler, e.g. <code>-classpath</code> or processor options
+     *
+     * @return {@link InMemoryCompiler} sharing the files with this compiler
+     */
+    public InMemoryCompiler withOptions(String... additionalOptions) {
+        return withOptions(Arrays.asList(additionalOptions));
+    }
+
+    /**
+     * Create a compiler with additional options.
+     *
+     * @param additionalOptions
+     *            Options added to the options of this compiler, e.g. <code>-classpath</code> or processor options
+     *
+     * @return {@link InMemoryCompiler} sharing the files with this compiler
+     */
+    public InMemoryCompiler withOptions(List<String> additionalOptions) {
+        List<String> newOptions = new ArrayList<String>(this.options);
+        newOptions.addAll(additionalOptions);
+        return new InMemoryCompiler(this.service, this.files, Collections.unmodifiableList(newOptions),
+                this.processors, this.processorClasses, this.modules);
+    }
+
+    /**
+     * Create a compiler running processors. Without processors, the compiler discovers them on the processor path.
+     *
+     * @param newProcessors
+     *            {@link Processor} instances replacing the processors of this compiler
+     *
+     * @return {@link InMemoryCompiler} sharing the files with this compiler
+     */
+    public InMemoryCompiler withProcessors(Processor... newProcessors) {
+        return new InMemoryCompiler(this.service, this.files, this.options,
+                Collections.unmodifiableList(new ArrayList<Processor>(Arrays.asList(newProcessors))),
+                Collections.<Class<? extends Processor>> emptyList(), this.modules);
+    }
+
+    /**
+     * Create a compiler running new instances of processors in every compilation, so that no processor state is shared
+     * between compilations. The processor classes need a constructor without parameters.
+     *
+     * @param newProcessorClasses
+     *            {@link Processor} classes replacing the processors of this compiler
+     *
+     * @return {@link InMemoryCompiler} sharing the files with this compiler
+     */
+    @SafeVarargs
+    public final InMemoryCompiler withProcessorClasses(Class<? extends Processor>... newProcessorClasses) {
+        List<Class<? extends Processor>> newClasses = new ArrayList<Class<? extends Processor>>();
+        for (Class<? extends Processor> newProcessorClass : newProcessorClasses) {
+            newClasses.add(newProcessorClass);
+        }
+        return new InMemoryCompiler(this.service, this.files, this.options, Collections.<Processor> emptyList(),
+                Collections.unmodifiableList(newClasses), this.modules);
+    }
+
+    /**
+     * Create a compiler resolving additional root modules, like <code>--add-modules</code>. Only supported on Java 9
+     * and later.
+     *
+     * @param additionalModules
+     *            Names of the root modules
+     *
+     * @return {@link InMemoryCompiler} sharing the files with this compiler
+     */
+    public InMemoryCompiler withModules(List<String> additionalModules) {
+        List<String> newModules = new ArrayList<String>(this.modules);
+        newModules.addAll(additionalModules);
+        return new InMemoryCompiler(this.service, this.files, this.options, this.processors,
+                this.processorClasses, Collections.unmodifiableList(newModules));
+    }
+
+    /**
+     * Compile source files. The files are read into memory first.
+     *
+     * @param sources
+     *            Source files
+     *
+     * @return {@link Compilation}
+     *
+     * @throws IOException
+     *             if a source cannot be read
+     */
+    public Compilation compile(File... sources) throws IOException {
+        List<JavaFileObject> units = new ArrayList<JavaFileObject>(sources.length);
+        for (File source : sources) {
+            units.add(source(source));
+        }
+        return compile(units);
+    }
+
+    /**
+     * Compile sources.
+     *
+     * @param sources
+     *            Sources, e.g. created with {@link #source(String, String)}
+     *
+     * @return {@link Compilation}
+     *
+     * @throws IOException
+     *             if the file manager cannot be flushed
+     */
+    public Compilation compile(JavaFileObject... sources) throws IOException {
+        return compile(Arrays.asList(sources));
+    }
+
+    /**
+     * Compile sources.
+     *
+     * @param sources
+     *            Sources, e.g. created with {@link #source(String, String)}
+     *
+     * @return {@link Compilation}
+     *
+     * @throws IOException
+     *             if the file manager cannot be flushed
+     */
+    public Compilation compile(Iterable<? extends JavaFileObject> sources) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        List<Processor> taskProcessors = getTaskProcessors();
+        PlatformCachingFileManager pooledFileManager = this.service.acquire(this.options);
+        InMemoryFileManager fileManager = new InMemoryFileManager(pooledFileManager, this.files);
+        boolean success;
+        try {
+            JavaCompiler.CompilationTask task = this.service.getCompiler().getTask(null, fileManager, diagnostics,
+                    this.options, null, sources);
+            if (!taskProcessors.isEmpty()) {
+                task.setProcessors(taskProcessors);
+            }
+            if (!this.modules.isEmpty()) {
+                addModules(task, this.modules);
+            }
+            success = task.call();
+        } finally {
+            this.service.release(this.options, pooledFileManager);
+        }
+        return new Compilation(success, diagnostics.getDiagnostics(), fileManager.getWrittenFiles(),
+                fileManager.getStoredFiles());
+    }
+
+    /**
+     * Get a file of an output location of this compiler.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return {@link InMemoryFileObject} or null, if it does not exist
+     */
+    public InMemoryFileObject getFile(JavaFileManager.Location location, String relativeName) {
+        return this.files.get(InMemoryFileManager.getKey(location, relativeName));
+    }
+
+    /**
+     * Remove a file of an output location of this compiler, e.g. to simulate a deleted class between two
+     * compilations.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return true, if the file existed
+     */
+    public boolean remove(JavaFileManager.Location location, String relativeName) {
+        return this.files.remove(InMemoryFileManager.getKey(location, relativeName)) != null;
+    }
+
+    /**
+     * Remove the class file of a class from the class output of this compiler.
+     *
+     * @param binaryName
+     *            Binary name of the class, e.g. <code>a.Outer$Inner</code>
+     *
+     * @return true, if the class file existed
+     */
+    public boolean removeClass(String binaryName) {
+        return remove(StandardLocation.CLASS_OUTPUT,
+                binaryName.replace('.', '/') + JavaFileObject.Kind.CLASS.extension);
+    }
+
+    /**
+     * Get the processor instances and new instances of the processor classes for a compilation.
+     */
+    private List<Processor> getTaskProcessors() {
+        if (this.processorClasses.isEmpty()) {
+            return this.processors;
+        }
+        List<Processor> taskProcessors = new ArrayList<Processor>(this.processorClasses.size());
+        for (Class<? extends Processor> processorClass : this.processorClasses) {
+            try {
+                Constructor<? extends Processor> constructor = processorClass.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                taskProcessors.add(constructor.newInstance());
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException("Cannot create processor " + processorClass.getName(), e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot instantiate processor " + processorClass.getName()
+                        + " with a constructor without parameters", e);
+            }
+        }
+        return taskProcessors;
+    }
+
+    /**
+     * Add root modules to a task with <code>CompilationTask#addModules(Iterable)</code> of Java 9, which cannot be
+     * linked against on Java 8.
+     */
+    private static void addModules(JavaCompiler.CompilationTask task, List<String> modules) {
+        try {
+            JavaCompiler.CompilationTask.class.getMethod("addModules", Iterable.class).invoke(task, modules);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Modules are supported on Java 9 and later", e);
+        }
+    }
+}
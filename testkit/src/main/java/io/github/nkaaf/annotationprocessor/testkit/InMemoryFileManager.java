@@ -0,0 +1,336 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * {@link JavaFileManager}, which holds the files of all output locations in memory, i.e. the class files, the
+ * generated sources and the resources written with the {@link javax.annotation.processing.Filer}. Nothing is written
+ * to disk. Everything else, e.g. the platform classes and the class path, is read by the delegate.
+ * </p>
+ *
+ * <p>
+ * The class files of {@link StandardLocation#CLASS_OUTPUT} are also listed on the class path and loaded by the class
+ * loaders of the processors, so that a later compilation with the same files sees the classes and the resources of
+ * an earlier one, like a compilation into the same directory. The files are held in a concurrent map, so that a file
+ * manager can be shared by compilations on several threads.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    private static final String SCHEME = "mem";
+
+    private final ConcurrentMap<String, InMemoryFileObject> files;
+    private final List<InMemoryFileObject> writtenFiles = Collections
+            .synchronizedList(new ArrayList<InMemoryFileObject>());
+
+    /**
+     * Create a file manager with no files.
+     *
+     * @param delegate
+     *            {@link JavaFileManager} reading all locations, which are no output locations
+     */
+    public InMemoryFileManager(JavaFileManager delegate) {
+        this(delegate, new ConcurrentHashMap<String, InMemoryFileObject>());
+    }
+
+    InMemoryFileManager(JavaFileManager delegate, ConcurrentMap<String, InMemoryFileObject> files) {
+        super(delegate);
+        this.files = files;
+    }
+
+    static String getKey(Location location, String relativeName) {
+        return location.getName() + "/" + relativeName;
+    }
+
+    private static String getRelativeName(String packageName, String relativeName) {
+        String name = relativeName.replace('\\', '/');
+        return packageName.isEmpty() ? name : packageName.replace('.', '/') + "/" + name;
+    }
+
+    /**
+     * Get a file of an output location.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return {@link InMemoryFileObject} or null, if it does not exist
+     */
+    public InMemoryFileObject getStoredFile(Location location, String relativeName) {
+        return this.files.get(getKey(location, relativeName));
+    }
+
+    /**
+     * Get all files of the output locations.
+     *
+     * @return {@link List} of {@link InMemoryFileObject}
+     */
+    public List<InMemoryFileObject> getStoredFiles() {
+        return new ArrayList<InMemoryFileObject>(this.files.values());
+    }
+
+    /**
+     * Get the files written with this file manager, in the order they were closed. A file written several times is
+     * listed once per write.
+     *
+     * @return {@link List} of {@link InMemoryFileObject}
+     */
+    public List<InMemoryFileObject> getWrittenFiles() {
+        synchronized (this.writtenFiles) {
+            return new ArrayList<InMemoryFileObject>(this.writtenFiles);
+        }
+    }
+
+    void store(InMemoryFileObject file) {
+        this.files.put(getKey(file.getLocation(), file.getRelativeName()), file);
+        this.writtenFiles.add(file);
+    }
+
+    /**
+     * Remove a file of an output location, e.g. to simulate a deleted class between two compilations.
+     *
+     * @param location
+     *            Output location, e.g. {@link StandardLocation#CLASS_OUTPUT}
+     * @param relativeName
+     *            Name relative to the location, separated by <code>/</code>
+     *
+     * @return true, if the file existed
+     */
+    public boolean remove(Location location, String relativeName) {
+        return this.files.remove(getKey(location, relativeName)) != null;
+    }
+
+    @Override
+    public boolean hasLocation(Location location) {
+        return location.isOutputLocation() || super.hasLocation(location);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForInput(Location location, String className, JavaFileObject.Kind kind)
+            throws IOException {
+        if (!location.isOutputLocation()) {
+            return super.getJavaFileForInput(location, className, kind);
+        }
+        return getStoredFile(location, className.replace('.', '/') + kind.extension);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+            FileObject sibling) throws IOException {
+        if (!location.isOutputLocation()) {
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+        return new InMemoryFileObject(this, location, className.replace('.', '/') + kind.extension, null, 0);
+    }
+
+    @Override
+    public FileObject getFileForInput(Location location, String packageName, String relativeName)
+            throws IOException {
+        if (!location.isOutputLocation()) {
+            return super.getFileForInput(location, packageName, relativeName);
+        }
+        return getStoredFile(location, getRelativeName(packageName, relativeName));
+    }
+
+    @Override
+    public FileObject getFileForOutput(Location location, String packageName, String relativeName,
+            FileObject sibling) throws IOException {
+        if (!location.isOutputLocation()) {
+            return super.getFileForOutput(location, packageName, relativeName, sibling);
+        }
+        return new InMemoryFileObject(this, location, getRelativeName(packageName, relativeName), null, 0);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+            boolean recurse) throws IOException {
+        List<JavaFileObject> list = new ArrayList<JavaFileObject>();
+        if (!location.isOutputLocation()) {
+            for (JavaFileObject file : super.list(location, packageName, kinds, recurse)) {
+                list.add(file);
+            }
+        }
+        if (location == StandardLocation.CLASS_PATH || location.isOutputLocation()) {
+            Location storedLocation = location.isOutputLocation() ? location : StandardLocation.CLASS_OUTPUT;
+            String prefix = getKey(storedLocation, packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/");
+            for (InMemoryFileObject file : this.files.values()) {
+                String key = getKey(file.getLocation(), file.getRelativeName());
+                if (key.startsWith(prefix) && kinds.contains(file.getKind())
+                        && (recurse || key.indexOf('/', prefix.length()) < 0)) {
+                    list.add(file);
+                }
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof InMemoryFileObject) {
+            return ((InMemoryFileObject) file).getBinaryName();
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+        if (a instanceof InMemoryFileObject || b instanceof InMemoryFileObject) {
+            return a.toUri().equals(b.toUri());
+        }
+        return super.isSameFile(a, b);
+    }
+
+    /**
+     * Check if a location contains a file. This overrides the method of Java 9 and later.
+     *
+     * @param location
+     *            {@link Location}
+     * @param file
+     *            {@link FileObject}
+     *
+     * @return true, if the file is in the location
+     *
+     * @throws IOException
+     *             if the delegate cannot check the file
+     */
+    public boolean contains(Location location, FileObject file) throws IOException {
+        if (file instanceof InMemoryFileObject) {
+            return ((InMemoryFileObject) file).getLocation() == location;
+        }
+        try {
+            return (Boolean) JavaFileManager.class.getMethod("contains", Location.class, FileObject.class)
+                    .invoke(this.fileManager, location, file);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(e);
+        }
+    }
+
+    @Override
+    public ClassLoader getClassLoader(Location location) {
+        return new InMemoryClassLoader(super.getClassLoader(location));
+    }
+
+    /**
+     * Class loader of the class files and resources of {@link StandardLocation#CLASS_OUTPUT}, which delegates to the
+     * class loader of the delegate first. Closing it closes the class loader of the delegate.
+     */
+    private final class InMemoryClassLoader extends ClassLoader implements Closeable {
+
+        InMemoryClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (getParent() instanceof Closeable) {
+                ((Closeable) getParent()).close();
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            InMemoryFileObject file = getStoredFile(StandardLocation.CLASS_OUTPUT,
+                    name.replace('.', '/') + JavaFileObject.Kind.CLASS.extension);
+            if (file == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes;
+            try {
+                bytes = file.getContent();
+            } catch (FileNotFoundException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected URL findResource(String name) {
+            final InMemoryFileObject file = getStoredFile(StandardLocation.CLASS_OUTPUT, name);
+            if (file == null) {
+                return null;
+            }
+            try {
+                return new URL(SCHEME, null, -1, file.toUri().getPath(), new URLStreamHandler() {
+                    @Override
+                    protected URLConnection openConnection(URL url) {
+                        return new URLConnection(url) {
+                            @Override
+                            public void connect() {
+                            }
+
+                            @Override
+                            public InputStream getInputStream() throws IOException {
+                                return new ByteArrayInputStream(file.getContent());
+                            }
+                        };
+                    }
+                });
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected Enumeration<URL> findResources(String name) {
+            URL url = findResource(name);
+            return Collections
+                    .enumeration(url == null ? Collections.<URL> emptyList() : Collections.singletonList(url));
+        }
+    }
+}
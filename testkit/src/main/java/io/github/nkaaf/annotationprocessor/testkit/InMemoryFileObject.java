@@ -0,0 +1,210 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.tools.JavaFileManager;
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ * File held in memory by an {@link InMemoryFileManager}, e.g. a class file, a generated source or a resource of the
+ * class output, or a source passed to {@link InMemoryCompiler}.
+ * </p>
+ *
+ * <p>
+ * A file of an output location is a handle: it reads the content currently stored under its name and stores a new
+ * version when its output stream is closed. Files returned by {@link Compilation} are snapshots with the content of the
+ * end of that compilation. The content is decoded and encoded as UTF-8.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+public final class InMemoryFileObject extends SimpleJavaFileObject {
+
+    private final InMemoryFileManager fileManager;
+    private final JavaFileManager.Location location;
+    private final String relativeName;
+    private final byte[] content;
+    private final long lastModified;
+
+    InMemoryFileObject(InMemoryFileManager fileManager, JavaFileManager.Location location, String relativeName,
+            byte[] content, long lastModified) {
+        this(fileManager, location, relativeName, content, lastModified, toUri(location, relativeName));
+    }
+
+    InMemoryFileObject(InMemoryFileManager fileManager, JavaFileManager.Location location, String relativeName,
+            byte[] content, long lastModified, URI uri) {
+        super(uri, getKind(relativeName));
+        this.fileManager = fileManager;
+        this.location = location;
+        this.relativeName = relativeName;
+        this.content = content;
+        this.lastModified = lastModified;
+    }
+
+    static URI toUri(JavaFileManager.Location location, String relativeName) {
+        try {
+            return new URI("mem", null, "/" + location.getName() + "/" + relativeName, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(relativeName, e);
+        }
+    }
+
+    static Kind getKind(String relativeName) {
+        for (Kind kind : Kind.values()) {
+            if (kind != Kind.OTHER && relativeName.endsWith(kind.extension)) {
+                return kind;
+            }
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * Get the location of this file.
+     *
+     * @return {@link JavaFileManager.Location}
+     */
+    public JavaFileManager.Location getLocation() {
+        return this.location;
+    }
+
+    /**
+     * Get the name of this file relative to its location, separated by <code>/</code>, e.g.
+     * <code>META-INF/services/javax.annotation.processing.Processor</code>.
+     *
+     * @return relative name
+     */
+    public String getRelativeName() {
+        return this.relativeName;
+    }
+
+    /**
+     * Get the binary name of the class of a class or source file, e.g. <code>a.Outer$Inner</code>.
+     *
+     * @return binary name
+     */
+    public String getBinaryName() {
+        return this.relativeName.substring(0, this.relativeName.length() - getKind().extension.length())
+                .replace('/', '.');
+    }
+
+    /**
+     * Get the content of this file.
+     *
+     * @return content
+     *
+     * @throws FileNotFoundException
+     *             if the file does not exist
+     */
+    public byte[] getContent() throws FileNotFoundException {
+        byte[] bytes = this.content;
+        if (bytes == null && this.fileManager != null) {
+            InMemoryFileObject stored = this.fileManager.getStoredFile(this.location, this.relativeName);
+            bytes = stored == null ? null : stored.content;
+        }
+        if (bytes == null) {
+            throw new FileNotFoundException(toUri().toString());
+        }
+        return bytes.clone();
+    }
+
+    /**
+     * Get the content of this file as string.
+     *
+     * @return content
+     *
+     * @throws FileNotFoundException
+     *             if the file does not exist
+     */
+    public String getContentAsString() throws FileNotFoundException {
+        return new String(getContent(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return new ByteArrayInputStream(getContent());
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+        return getContentAsString();
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+        if (this.fileManager == null) {
+            throw new IllegalStateException(toUri() + " is read-only");
+        }
+        return new ByteArrayOutputStream() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (!this.closed) {
+                    this.closed = true;
+                    fileManager.store(new InMemoryFileObject(fileManager, location, relativeName, toByteArray(),
+                            System.currentTimeMillis()));
+                }
+            }
+        };
+    }
+
+    @Override
+    public Writer openWriter() {
+        return new OutputStreamWriter(openOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long getLastModified() {
+        if (this.content != null || this.fileManager == null) {
+            return this.lastModified;
+        }
+        InMemoryFileObject stored = this.fileManager.getStoredFile(this.location, this.relativeName);
+        return stored == null ? 0 : stored.lastModified;
+    }
+
+    @Override
+    public boolean delete() {
+        return this.fileManager != null && this.fileManager.remove(this.location, this.relativeName);
+    }
+
+    @Override
+    public String toString() {
+        return toUri().toString();
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * File manager of a {@link CompileService}, which caches the listings of the platform classes. The platform classes
+ * do not change while the JVM runs, but javac lists the packages it uses, e.g. <code>java.lang</code>, again in every
+ * compilation, because every compilation starts with a new symbol table. With this cache, a reused file manager only
+ * lists them once.
+ * </p>
+ *
+ * <p>
+ * The platform classes are the location {@link StandardLocation#PLATFORM_CLASS_PATH} and on Java 9 and later the
+ * module locations of <code>SYSTEM_MODULES</code>. A file manager is only used by one compilation at a time, so the
+ * cache is not synchronized.
+ * </p>
+ *
+ * @author Niklas Kaaf
+ *
+ * @version 1.0
+ *
+ * @since 1.1
+ */
+final class PlatformCachingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private static final String SYSTEM_MODULES = "SYSTEM_MODULES";
+
+    private final Map<List<Object>, List<JavaFileObject>> listings = new HashMap<List<Object>, List<JavaFileObject>>();
+
+    PlatformCachingFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    /**
+     * Check if a location holds platform classes. The module locations of the system modules cannot be named on Java
+     * 8, so they are recognized by their name, e.g. <code>SYSTEM_MODULES[java.base]</code>.
+     */
+    private static boolean isPlatformLocation(Location location) {
+        return location == StandardLocation.PLATFORM_CLASS_PATH || location.getName().startsWith(SYSTEM_MODULES);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+            boolean recurse) throws IOException {
+        if (!isPlatformLocation(location)) {
+            return super.list(location, packageName, kinds, recurse);
+        }
+        List<Object> key = Arrays.<Object> asList(location, packageName, new HashSet<JavaFileObject.Kind>(kinds),
+                recurse);
+        List<JavaFileObject> listing = this.listings.get(key);
+        if (listing == null) {
+            listing = new ArrayList<JavaFileObject>();
+            for (JavaFileObject file : super.list(location, packageName, kinds, recurse)) {
+                listing.add(file);
+            }
+            this.listings.put(key, listing);
+        }
+        return listing;
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.nkaaf.annotationprocessor.testkit;
+
+/*-
+ * #%L
+ * AnnotationProcessor
+ * %%
+ * Copyright (C) 2021 Niklas Kaaf
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static io.github.nkaaf.annotationprocessor.testkit.CompilationAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryCompilerTest {
+
+    private static final String SERVICE_FILE = "META-INF/services/" + Processor.class.getName();
+
+    private static final String ANNOTATION = "package a;\n\npublic @interface Register {\n}\n";
+
+    /**
+     * Registers the classes annotated with <code>a.Register</code> as processors, keeps the entries of an earlier
+     * compilation and generates a companion source.
+     */
+    @SupportedAnnotationTypes("a.Register")
+    private static final class RegisterProcessor extends AbstractProcessor {
+
+        private final List<String> entries = new ArrayList<>();
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            try {
+                if (roundEnv.processingOver()) {
+                    try {
+                        FileObject old = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                                SERVICE_FILE);
+                        for (String line : old.getCharContent(true).toString().split("\n")) {
+                            if (!line.isEmpty() && !entries.contains(line)) {
+                                entries.add(line);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // no earlier service file
+                    }
+                    Collections.sort(entries);
+                    FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                            SERVICE_FILE);
+                    try (Writer writer = file.openWriter()) {
+                        writer.write("# generated\n");
+                        for (String entry : entries) {
+                            writer.write(entry + "\n");
+                        }
+                    }
+                    return false;
+                }
+                for (TypeElement annotation : annotations) {
+                    for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                        String name = ((TypeElement) element).getQualifiedName().toString();
+                        entries.add(name);
+                        try (Writer writer = processingEnv.getFiler().createSourceFile(name + "Companion", element)
+                                .openWriter()) {
+                            writer.write("package a;\n\nclass " + element.getSimpleName() + "Companion {\n}\n");
+                        }
+                        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "registered " + name);
+                    }
+                }
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.toString());
+            }
+            return false;
+        }
+    }
+
+    @Test
+    public void compileInMemory() throws IOException {
+        InMemoryCompiler compiler = InMemoryCompiler.javac();
+        Compilation compilation = compiler.withProcessors(new RegisterProcessor()).compile(
+                InMemoryCompiler.source("a.Register", ANNOTATION),
+                InMemoryCompiler.source("a.First", "package a;\n\n@Register\npublic class First {\n}\n"));
+
+        assertThat(compilation).succeeded().hadNoteCount(1).hasServiceEntries(Processor.class, "a.First")
+                .diagnostic(0).isNote().hasMessage("registered a.First").and().generatedSourceFile("a.FirstCompanion")
+                .contains("class FirstCompanion");
+        assertThat(compilation).generatedClassFile("a.FirstCompanion").and().generatedClassFile("a.First");
+        assertTrue(compilation.getGeneratedFile(StandardLocation.CLASS_OUTPUT, SERVICE_FILE).getContentAsString()
+                .startsWith("# generated"));
+        assertNotNull(compiler.getFile(StandardLocation.CLASS_OUTPUT, "a/First.class"));
+    }
+
+    @Test
+    public void compileAgainstEarlierCompilation() throws IOException {
+        InMemoryCompiler compiler = InMemoryCompiler.javac();
+        assertThat(compiler.withProcessors(new RegisterProcessor())
+                .compile(InMemoryCompiler.source("a.Register", ANNOTATION),
+                        InMemoryCompiler.source("a.First", "package a;\n\n@Register\npublic class First {\n}\n")))
+                .succeeded();
+
+        Compilation second = compiler.withProcessors(new RegisterProcessor()).compile(InMemoryCompiler
+                .source("a.Second", "package a;\n\n@Register\npublic class Second extends First {\n}\n"));
+
+        assertThat(second).succeeded().hasServiceEntries(Processor.class, "a.First", "a.Second")
+                .didNotGenerate(StandardLocation.CLASS_OUTPUT, "a/First.class")
+                .hasFile(StandardLocation.CLASS_OUTPUT, "a/First.class");
+
+        assertTrue(compiler.removeClass("a.First"));
+        assertThat(compiler.withOptions("-proc:none")
+                .compile(InMemoryCompiler.source("a.Third", "package a;\n\nclass Third extends First {\n}\n")))
+                .failed().hadErrorCount(1).diagnostic(0).isError().isInSource("a/Third.java").isOnLine(3);
+    }
+
+    @Test
+    public void separateCompilers() throws IOException {
+        InMemoryCompiler first = InMemoryCompiler.javac();
+        InMemoryCompiler second = InMemoryCompiler.javac();
+        assertThat(first.compile(InMemoryCompiler.source("a.Register", ANNOTATION))).succeeded().hadNoDiagnostics();
+
+        assertNotNull(first.getFile(StandardLocation.CLASS_OUTPUT, "a/Register.class"));
+        assertNull(second.getFile(StandardLocation.CLASS_OUTPUT, "a/Register.class"));
+        assertThat(second.compile(InMemoryCompiler.source("a.Other", "package a;\n\n@Register\nclass Other {\n}\n")))
+                .failed().hasNoServiceFile(Processor.class);
+    }
+
+    @Test
+    public void compileWithWarmService() throws IOException {
+        try (CompileService service = CompileService.create(1)) {
+            service.warmUp(Collections.<String> emptyList(), 2);
+            assertEquals(2, service.getCreatedFileManagers());
+
+            InMemoryCompiler compiler = service.newCompiler().withProcessorClasses(RegisterProcessor.class);
+            assertThat(compiler.compile(InMemoryCompiler.source("a.Register", ANNOTATION),
+                    InMemoryCompiler.source("a.First", "package a;\n\n@Register\npublic class First {\n}\n")))
+                    .succeeded().hadNoteCount(1);
+            assertThat(compiler.compile(
+                    InMemoryCompiler.source("a.Second", "package a;\n\n@Register\npublic class Second {\n}\n")))
+                    .succeeded().hadNoteCount(1).hasServiceEntries(Processor.class, "a.First", "a.Second");
+            assertEquals(2, service.getCreatedFileManagers());
+        }
+    }
+
+    @Test
+    public void failedAssertion() throws IOException {
+        Compilation compilation = InMemoryCompiler.javac()
+                .compile(InMemoryCompiler.source("a.Broken", "package a;\n\nclass Broken {\n"));
+
+        AssertionError error = assertThrows(AssertionError.class, () -> assertThat(compilation).succeeded());
+        assertTrue(error.getMessage().startsWith("Expected the compilation to succeed"));
+        assertTrue(error.getMessage().contains("ERROR: /SOURCE_PATH/a/Broken.java:3: "));
+        assertThrows(AssertionError.class, () -> assertThat(compilation).diagnostic(0).isNote());
+        assertThrows(AssertionError.class,
+                () -> assertThat(compilation).hasServiceEntries(Processor.class, "a.Broken"));
+    }
+}